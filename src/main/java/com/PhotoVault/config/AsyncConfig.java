@@ -0,0 +1,46 @@
+package com.PhotoVault.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncConfig.class);
+
+    // Decoding a full-resolution photo takes hundreds of MB of heap, so image work runs on a
+    // small fixed pool. When the queue is full the task is dropped instead of blocking the
+    // upload that triggered it; the derivative backfill picks the file up later.
+    @Bean
+    public ThreadPoolTaskExecutor derivativeExecutor(DerivativeProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getMaxConcurrency());
+        executor.setMaxPoolSize(properties.getMaxConcurrency());
+        executor.setQueueCapacity(properties.getQueueCapacity());
+        executor.setThreadNamePrefix("derivative-");
+        executor.setRejectedExecutionHandler((task, pool) ->
+                logger.warn("Derivative queue full ({} pending), deferring to backfill", pool.getQueue().size()));
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+
+    // Stores the parts of batch uploads. Bounded so a few large batches cannot open an unlimited
+    // number of storage writes; when the queue is full the request thread stores the part itself.
+    @Bean
+    public ThreadPoolTaskExecutor uploadExecutor(FileStorageProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getBatchConcurrency());
+        executor.setMaxPoolSize(properties.getBatchConcurrency());
+        executor.setQueueCapacity(properties.getBatchMaxFiles());
+        executor.setThreadNamePrefix("upload-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+}
@@ -10,6 +10,8 @@ import software.amazon.awssdk.services.s3.S3ClientBuilder;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 
 import java.net.URI;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Configuration
 public class AwsS3Config {
@@ -36,6 +38,11 @@ public class AwsS3Config {
         return builder.build();
     }
 
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService s3TransferExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
     @Bean
     public S3Presigner s3Presigner(S3Client s3Client) {
         return S3Presigner.builder()
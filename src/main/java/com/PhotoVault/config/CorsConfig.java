@@ -22,7 +22,10 @@ public class CorsConfig {
 
         configuration.setAllowedOrigins(Arrays.asList(allowedOrigins.split(",")));
 
-        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS" ));
+        configuration.setAllowedMethods(Arrays.asList("GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS" ));
+
+        // Resumable upload progress is reported in headers.
+        configuration.setExposedHeaders(List.of("Location", "Upload-Offset", "Upload-Length"));
 
         configuration.setAllowedHeaders(List.of("*"));
 
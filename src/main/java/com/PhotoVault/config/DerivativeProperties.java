@@ -0,0 +1,66 @@
+package com.PhotoVault.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Configuration
+@ConfigurationProperties(prefix = "file.derivatives")
+public class DerivativeProperties {
+
+    private Boolean enabled = true;
+    private List<Integer> sizes = List.of(256, 1024, 2048);
+    private Integer maxConcurrency = 2;
+    private Integer queueCapacity = 200;
+    private Float quality = 0.82f;
+    private Integer backfillBatchSize = 50;
+
+    public Boolean getEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public List<Integer> getSizes() {
+        return sizes;
+    }
+
+    public void setSizes(List<Integer> sizes) {
+        this.sizes = sizes;
+    }
+
+    public Integer getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(Integer maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public Integer getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(Integer queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public Float getQuality() {
+        return quality;
+    }
+
+    public void setQuality(Float quality) {
+        this.quality = quality;
+    }
+
+    public Integer getBackfillBatchSize() {
+        return backfillBatchSize;
+    }
+
+    public void setBackfillBatchSize(Integer backfillBatchSize) {
+        this.backfillBatchSize = backfillBatchSize;
+    }
+}
@@ -0,0 +1,44 @@
+package com.PhotoVault.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "file.direct-upload")
+public class DirectUploadProperties {
+
+    // How long the presigned PUT accepts a new upload.
+    private Duration urlTtl = Duration.ofMinutes(15);
+
+    // How long the upload token can be completed; covers slow transfers that started in time.
+    private Duration completionTtl = Duration.ofHours(24);
+
+    // Signs upload tokens and local PUT URLs.
+    private String secret;
+
+    public Duration getUrlTtl() {
+        return urlTtl;
+    }
+
+    public void setUrlTtl(Duration urlTtl) {
+        this.urlTtl = urlTtl;
+    }
+
+    public Duration getCompletionTtl() {
+        return completionTtl;
+    }
+
+    public void setCompletionTtl(Duration completionTtl) {
+        this.completionTtl = completionTtl;
+    }
+
+    public String getSecret() {
+        return secret;
+    }
+
+    public void setSecret(String secret) {
+        this.secret = secret;
+    }
+}
@@ -0,0 +1,87 @@
+package com.PhotoVault.config;
+
+import com.PhotoVault.services.cache.EntityCacheMetrics;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.spi.CachingProvider;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+
+/**
+ * Hibernate second-level cache for the rows almost every request reads again: folders,
+ * photographers and share links. Regions are in-process Caffeine caches bounded by entry count
+ * and TTL, and Hibernate refuses to start if an entity names a region that is not created here.
+ */
+@Configuration
+public class EntityCacheConfig {
+
+    // Must match the regions named in the entities' @Cache and @NaturalIdCache annotations.
+    static final List<String> ENTITY_REGIONS = List.of("folder", "photographer", "share-link", "share-link-token");
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "entity-cache.enabled", havingValue = "true")
+    public CacheManager entityCacheManager(EntityCacheProperties properties) {
+        // A provider of its own, so every application context gets separate caches.
+        CachingProvider provider = new CaffeineCachingProvider();
+        CacheManager cacheManager = provider.getCacheManager(provider.getDefaultURI(), provider.getDefaultClassLoader());
+
+        for (String region : ENTITY_REGIONS) {
+            cacheManager.createCache(region, bounded(properties.getMaxEntries(), properties.getTtl()));
+        }
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                bounded(properties.getMaxEntries(), properties.getTtl()));
+        // Cached query results are checked against the last update of each table; a timestamp
+        // evicted early would let stale results through, so this region is neither bounded nor expired.
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                new CaffeineConfiguration<>());
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer entityCacheCustomizer(ObjectProvider<CacheManager> entityCacheManager) {
+        return hibernateProperties -> {
+            CacheManager cacheManager = entityCacheManager.getIfAvailable();
+            if (cacheManager == null) {
+                // With hibernate-jcache on the classpath Hibernate would otherwise enable it on its
+                // own, with unbounded default caches.
+                hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, false);
+                return;
+            }
+            hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            hibernateProperties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            hibernateProperties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
+            hibernateProperties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            // Region hit and miss counts come from Hibernate's statistics.
+            hibernateProperties.put(AvailableSettings.GENERATE_STATISTICS, true);
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "entity-cache.enabled", havingValue = "true")
+    public MeterBinder entityCacheMetrics(EntityManagerFactory entityManagerFactory) {
+        return new EntityCacheMetrics(entityManagerFactory.unwrap(SessionFactory.class).getStatistics(),
+                ENTITY_REGIONS, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME);
+    }
+
+    private static CaffeineConfiguration<Object, Object> bounded(long maxEntries, Duration ttl) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maxEntries));
+        configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        return configuration;
+    }
+}
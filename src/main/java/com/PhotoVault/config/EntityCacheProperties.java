@@ -0,0 +1,44 @@
+package com.PhotoVault.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "entity-cache")
+public class EntityCacheProperties {
+
+    private Boolean enabled = false;
+
+    // Per region, so each of folders, photographers and share links keeps its own hot set.
+    private Long maxEntries = 10_000L;
+
+    // Also bounds how stale an entry can get when the row is changed by another instance or
+    // outside Hibernate, e.g. the storage quota, which is set directly in the database.
+    private Duration ttl = Duration.ofMinutes(10);
+
+    public Boolean getEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Long getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(Long maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+}
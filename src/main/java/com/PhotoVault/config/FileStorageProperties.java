@@ -10,7 +10,13 @@ public class FileStorageProperties {
 
     private String dir;
     private Long maxSize;
+    private Long streamMaxSize;
     private String allowedExtensions;
+    private Integer batchMaxFiles = 100;
+    private Integer batchConcurrency = 4;
+
+    // Images are decoded in full for derivatives, so the pixel count bounds memory per decode.
+    private Long maxPixels = 100_000_000L;
 
     public String getDir() {
         return dir;
@@ -28,6 +34,14 @@ public class FileStorageProperties {
         this.maxSize = maxSize;
     }
 
+    public Long getStreamMaxSize() {
+        return streamMaxSize;
+    }
+
+    public void setStreamMaxSize(Long streamMaxSize) {
+        this.streamMaxSize = streamMaxSize;
+    }
+
     public String getAllowedExtensions() {
         return allowedExtensions;
     }
@@ -35,4 +49,28 @@ public class FileStorageProperties {
     public void setAllowedExtensions(String allowedExtensions) {
         this.allowedExtensions = allowedExtensions;
     }
+
+    public Integer getBatchMaxFiles() {
+        return batchMaxFiles;
+    }
+
+    public void setBatchMaxFiles(Integer batchMaxFiles) {
+        this.batchMaxFiles = batchMaxFiles;
+    }
+
+    public Integer getBatchConcurrency() {
+        return batchConcurrency;
+    }
+
+    public void setBatchConcurrency(Integer batchConcurrency) {
+        this.batchConcurrency = batchConcurrency;
+    }
+
+    public Long getMaxPixels() {
+        return maxPixels;
+    }
+
+    public void setMaxPixels(Long maxPixels) {
+        this.maxPixels = maxPixels;
+    }
 }
@@ -0,0 +1,43 @@
+package com.PhotoVault.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "folder.stats-check")
+public class FolderStatsCheckProperties {
+
+    private Boolean enabled = false;
+
+    // Folders compared against tb_files per batch; drifted ones are locked and repaired together.
+    private Integer batchSize = 500;
+
+    // Pause between batches, to limit load on the database.
+    private Duration batchPause = Duration.ofMillis(200);
+
+    public Boolean getEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(Integer batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Duration getBatchPause() {
+        return batchPause;
+    }
+
+    public void setBatchPause(Duration batchPause) {
+        this.batchPause = batchPause;
+    }
+}
@@ -0,0 +1,55 @@
+package com.PhotoVault.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "file.render")
+public class ImageRenderProperties {
+
+    private String cacheDir = "./cache/render";
+    private Long cacheMaxBytes = 1024L * 1024 * 1024;
+    private Integer maxDimension = 4096;
+    private Integer defaultQuality = 82;
+    private Integer maxConcurrency = 4;
+
+    public String getCacheDir() {
+        return cacheDir;
+    }
+
+    public void setCacheDir(String cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    public Long getCacheMaxBytes() {
+        return cacheMaxBytes;
+    }
+
+    public void setCacheMaxBytes(Long cacheMaxBytes) {
+        this.cacheMaxBytes = cacheMaxBytes;
+    }
+
+    public Integer getMaxDimension() {
+        return maxDimension;
+    }
+
+    public void setMaxDimension(Integer maxDimension) {
+        this.maxDimension = maxDimension;
+    }
+
+    public Integer getDefaultQuality() {
+        return defaultQuality;
+    }
+
+    public void setDefaultQuality(Integer defaultQuality) {
+        this.defaultQuality = defaultQuality;
+    }
+
+    public Integer getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(Integer maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+}
@@ -0,0 +1,51 @@
+package com.PhotoVault.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "storage.memory-cache")
+public class MemoryCacheProperties {
+
+    private Boolean enabled = false;
+
+    // Held in direct buffers, so it counts against -XX:MaxDirectMemorySize rather than the heap.
+    private Long maxBytes = 256L * 1024 * 1024;
+
+    // Entries take whole pages; smaller pages waste less on small thumbnails.
+    private Integer pageSize = 16 * 1024;
+
+    private Integer maxObjectSize = 1024 * 1024;
+
+    public Boolean getEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(Long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public Integer getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(Integer pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public Integer getMaxObjectSize() {
+        return maxObjectSize;
+    }
+
+    public void setMaxObjectSize(Integer maxObjectSize) {
+        this.maxObjectSize = maxObjectSize;
+    }
+}
@@ -0,0 +1,49 @@
+package com.PhotoVault.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "aws.s3.multipart")
+public class S3MultipartProperties {
+
+    // S3 rejects parts smaller than 5MB (except the last one).
+    public static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+    private Long threshold = 16L * 1024 * 1024;
+    private Long partSize = 8L * 1024 * 1024;
+    private Integer maxConcurrency = 4;
+    private Integer maxRetries = 3;
+
+    public Long getThreshold() {
+        return threshold;
+    }
+
+    public void setThreshold(Long threshold) {
+        this.threshold = threshold;
+    }
+
+    public Long getPartSize() {
+        return partSize;
+    }
+
+    public void setPartSize(Long partSize) {
+        this.partSize = partSize;
+    }
+
+    public Integer getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(Integer maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public Integer getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(Integer maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+}
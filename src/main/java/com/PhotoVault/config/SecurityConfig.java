@@ -3,6 +3,7 @@ package com.PhotoVault.config;
 import com.PhotoVault.security.JwtAccessDeniedHandler;
 import com.PhotoVault.security.JwtAuthenticationEntryPoint;
 import com.PhotoVault.services.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -79,6 +80,7 @@ public class SecurityConfig {
                         .authenticationEntryPoint(jwtAuthenticationEntryPoint)
                         .accessDeniedHandler(jwtAccessDeniedHandler))
                 .authorizeHttpRequests(auth -> auth
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(
                                 "/swagger-ui/**",
                                 "/v3/api-docs/**",
@@ -86,12 +88,15 @@ public class SecurityConfig {
                                 ).permitAll()
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/api/public/share/**").permitAll()
+                        .requestMatchers("/api/uploads/local/**").permitAll()
                         .requestMatchers("/api/folders/**").hasRole("PHOTOGRAPHER")
                         .requestMatchers("/api/files/**").authenticated()
                         .requestMatchers("/api/shareLinks/**").hasRole("PHOTOGRAPHER")
                         .requestMatchers("/api/photographers/**").hasRole("PHOTOGRAPHER")
                         .requestMatchers("/api/clients/**").hasRole("CLIENT")
                         .requestMatchers("/actuator/health/**").permitAll()
+                        // Operator-only, over JMX; never served to API users even if exposed by mistake.
+                        .requestMatchers("/actuator/storagereconcile/**").denyAll()
                         .anyRequest().authenticated()
                 )
                 .authenticationProvider(authenticationProvider())
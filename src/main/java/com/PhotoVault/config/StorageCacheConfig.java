@@ -0,0 +1,69 @@
+package com.PhotoVault.config;
+
+import com.PhotoVault.services.StorageService;
+import com.PhotoVault.services.cache.CacheMetrics;
+import com.PhotoVault.services.cache.DiskLruCache;
+import com.PhotoVault.services.cache.OffHeapCache;
+import com.PhotoVault.services.storage.CachingStorageService;
+import com.PhotoVault.services.storage.LocalStorageService;
+import com.PhotoVault.services.storage.MemoryCachingStorageService;
+import com.PhotoVault.services.storage.S3StorageService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.nio.file.Paths;
+
+/**
+ * Every consumer of StorageService gets the caches layered over the configured store; the
+ * underlying storage bean stays injectable by its own type, or as {@link #BACKING_STORE} for
+ * callers that should not go through the caches.
+ */
+@Configuration
+public class StorageCacheConfig {
+
+    public static final String BACKING_STORE = "backingStorageService";
+
+    private final MemoryCacheProperties memoryCacheProperties;
+    private final MeterRegistry meterRegistry;
+
+    public StorageCacheConfig(MemoryCacheProperties memoryCacheProperties, MeterRegistry meterRegistry) {
+        this.memoryCacheProperties = memoryCacheProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "storage.type", havingValue = "s3")
+    public StorageService cachingS3StorageService(S3StorageService s3StorageService,
+                                                  StorageCacheProperties properties) {
+        StorageService storageService = s3StorageService;
+        if (properties.getEnabled()) {
+            DiskLruCache cache = new DiskLruCache("storage", Paths.get(properties.getDir()), properties.getMaxBytes());
+            new CacheMetrics(cache).bindTo(meterRegistry);
+            storageService = new CachingStorageService(storageService, cache, properties.getMaxObjectSize());
+        }
+        return withMemoryCache(storageService);
+    }
+
+    // Downloads of local files go out through sendfile and skip this, but derivative generation
+    // and rendering read through load() and still benefit.
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "storage.type", havingValue = "local", matchIfMissing = true)
+    public StorageService cachingLocalStorageService(LocalStorageService localStorageService) {
+        return withMemoryCache(localStorageService);
+    }
+
+    private StorageService withMemoryCache(StorageService storageService) {
+        if (!memoryCacheProperties.getEnabled()) {
+            return storageService;
+        }
+        OffHeapCache cache = new OffHeapCache("storage-memory",
+                memoryCacheProperties.getMaxBytes(), memoryCacheProperties.getPageSize());
+        new CacheMetrics(cache).bindTo(meterRegistry);
+        return new MemoryCachingStorageService(storageService, cache, memoryCacheProperties.getMaxObjectSize());
+    }
+}
@@ -0,0 +1,50 @@
+package com.PhotoVault.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "storage.cache")
+public class StorageCacheProperties {
+
+    // Only applies to S3 storage; local storage is already on disk.
+    private Boolean enabled = false;
+    private String dir = "./cache/storage";
+    private Long maxBytes = 5L * 1024 * 1024 * 1024;
+
+    // Larger objects are streamed from the store without being cached, so a few big files
+    // cannot push out the many photos a gallery keeps asking for.
+    private Long maxObjectSize = 64L * 1024 * 1024;
+
+    public Boolean getEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDir() {
+        return dir;
+    }
+
+    public void setDir(String dir) {
+        this.dir = dir;
+    }
+
+    public Long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(Long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public Long getMaxObjectSize() {
+        return maxObjectSize;
+    }
+
+    public void setMaxObjectSize(Long maxObjectSize) {
+        this.maxObjectSize = maxObjectSize;
+    }
+}
@@ -0,0 +1,88 @@
+package com.PhotoVault.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "storage.reconcile")
+public class StorageReconcileProperties {
+
+    private Boolean enabled = false;
+
+    // Scheduled runs only report what they would delete.
+    private Boolean dryRun = true;
+
+    // Objects younger than this may belong to an upload that has not been recorded yet, so it
+    // must exceed file.direct-upload.completion-ttl.
+    private Duration grace = Duration.ofHours(48);
+
+    // Soft-deleted files are kept this long, then purged so their bytes can be released.
+    private Duration deletedRetention = Duration.ofDays(30);
+
+    // Objects checked against the database, and deleted, per batch.
+    private Integer batchSize = 1000;
+
+    // Pause between batches, to limit load on the database and the store.
+    private Duration batchPause = Duration.ofMillis(500);
+
+    // Orphans listed in the report, so a dry run shows what would go.
+    private Integer reportSampleSize = 100;
+
+    public Boolean getEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Boolean getDryRun() {
+        return dryRun;
+    }
+
+    public void setDryRun(Boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    public Duration getGrace() {
+        return grace;
+    }
+
+    public void setGrace(Duration grace) {
+        this.grace = grace;
+    }
+
+    public Duration getDeletedRetention() {
+        return deletedRetention;
+    }
+
+    public void setDeletedRetention(Duration deletedRetention) {
+        this.deletedRetention = deletedRetention;
+    }
+
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(Integer batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Duration getBatchPause() {
+        return batchPause;
+    }
+
+    public void setBatchPause(Duration batchPause) {
+        this.batchPause = batchPause;
+    }
+
+    public Integer getReportSampleSize() {
+        return reportSampleSize;
+    }
+
+    public void setReportSampleSize(Integer reportSampleSize) {
+        this.reportSampleSize = reportSampleSize;
+    }
+}
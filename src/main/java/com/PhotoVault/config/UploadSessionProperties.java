@@ -0,0 +1,44 @@
+package com.PhotoVault.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "file.upload-session")
+public class UploadSessionProperties {
+
+    // Counted from creation; must stay below the 24h after which S3 multipart uploads are aborted at startup.
+    private Duration ttl = Duration.ofHours(12);
+
+    // Where local storage keeps partially received files.
+    private String stagingDir = "./upload-sessions";
+
+    // Suggested chunk size for local storage; S3 always uses the multipart part size.
+    private Long chunkSize = 8L * 1024 * 1024;
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public String getStagingDir() {
+        return stagingDir;
+    }
+
+    public void setStagingDir(String stagingDir) {
+        this.stagingDir = stagingDir;
+    }
+
+    public Long getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(Long chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+}
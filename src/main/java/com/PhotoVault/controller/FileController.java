@@ -1,21 +1,37 @@
 package com.PhotoVault.controller;
 
 
+import com.PhotoVault.dto.request.DirectUploadCompleteRequestDTO;
+import com.PhotoVault.dto.request.DirectUploadRequestDTO;
+import com.PhotoVault.dto.request.UploadSessionRequestDTO;
+import com.PhotoVault.dto.response.BatchUploadResponseDTO;
+import com.PhotoVault.dto.response.CursorPageResponseDTO;
+import com.PhotoVault.dto.response.DirectUploadResponseDTO;
 import com.PhotoVault.dto.response.FileResponseDTO;
+import com.PhotoVault.dto.response.UploadSessionResponseDTO;
 import com.PhotoVault.entities.File;
+import com.PhotoVault.entities.FileDerivative;
 import com.PhotoVault.exception.ForbiddenException;
+import com.PhotoVault.services.FileDownloadService;
 import com.PhotoVault.services.FileService;
 import com.PhotoVault.services.ShareLinkService;
+import com.PhotoVault.services.UploadSessionService;
+import com.PhotoVault.services.image.DerivativeService;
+import com.PhotoVault.services.image.ImageRenderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import org.springframework.core.io.Resource;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -23,7 +39,11 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
 import java.util.List;
 
 @RestController
@@ -32,12 +52,27 @@ import java.util.List;
 @SecurityRequirement(name = "bearer-jwt")
 public class FileController {
 
+    // Resumable upload headers, as in the tus protocol.
+    private static final String UPLOAD_OFFSET = "Upload-Offset";
+    private static final String UPLOAD_LENGTH = "Upload-Length";
+    private static final String OFFSET_OCTET_STREAM = "application/offset+octet-stream";
+
     private final FileService fileService;
     private final ShareLinkService shareLinkService;
+    private final FileDownloadService fileDownloadService;
+    private final DerivativeService derivativeService;
+    private final ImageRenderService imageRenderService;
+    private final UploadSessionService uploadSessionService;
 
-    public FileController(FileService fileService, ShareLinkService shareLinkService) {
+    public FileController(FileService fileService, ShareLinkService shareLinkService, FileDownloadService fileDownloadService,
+                          DerivativeService derivativeService, ImageRenderService imageRenderService,
+                          UploadSessionService uploadSessionService) {
         this.fileService = fileService;
         this.shareLinkService = shareLinkService;
+        this.fileDownloadService = fileDownloadService;
+        this.derivativeService = derivativeService;
+        this.imageRenderService = imageRenderService;
+        this.uploadSessionService = uploadSessionService;
     }
 
     @PostMapping("/folders/{folderId}/files")
@@ -57,6 +92,193 @@ public class FileController {
 
     }
 
+    @PostMapping("/folders/{folderId}/files/batch")
+    @Operation(
+            summary = "Upload several files to a folder",
+            description = "Uploads all 'files' parts in one request. Each part is validated and stored independently; " +
+                    "the response lists the outcome of every part in request order."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed, see per-item results"),
+            @ApiResponse(responseCode = "400", description = "No files or too many files"),
+            @ApiResponse(responseCode = "403", description = "Forbidden"),
+            @ApiResponse(responseCode = "404", description = "Folder not found")
+    })
+    public ResponseEntity<BatchUploadResponseDTO> uploadFiles(
+            @Parameter(description = "ID of the folder to upload the files to") @PathVariable Long folderId,
+            @Parameter(description = "Files to be uploaded") @RequestParam("files") List<MultipartFile> files){
+
+        return ResponseEntity.ok(fileService.uploadFiles(folderId, files));
+    }
+
+    @PostMapping("/folders/{folderId}/files/stream")
+    @Operation(
+            summary = "Stream a file to a folder",
+            description = "Uploads the raw request body as a file, piping it to storage as it arrives. " +
+                    "The Content-Length header is required and the Content-Type header is stored as the file type."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "File uploaded successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid input data"),
+            @ApiResponse(responseCode = "403", description = "Forbidden"),
+            @ApiResponse(responseCode = "404", description = "Folder not found")
+    })
+    public ResponseEntity<FileResponseDTO> uploadFileStream(
+            @Parameter(description = "ID of the folder to upload the file to") @PathVariable Long folderId,
+            @Parameter(description = "Original name of the file") @RequestParam("fileName") String fileName,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            HttpServletRequest request) throws IOException {
+
+        String fileContentType = contentType != null ? contentType : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+
+        FileResponseDTO response = fileService.uploadFileStream(
+                folderId, fileName, request.getInputStream(), request.getContentLengthLong(), fileContentType);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @PostMapping("/folders/{folderId}/files/uploads")
+    @Operation(
+            summary = "Start a direct upload to storage",
+            description = "Checks folder ownership and storage quota and returns a presigned PUT target. Send the file " +
+                    "body to uploadUrl with the returned headers, then call the complete endpoint with the uploadToken."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Upload target issued"),
+            @ApiResponse(responseCode = "400", description = "Invalid input data or quota exceeded"),
+            @ApiResponse(responseCode = "403", description = "Forbidden"),
+            @ApiResponse(responseCode = "404", description = "Folder not found")
+    })
+    public ResponseEntity<DirectUploadResponseDTO> initiateDirectUpload(
+            @Parameter(description = "ID of the folder to upload the file to") @PathVariable Long folderId,
+            @Valid @RequestBody DirectUploadRequestDTO request){
+
+        return ResponseEntity.ok(fileService.initiateDirectUpload(folderId, request));
+    }
+
+    @PostMapping("/folders/{folderId}/files/uploads/complete")
+    @Operation(
+            summary = "Complete a direct upload",
+            description = "Verifies that the object sent to the presigned target exists with the declared size and " +
+                    "creates the file. Repeating the call with the same token returns the same file."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "File created"),
+            @ApiResponse(responseCode = "400", description = "Upload missing, incomplete or token invalid"),
+            @ApiResponse(responseCode = "403", description = "Forbidden"),
+            @ApiResponse(responseCode = "410", description = "Upload token expired")
+    })
+    public ResponseEntity<FileResponseDTO> completeDirectUpload(
+            @Parameter(description = "ID of the folder the upload was started in") @PathVariable Long folderId,
+            @Valid @RequestBody DirectUploadCompleteRequestDTO request){
+
+        FileResponseDTO response = fileService.completeDirectUpload(folderId, request.getUploadToken());
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @PostMapping("/folders/{folderId}/files/sessions")
+    @Operation(
+            summary = "Start a resumable upload",
+            description = "Creates an upload session for a file of the given size. Send the file in chunks with PATCH " +
+                    "to uploadUrl, chunkSize bytes each except the last, then call the complete endpoint."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Upload session created"),
+            @ApiResponse(responseCode = "400", description = "Invalid input data"),
+            @ApiResponse(responseCode = "403", description = "Forbidden"),
+            @ApiResponse(responseCode = "404", description = "Folder not found")
+    })
+    public ResponseEntity<UploadSessionResponseDTO> createUploadSession(
+            @Parameter(description = "ID of the folder to upload the file to") @PathVariable Long folderId,
+            @Valid @RequestBody UploadSessionRequestDTO request){
+
+        UploadSessionResponseDTO session = uploadSessionService.createSession(folderId, request);
+        return ResponseEntity.created(URI.create(session.getUploadUrl()))
+                .header(UPLOAD_OFFSET, String.valueOf(session.getOffset()))
+                .header(UPLOAD_LENGTH, String.valueOf(session.getSize()))
+                .body(session);
+    }
+
+    @GetMapping("/folders/{folderId}/files/sessions/{sessionId}")
+    @Operation(
+            summary = "Get the state of a resumable upload",
+            description = "Returns the number of bytes received so far, also in the Upload-Offset header. " +
+                    "HEAD returns the headers only."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Upload session found"),
+            @ApiResponse(responseCode = "404", description = "Upload session not found")
+    })
+    public ResponseEntity<UploadSessionResponseDTO> getUploadSession(
+            @Parameter(description = "ID of the folder the upload was started in") @PathVariable Long folderId,
+            @Parameter(description = "ID of the upload session") @PathVariable String sessionId){
+
+        UploadSessionResponseDTO session = uploadSessionService.getSession(folderId, sessionId);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .header(UPLOAD_OFFSET, String.valueOf(session.getOffset()))
+                .header(UPLOAD_LENGTH, String.valueOf(session.getSize()))
+                .body(session);
+    }
+
+    @PatchMapping(value = "/folders/{folderId}/files/sessions/{sessionId}", consumes = OFFSET_OCTET_STREAM)
+    @Operation(
+            summary = "Send a chunk of a resumable upload",
+            description = "Appends the request body at Upload-Offset, which must equal the current offset. The response " +
+                    "Upload-Offset is where the next chunk starts; it can be short of the bytes sent if the chunk was cut off."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Chunk stored"),
+            @ApiResponse(responseCode = "400", description = "Missing Content-Length, chunk past the declared size, or chunk that is not a whole number of chunkSize blocks and does not end the file"),
+            @ApiResponse(responseCode = "404", description = "Upload session not found"),
+            @ApiResponse(responseCode = "409", description = "Offset mismatch or concurrent chunk"),
+            @ApiResponse(responseCode = "410", description = "Upload session expired")
+    })
+    public ResponseEntity<Void> appendUploadChunk(
+            @Parameter(description = "ID of the folder the upload was started in") @PathVariable Long folderId,
+            @Parameter(description = "ID of the upload session") @PathVariable String sessionId,
+            @RequestHeader(UPLOAD_OFFSET) long offset,
+            HttpServletRequest request) throws IOException {
+
+        UploadSessionResponseDTO session = uploadSessionService.appendChunk(
+                folderId, sessionId, offset, request.getInputStream(), request.getContentLengthLong());
+        return ResponseEntity.noContent()
+                .header(UPLOAD_OFFSET, String.valueOf(session.getOffset()))
+                .build();
+    }
+
+    @PostMapping("/folders/{folderId}/files/sessions/{sessionId}/complete")
+    @Operation(
+            summary = "Complete a resumable upload",
+            description = "Creates the file once every byte has been received and removes the session."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "File created"),
+            @ApiResponse(responseCode = "404", description = "Upload session not found"),
+            @ApiResponse(responseCode = "409", description = "Upload incomplete"),
+            @ApiResponse(responseCode = "410", description = "Upload session expired")
+    })
+    public ResponseEntity<FileResponseDTO> completeUploadSession(
+            @Parameter(description = "ID of the folder the upload was started in") @PathVariable Long folderId,
+            @Parameter(description = "ID of the upload session") @PathVariable String sessionId){
+
+        FileResponseDTO response = uploadSessionService.completeSession(folderId, sessionId);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @DeleteMapping("/folders/{folderId}/files/sessions/{sessionId}")
+    @Operation(summary = "Cancel a resumable upload", description = "Discards the received data and the session.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Upload session cancelled"),
+            @ApiResponse(responseCode = "404", description = "Upload session not found")
+    })
+    public ResponseEntity<Void> cancelUploadSession(
+            @Parameter(description = "ID of the folder the upload was started in") @PathVariable Long folderId,
+            @Parameter(description = "ID of the upload session") @PathVariable String sessionId){
+
+        uploadSessionService.cancelSession(folderId, sessionId);
+        return ResponseEntity.noContent().build();
+    }
+
     @GetMapping("/folders/{folderId}/files")
     @Operation(
             summary = "Get files by folder ID",
@@ -70,36 +292,128 @@ public class FileController {
         return ResponseEntity.ok(fileService.getFilesByFolder(folderId, pageable));
     }
 
+    @GetMapping("/folders/{folderId}/files/scroll")
+    @Operation(
+            summary = "Scroll through the files of a folder",
+            description = "Lists files newest first, one page at a time. Pass the nextCursor of a response to get " +
+                    "the page after it; it is absent on the last page. Pages cost the same however deep they are, " +
+                    "unlike the offset-based listing. The total is only counted when includeTotal is set."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Page of files returned"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor"),
+            @ApiResponse(responseCode = "404", description = "Folder not found")
+    })
+    public ResponseEntity<CursorPageResponseDTO<FileResponseDTO>> scrollFilesByFolder(
+            @Parameter(description = "ID of the folder") @PathVariable Long folderId,
+            @Parameter(description = "nextCursor from the previous page; omit for the first page")
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "Page size, 1-100") @RequestParam(value = "size", defaultValue = "20") int size,
+            @Parameter(description = "Also return the number of files in the folder")
+            @RequestParam(value = "includeTotal", defaultValue = "false") boolean includeTotal){
+
+        return ResponseEntity.ok(fileService.getFilesByFolder(folderId, cursor, size, includeTotal));
+    }
+
     @GetMapping("files/{id}")
-    @Operation(summary = "Download a file by ID", description = "Downloads the file with the specified ID.")
+    @Operation(
+            summary = "Download a file by ID",
+            description = "Downloads the file with the specified ID. Supports Range and If-Range requests, " +
+                    "answering with 206 Partial Content for single and multiple byte ranges. Responses carry a strong " +
+                    "ETag derived from the content hash; If-None-Match and If-Modified-Since are answered with 304."
+    )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "File downloaded successfully"),
+            @ApiResponse(responseCode = "304", description = "Cached copy is still current"),
+            @ApiResponse(responseCode = "206", description = "Requested byte ranges returned"),
+            @ApiResponse(responseCode = "302", description = "Redirect to a short-lived presigned storage URL (redirect mode)"),
             @ApiResponse(responseCode = "403", description = "Forbidden"),
-            @ApiResponse(responseCode = "404", description = "File not found")
+            @ApiResponse(responseCode = "404", description = "File not found"),
+            @ApiResponse(responseCode = "416", description = "Requested range not satisfiable")
     })
-    public ResponseEntity<Resource> downloadFile(
+    public ResponseEntity<StreamingResponseBody> downloadFile(
             @Parameter(description = "ID of the file to download") @PathVariable Long id,
             @RequestParam(value = "shareToken", required = false) String shareToken,
+            Authentication authentication,
+            HttpServletRequest request){
+
+        validateDownloadAccess(id, shareToken, authentication);
+
+        File fileEntity = fileService.getFileEntity(id);
+        return fileDownloadService.download(fileEntity, request);
+    }
+
+    @GetMapping("files/{id}/derivatives/{size}")
+    @Operation(
+            summary = "Download a resized derivative of a file",
+            description = "Downloads a thumbnail or preview generated after upload. Available sizes are listed " +
+                    "in the file's derivatives; sizes larger than the original are not generated."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Derivative downloaded successfully"),
+            @ApiResponse(responseCode = "403", description = "Forbidden"),
+            @ApiResponse(responseCode = "404", description = "File or derivative not found")
+    })
+    public ResponseEntity<StreamingResponseBody> downloadDerivative(
+            @Parameter(description = "ID of the original file") @PathVariable Long id,
+            @Parameter(description = "Bounding box size in pixels") @PathVariable Integer size,
+            @RequestParam(value = "shareToken", required = false) String shareToken,
+            Authentication authentication,
+            HttpServletRequest request){
+
+        validateDownloadAccess(id, shareToken, authentication);
+
+        File fileEntity = fileService.getFileEntity(id);
+        FileDerivative derivative = derivativeService.getDerivative(id, size);
+        return fileDownloadService.download(derivative, fileEntity, request);
+    }
+
+    @GetMapping("files/{id}/render")
+    @Operation(
+            summary = "Render a resized copy of a file",
+            description = "Resizes the image to fit (contain) or fill (cover) the requested box, scaled by the device " +
+                    "pixel ratio. Renditions are cached, so repeated requests for the same parameters are served from disk."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Rendition returned"),
+            @ApiResponse(responseCode = "400", description = "Invalid rendering parameters"),
+            @ApiResponse(responseCode = "403", description = "Forbidden"),
+            @ApiResponse(responseCode = "404", description = "File not found")
+    })
+    public ResponseEntity<Resource> renderFile(
+            @Parameter(description = "ID of the file to render") @PathVariable Long id,
+            @Parameter(description = "Maximum width in CSS pixels") @RequestParam(value = "w", required = false) Integer width,
+            @Parameter(description = "Maximum height in CSS pixels") @RequestParam(value = "h", required = false) Integer height,
+            @Parameter(description = "contain (default) or cover") @RequestParam(value = "fit", required = false) String fit,
+            @Parameter(description = "JPEG quality, 1-100") @RequestParam(value = "q", required = false) Integer quality,
+            @Parameter(description = "Device pixel ratio, 1-4") @RequestParam(value = "dpr", required = false) Double dpr,
+            @RequestParam(value = "shareToken", required = false) String shareToken,
             Authentication authentication){
 
+        validateDownloadAccess(id, shareToken, authentication);
+
+        File fileEntity = fileService.getFileEntity(id);
+        ImageRenderService.Rendition rendition = imageRenderService.render(fileEntity, width, height, fit, quality, dpr);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(rendition.contentType()))
+                .contentLength(rendition.size())
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePrivate())
+                .body(new InputStreamResource(rendition.inputStream()));
+    }
+
+    private void validateDownloadAccess(Long id, String shareToken, Authentication authentication) {
         boolean hasShareToken = shareToken != null && !shareToken.isEmpty();
         boolean hasAuthentication = authentication != null && authentication.isAuthenticated() && !"anonymousUser".equals(authentication.getPrincipal());
 
         if (hasShareToken) {
             shareLinkService.validateTokenForFile(shareToken, id);
         } else if (hasAuthentication) {
-            fileService.validateAccessForFile(shareToken, id);
+            fileService.validateAccessForFile(id);
 
         }else {
             throw new ForbiddenException("Access denied. Provide a valid shareToken or authenticate.");
         }
-
-        Resource resource = fileService.downloadFile(id);
-        File fileEntity = fileService.getFileEntity(id);
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(fileEntity.getContentType()))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileEntity.getName() + "\"")
-                .body(resource);
     }
 
     @DeleteMapping("files/{id}")
@@ -0,0 +1,62 @@
+package com.PhotoVault.controller;
+
+import com.PhotoVault.exception.ForbiddenException;
+import com.PhotoVault.services.storage.LocalStorageService;
+import com.PhotoVault.services.storage.LocalUploadSigner;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+/**
+ * Receiving end of presigned uploads when files are kept on local disk, so the direct upload
+ * flow behaves the same without S3. Authorization comes from the URL signature, not a JWT.
+ */
+@RestController
+@RequestMapping("/api/uploads/local")
+@ConditionalOnProperty(name = "storage.type", havingValue = "local", matchIfMissing = true)
+@Tag(name = "Local Upload Controller", description = "Target of presigned uploads for local storage")
+public class LocalUploadController {
+
+    private final LocalStorageService localStorageService;
+    private final LocalUploadSigner uploadSigner;
+
+    public LocalUploadController(LocalStorageService localStorageService, LocalUploadSigner uploadSigner) {
+        this.localStorageService = localStorageService;
+        this.uploadSigner = uploadSigner;
+    }
+
+    @PutMapping("/{fileName}")
+    @Operation(summary = "Upload a file body to a presigned local URL")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "File stored"),
+            @ApiResponse(responseCode = "400", description = "Body does not match the signed size or SHA-256"),
+            @ApiResponse(responseCode = "403", description = "Signature invalid or expired")
+    })
+    public ResponseEntity<Void> upload(
+            @PathVariable String fileName,
+            @RequestParam long size,
+            @RequestParam String contentType,
+            @RequestParam String sha256,
+            @RequestParam long expires,
+            @RequestParam String signature,
+            HttpServletRequest request) throws IOException {
+
+        if (!uploadSigner.verify(fileName, size, contentType, sha256, expires, signature)) {
+            throw new ForbiddenException("Upload URL is invalid or has expired");
+        }
+
+        localStorageService.storeVerified(request.getInputStream(), fileName, size, sha256);
+        return ResponseEntity.ok().build();
+    }
+}
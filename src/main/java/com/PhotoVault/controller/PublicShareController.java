@@ -3,11 +3,13 @@ package com.PhotoVault.controller;
 import com.PhotoVault.dto.response.FileResponseDTO;
 import com.PhotoVault.dto.response.FolderAccessDTO;
 import com.PhotoVault.services.ShareLinkService;
+import com.PhotoVault.services.archive.FolderArchiveService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
@@ -15,6 +17,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/public/share")
@@ -22,9 +25,11 @@ import org.springframework.web.bind.annotation.RestController;
 public class PublicShareController {
 
     private final ShareLinkService shareLinkService;
+    private final FolderArchiveService folderArchiveService;
 
-    public PublicShareController(ShareLinkService shareLinkService) {
+    public PublicShareController(ShareLinkService shareLinkService, FolderArchiveService folderArchiveService) {
         this.shareLinkService = shareLinkService;
+        this.folderArchiveService = folderArchiveService;
     }
 
     @GetMapping("/{token}")
@@ -44,4 +49,27 @@ public class PublicShareController {
 
         return ResponseEntity.ok(shareLinkService.accessFolderByToken(token, pageable));
     }
+
+    @GetMapping("/{token}/download")
+    @Operation(
+            summary = "Download shared folder as ZIP",
+            description = "Streams every file in the shared folder as a single uncompressed ZIP. The response has an " +
+                    "exact Content-Length and a strong ETag; interrupted downloads can be resumed with a Range request " +
+                    "and If-Range. No authentication required."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Archive streamed"),
+            @ApiResponse(responseCode = "206", description = "Requested part of the archive returned"),
+            @ApiResponse(responseCode = "304", description = "Archive unchanged"),
+            @ApiResponse(responseCode = "403", description = "Invalid or expired token"),
+            @ApiResponse(responseCode = "404", description = "Shared folder not found"),
+            @ApiResponse(responseCode = "416", description = "Requested range not satisfiable")
+    })
+    public ResponseEntity<StreamingResponseBody> downloadSharedFolder(
+            @Parameter(description = "Share token")
+            @PathVariable String token,
+            HttpServletRequest request){
+
+        return folderArchiveService.download(shareLinkService.getSharedFolder(token), request);
+    }
 }
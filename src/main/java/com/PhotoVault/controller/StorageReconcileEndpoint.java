@@ -0,0 +1,35 @@
+package com.PhotoVault.controller;
+
+import com.PhotoVault.services.StorageReconcileService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code storagereconcile}: the read operation returns the report of the last run, the write
+ * operation starts a run, as a dry run unless {@code dryRun=false} is passed. Meant for operators
+ * over JMX; the application has no operator role, so {@link com.PhotoVault.config.SecurityConfig}
+ * refuses it over HTTP.
+ */
+@Component
+@Endpoint(id = "storagereconcile")
+public class StorageReconcileEndpoint {
+
+    private final StorageReconcileService storageReconcileService;
+
+    public StorageReconcileEndpoint(StorageReconcileService storageReconcileService) {
+        this.storageReconcileService = storageReconcileService;
+    }
+
+    @ReadOperation
+    public StorageReconcileService.ReconcileReport lastReport() {
+        return storageReconcileService.getLastReport();
+    }
+
+    @WriteOperation
+    public StorageReconcileService.ReconcileReport reconcile(@Nullable Boolean dryRun) {
+        return storageReconcileService.reconcile(dryRun == null || dryRun);
+    }
+}
@@ -0,0 +1,20 @@
+package com.PhotoVault.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+
+public class DirectUploadCompleteRequestDTO {
+
+    @NotBlank(message = "Upload token is required")
+    private String uploadToken;
+
+    public DirectUploadCompleteRequestDTO() {
+    }
+
+    public String getUploadToken() {
+        return uploadToken;
+    }
+
+    public void setUploadToken(String uploadToken) {
+        this.uploadToken = uploadToken;
+    }
+}
@@ -0,0 +1,58 @@
+package com.PhotoVault.dto.request;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+
+public class DirectUploadRequestDTO {
+
+    @NotBlank(message = "File name is required")
+    private String fileName;
+
+    @NotNull(message = "Size is required")
+    @Min(value = 1, message = "Size must be at least 1 byte")
+    private Long size;
+
+    @NotBlank(message = "Content type is required")
+    private String contentType;
+
+    @NotBlank(message = "SHA-256 is required")
+    @Pattern(regexp = "^[0-9a-fA-F]{64}$", message = "SHA-256 must be 64 hex characters")
+    private String sha256;
+
+    public DirectUploadRequestDTO() {
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+}
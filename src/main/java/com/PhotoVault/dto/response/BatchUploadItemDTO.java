@@ -0,0 +1,50 @@
+package com.PhotoVault.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchUploadItemDTO {
+
+    private final Integer index;
+    private final String fileName;
+    private final Boolean uploaded;
+    private final FileResponseDTO file;
+    private final String error;
+
+    public BatchUploadItemDTO(Integer index, String fileName, Boolean uploaded, FileResponseDTO file, String error) {
+        this.index = index;
+        this.fileName = fileName;
+        this.uploaded = uploaded;
+        this.file = file;
+        this.error = error;
+    }
+
+    public static BatchUploadItemDTO uploaded(int index, String fileName, FileResponseDTO file) {
+        return new BatchUploadItemDTO(index, fileName, true, file, null);
+    }
+
+    public static BatchUploadItemDTO failed(int index, String fileName, String error) {
+        return new BatchUploadItemDTO(index, fileName, false, null, error);
+    }
+
+    // Position of the part in the request.
+    public Integer getIndex() {
+        return index;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public Boolean getUploaded() {
+        return uploaded;
+    }
+
+    public FileResponseDTO getFile() {
+        return file;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,28 @@
+package com.PhotoVault.dto.response;
+
+import java.util.List;
+
+public class BatchUploadResponseDTO {
+
+    private final Integer uploaded;
+    private final Integer failed;
+    private final List<BatchUploadItemDTO> items;
+
+    public BatchUploadResponseDTO(List<BatchUploadItemDTO> items) {
+        this.items = items;
+        this.uploaded = (int) items.stream().filter(BatchUploadItemDTO::getUploaded).count();
+        this.failed = items.size() - uploaded;
+    }
+
+    public Integer getUploaded() {
+        return uploaded;
+    }
+
+    public Integer getFailed() {
+        return failed;
+    }
+
+    public List<BatchUploadItemDTO> getItems() {
+        return items;
+    }
+}
@@ -0,0 +1,32 @@
+package com.PhotoVault.dto.response;
+
+import java.util.List;
+
+public class CursorPageResponseDTO<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+    private final Long totalElements;
+
+    public CursorPageResponseDTO(List<T> items, String nextCursor, Long totalElements) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.totalElements = totalElements;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public Boolean getHasNext() {
+        return nextCursor != null;
+    }
+
+    public Long getTotalElements() {
+        return totalElements;
+    }
+}
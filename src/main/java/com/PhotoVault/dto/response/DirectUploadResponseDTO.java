@@ -0,0 +1,42 @@
+package com.PhotoVault.dto.response;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+public class DirectUploadResponseDTO {
+
+    private final String uploadUrl;
+    private final String method;
+    private final Map<String, String> headers;
+    private final String uploadToken;
+    private final LocalDateTime expiresAt;
+
+    public DirectUploadResponseDTO(String uploadUrl, String method, Map<String, String> headers, String uploadToken, LocalDateTime expiresAt) {
+        this.uploadUrl = uploadUrl;
+        this.method = method;
+        this.headers = headers;
+        this.uploadToken = uploadToken;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getUploadUrl() {
+        return uploadUrl;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    // Must be sent with the upload exactly as given; they are part of the signature.
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public String getUploadToken() {
+        return uploadToken;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+}
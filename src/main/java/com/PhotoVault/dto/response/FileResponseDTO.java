@@ -6,6 +6,7 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import org.springframework.hateoas.RepresentationModel;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.*;
 
@@ -19,8 +20,9 @@ public class FileResponseDTO extends RepresentationModel<FileResponseDTO> {
     private final Long folderId;
     private final String FolderName;
     private final String downloadUrl;
+    private final Map<Integer, String> derivatives;
 
-    public FileResponseDTO(Long id, String name, Long size, String contentType, LocalDateTime uploadDate, Long folderId, String folderName, String downloadUrl) {
+    public FileResponseDTO(Long id, String name, Long size, String contentType, LocalDateTime uploadDate, Long folderId, String folderName, String downloadUrl, Map<Integer, String> derivatives) {
         this.id = id;
         this.name = name;
         this.size = size;
@@ -29,11 +31,12 @@ public class FileResponseDTO extends RepresentationModel<FileResponseDTO> {
         this.folderId = folderId;
         FolderName = folderName;
         this.downloadUrl = downloadUrl;
+        this.derivatives = derivatives;
         addHateoasLinks();
     }
 
     private void addHateoasLinks() {
-        add(linkTo(methodOn(FileController.class).downloadFile(id, null, null))
+        add(linkTo(methodOn(FileController.class).downloadFile(id, null, null, null))
                 .withRel("download"));
 
         add(linkTo(methodOn(FileController.class).deleteFile(id))
@@ -76,4 +79,9 @@ public class FileResponseDTO extends RepresentationModel<FileResponseDTO> {
     public String getDownloadUrl() {
         return downloadUrl;
     }
+
+    // Derivative URLs keyed by bounding box size in pixels; sizes larger than the original are omitted.
+    public Map<Integer, String> getDerivatives() {
+        return derivatives;
+    }
 }
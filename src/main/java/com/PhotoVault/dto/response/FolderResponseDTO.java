@@ -17,12 +17,19 @@ public class FolderResponseDTO extends RepresentationModel<FolderResponseDTO> {
     private final String name;
     private final LocalDateTime createdAt;
     private final PhotographerSummaryDTO owner;
+    private final Long fileCount;
+    private final Long totalBytes;
+    private final LocalDateTime lastUploadAt;
 
-    public FolderResponseDTO(Long id, String name, LocalDateTime createdAt, PhotographerSummaryDTO owner) {
+    public FolderResponseDTO(Long id, String name, LocalDateTime createdAt, PhotographerSummaryDTO owner,
+                             Long fileCount, Long totalBytes, LocalDateTime lastUploadAt) {
         this.id = id;
         this.name = name;
         this.createdAt = createdAt;
         this.owner = owner;
+        this.fileCount = fileCount;
+        this.totalBytes = totalBytes;
+        this.lastUploadAt = lastUploadAt;
         addHateoasLinks();
     }
 
@@ -63,4 +70,16 @@ public class FolderResponseDTO extends RepresentationModel<FolderResponseDTO> {
     public PhotographerSummaryDTO getOwner() {
         return owner;
     }
+
+    public Long getFileCount() {
+        return fileCount;
+    }
+
+    public Long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public LocalDateTime getLastUploadAt() {
+        return lastUploadAt;
+    }
 }
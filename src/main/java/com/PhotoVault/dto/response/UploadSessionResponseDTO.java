@@ -0,0 +1,53 @@
+package com.PhotoVault.dto.response;
+
+import java.time.LocalDateTime;
+
+public class UploadSessionResponseDTO {
+
+    private final String id;
+    private final String fileName;
+    private final Long size;
+    private final Long offset;
+    private final Long chunkSize;
+    private final String uploadUrl;
+    private final LocalDateTime expiresAt;
+
+    public UploadSessionResponseDTO(String id, String fileName, Long size, Long offset, Long chunkSize, String uploadUrl, LocalDateTime expiresAt) {
+        this.id = id;
+        this.fileName = fileName;
+        this.size = size;
+        this.offset = offset;
+        this.chunkSize = chunkSize;
+        this.uploadUrl = uploadUrl;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    // Bytes received so far; the next chunk must start here.
+    public Long getOffset() {
+        return offset;
+    }
+
+    public Long getChunkSize() {
+        return chunkSize;
+    }
+
+    public String getUploadUrl() {
+        return uploadUrl;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+}
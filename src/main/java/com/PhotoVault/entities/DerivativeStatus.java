@@ -0,0 +1,7 @@
+package com.PhotoVault.entities;
+
+public enum DerivativeStatus {
+    PENDING,
+    READY,
+    FAILED
+}
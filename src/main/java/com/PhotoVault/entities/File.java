@@ -9,7 +9,8 @@ import java.time.LocalDateTime;
 public class File {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tb_files_id_seq")
+    @SequenceGenerator(name = "tb_files_id_seq", sequenceName = "tb_files_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "created_at", nullable = false, updatable = false)
@@ -36,13 +37,27 @@ public class File {
     @Column(name = "content_type", nullable = false, length = 100)
     private String contentType;
 
+    @Column(name = "content_hash", length = 64, columnDefinition = "CHAR(64)")
+    private String contentHash;
+
+    @Column(name = "crc32")
+    private Long crc32;
+
     @Column(name = "upload_date", nullable = false)
     private LocalDateTime uploadDate;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "folder_id", nullable = false)
     private Folder folder;
 
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "blob_id")
+    private Blob blob;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "derivative_status", nullable = false, length = 20)
+    private DerivativeStatus derivativeStatus = DerivativeStatus.PENDING;
+
     public File() {
         this.uploadDate = LocalDateTime.now();
     }
@@ -142,6 +157,22 @@ public class File {
         this.contentType = contentType;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public Long getCrc32() {
+        return crc32;
+    }
+
+    public void setCrc32(Long crc32) {
+        this.crc32 = crc32;
+    }
+
     public LocalDateTime getUploadDate() {
         return uploadDate;
     }
@@ -157,4 +188,20 @@ public class File {
     public void setFolder(Folder folder) {
         this.folder = folder;
     }
+
+    public Blob getBlob() {
+        return blob;
+    }
+
+    public void setBlob(Blob blob) {
+        this.blob = blob;
+    }
+
+    public DerivativeStatus getDerivativeStatus() {
+        return derivativeStatus;
+    }
+
+    public void setDerivativeStatus(DerivativeStatus derivativeStatus) {
+        this.derivativeStatus = derivativeStatus;
+    }
 }
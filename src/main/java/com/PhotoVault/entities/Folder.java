@@ -1,6 +1,9 @@
 package com.PhotoVault.entities;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.SQLDelete;
 import org.hibernate.annotations.Where;
 
@@ -10,12 +13,15 @@ import java.util.List;
 
 @Entity
 @Table(name = "tb_folders")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "folder")
 @SQLDelete(sql = "UPDATE tb_folders SET deleted_at = CURRENT_TIMESTAMP WHERE id = ?")
 @Where(clause = "deleted_at IS NULL")
 public class Folder {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tb_folders_id_seq")
+    @SequenceGenerator(name = "tb_folders_id_seq", sequenceName = "tb_folders_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -30,7 +36,20 @@ public class Folder {
     @Column(name = "deleted_at")
     private LocalDateTime deletedAt;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    // Maintained by triggers on tb_files (V14). A folder served from the second-level cache may
+    // carry older values, so responses read them through queries.
+    @ColumnDefault("0")
+    @Column(name = "file_count", nullable = false, insertable = false, updatable = false)
+    private Long fileCount = 0L;
+
+    @ColumnDefault("0")
+    @Column(name = "total_bytes", nullable = false, insertable = false, updatable = false)
+    private Long totalBytes = 0L;
+
+    @Column(name = "last_upload_at", insertable = false, updatable = false)
+    private LocalDateTime lastUploadAt;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "photographer_id", nullable = false)
     private Photographer owner;
 
@@ -101,6 +120,18 @@ public class Folder {
         return name;
     }
 
+    public Long getFileCount() {
+        return fileCount;
+    }
+
+    public Long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public LocalDateTime getLastUploadAt() {
+        return lastUploadAt;
+    }
+
     public void setName(String name) {
         this.name = name;
     }
@@ -6,7 +6,7 @@ import java.util.UUID;
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "tb_reset_tokens_password")
+@Table(name = "tb_password_reset_tokens")
 public class PasswordResetToken {
 
     @Id
@@ -16,9 +16,10 @@ public class PasswordResetToken {
     @Column(nullable = false, unique = true, columnDefinition = "uuid")
     private UUID token;
 
+    // Only photographers can reset a password; the column references tb_photographers.
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
-    private User user;
+    private Photographer user;
 
 
     @Column(nullable = false)
@@ -26,7 +27,10 @@ public class PasswordResetToken {
 
     private Instant usedAt;
 
-    public PasswordResetToken(UUID token, User user, Instant expiryDate) {
+    protected PasswordResetToken() {
+    }
+
+    public PasswordResetToken(UUID token, Photographer user, Instant expiryDate) {
         this.token = token;
         this.user = user;
         this.expiryDate = expiryDate;
@@ -48,11 +52,11 @@ public class PasswordResetToken {
         this.token = token;
     }
 
-    public User getUser() {
+    public Photographer getUser() {
         return user;
     }
 
-    public void setUser(User user) {
+    public void setUser(Photographer user) {
         this.user = user;
     }
 
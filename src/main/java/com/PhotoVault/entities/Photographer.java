@@ -1,24 +1,42 @@
 package com.PhotoVault.entities;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Generated;
+import org.hibernate.generator.EventType;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
 @Table(name = "tb_photographers")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "photographer")
 public class Photographer extends User{
 
     @OneToMany(mappedBy = "owner", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Folder> folders = new ArrayList<>();
 
+    // Read-only so new rows get the column default; null means no limit. Read back after the
+    // insert so the cached entity carries the default too.
+    @Generated(event = EventType.INSERT)
+    @Column(name = "storage_quota_bytes", insertable = false, updatable = false)
+    private Long storageQuotaBytes;
+
     public Photographer() {
     }
 
     public Photographer(Long id, String name, String email, String password, UserRole role) {
         super(id, name, email, password, role);
     }
+
+    public Long getStorageQuotaBytes() {
+        return storageQuotaBytes;
+    }
 }
@@ -1,17 +1,26 @@
 package com.PhotoVault.entities;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "tb_share_links")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "share-link")
+@NaturalIdCache(region = "share-link-token")
 public class ShareLink {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tb_share_links_id_seq")
+    @SequenceGenerator(name = "tb_share_links_id_seq", sequenceName = "tb_share_links_id_seq", allocationSize = 50)
     private Long id;
 
+    @NaturalId
     @Column(unique = true, nullable = false)
     private String token;
 
@@ -23,11 +32,11 @@ public class ShareLink {
 
     private Integer accessCount = 0;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "folder_id", nullable = false)
     private Folder folder;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "client_id")
     private Client client;
 
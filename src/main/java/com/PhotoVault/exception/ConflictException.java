@@ -0,0 +1,7 @@
+package com.PhotoVault.exception;
+
+public class ConflictException extends BusinessException {
+    public ConflictException(String message) {
+        super(message);
+    }
+}
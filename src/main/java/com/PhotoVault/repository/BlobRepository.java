@@ -0,0 +1,38 @@
+package com.PhotoVault.repository;
+
+import com.PhotoVault.entities.Blob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface BlobRepository extends JpaRepository<Blob, Long> {
+
+    // The no-op update makes the statement return (and row-lock) an existing blob, so a
+    // concurrent sweep cannot delete it before this transaction's file row references it.
+    @Query(value = """
+            INSERT INTO tb_blobs (sha256, path, size, ref_count, created_at)
+            VALUES (:sha256, :path, :size, 0, CURRENT_TIMESTAMP)
+            ON CONFLICT (sha256) DO UPDATE SET sha256 = EXCLUDED.sha256
+            RETURNING id
+            """, nativeQuery = true)
+    Long upsert(@Param("sha256") String sha256, @Param("path") String path, @Param("size") long size);
+
+    @Modifying
+    @Query("DELETE FROM Blob b WHERE b.id = :id AND b.refCount = 0")
+    int deleteIfUnreferenced(@Param("id") Long id);
+
+    @Query("SELECT b FROM Blob b WHERE b.refCount = 0 ORDER BY b.id")
+    List<Blob> findUnreferenced(Pageable pageable);
+
+    @Query("SELECT b.path FROM Blob b WHERE b.path IN :paths")
+    List<String> findPathsIn(@Param("paths") Collection<String> paths);
+
+    @Modifying
+    @Query("UPDATE Blob b SET b.path = :newPath WHERE b.path = :oldPath")
+    int updatePath(@Param("oldPath") String oldPath, @Param("newPath") String newPath);
+}
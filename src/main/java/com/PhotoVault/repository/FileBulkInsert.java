@@ -0,0 +1,15 @@
+package com.PhotoVault.repository;
+
+import com.PhotoVault.entities.File;
+
+import java.util.List;
+
+public interface FileBulkInsert {
+
+    /**
+     * Inserts new files as JDBC batches, flushing and clearing the persistence context after
+     * each batch so memory stays flat for large imports. Entities the caller loaded earlier in
+     * the transaction are detached afterwards. Must run inside a transaction.
+     */
+    List<File> insertAll(List<File> files);
+}
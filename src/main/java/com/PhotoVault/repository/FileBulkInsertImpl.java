@@ -0,0 +1,32 @@
+package com.PhotoVault.repository;
+
+import com.PhotoVault.entities.File;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.List;
+
+class FileBulkInsertImpl implements FileBulkInsert {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final int batchSize;
+
+    FileBulkInsertImpl(@Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
+        this.batchSize = Math.max(batchSize, 1);
+    }
+
+    @Override
+    public List<File> insertAll(List<File> files) {
+        for (int i = 0; i < files.size(); i++) {
+            entityManager.persist(files.get(i));
+            if ((i + 1) % batchSize == 0 || i == files.size() - 1) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        return files;
+    }
+}
@@ -0,0 +1,30 @@
+package com.PhotoVault.repository;
+
+import com.PhotoVault.entities.FileDerivative;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface FileDerivativeRepository extends JpaRepository<FileDerivative, Long> {
+
+    Optional<FileDerivative> findByFileIdAndSize(Long fileId, Integer size);
+
+    List<FileDerivative> findByFileId(Long fileId);
+
+    interface DerivativeSize {
+        Long getFileId();
+
+        Integer getSize();
+    }
+
+    // One query for a whole page of files when building response DTOs.
+    @Query("SELECT d.file.id AS fileId, d.size AS size FROM FileDerivative d WHERE d.file.id IN :fileIds ORDER BY d.size")
+    List<DerivativeSize> findSizesByFileIds(@Param("fileIds") Collection<Long> fileIds);
+
+    @Query("SELECT d.path FROM FileDerivative d WHERE d.path IN :paths")
+    List<String> findPathsIn(@Param("paths") Collection<String> paths);
+}
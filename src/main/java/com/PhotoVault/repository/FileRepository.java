@@ -1,17 +1,108 @@
 package com.PhotoVault.repository;
 
+import com.PhotoVault.entities.DerivativeStatus;
 import com.PhotoVault.entities.File;
+import com.PhotoVault.repository.projection.FileListItem;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface FileRepository extends JpaRepository<File, Long> {
+public interface FileRepository extends JpaRepository<File, Long>, FileBulkInsert {
 
     @Query("SELECT f FROM File f JOIN FETCH f.folder WHERE f.folder.id = :folderId")
     Page<File> findByFolderId(Long folderId, Pageable pageable);
 
     List<File> findByFolderId(Long folderId);
+
+    long countByFolderId(Long folderId);
+
+    String LIST_ITEM = "SELECT new com.PhotoVault.repository.projection.FileListItem("
+            + "f.id, f.name, f.size, f.contentType, f.uploadDate, fo.id, fo.name) FROM File f JOIN f.folder fo ";
+
+    @Query(value = LIST_ITEM + "WHERE fo.id = :folderId",
+            countQuery = "SELECT COUNT(f) FROM File f WHERE f.folder.id = :folderId")
+    Page<FileListItem> findListItemsByFolderId(@Param("folderId") Long folderId, Pageable pageable);
+
+    // Keyset pages, newest first; both read idx_files_folder_upload in order and stop after the page.
+    @Query(LIST_ITEM + "WHERE fo.id = :folderId ORDER BY f.uploadDate DESC, f.id DESC")
+    List<FileListItem> findFirstByFolderId(@Param("folderId") Long folderId, Pageable pageable);
+
+    @Query(LIST_ITEM + "WHERE fo.id = :folderId "
+            + "AND (f.uploadDate < :uploadDate OR (f.uploadDate = :uploadDate AND f.id < :id)) "
+            + "ORDER BY f.uploadDate DESC, f.id DESC")
+    List<FileListItem> findByFolderIdAfter(@Param("folderId") Long folderId,
+                                           @Param("uploadDate") LocalDateTime uploadDate,
+                                           @Param("id") Long id,
+                                           Pageable pageable);
+
+    @EntityGraph(attributePaths = "folder")
+    Optional<File> findByStoredName(String storedName);
+
+    @EntityGraph(attributePaths = "folder")
+    Optional<File> findWithFolderById(Long id);
+
+    // Ownership check without loading the file or its folder.
+    @Query("SELECT f.folder.owner.id FROM File f WHERE f.id = :id")
+    Optional<Long> findOwnerIdById(@Param("id") Long id);
+
+    @Query("SELECT COALESCE(SUM(f.size), 0) FROM File f WHERE f.folder.owner.id = :ownerId")
+    long sumSizeByOwnerId(@Param("ownerId") Long ownerId);
+
+    interface StoredPath {
+        Long getId();
+
+        String getPath();
+    }
+
+    // Includes soft-deleted rows: their bytes are still on disk.
+    @Query("SELECT f.id AS id, f.path AS path FROM File f WHERE f.id > :afterId ORDER BY f.id")
+    List<StoredPath> findStoredPathsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Includes soft-deleted rows, which keep their bytes until purged.
+    @Query("SELECT f.path FROM File f WHERE f.path IN :paths")
+    List<String> findPathsIn(@Param("paths") Collection<String> paths);
+
+    long countByDeletedAtBefore(LocalDateTime deletedBefore);
+
+    // Derivative rows go with the file (ON DELETE CASCADE) and blob counts drop by trigger.
+    @Modifying
+    @Query(value = """
+            DELETE FROM tb_files
+            WHERE id IN (SELECT id FROM tb_files WHERE deleted_at < :deletedBefore ORDER BY id LIMIT :limit)
+            """, nativeQuery = true)
+    int purgeDeletedBefore(@Param("deletedBefore") LocalDateTime deletedBefore, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE File f SET f.path = :newPath WHERE f.path = :oldPath")
+    int updatePath(@Param("oldPath") String oldPath, @Param("newPath") String newPath);
+
+    // Deduplicated files share a path, so each stored object is read once for all its rows.
+    @Query("SELECT DISTINCT f.path FROM File f WHERE f.crc32 IS NULL AND f.deletedAt IS NULL AND f.path > :afterPath ORDER BY f.path")
+    List<String> findPathsWithoutCrc32(@Param("afterPath") String afterPath, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE File f SET f.crc32 = :crc32 WHERE f.path = :path AND f.crc32 IS NULL")
+    int updateCrc32ByPath(@Param("path") String path, @Param("crc32") long crc32);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT f FROM File f WHERE f.id = :id")
+    Optional<File> findByIdForUpdate(@Param("id") Long id);
+
+    @Query("SELECT f.id FROM File f WHERE f.derivativeStatus = :status AND f.uploadDate < :uploadedBefore ORDER BY f.id")
+    List<Long> findIdsByDerivativeStatus(@Param("status") DerivativeStatus status,
+                                         @Param("uploadedBefore") LocalDateTime uploadedBefore,
+                                         Pageable pageable);
 }
@@ -1,23 +1,75 @@
 package com.PhotoVault.repository;
 
 import com.PhotoVault.entities.Folder;
+import com.PhotoVault.repository.projection.FolderListItem;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface FolderRepository extends JpaRepository<Folder, Long> {
 
+    String LIST_ITEM = "SELECT new com.PhotoVault.repository.projection.FolderListItem(f.id, f.name, f.createdAt, "
+            + "o.id, o.name, f.fileCount, f.totalBytes, f.lastUploadAt) FROM Folder f JOIN f.owner o ";
+
+    // The stats of the given folders recomputed from tb_files, as the V14 triggers maintain them.
+    String RECOMPUTED_STATS = "WITH stats AS ("
+            + "SELECT fo.id, COUNT(fi.id) AS file_count, COALESCE(SUM(fi.size), 0) AS total_bytes, "
+            + "MAX(fi.upload_date) AS last_upload_at "
+            + "FROM tb_folders fo LEFT JOIN tb_files fi ON fi.folder_id = fo.id AND fi.deleted_at IS NULL "
+            + "WHERE fo.id IN (:ids) GROUP BY fo.id) ";
+
     Optional<Folder> findByName(String name);
 
+    // Read by query, never from the second-level cache, so the trigger-maintained stats are current.
+    @Query(LIST_ITEM + "WHERE f.id = :id")
+    Optional<FolderListItem> findListItemById(@Param("id") Long id);
+
     //Custom query with JOIN FETCH to avoid the N+1 problem.
     @Query("SELECT f FROM Folder f JOIN FETCH f.owner WHERE f.owner.id = :ownerId")
     Page<Folder> findByOwnerId(Long ownerId, Pageable pageable);
 
-    @Query("SELECT f FROM Folder f WHERE f.id = :id AND f.deletedAt IS NOT NULL")
+    @Query(value = LIST_ITEM,
+            countQuery = "SELECT COUNT(f) FROM Folder f")
+    Page<FolderListItem> findListItems(Pageable pageable);
+
+    @Query(value = LIST_ITEM + "WHERE o.id = :ownerId",
+            countQuery = "SELECT COUNT(f) FROM Folder f WHERE f.owner.id = :ownerId")
+    Page<FolderListItem> findListItemsByOwnerId(@Param("ownerId") Long ownerId, Pageable pageable);
+
+    @Query("SELECT f FROM Folder f JOIN FETCH f.owner WHERE f.id = :id AND f.deletedAt IS NOT NULL")
     Optional<Folder> findByIdIncluidingDeleted(@Param("id") Long id);
+
+    // Includes soft-deleted folders, whose stats the triggers keep too.
+    @Query(value = "SELECT id FROM tb_folders WHERE id > :afterId ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, @Param("limit") int limit);
+
+    @Query(value = RECOMPUTED_STATS + "SELECT f.id FROM tb_folders f JOIN stats s ON s.id = f.id "
+            + "WHERE (f.file_count, f.total_bytes, f.last_upload_at) "
+            + "IS DISTINCT FROM (s.file_count, s.total_bytes, s.last_upload_at)",
+            nativeQuery = true)
+    List<Long> findIdsWithStatsDrift(@Param("ids") Collection<Long> ids);
+
+    // Waits out uploads and deletes that have already updated these folders' stats, and holds
+    // back new ones until the repair commits.
+    @Query(value = "SELECT id FROM tb_folders WHERE id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> lockForStatsRepair(@Param("ids") Collection<Long> ids);
+
+    // Only the Folder cache region is invalidated, not the whole second-level cache.
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "tb_folders"))
+    @Query(value = RECOMPUTED_STATS + "UPDATE tb_folders f SET file_count = s.file_count, "
+            + "total_bytes = s.total_bytes, last_upload_at = s.last_upload_at "
+            + "FROM stats s WHERE f.id = s.id",
+            nativeQuery = true)
+    int repairStats(@Param("ids") Collection<Long> ids);
 }
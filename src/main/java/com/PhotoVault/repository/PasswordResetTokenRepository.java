@@ -8,7 +8,7 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
 import com.PhotoVault.entities.PasswordResetToken;
-import com.PhotoVault.entities.User;
+import com.PhotoVault.entities.Photographer;
 
 import java.util.UUID;
 
@@ -23,5 +23,5 @@ public interface PasswordResetTokenRepository extends JpaRepository<PasswordRese
     void deleteExpiredTokens(Instant now);
 
     @Modifying
-    void deleteByUser(User user);
+    void deleteByUser(Photographer user);
 }
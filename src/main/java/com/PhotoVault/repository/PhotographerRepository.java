@@ -1,12 +1,25 @@
 package com.PhotoVault.repository;
 
 import com.PhotoVault.entities.Photographer;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 
 public interface PhotographerRepository extends JpaRepository<Photographer, Long> {
 
+    // Runs on every authenticated request; the result is dropped whenever tb_photographers changes.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     public Optional<Photographer> findByEmail(String email);
 
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Photographer p WHERE p.id = :id")
+    Optional<Photographer> findByIdForUpdate(@Param("id") Long id);
+
 }
@@ -1,14 +1,23 @@
 package com.PhotoVault.repository;
 
 import com.PhotoVault.entities.ShareLink;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.List;
 import java.util.Optional;
 
-public interface ShareLinkRepository extends JpaRepository<ShareLink, Long> {
+public interface ShareLinkRepository extends JpaRepository<ShareLink, Long>, ShareLinkTokenLookup {
 
-    Optional<ShareLink> findByToken(String token);
+    @EntityGraph(attributePaths = "folder")
+    Optional<ShareLink> findWithFolderByToken(String token);
 
+    @EntityGraph(attributePaths = {"folder", "folder.owner"})
+    Optional<ShareLink> findWithFolderAndOwnerByToken(String token);
+
+    @EntityGraph(attributePaths = "folder")
+    Optional<ShareLink> findWithFolderById(Long id);
+
+    @EntityGraph(attributePaths = "folder")
     List<ShareLink> findByFolderId(Long folderId);
 }
@@ -0,0 +1,15 @@
+package com.PhotoVault.repository;
+
+import com.PhotoVault.entities.ShareLink;
+
+import java.util.Optional;
+
+public interface ShareLinkTokenLookup {
+
+    /**
+     * Looks the link up by its token as a natural id, so with the second-level cache enabled it
+     * is answered from the cache. Tokens never change, and updates to other links, such as the
+     * access count bumped on every gallery view, do not invalidate the cached lookup.
+     */
+    Optional<ShareLink> findByToken(String token);
+}
@@ -0,0 +1,21 @@
+package com.PhotoVault.repository;
+
+import com.PhotoVault.entities.ShareLink;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+
+import java.util.Optional;
+
+class ShareLinkTokenLookupImpl implements ShareLinkTokenLookup {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<ShareLink> findByToken(String token) {
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(ShareLink.class)
+                .loadOptional(token);
+    }
+}
@@ -0,0 +1,16 @@
+package com.PhotoVault.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * The columns a file listing shows, selected directly instead of loading the file, its folder
+ * and the folder's owner as managed entities.
+ */
+public record FileListItem(Long id,
+                           String name,
+                           Long size,
+                           String contentType,
+                           LocalDateTime uploadDate,
+                           Long folderId,
+                           String folderName) {
+}
@@ -0,0 +1,17 @@
+package com.PhotoVault.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * The columns a folder listing shows, with the owner's id and name instead of the whole
+ * photographer row, and the folder's stored file stats.
+ */
+public record FolderListItem(Long id,
+                             String name,
+                             LocalDateTime createdAt,
+                             Long ownerId,
+                             String ownerName,
+                             Long fileCount,
+                             Long totalBytes,
+                             LocalDateTime lastUploadAt) {
+}
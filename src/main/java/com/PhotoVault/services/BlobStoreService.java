@@ -0,0 +1,169 @@
+package com.PhotoVault.services;
+
+import com.PhotoVault.entities.Blob;
+import com.PhotoVault.exception.FileStorageException;
+import com.PhotoVault.repository.BlobRepository;
+import com.PhotoVault.repository.FileRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Content-addressed layer over {@link StorageService}. Uploads are streamed to storage under
+ * their stored name while an {@link InspectingInputStream} checks them and computes a SHA-256;
+ * the hash then either registers a new blob or resolves to the blob already holding identical
+ * bytes, in which case the fresh copy is dropped.
+ * Reference counts on {@code tb_blobs} are maintained by database triggers on {@code tb_files}.
+ */
+@Service
+@Transactional(readOnly = true)
+public class BlobStoreService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlobStoreService.class);
+
+    private static final int SWEEP_BATCH_SIZE = 100;
+
+    private final BlobRepository blobRepository;
+    private final FileRepository fileRepository;
+    private final StorageService storageService;
+
+    public BlobStoreService(BlobRepository blobRepository, FileRepository fileRepository, StorageService storageService) {
+        this.blobRepository = blobRepository;
+        this.fileRepository = fileRepository;
+        this.storageService = storageService;
+    }
+
+    /**
+     * Stores the stream and returns the blob holding its content. The returned blob is locked
+     * until the caller's transaction ends, which must also insert the file row referencing it.
+     */
+    @Transactional
+    public Blob store(InspectingInputStream inputStream, String storedName, String contentType) throws IOException {
+        StagedBlob staged = stage(inputStream, storedName, contentType);
+        return register(staged.sha256(), staged.path(), staged.size());
+    }
+
+    public record StagedBlob(String sha256, String path, long size) {
+    }
+
+    /**
+     * Writes the stream to storage, checking and hashing it on the way, without touching the
+     * database, so it can run outside any transaction. An upload that fails a check is removed
+     * from storage again. The caller must pass the result to {@link #register}, or delete
+     * {@code path} itself if it gives up before that.
+     */
+    public StagedBlob stage(InspectingInputStream inputStream, String storedName, String contentType) throws IOException {
+        String stagedPath;
+        try {
+            stagedPath = storageService.store(inputStream, storedName, inputStream.getExpectedSize(), contentType);
+            inputStream.finish();
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(storageService.resolvePath(storedName));
+            // Storage backends wrap stream errors in their own exceptions; report the actual check.
+            if (inputStream.getFailure() != null) {
+                throw inputStream.getFailure();
+            }
+            throw e;
+        }
+        return new StagedBlob(inputStream.getSha256(), stagedPath, inputStream.getCount());
+    }
+
+    /**
+     * Registers an object already written to {@code stagedPath} whose content hashes to {@code sha256},
+     * with the same locking and cleanup guarantees as {@link #store}.
+     */
+    @Transactional
+    public Blob register(String sha256, String stagedPath, long size) {
+        Long blobId = blobRepository.upsert(sha256, stagedPath, size);
+        Blob blob = blobRepository.findById(blobId)
+                .orElseThrow(() -> new FileStorageException("Blob disappeared after registration: " + sha256));
+
+        if (blob.getPath().equals(stagedPath)) {
+            deleteAfterRollback(stagedPath);
+        } else {
+            logger.info("Upload '{}' matches existing blob {}, dropping duplicate copy", stagedPath, blob.getId());
+            deleteAfterCompletion(stagedPath);
+        }
+        return blob;
+    }
+
+    /**
+     * Frees the blob once its last referencing file row is gone. Must run after that delete has
+     * been flushed, so the trigger-maintained count is already decremented.
+     */
+    @Transactional
+    public void release(Blob blob) {
+        if (blobRepository.deleteIfUnreferenced(blob.getId()) > 0) {
+            deleteAfterCommit(blob.getPath());
+        }
+    }
+
+    /**
+     * Points every blob and file stored at {@code oldPath} to {@code newPath}. The blob row is
+     * updated first: its row lock waits out uploads that are attaching a new file to it, so the
+     * file update that follows also sees their rows.
+     */
+    @Transactional
+    public int relocate(String oldPath, String newPath) {
+        blobRepository.updatePath(oldPath, newPath);
+        return fileRepository.updatePath(oldPath, newPath);
+    }
+
+    // Catches blobs orphaned by deletes that bypass FileService, e.g. folder or photographer cascades.
+    @Scheduled(fixedDelayString = "${storage.blob-sweep-delay:PT1H}")
+    @Transactional
+    public void sweepUnreferencedBlobs() {
+        List<Blob> unreferenced = blobRepository.findUnreferenced(PageRequest.of(0, SWEEP_BATCH_SIZE));
+
+        int released = 0;
+        for (Blob blob : unreferenced) {
+            if (blobRepository.deleteIfUnreferenced(blob.getId()) > 0) {
+                deleteAfterCommit(blob.getPath());
+                released++;
+            }
+        }
+        if (released > 0) {
+            logger.info("Released {} unreferenced blobs", released);
+        }
+    }
+
+    private void deleteAfterCommit(String path) {
+        onCompletion(path, status -> status == TransactionSynchronization.STATUS_COMMITTED);
+    }
+
+    private void deleteAfterRollback(String path) {
+        onCompletion(path, status -> status != TransactionSynchronization.STATUS_COMMITTED);
+    }
+
+    private void deleteAfterCompletion(String path) {
+        onCompletion(path, status -> true);
+    }
+
+    private void onCompletion(String path, IntPredicate shouldDelete) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (shouldDelete.test(status)) {
+                    deleteQuietly(path);
+                }
+            }
+        });
+    }
+
+    private void deleteQuietly(String path) {
+        try {
+            storageService.delete(path);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not delete stored object '{}': {}", path, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.PhotoVault.services;
+
+import com.PhotoVault.config.DirectUploadProperties;
+import com.PhotoVault.exception.ExpiredTokenException;
+import com.PhotoVault.exception.InvalidTokenException;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * Issues and verifies the signed token that carries an initiated direct upload to its completion
+ * call, so nothing has to be stored server-side between the two steps.
+ */
+@Service
+public class DirectUploadTokenService {
+
+    private static final String AUDIENCE = "direct-upload";
+
+    public record UploadClaims(Long photographerId, Long folderId, String name, String storedName,
+                               long size, String contentType, String sha256) {
+    }
+
+    private final SecretKey secretKey;
+
+    public DirectUploadTokenService(DirectUploadProperties properties) {
+        this.secretKey = Keys.hmacShaKeyFor(properties.getSecret().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String issue(UploadClaims claims, Date expiresAt) {
+        return Jwts.builder()
+                .subject(claims.storedName())
+                .audience().add(AUDIENCE).and()
+                .claim("pid", claims.photographerId())
+                .claim("fid", claims.folderId())
+                .claim("name", claims.name())
+                .claim("size", claims.size())
+                .claim("type", claims.contentType())
+                .claim("sha256", claims.sha256())
+                .issuedAt(new Date())
+                .expiration(expiresAt)
+                .signWith(secretKey)
+                .compact();
+    }
+
+    public UploadClaims parse(String token) {
+        try {
+            Claims claims = Jwts.parser()
+                    .verifyWith(secretKey)
+                    .requireAudience(AUDIENCE)
+                    .build()
+                    .parseSignedClaims(token)
+                    .getPayload();
+
+            return new UploadClaims(
+                    claims.get("pid", Long.class),
+                    claims.get("fid", Long.class),
+                    claims.get("name", String.class),
+                    claims.getSubject(),
+                    claims.get("size", Long.class),
+                    claims.get("type", String.class),
+                    claims.get("sha256", String.class));
+        } catch (ExpiredJwtException e) {
+            throw new ExpiredTokenException("Upload token has expired, start the upload again");
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new InvalidTokenException("Invalid upload token");
+        }
+    }
+}
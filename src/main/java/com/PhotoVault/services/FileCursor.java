@@ -0,0 +1,39 @@
+package com.PhotoVault.services;
+
+import com.PhotoVault.exception.InvalidTokenException;
+import com.PhotoVault.repository.projection.FileListItem;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a folder listing: the upload date and id of the last file returned. Clients get
+ * it as an opaque token and send it back unchanged to fetch the next page.
+ */
+public record FileCursor(LocalDateTime uploadDate, Long id) {
+
+    public static FileCursor after(FileListItem file) {
+        return new FileCursor(file.uploadDate(), file.id());
+    }
+
+    public String encode() {
+        String value = uploadDate + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static FileCursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.indexOf('|');
+            if (separator < 0) {
+                throw new InvalidTokenException("Invalid page cursor");
+            }
+            return new FileCursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Long.valueOf(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidTokenException("Invalid page cursor");
+        }
+    }
+}
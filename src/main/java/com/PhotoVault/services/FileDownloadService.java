@@ -0,0 +1,387 @@
+package com.PhotoVault.services;
+
+import com.PhotoVault.entities.File;
+import com.PhotoVault.entities.FileDerivative;
+import com.PhotoVault.exception.FileStorageException;
+import com.PhotoVault.services.image.ImageResizer;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+public class FileDownloadService {
+
+    private static final String BYTES_UNIT = "bytes";
+
+    private static final Duration IMMUTABLE_MAX_AGE = Duration.ofDays(365);
+
+    // Tomcat request attributes that hand the response body over to the connector,
+    // which writes it with FileChannel.transferTo (sendfile on Linux) after the servlet returns.
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private static final String REDIRECT_MODE = "redirect";
+
+    private final StorageService storageService;
+    private final boolean zeroCopyEnabled;
+    private final boolean redirectEnabled;
+    private final Duration presignedUrlTtl;
+
+    public FileDownloadService(StorageService storageService,
+                               @Value("${file.download.zero-copy:true}") boolean zeroCopyEnabled,
+                               @Value("${file.download.mode:stream}") String downloadMode,
+                               @Value("${file.download.presigned-url-ttl:PT5M}") Duration presignedUrlTtl) {
+        this.storageService = storageService;
+        this.zeroCopyEnabled = zeroCopyEnabled;
+        this.redirectEnabled = REDIRECT_MODE.equalsIgnoreCase(downloadMode);
+        this.presignedUrlTtl = presignedUrlTtl;
+    }
+
+    private record Content(String name, String path, long size, String contentType, Instant lastModified,
+                           String eTag, boolean inline) {
+    }
+
+    private record ByteRange(long start, long end) {
+        long length() {
+            return end - start + 1;
+        }
+
+        String contentRange(long total) {
+            return BYTES_UNIT + " " + start + "-" + end + "/" + total;
+        }
+    }
+
+    public ResponseEntity<StreamingResponseBody> download(File file, HttpServletRequest request) {
+        return download(new Content(file.getName(), file.getPath(), file.getSize(), file.getContentType(),
+                lastModified(file.getUploadDate()), eTag(file.getContentHash()), false), request);
+    }
+
+    public ResponseEntity<StreamingResponseBody> download(FileDerivative derivative, File original, HttpServletRequest request) {
+        String extension = ImageResizer.PNG.equals(derivative.getContentType()) ? ".png" : ".jpg";
+        String name = StringUtils.stripFilenameExtension(original.getName()) + "_" + derivative.getSize() + extension;
+
+        String eTag = original.getContentHash() != null
+                ? eTag(original.getContentHash() + "-" + derivative.getSize())
+                : null;
+
+        return download(new Content(name, derivative.getPath(), derivative.getByteSize(), derivative.getContentType(),
+                lastModified(derivative.getCreatedAt()), eTag, true), request);
+    }
+
+    private ResponseEntity<StreamingResponseBody> download(Content file, HttpServletRequest request) {
+        HttpHeaders requestHeaders = new ServletServerHttpRequest(request).getHeaders();
+        long length = file.size();
+
+        // Answered from the database row alone; storage is not touched for revalidations.
+        if (notModified(file, requestHeaders)) {
+            HttpHeaders headers = new HttpHeaders();
+            validatorHeaders(file, headers);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+        }
+
+        if (redirectEnabled && !isMultiRange(requestHeaders)) {
+            ResponseEntity<StreamingResponseBody> redirect = redirectToStorage(file);
+            if (redirect != null) {
+                return redirect;
+            }
+        }
+
+        List<HttpRange> httpRanges;
+        try {
+            httpRanges = requestHeaders.getRange();
+        } catch (IllegalArgumentException ex) {
+            return rangeNotSatisfiable(length);
+        }
+
+        if (httpRanges.isEmpty() || !ifRangeMatches(file, requestHeaders)) {
+            return fullContent(file, request);
+        }
+
+        List<ByteRange> ranges = toByteRanges(httpRanges, length);
+        if (ranges.isEmpty()) {
+            return rangeNotSatisfiable(length);
+        }
+        if (ranges.stream().mapToLong(ByteRange::length).sum() > length) {
+            // Overlapping ranges that add up to more than the file are cheaper to serve whole.
+            return fullContent(file, request);
+        }
+
+        return ranges.size() == 1
+                ? singleRange(file, ranges.getFirst(), request)
+                : multipleRanges(file, ranges);
+    }
+
+    /**
+     * Sends the client straight to a short-lived presigned URL, so the payload never passes
+     * through this JVM. Returns null when the storage backend cannot presign (local disk).
+     */
+    private ResponseEntity<StreamingResponseBody> redirectToStorage(Content file) {
+        String url = storageService.generatePresignedUrl(file.path(), presignedUrlTtl,
+                file.contentType(), contentDisposition(file).toString());
+        if (url == null) {
+            return null;
+        }
+
+        // The redirect may be reused while the URL is valid, with margin for clock skew and slow clients.
+        return ResponseEntity.status(HttpStatus.FOUND)
+                .location(URI.create(url))
+                .cacheControl(CacheControl.maxAge(presignedUrlTtl.dividedBy(2)).cachePrivate())
+                .build();
+    }
+
+    // Object stores answer at most one range per request, so multipart/byteranges stays local.
+    private boolean isMultiRange(HttpHeaders requestHeaders) {
+        String range = requestHeaders.getFirst(HttpHeaders.RANGE);
+        return range != null && range.indexOf(',') >= 0;
+    }
+
+    private ResponseEntity<StreamingResponseBody> fullContent(Content file, HttpServletRequest request) {
+        HttpHeaders headers = commonHeaders(file);
+        headers.setContentType(MediaType.parseMediaType(file.contentType()));
+        headers.setContentLength(file.size());
+
+        return body(HttpStatus.OK, headers, file, new ByteRange(0, file.size() - 1), request);
+    }
+
+    private ResponseEntity<StreamingResponseBody> singleRange(Content file, ByteRange range, HttpServletRequest request) {
+        HttpHeaders headers = commonHeaders(file);
+        headers.set(HttpHeaders.CONTENT_RANGE, range.contentRange(file.size()));
+        headers.setContentType(MediaType.parseMediaType(file.contentType()));
+        headers.setContentLength(range.length());
+
+        return body(HttpStatus.PARTIAL_CONTENT, headers, file, range, request);
+    }
+
+    private ResponseEntity<StreamingResponseBody> body(HttpStatus status, HttpHeaders headers, Content file, ByteRange range, HttpServletRequest request) {
+        Path localFile = zeroCopyEnabled ? storageService.getLocalPath(file.path()) : null;
+
+        if (localFile != null) {
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+                useSendfile(request, localFile, range);
+                return ResponseEntity.status(status).headers(headers).build();
+            }
+            return ResponseEntity.status(status).headers(headers)
+                    .body(outputStream -> transfer(localFile, range, outputStream));
+        }
+
+        InputStream inputStream = range.start() == 0 && range.end() == file.size() - 1
+                ? openFull(file)
+                : openRange(file, range);
+
+        return ResponseEntity.status(status).headers(headers)
+                .body(outputStream -> {
+                    try (inputStream) {
+                        inputStream.transferTo(outputStream);
+                    }
+                });
+    }
+
+    private void useSendfile(HttpServletRequest request, Path localFile, ByteRange range) {
+        try {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, localFile.toRealPath().toString());
+        } catch (IOException ex) {
+            throw new FileStorageException("File not found: " + localFile.getFileName(), ex);
+        }
+        request.setAttribute(SENDFILE_START_ATTR, range.start());
+        request.setAttribute(SENDFILE_END_ATTR, range.end() + 1);
+    }
+
+    private void transfer(Path localFile, ByteRange range, OutputStream outputStream) throws IOException {
+        try (FileChannel channel = FileChannel.open(localFile, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(outputStream);
+            long position = range.start();
+            long remaining = range.length();
+
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, target);
+                if (transferred <= 0 && position >= channel.size()) {
+                    throw new EOFException("File truncated while streaming: " + localFile.getFileName());
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> multipleRanges(Content file, List<ByteRange> ranges) {
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        byte[] closingDelimiter = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = closingDelimiter.length;
+        for (ByteRange range : ranges) {
+            byte[] partHeader = ("\r\n--" + boundary + "\r\n" +
+                    HttpHeaders.CONTENT_TYPE + ": " + file.contentType() + "\r\n" +
+                    HttpHeaders.CONTENT_RANGE + ": " + range.contentRange(file.size()) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeader);
+            contentLength += partHeader.length + range.length();
+        }
+
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .headers(commonHeaders(file))
+                .contentType(MediaType.parseMediaType("multipart/byteranges; boundary=" + boundary))
+                .contentLength(contentLength)
+                .body(outputStream -> {
+                    for (int i = 0; i < ranges.size(); i++) {
+                        outputStream.write(partHeaders.get(i));
+                        try (InputStream inputStream = openRange(file, ranges.get(i))) {
+                            inputStream.transferTo(outputStream);
+                        }
+                    }
+                    outputStream.write(closingDelimiter);
+                });
+    }
+
+    private ResponseEntity<StreamingResponseBody> rangeNotSatisfiable(long length) {
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header(HttpHeaders.CONTENT_RANGE, BYTES_UNIT + " */" + length)
+                .build();
+    }
+
+    private HttpHeaders commonHeaders(Content file) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT_RANGES, BYTES_UNIT);
+        validatorHeaders(file, headers);
+        headers.setContentDisposition(contentDisposition(file));
+        return headers;
+    }
+
+    private ContentDisposition contentDisposition(Content file) {
+        return (file.inline() ? ContentDisposition.inline() : ContentDisposition.attachment())
+                .filename(file.name(), StandardCharsets.UTF_8)
+                .build();
+    }
+
+    private void validatorHeaders(Content file, HttpHeaders headers) {
+        headers.setLastModified(file.lastModified());
+        if (file.eTag() != null) {
+            headers.setETag(file.eTag());
+        }
+        // Stored bytes never change after upload. Private: responses depend on the caller's access.
+        headers.setCacheControl(CacheControl.maxAge(IMMUTABLE_MAX_AGE).cachePrivate().immutable());
+    }
+
+    /**
+     * RFC 9110 section 13.2.2: If-None-Match takes precedence, and If-Modified-Since is only
+     * consulted when no entity tag was sent.
+     */
+    private boolean notModified(Content file, HttpHeaders requestHeaders) {
+        List<String> ifNoneMatch = requestHeaders.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            return ifNoneMatch.stream()
+                    .anyMatch(tag -> tag.equals("*") || (file.eTag() != null && weakEquals(tag, file.eTag())));
+        }
+
+        long ifModifiedSince;
+        try {
+            ifModifiedSince = requestHeaders.getIfModifiedSince();
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+        return ifModifiedSince >= 0 && !file.lastModified().isAfter(Instant.ofEpochMilli(ifModifiedSince));
+    }
+
+    private boolean weakEquals(String tag, String eTag) {
+        return stripWeak(tag).equals(stripWeak(eTag));
+    }
+
+    private String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private String eTag(String contentHash) {
+        return contentHash != null ? "\"" + contentHash + "\"" : null;
+    }
+
+    private List<ByteRange> toByteRanges(List<HttpRange> httpRanges, long length) {
+        List<ByteRange> ranges = new ArrayList<>(httpRanges.size());
+        for (HttpRange httpRange : httpRanges) {
+            long start = httpRange.getRangeStart(length);
+            long end = httpRange.getRangeEnd(length);
+            if (start < length && start <= end) {
+                ranges.add(new ByteRange(start, end));
+            }
+        }
+        return ranges;
+    }
+
+    private boolean ifRangeMatches(Content file, HttpHeaders requestHeaders) {
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("W/")) {
+            // If-Range requires a strong comparison, which weak tags never satisfy.
+            return false;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(file.eTag());
+        }
+
+        try {
+            Instant since = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return since.equals(file.lastModified());
+        } catch (DateTimeParseException ex) {
+            return false;
+        }
+    }
+
+    private Instant lastModified(LocalDateTime dateTime) {
+        return dateTime
+                .atZone(ZoneId.systemDefault())
+                .toInstant()
+                .truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    private InputStream openFull(Content file) {
+        try {
+            return storageService.load(file.path()).getInputStream();
+        } catch (IOException ex) {
+            throw new FileStorageException("File not found: " + file.name(), ex);
+        }
+    }
+
+    private InputStream openRange(Content file, ByteRange range) {
+        try {
+            return storageService.loadRange(file.path(), range.start(), range.end());
+        } catch (IOException ex) {
+            throw new FileStorageException("File not found: " + file.name(), ex);
+        }
+    }
+}
@@ -1,7 +1,14 @@
 package com.PhotoVault.services;
 
+import com.PhotoVault.config.DirectUploadProperties;
 import com.PhotoVault.config.FileStorageProperties;
+import com.PhotoVault.dto.request.DirectUploadRequestDTO;
+import com.PhotoVault.dto.response.BatchUploadItemDTO;
+import com.PhotoVault.dto.response.BatchUploadResponseDTO;
+import com.PhotoVault.dto.response.CursorPageResponseDTO;
+import com.PhotoVault.dto.response.DirectUploadResponseDTO;
 import com.PhotoVault.dto.response.FileResponseDTO;
+import com.PhotoVault.entities.Blob;
 import com.PhotoVault.entities.File;
 import com.PhotoVault.entities.Folder;
 import com.PhotoVault.entities.Photographer;
@@ -9,28 +16,56 @@ import com.PhotoVault.exception.*;
 import com.PhotoVault.repository.FileRepository;
 import com.PhotoVault.repository.FolderRepository;
 import com.PhotoVault.repository.PhotographerRepository;
-import org.springframework.core.io.Resource;
+import com.PhotoVault.repository.projection.FileListItem;
+import com.PhotoVault.services.image.DerivativeService;
+import com.PhotoVault.services.image.ImageHeader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
 @Service
 @Transactional(readOnly = true)
 public class FileService {
 
+    private static final Logger logger = LoggerFactory.getLogger(FileService.class);
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+
     private final FileRepository fileRepository;
     private final FolderRepository folderRepository;
     private final PhotographerRepository photographerRepository;
@@ -38,19 +73,40 @@ public class FileService {
     private final Path fileStorageLocation;
     private final StorageService storageService;
     private final FileValidationService fileValidationService;
+    private final BlobStoreService blobStoreService;
+    private final DerivativeService derivativeService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DirectUploadTokenService directUploadTokenService;
+    private final DirectUploadProperties directUploadProperties;
+    private final ThreadPoolTaskExecutor uploadExecutor;
+    private final TransactionTemplate transactionTemplate;
 
     public FileService(FileRepository fileRepository,
                        FolderRepository folderRepository,
                        PhotographerRepository photographerRepository,
                        FileStorageProperties fileStorageProperties,
                         StorageService storageService,
-                    FileValidationService fileValidationService) {
+                    FileValidationService fileValidationService,
+                    BlobStoreService blobStoreService,
+                    DerivativeService derivativeService,
+                    ApplicationEventPublisher eventPublisher,
+                    DirectUploadTokenService directUploadTokenService,
+                    DirectUploadProperties directUploadProperties,
+                    @Qualifier("uploadExecutor") ThreadPoolTaskExecutor uploadExecutor,
+                    PlatformTransactionManager transactionManager) {
         this.fileRepository = fileRepository;
         this.folderRepository = folderRepository;
         this.photographerRepository = photographerRepository;
         this.fileStorageProperties = fileStorageProperties;
         this.storageService = storageService;
         this.fileValidationService = fileValidationService;
+        this.blobStoreService = blobStoreService;
+        this.derivativeService = derivativeService;
+        this.eventPublisher = eventPublisher;
+        this.directUploadTokenService = directUploadTokenService;
+        this.directUploadProperties = directUploadProperties;
+        this.uploadExecutor = uploadExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
 
         this.fileStorageLocation = Paths.get(fileStorageProperties.getDir())
                 .toAbsolutePath().normalize();
@@ -70,9 +126,14 @@ public class FileService {
                 .orElseThrow(() -> new ResourceNotFoundException("Photographer", "email", email));
     }
 
-    private FileResponseDTO toResponseDTO(File file) {
+    private FileResponseDTO toResponseDTO(File file, List<Integer> derivativeSizes) {
         String downloadUrl = "/api/files/" + file.getId();
 
+        Map<Integer, String> derivatives = new LinkedHashMap<>();
+        for (Integer size : derivativeSizes) {
+            derivatives.put(size, downloadUrl + "/derivatives/" + size);
+        }
+
         return new FileResponseDTO(
                 file.getId(),
                 file.getName(),
@@ -81,12 +142,34 @@ public class FileService {
                 file.getUploadDate(),
                 file.getFolder().getId(),
                 file.getFolder().getName(),
-                downloadUrl
+                downloadUrl,
+                derivatives
         );
     }
 
 
 
+    private FileResponseDTO toResponseDTO(FileListItem file, List<Integer> derivativeSizes) {
+        String downloadUrl = "/api/files/" + file.id();
+
+        Map<Integer, String> derivatives = new LinkedHashMap<>();
+        for (Integer size : derivativeSizes) {
+            derivatives.put(size, downloadUrl + "/derivatives/" + size);
+        }
+
+        return new FileResponseDTO(
+                file.id(),
+                file.name(),
+                file.size(),
+                file.contentType(),
+                file.uploadDate(),
+                file.folderId(),
+                file.folderName(),
+                downloadUrl,
+                derivatives
+        );
+    }
+
     private String generateUniqueFileName(String originalFileName) {
         String extension = fileValidationService.getFileExtension(originalFileName);
         return UUID.randomUUID().toString() + "." + extension;
@@ -101,13 +184,52 @@ public class FileService {
         folderRepository.findById(folderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Folder", folderId));
 
-        return  fileRepository.findByFolderId(folderId, pageable)
-                .map(this::toResponseDTO);
+        Page<FileListItem> files = fileRepository.findListItemsByFolderId(folderId, pageable);
+        Map<Long, List<Integer>> derivativeSizes = derivativeService.findSizesByFileIds(
+                files.map(FileListItem::id).getContent());
+
+        return files.map(file -> toResponseDTO(file, derivativeSizes.getOrDefault(file.id(), List.of())));
 
 
     }
 
-    @Transactional
+    /**
+     * Lists a folder newest first, seeking past the cursor instead of skipping rows, so every page
+     * costs the same however deep it is. The total is only counted when asked for.
+     */
+    public CursorPageResponseDTO<FileResponseDTO> getFilesByFolder(Long folderId, String cursor, int size, boolean includeTotal){
+        if (!folderRepository.existsById(folderId)) {
+            throw new ResourceNotFoundException("Folder", folderId);
+        }
+
+        int pageSize = Math.clamp(size, 1, MAX_CURSOR_PAGE_SIZE);
+        // One extra row tells whether another page follows, without a count.
+        Pageable limit = PageRequest.ofSize(pageSize + 1);
+        List<FileListItem> files;
+        if (StringUtils.hasText(cursor)) {
+            FileCursor after = FileCursor.decode(cursor);
+            files = fileRepository.findByFolderIdAfter(folderId, after.uploadDate(), after.id(), limit);
+        } else {
+            files = fileRepository.findFirstByFolderId(folderId, limit);
+        }
+
+        String nextCursor = null;
+        if (files.size() > pageSize) {
+            files = files.subList(0, pageSize);
+            nextCursor = FileCursor.after(files.getLast()).encode();
+        }
+
+        Map<Long, List<Integer>> derivativeSizes = derivativeService.findSizesByFileIds(
+                files.stream().map(FileListItem::id).toList());
+        List<FileResponseDTO> items = files.stream()
+                .map(file -> toResponseDTO(file, derivativeSizes.getOrDefault(file.id(), List.of())))
+                .toList();
+
+        Long total = includeTotal ? fileRepository.countByFolderId(folderId) : null;
+        return new CursorPageResponseDTO<>(items, nextCursor, total);
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public FileResponseDTO uploadFile (Long folderId, MultipartFile file){
         if (file.isEmpty()){
             throw new InvalidFileException("File cannot be empty");
@@ -118,51 +240,359 @@ public class FileService {
         fileValidationService.validateFileExtension(originalFileName);
         fileValidationService.validateFileSize(file.getSize());
 
-        Folder folder = folderRepository.findById(folderId)
-                .orElseThrow(() -> new ResourceNotFoundException("Folder", folderId));
+        try (InputStream inputStream = file.getInputStream()) {
+            return storeFile(folderId, originalFileName, inputStream, file.getSize(), file.getContentType());
+        } catch (IOException ex){
+            throw new FileStorageException("Could not store file " + originalFileName, ex);
+        }
+    }
+
+    private record StagedUpload(int index, String name, String storedName, String contentType, long crc32,
+                                BlobStoreService.StagedBlob blob) {
+    }
+
+    /**
+     * Uploads many files to one folder. Ownership and quota are checked once up front, the parts are
+     * written to storage concurrently on the bounded upload executor without holding a database
+     * connection, and all rows are then inserted in one transaction that reserves quota for the
+     * whole batch. A part that fails validation or storage is reported in its item and does not
+     * affect the others.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BatchUploadResponseDTO uploadFiles(Long folderId, List<MultipartFile> files){
+        if (files == null || files.isEmpty()){
+            throw new InvalidFileException("At least one file is required");
+        }
+        if (files.size() > fileStorageProperties.getBatchMaxFiles()){
+            throw new InvalidFileException("A batch can contain at most " + fileStorageProperties.getBatchMaxFiles() + " files");
+        }
 
         Photographer photographer = getAuthenticatedPhotographer();
+        getOwnedFolder(folderId, photographer);
+        validateQuota(photographer, files.stream().mapToLong(MultipartFile::getSize).sum());
+
+        // Parts that have not started by the time the batch is abandoned skip their upload.
+        AtomicBoolean abandoned = new AtomicBoolean();
+        List<Future<StagedUpload>> pending = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            int index = i;
+            MultipartFile part = files.get(i);
+            pending.add(uploadExecutor.submit(() -> abandoned.get() ? null : stage(index, part)));
+        }
 
-        if(!folder.getOwner().getId().equals(photographer.getId())){
-            throw new ForbiddenException("You can only upload files to your own folders");
+        BatchUploadItemDTO[] results = new BatchUploadItemDTO[files.size()];
+        List<StagedUpload> staged = new ArrayList<>(files.size());
+        for (int i = 0; i < pending.size(); i++) {
+            try {
+                staged.add(pending.get(i).get());
+            } catch (ExecutionException ex) {
+                results[i] = BatchUploadItemDTO.failed(i, files.get(i).getOriginalFilename(), failureMessage(ex.getCause()));
+            } catch (InterruptedException ex) {
+                // Parts already writing cannot be stopped, so wait for them and delete what they stored.
+                abandoned.set(true);
+                for (int j = i; j < pending.size(); j++) {
+                    StagedUpload upload = awaitQuietly(pending.get(j));
+                    if (upload != null) {
+                        staged.add(upload);
+                    }
+                }
+                staged.forEach(upload -> deleteQuietly(upload.blob().path()));
+                Thread.currentThread().interrupt();
+                throw new FileStorageException("Interrupted while storing batch upload");
+            }
+        }
+
+        if (!staged.isEmpty()) {
+            // Registering in hash order keeps concurrent batches from locking shared blobs in opposite orders.
+            staged.sort(Comparator.comparing(upload -> upload.blob().sha256()));
+            long totalSize = staged.stream().mapToLong(upload -> upload.blob().size()).sum();
+            List<File> saved;
+            try {
+                saved = transactionTemplate.execute(status -> {
+                    Photographer owner = reserveQuota(photographer.getId(), totalSize);
+                    return persist(getOwnedFolder(folderId, owner), staged);
+                });
+            } catch (RuntimeException ex) {
+                staged.forEach(upload -> deleteQuietly(upload.blob().path()));
+                throw ex;
+            }
+
+            for (int i = 0; i < staged.size(); i++) {
+                StagedUpload upload = staged.get(i);
+                results[upload.index()] = BatchUploadItemDTO.uploaded(upload.index(), upload.name(),
+                        toResponseDTO(saved.get(i), List.of()));
+            }
         }
 
+        return new BatchUploadResponseDTO(Arrays.asList(results));
+    }
+
+    // Waits for the part even if interrupted again; returns null if it failed or never started.
+    private static StagedUpload awaitQuietly(Future<StagedUpload> future){
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                } catch (ExecutionException ex) {
+                    return null;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private StagedUpload stage(int index, MultipartFile part) throws IOException {
+        if (part.isEmpty()){
+            throw new InvalidFileException("File cannot be empty");
+        }
+
+        String originalFileName = StringUtils.cleanPath(part.getOriginalFilename());
+        fileValidationService.validateFileExtension(originalFileName);
+        fileValidationService.validateFileSize(part.getSize());
+
         String storedFileName = generateUniqueFileName(originalFileName);
+        String contentType = part.getContentType() != null ? part.getContentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+
+        try (InputStream inputStream = part.getInputStream()) {
+            InspectingInputStream inspected = fileValidationService.inspect(inputStream, part.getSize());
+            BlobStoreService.StagedBlob blob = blobStoreService.stage(inspected, storedFileName, contentType);
+            return new StagedUpload(index, originalFileName, storedFileName, contentType, inspected.getCrc32(), blob);
+        }
+    }
+
+    private List<File> persist(Folder folder, List<StagedUpload> staged){
+        List<File> files = new ArrayList<>(staged.size());
+        for (StagedUpload upload : staged) {
+            Blob blob = blobStoreService.register(upload.blob().sha256(), upload.blob().path(), upload.blob().size());
+            files.add(newFile(folder, upload.name(), upload.storedName(), blob, upload.blob().size(),
+                    upload.contentType(), upload.crc32()));
+        }
+
+        List<File> saved = fileRepository.insertAll(files);
+        saved.forEach(file -> eventPublisher.publishEvent(new FileUploadedEvent(file.getId())));
+        return saved;
+    }
 
+    private String failureMessage(Throwable cause){
+        if (cause instanceof InvalidFileException) {
+            return cause.getMessage();
+        }
+        logger.warn("Batch upload part failed: {}", cause.getMessage());
+        return "Could not store file";
+    }
+
+    private void deleteQuietly(String path){
         try {
-            String filePath = storageService.store(file, storedFileName);
+            storageService.delete(path);
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Could not delete staged upload '{}': {}", path, ex.getMessage());
+        }
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public FileResponseDTO uploadFileStream(Long folderId, String fileName, InputStream inputStream, long size, String contentType){
+        if (!StringUtils.hasText(fileName)){
+            throw new InvalidFileException("File name is required");
+        }
+
+        String originalFileName = StringUtils.cleanPath(fileName);
 
-            File fileEntity = new File();
-            fileEntity.setName(originalFileName);
-            fileEntity.setStoredName(storedFileName);
-            fileEntity.setPath(filePath);
-            fileEntity.setSize(file.getSize());
-            fileEntity.setContentType(file.getContentType());
-            fileEntity.setUploadDate(LocalDateTime.now());
-            fileEntity.setFolder(folder);
+        fileValidationService.validateFileExtension(originalFileName);
+        fileValidationService.validateStreamSize(size);
+
+        return storeFile(folderId, originalFileName, inputStream, size, contentType);
+    }
 
-            File savedFile = fileRepository.save(fileEntity);
+    /**
+     * Writes the bytes without a transaction open, so a slow client ties up a storage stream but
+     * not a pooled connection. Ownership and quota are checked before the copy, to fail fast, and
+     * again under a lock on the photographer in the short transaction that records the file.
+     * If that transaction fails the staged object is deleted; if the process dies in between,
+     * the storage reconciler removes it once the grace period has passed.
+     */
+    private FileResponseDTO storeFile(Long folderId, String originalFileName, InputStream inputStream, long size, String contentType){
+        Photographer photographer = getAuthenticatedPhotographer();
+        getOwnedFolder(folderId, photographer);
+        validateQuota(photographer, size);
 
-            return toResponseDTO(savedFile);
+        String storedFileName = generateUniqueFileName(originalFileName);
+
+        InspectingInputStream inspected = fileValidationService.inspect(inputStream, size);
+        BlobStoreService.StagedBlob staged;
+        try {
+            staged = blobStoreService.stage(inspected, storedFileName, contentType);
         }catch (IOException ex){
             throw new FileStorageException("Could not store file " + originalFileName, ex);
         }
+
+        try {
+            return transactionTemplate.execute(status -> {
+                Photographer owner = reserveQuota(photographer.getId(), staged.size());
+                Folder folder = getOwnedFolder(folderId, owner);
+
+                Blob blob = blobStoreService.register(staged.sha256(), staged.path(), staged.size());
+                File fileEntity = saveFile(folder, originalFileName, storedFileName, blob, staged.size(), contentType, inspected.getCrc32());
+                return toResponseDTO(fileEntity, List.of());
+            });
+        } catch (RuntimeException ex) {
+            deleteQuietly(staged.path());
+            throw ex;
+        }
     }
 
-    public Resource downloadFile(Long fileId){
-        File file = fileRepository.findById(fileId)
-                .orElseThrow(() -> new ResourceNotFoundException("File", fileId));
+    /**
+     * First step of a direct upload: checks the target folder and quota, then hands out a presigned
+     * PUT for the client to send the bytes straight to storage, plus a token for {@link #completeDirectUpload}.
+     */
+    public DirectUploadResponseDTO initiateDirectUpload(Long folderId, DirectUploadRequestDTO request){
+        String originalFileName = StringUtils.cleanPath(request.getFileName());
+        fileValidationService.validateFileExtension(originalFileName);
+        fileValidationService.validateStreamSize(request.getSize());
+
+        Photographer photographer = getAuthenticatedPhotographer();
+        getOwnedFolder(folderId, photographer);
+        validateQuota(photographer, request.getSize());
+
+        String storedFileName = generateUniqueFileName(originalFileName);
+        String sha256 = request.getSha256().toLowerCase();
+
+        PresignedUpload upload = storageService.generatePresignedUpload(
+                storedFileName, request.getSize(), request.getContentType(), sha256, directUploadProperties.getUrlTtl());
+
+        Instant tokenExpiresAt = Instant.now().plus(directUploadProperties.getCompletionTtl());
+        String token = directUploadTokenService.issue(new DirectUploadTokenService.UploadClaims(
+                photographer.getId(), folderId, originalFileName, storedFileName,
+                request.getSize(), request.getContentType(), sha256), Date.from(tokenExpiresAt));
+
+        return new DirectUploadResponseDTO(upload.url(), "PUT", upload.headers(), token,
+                LocalDateTime.ofInstant(Instant.now().plus(directUploadProperties.getUrlTtl()), ZoneId.systemDefault()));
+    }
+
+    /**
+     * Second step of a direct upload: confirms with a HEAD that the object arrived with the declared
+     * size and records it. Completing the same token again returns the file created the first time.
+     */
+    @Transactional
+    public FileResponseDTO completeDirectUpload(Long folderId, String uploadToken){
+        DirectUploadTokenService.UploadClaims claims = directUploadTokenService.parse(uploadToken);
+
+        Photographer photographer = getAuthenticatedPhotographer();
+        if (!claims.folderId().equals(folderId) || !claims.photographerId().equals(photographer.getId())) {
+            throw new ForbiddenException("Upload token was not issued for this folder");
+        }
+
+        File existing = fileRepository.findByStoredName(claims.storedName()).orElse(null);
+        if (existing != null) {
+            return toResponseDTO(existing, derivativeService.findSizesByFileIds(List.of(existing.getId()))
+                    .getOrDefault(existing.getId(), List.of()));
+        }
+
+        Folder folder = getOwnedFolder(folderId, photographer);
+        String path = storageService.resolvePath(claims.storedName());
 
         try {
-            return storageService.load(file.getPath());
-        }catch (Exception ex) {
-            throw new FileStorageException("File not found: " + file.getName(), ex);
+            Long storedSize = storageService.getSize(path);
+            if (storedSize == null) {
+                throw new InvalidFileException("Upload not found, send the file to the upload URL before completing");
+            }
+            if (storedSize != claims.size()) {
+                storageService.delete(path);
+                throw new InvalidFileException("Uploaded file is " + storedSize + " bytes, expected " + claims.size());
+            }
+
+            // The bytes never passed through here, so their header is checked from storage.
+            try (InputStream header = storageService.loadRange(path, 0, Math.min(storedSize, ImageHeader.MAX_HEADER_BYTES) - 1)) {
+                fileValidationService.validateImageHeader(header);
+            } catch (InvalidFileException ex) {
+                storageService.delete(path);
+                throw ex;
+            }
+
+            // Other uploads may have completed since the quota was checked at initiation.
+            reserveQuota(photographer.getId(), claims.size());
+
+            Blob blob = blobStoreService.register(claims.sha256(), path, claims.size());
+            // The bytes never passed through here; Crc32Backfill fills in the CRC-32 later.
+            File fileEntity = saveFile(folder, claims.name(), claims.storedName(), blob, claims.size(), claims.contentType(), null);
+            return toResponseDTO(fileEntity, List.of());
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not complete upload of " + claims.name(), ex);
+        }
+    }
+
+    /**
+     * Records a file whose bytes were already staged in storage by another upload path, such as
+     * a resumable upload session. Quota is reserved under a lock on the photographer, as for any
+     * other upload. Runs in the caller's transaction when there is one.
+     */
+    @Transactional
+    public FileResponseDTO saveStagedFile(Long folderId, String originalFileName, String storedFileName, String contentType,
+                                          BlobStoreService.StagedBlob staged, long crc32){
+        Photographer owner = reserveQuota(getAuthenticatedPhotographer().getId(), staged.size());
+        Folder folder = getOwnedFolder(folderId, owner);
+
+        Blob blob = blobStoreService.register(staged.sha256(), staged.path(), staged.size());
+        File fileEntity = saveFile(folder, originalFileName, storedFileName, blob, staged.size(), contentType, crc32);
+        return toResponseDTO(fileEntity, List.of());
+    }
+
+    private Folder getOwnedFolder(Long folderId, Photographer photographer){
+        Folder folder = folderRepository.findById(folderId)
+                .orElseThrow(() -> new ResourceNotFoundException("Folder", folderId));
+
+        if(!folder.getOwner().getId().equals(photographer.getId())){
+            throw new ForbiddenException("You can only upload files to your own folders");
         }
+        return folder;
+    }
+
+    // Public so upload sessions can be refused up front; the binding check is reserveQuota.
+    public void validateQuota(Photographer photographer, long size){
+        Long quota = photographer.getStorageQuotaBytes();
+        if (quota != null && fileRepository.sumSizeByOwnerId(photographer.getId()) + size > quota) {
+            throw new InvalidFileException("Storage quota exceeded (" + quota / (1024 * 1024) + "MB)");
+        }
+    }
+
+    // Locks the photographer so concurrent uploads check the quota one at a time; the lock is
+    // held until the calling transaction has recorded the file.
+    private Photographer reserveQuota(Long photographerId, long size){
+        Photographer photographer = photographerRepository.findByIdForUpdate(photographerId)
+                .orElseThrow(() -> new ResourceNotFoundException("Photographer", photographerId));
+        validateQuota(photographer, size);
+        return photographer;
+    }
+
+    private File saveFile(Folder folder, String originalFileName, String storedFileName, Blob blob, long size, String contentType, Long crc32){
+        File savedFile = fileRepository.save(newFile(folder, originalFileName, storedFileName, blob, size, contentType, crc32));
+        eventPublisher.publishEvent(new FileUploadedEvent(savedFile.getId()));
+        return savedFile;
+    }
+
+    private File newFile(Folder folder, String originalFileName, String storedFileName, Blob blob, long size, String contentType, Long crc32){
+        File fileEntity = new File();
+        fileEntity.setName(originalFileName);
+        fileEntity.setStoredName(storedFileName);
+        fileEntity.setPath(blob.getPath());
+        fileEntity.setBlob(blob);
+        fileEntity.setContentHash(blob.getSha256());
+        fileEntity.setCrc32(crc32);
+        fileEntity.setSize(size);
+        fileEntity.setContentType(contentType);
+        fileEntity.setUploadDate(LocalDateTime.now());
+        fileEntity.setFolder(folder);
+        return fileEntity;
     }
 
     @Transactional
     public void deleteFile(Long fileId){
-        File file = fileRepository.findById(fileId)
+        File file = fileRepository.findWithFolderById(fileId)
                 .orElseThrow(() -> new ResourceNotFoundException("File", fileId));
 
         Photographer photographer = getAuthenticatedPhotographer();
@@ -171,23 +601,34 @@ public class FileService {
             throw new ForbiddenException("You can only delete your own files");
         }
 
-        try {
-            storageService.delete(file.getPath());
-        }catch (IOException ex){
-            throw new FileStorageException("Could not delete file: " + file.getName(), ex);
+        derivativeService.deleteDerivatives(fileId);
+
+        Blob blob = file.getBlob();
+        if (blob == null) {
+            try {
+                storageService.delete(file.getPath());
+            }catch (IOException ex){
+                throw new FileStorageException("Could not delete file: " + file.getName(), ex);
+            }
         }
 
         fileRepository.delete(file);
+
+        if (blob != null) {
+            // Other files may share the blob; the bytes go only with the last reference.
+            fileRepository.flush();
+            blobStoreService.release(blob);
+        }
     }
 
 
     public void validateAccessForFile(Long id) {
-        File file = fileRepository.findById(id)
+        Long ownerId = fileRepository.findOwnerIdById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("File", id));
 
         Photographer photographer = getAuthenticatedPhotographer();
 
-        if (!file.getFolder().getOwner().getId().equals(photographer.getId())) {
+        if (!ownerId.equals(photographer.getId())) {
             throw new ForbiddenException("You do not have access to this file");
         }
     }
@@ -0,0 +1,7 @@
+package com.PhotoVault.services;
+
+/**
+ * Published by {@link FileService} when a file row is saved; listeners run after commit.
+ */
+public record FileUploadedEvent(Long fileId) {
+}
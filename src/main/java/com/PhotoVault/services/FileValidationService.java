@@ -1,5 +1,7 @@
 package com.PhotoVault.services;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
 
 import java.util.Set;
@@ -9,6 +11,7 @@ import org.springframework.stereotype.Service;
 
 import com.PhotoVault.config.FileStorageProperties;
 import com.PhotoVault.exception.InvalidFileException;
+import com.PhotoVault.services.image.ImageHeader;
 
 @Service
 public class FileValidationService {
@@ -43,7 +46,49 @@ public class FileValidationService {
             );
         }
     }
-    
+
+    public void validateStreamSize(long size){
+        if (size <= 0) {
+            throw new InvalidFileException("Content-Length header is required for streaming uploads");
+        }
+        if (size > fileStorageProperties.getStreamMaxSize()) {
+            long maxSizeMB = fileStorageProperties.getStreamMaxSize() / (1024 * 1024);
+            throw new InvalidFileException(
+                    "File size exceeds maximum allowed for streaming uploads (" + maxSizeMB + "MB)"
+            );
+        }
+    }
+
+    /**
+     * Wraps an upload so its content is validated, hashed and counted while it is copied to storage.
+     */
+    public InspectingInputStream inspect(InputStream inputStream, long size){
+        return new InspectingInputStream(inputStream, size, this::validateImage);
+    }
+
+    /**
+     * Validates an object that did not pass through {@link #inspect}, from its first bytes.
+     */
+    public ImageHeader validateImageHeader(InputStream headerStream) throws IOException {
+        byte[] bytes = headerStream.readNBytes(ImageHeader.MAX_HEADER_BYTES);
+        ImageHeader header = ImageHeader.parse(bytes, bytes.length);
+        if (header == null) {
+            throw new InvalidFileException("File content is not a supported image");
+        }
+        validateImage(header);
+        return header;
+    }
+
+    public void validateImage(ImageHeader header){
+        if (header.format().getExtensions().stream().noneMatch(allowedExtensionsCache::contains)) {
+            throw new InvalidFileException("Image format " + header.format() + " is not allowed");
+        }
+        if (header.pixels() > fileStorageProperties.getMaxPixels()) {
+            throw new InvalidFileException("Image is " + header.width() + "x" + header.height()
+                    + ", more than the allowed " + fileStorageProperties.getMaxPixels() + " pixels");
+        }
+    }
+
     public String getFileExtension(String fileName) {
         if (fileName == null || !fileName.contains(".")) {
             return "";
@@ -9,6 +9,7 @@ import com.PhotoVault.exception.ForbiddenException;
 import com.PhotoVault.exception.ResourceNotFoundException;
 import com.PhotoVault.repository.FolderRepository;
 import com.PhotoVault.repository.PhotographerRepository;
+import com.PhotoVault.repository.projection.FolderListItem;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
@@ -48,7 +49,22 @@ public class FolderService {
                 folder.getId(),
                 folder.getName(),
                 folder.getCreatedAt(),
-                owner
+                owner,
+                folder.getFileCount(),
+                folder.getTotalBytes(),
+                folder.getLastUploadAt()
+        );
+    }
+
+    private FolderResponseDTO toResponseDTO(FolderListItem folder){
+        return new FolderResponseDTO(
+                folder.id(),
+                folder.name(),
+                folder.createdAt(),
+                new PhotographerSummaryDTO(folder.ownerId(), folder.ownerName()),
+                folder.fileCount(),
+                folder.totalBytes(),
+                folder.lastUploadAt()
         );
     }
 
@@ -67,26 +83,25 @@ public class FolderService {
     }
 
     public FolderResponseDTO findById(Long id){
-        Folder folder = folderRepository.findById(id)
+        return folderRepository.findListItemById(id)
+                .map(this::toResponseDTO)
                 .orElseThrow(() -> new ResourceNotFoundException("Client", id));
-
-        return toResponseDTO(folder);
     }
 
     public Page<FolderResponseDTO> findAll(Pageable pageable){
-        return folderRepository.findAll(pageable)
+        return folderRepository.findListItems(pageable)
                 .map(this::toResponseDTO);
     }
 
     public Page<FolderResponseDTO> findAllByOwnerId(Pageable pageable){
         Photographer photographer = getAuthenticatedPhotographer();
 
-        return folderRepository.findByOwnerId(photographer.getId(), pageable)
+        return folderRepository.findListItemsByOwnerId(photographer.getId(), pageable)
                 .map(this::toResponseDTO);
     }
 
     public Page<FolderResponseDTO> findAllByPhotographerId(Long photographerId, Pageable pageable){
-        return folderRepository.findByOwnerId(photographerId, pageable)
+        return folderRepository.findListItemsByOwnerId(photographerId, pageable)
                 .map(this::toResponseDTO);
     }
 
@@ -101,9 +116,12 @@ public class FolderService {
         }
 
         folder.setName(request.getName());
-        Folder updated = folderRepository.save(folder);
+        folderRepository.saveAndFlush(folder);
 
-        return toResponseDTO(updated);
+        // The cached entity may hold older stats than the row.
+        return folderRepository.findListItemById(id)
+                .map(this::toResponseDTO)
+                .orElseThrow(() -> new ResourceNotFoundException("Folder", id));
     }
 
     @Transactional
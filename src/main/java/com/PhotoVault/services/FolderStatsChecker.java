@@ -0,0 +1,102 @@
+package com.PhotoVault.services;
+
+import com.PhotoVault.config.FolderStatsCheckProperties;
+import com.PhotoVault.repository.FolderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Compares the file count, total size and last upload stored on each folder with what tb_files
+ * says, and rewrites the folders that drifted. The triggers keep the stats exact on their own;
+ * drift comes from writes made with the triggers disabled, e.g. a restore or a bulk load with
+ * {@code session_replication_role = replica}, or from uploads that raced the V14 backfill.
+ * <p>
+ * Folders are compared without locks. Only drifted folders are locked, which waits out
+ * transactions that already changed their stats, and then recomputed in the same transaction.
+ */
+@Service
+@Transactional(readOnly = true)
+public class FolderStatsChecker {
+
+    private static final Logger logger = LoggerFactory.getLogger(FolderStatsChecker.class);
+
+    private final FolderRepository folderRepository;
+    private final FolderStatsCheckProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    public FolderStatsChecker(FolderRepository folderRepository,
+                              FolderStatsCheckProperties properties,
+                              PlatformTransactionManager transactionManager) {
+        this.folderRepository = folderRepository;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(initialDelayString = "${folder.stats-check.delay:PT24H}", fixedDelayString = "${folder.stats-check.delay:PT24H}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void scheduledCheck() {
+        if (properties.getEnabled()) {
+            checkAll();
+        }
+    }
+
+    /**
+     * Checks every folder, soft-deleted ones included, and returns how many were repaired.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int checkAll() {
+        long checked = 0;
+        int repaired = 0;
+        long afterId = 0;
+
+        while (true) {
+            List<Long> ids = folderRepository.findIdsAfter(afterId, properties.getBatchSize());
+            if (ids.isEmpty()) {
+                break;
+            }
+            checked += ids.size();
+            afterId = ids.getLast();
+
+            List<Long> drifted = folderRepository.findIdsWithStatsDrift(ids);
+            if (!drifted.isEmpty()) {
+                repaired += repair(drifted);
+                logger.warn("Repaired stats of folders {}", drifted);
+            }
+
+            if (ids.size() < properties.getBatchSize() || !pause()) {
+                break;
+            }
+        }
+
+        logger.info("Folder stats check finished: checked {} folders, repaired {}", checked, repaired);
+        return repaired;
+    }
+
+    private int repair(List<Long> folderIds) {
+        Integer repaired = transactionTemplate.execute(status -> {
+            folderRepository.lockForStatsRepair(folderIds);
+            return folderRepository.repairStats(folderIds);
+        });
+        return repaired == null ? 0 : repaired;
+    }
+
+    // Throttles between batches; returns false if the check should stop.
+    private boolean pause() {
+        try {
+            Thread.sleep(properties.getBatchPause());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Folder stats check interrupted");
+            return false;
+        }
+    }
+}
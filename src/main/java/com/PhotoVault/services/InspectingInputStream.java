@@ -0,0 +1,179 @@
+package com.PhotoVault.services;
+
+import com.PhotoVault.exception.InvalidFileException;
+import com.PhotoVault.services.image.ImageHeader;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Checks an upload while it is copied to storage, so the bytes are read once: computes the
+ * SHA-256 and CRC-32, parses the image header from the first bytes and hands it to a validator,
+ * and counts the bytes against the declared size. A check that fails stops the copy at that
+ * point with an IOException; {@link #getFailure()} then holds the reason to report.
+ */
+public class InspectingInputStream extends FilterInputStream {
+
+    private final long expectedSize;
+    private final Consumer<ImageHeader> headerValidator;
+    private final MessageDigest sha256;
+    private final CRC32 crc32 = new CRC32();
+
+    private byte[] headerBytes = new byte[8 * 1024];
+    private int headerLength;
+    private ImageHeader header;
+
+    private long count;
+    private boolean ended;
+    private String sha256Hex;
+    private InvalidFileException failure;
+
+    public InspectingInputStream(InputStream in, long expectedSize, Consumer<ImageHeader> headerValidator) {
+        super(in);
+        this.expectedSize = expectedSize;
+        this.headerValidator = headerValidator;
+        try {
+            this.sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int read = read(single, 0, 1);
+        return read == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (failure != null) {
+            throw new IOException(failure.getMessage(), failure);
+        }
+        int read = in.read(buffer, offset, length);
+        if (read == -1) {
+            onEnd();
+        } else if (read > 0) {
+            inspect(buffer, offset, read);
+        }
+        return read;
+    }
+
+    // Skipped bytes still have to be hashed and counted.
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] discard = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(discard, 0, (int) Math.min(discard.length, n - skipped));
+            if (read == -1) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Reads to the end of the stream, so a body longer than declared or one that ended early
+     * is caught even when the storage backend stopped reading at the declared size.
+     */
+    public void finish() throws IOException {
+        byte[] rest = new byte[8192];
+        while (!ended) {
+            read(rest, 0, rest.length);
+        }
+    }
+
+    public long getExpectedSize() {
+        return expectedSize;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public ImageHeader getHeader() {
+        return header;
+    }
+
+    public String getSha256() {
+        if (sha256Hex == null) {
+            sha256Hex = HexFormat.of().formatHex(sha256.digest());
+        }
+        return sha256Hex;
+    }
+
+    public long getCrc32() {
+        return crc32.getValue();
+    }
+
+    public InvalidFileException getFailure() {
+        return failure;
+    }
+
+    private void inspect(byte[] buffer, int offset, int length) throws IOException {
+        count += length;
+        if (count > expectedSize) {
+            fail("File is larger than the declared " + expectedSize + " bytes");
+        }
+
+        sha256.update(buffer, offset, length);
+        crc32.update(buffer, offset, length);
+
+        if (header == null) {
+            int take = Math.min(length, ImageHeader.MAX_HEADER_BYTES - headerLength);
+            if (headerLength + take > headerBytes.length) {
+                headerBytes = Arrays.copyOf(headerBytes, Math.max(headerBytes.length * 2, headerLength + take));
+            }
+            System.arraycopy(buffer, offset, headerBytes, headerLength, take);
+            headerLength += take;
+            parseHeader(headerLength == ImageHeader.MAX_HEADER_BYTES);
+        }
+    }
+
+    private void onEnd() throws IOException {
+        ended = true;
+        if (count < expectedSize) {
+            fail("File ended after " + count + " of the declared " + expectedSize + " bytes");
+        }
+        if (header == null) {
+            parseHeader(true);
+        }
+    }
+
+    private void parseHeader(boolean complete) throws IOException {
+        try {
+            header = ImageHeader.parse(headerBytes, headerLength);
+            if (header == null) {
+                if (complete) {
+                    fail("File content is not a supported image");
+                }
+                return;
+            }
+            headerBytes = null;
+            headerValidator.accept(header);
+        } catch (InvalidFileException e) {
+            failure = e;
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private void fail(String message) throws IOException {
+        failure = new InvalidFileException(message);
+        throw new IOException(message, failure);
+    }
+}
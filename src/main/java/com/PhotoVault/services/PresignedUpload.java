@@ -0,0 +1,10 @@
+package com.PhotoVault.services;
+
+import java.util.Map;
+
+/**
+ * Target for a client-side PUT: the URL and the headers the client must send unchanged,
+ * since they are covered by the signature.
+ */
+public record PresignedUpload(String url, Map<String, String> headers) {
+}
@@ -17,13 +17,18 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
+@Transactional(readOnly = true)
 public class ShareLinkService {
 
     private final ShareLinkRepository shareLinkRepository;
@@ -69,15 +74,7 @@ public class ShareLinkService {
     }
 
     public void validateTokenForFile(String token, Long fileId){
-        ShareLink shareLink = shareLinkRepository.findByToken(token)
-                .orElseThrow(() -> new ResourceNotFoundException("ShareLink", "token", token));
-
-        if (!shareLink.isValid()){
-            if(!shareLink.getActive()){
-                throw new ForbiddenException("This link has been revoked");
-            }
-            throw new ForbiddenException("This link has expired");
-        }
+        ShareLink shareLink = checkValid(shareLinkRepository.findByToken(token), token);
 
         File file = fileRepository.findById(fileId)
                 .orElseThrow(() -> new ResourceNotFoundException("File", fileId));
@@ -87,6 +84,7 @@ public class ShareLinkService {
         }
     }
 
+    @Transactional
     public ShareLinkResponseDTO createShareLink(Long folderId, ShareLinkRequestDTO request) {
         Folder folder = folderRepository.findById(folderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Folder", folderId));
@@ -116,8 +114,12 @@ public class ShareLinkService {
         return toResponseDTO(saved);
     }
 
-    public FolderAccessDTO accessFolderByToken(String token, Pageable pageable) {
-        ShareLink shareLink = shareLinkRepository.findByToken(token)
+    public Folder getSharedFolder(String token){
+        return checkValid(shareLinkRepository.findWithFolderByToken(token), token).getFolder();
+    }
+
+    private ShareLink checkValid(Optional<ShareLink> found, String token){
+        ShareLink shareLink = found
                 .orElseThrow(() -> new ResourceNotFoundException("ShareLink", "token", token));
 
         if (!shareLink.isValid()){
@@ -126,6 +128,12 @@ public class ShareLinkService {
             }
             throw new ForbiddenException("This link has expired");
         }
+        return shareLink;
+    }
+
+    @Transactional
+    public FolderAccessDTO accessFolderByToken(String token, Pageable pageable) {
+        ShareLink shareLink = checkValid(shareLinkRepository.findWithFolderAndOwnerByToken(token), token);
 
         shareLink.incrementAccessCount();
         shareLinkRepository.save(shareLink);
@@ -146,7 +154,8 @@ public class ShareLinkService {
                         file.getUploadDate(),
                         file.getFolderId(),
                         file.getFolderName(),
-                        "/api/files/" + file.getId() + "?shareToken=" + token
+                        "/api/files/" + file.getId() + "?shareToken=" + token,
+                        withShareToken(file.getDerivatives(), token)
                 ));
 
         return new FolderAccessDTO(
@@ -158,9 +167,16 @@ public class ShareLinkService {
         );
     }
 
+    private Map<Integer, String> withShareToken(Map<Integer, String> urls, String token) {
+        Map<Integer, String> shared = new LinkedHashMap<>();
+        urls.forEach((size, url) -> shared.put(size, url + "?shareToken=" + token));
+        return shared;
+    }
+
     public List<ShareLinkResponseDTO> getShareLinksByFolder(Long folderId){
-        folderRepository.findById(folderId)
-                .orElseThrow(() -> new ResourceNotFoundException("Folder", folderId));
+        if (!folderRepository.existsById(folderId)) {
+            throw new ResourceNotFoundException("Folder", folderId);
+        }
 
         return shareLinkRepository.findByFolderId(folderId)
                 .stream()
@@ -168,8 +184,9 @@ public class ShareLinkService {
                 .collect(Collectors.toList());
     }
 
+    @Transactional
     public void revokeShareLink(Long shareLinkId){
-        ShareLink shareLink = shareLinkRepository.findById(shareLinkId)
+        ShareLink shareLink = shareLinkRepository.findWithFolderById(shareLinkId)
                 .orElseThrow(() -> new ResourceNotFoundException("ShareLink", shareLinkId));
 
         Photographer photographer = getAuthenticatedPhotographer();
@@ -182,8 +199,9 @@ public class ShareLinkService {
         shareLinkRepository.save(shareLink);
     }
 
+    @Transactional
     public ShareLinkResponseDTO renewShareLink(Long shareLinkId, Integer additionalDays){
-        ShareLink shareLink = shareLinkRepository.findById(shareLinkId)
+        ShareLink shareLink = shareLinkRepository.findWithFolderById(shareLinkId)
                 .orElseThrow(() -> new ResourceNotFoundException("ShareLink", shareLinkId));
 
         Photographer photographer = getAuthenticatedPhotographer();
@@ -0,0 +1,241 @@
+package com.PhotoVault.services;
+
+import com.PhotoVault.config.StorageReconcileProperties;
+import com.PhotoVault.exception.ConflictException;
+import com.PhotoVault.exception.FileStorageException;
+import com.PhotoVault.repository.BlobRepository;
+import com.PhotoVault.repository.FileDerivativeRepository;
+import com.PhotoVault.repository.FileRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Finds stored objects that no database row references and deletes them. Such orphans are left
+ * by uploads that failed after writing their bytes, and by files removed without going through
+ * {@link BlobStoreService}, such as derivatives of purged files.
+ * <p>
+ * The storage listing is streamed and checked against the database one batch at a time, so
+ * memory use does not grow with the size of the store. Objects younger than the grace period
+ * are skipped, since an upload may still be about to record them. An object also counts as
+ * referenced while rows still point at its {@link StorageService#legacyPath legacy path}, so
+ * files halfway through a layout migration are not mistaken for orphans.
+ */
+@Service
+@Transactional(readOnly = true)
+public class StorageReconcileService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageReconcileService.class);
+
+    public record ReconcileReport(boolean dryRun,
+                                  Instant startedAt,
+                                  Duration duration,
+                                  long purgedFiles,
+                                  long scanned,
+                                  long orphans,
+                                  long orphanBytes,
+                                  long deleted,
+                                  List<String> orphanSample) {
+    }
+
+    private final StorageService storageService;
+    private final FileRepository fileRepository;
+    private final BlobRepository blobRepository;
+    private final FileDerivativeRepository fileDerivativeRepository;
+    private final StorageReconcileProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile ReconcileReport lastReport;
+
+    public StorageReconcileService(StorageService storageService,
+                                   FileRepository fileRepository,
+                                   BlobRepository blobRepository,
+                                   FileDerivativeRepository fileDerivativeRepository,
+                                   StorageReconcileProperties properties,
+                                   PlatformTransactionManager transactionManager) {
+        this.storageService = storageService;
+        this.fileRepository = fileRepository;
+        this.blobRepository = blobRepository;
+        this.fileDerivativeRepository = fileDerivativeRepository;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(initialDelayString = "${storage.reconcile.delay:PT6H}", fixedDelayString = "${storage.reconcile.delay:PT6H}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void scheduledReconcile() {
+        if (!properties.getEnabled() || running.get()) {
+            return;
+        }
+        try {
+            reconcile(properties.getDryRun());
+        } catch (ConflictException e) {
+            // Started by hand in the meantime.
+        }
+    }
+
+    /**
+     * Purges soft-deleted files past their retention, then deletes every orphaned object older
+     * than the grace period. A dry run changes nothing and reports what would be removed.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ReconcileReport reconcile(boolean dryRun) {
+        if (!running.compareAndSet(false, true)) {
+            throw new ConflictException("A storage reconciliation is already running");
+        }
+
+        try {
+            Run run = new Run(dryRun);
+            run.purgeDeletedFiles();
+            run.scanStorage();
+
+            ReconcileReport report = run.report();
+            lastReport = report;
+            logger.info("Storage reconciliation{} finished in {}: purged {} deleted files, scanned {} objects, "
+                            + "found {} orphans ({} bytes), deleted {}",
+                    dryRun ? " (dry run)" : "", report.duration(), report.purgedFiles(), report.scanned(),
+                    report.orphans(), report.orphanBytes(), report.deleted());
+            return report;
+        } catch (IOException e) {
+            throw new FileStorageException("Could not list stored objects", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public ReconcileReport getLastReport() {
+        return lastReport;
+    }
+
+    private final class Run {
+
+        private final boolean dryRun;
+        private final Instant startedAt = Instant.now();
+        private final int batchSize = properties.getBatchSize();
+        private final List<String> orphanSample = new ArrayList<>();
+        private long purgedFiles;
+        private long scanned;
+        private long orphans;
+        private long orphanBytes;
+        private long deleted;
+
+        Run(boolean dryRun) {
+            this.dryRun = dryRun;
+        }
+
+        // Runs first, so the derivatives and pre-deduplication files released here are already
+        // orphans when storage is scanned. Blob-backed bytes are freed by the blob sweep.
+        void purgeDeletedFiles() {
+            LocalDateTime deletedBefore = LocalDateTime.ofInstant(
+                    startedAt.minus(properties.getDeletedRetention()), ZoneId.systemDefault());
+
+            if (dryRun) {
+                purgedFiles = fileRepository.countByDeletedAtBefore(deletedBefore);
+                return;
+            }
+
+            int purged;
+            do {
+                purged = transactionTemplate.execute(status -> fileRepository.purgeDeletedBefore(deletedBefore, batchSize));
+                purgedFiles += purged;
+            } while (purged == batchSize && pause());
+        }
+
+        void scanStorage() throws IOException {
+            Instant modifiedBefore = startedAt.minus(properties.getGrace());
+            List<StoredObject> batch = new ArrayList<>(batchSize);
+
+            try (Stream<StoredObject> objects = storageService.listObjects()) {
+                Iterator<StoredObject> iterator = objects.iterator();
+                while (iterator.hasNext()) {
+                    StoredObject object = iterator.next();
+                    scanned++;
+                    if (object.lastModified().isBefore(modifiedBefore)) {
+                        batch.add(object);
+                    }
+                    if (batch.size() == batchSize) {
+                        deleteOrphans(batch);
+                        batch.clear();
+                        if (!pause()) {
+                            return;
+                        }
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                deleteOrphans(batch);
+            }
+        }
+
+        private void deleteOrphans(List<StoredObject> batch) throws IOException {
+            Set<String> paths = new HashSet<>(batch.size());
+            Map<String, String> legacyPaths = new HashMap<>();
+            for (StoredObject object : batch) {
+                paths.add(object.path());
+                String legacyPath = storageService.legacyPath(object.path());
+                if (legacyPath != null) {
+                    paths.add(legacyPath);
+                    legacyPaths.put(object.path(), legacyPath);
+                }
+            }
+
+            Set<String> referenced = new HashSet<>(blobRepository.findPathsIn(paths));
+            referenced.addAll(fileRepository.findPathsIn(paths));
+            referenced.addAll(fileDerivativeRepository.findPathsIn(paths));
+
+            List<String> orphanPaths = new ArrayList<>();
+            for (StoredObject object : batch) {
+                if (!referenced.contains(object.path()) && !referenced.contains(legacyPaths.get(object.path()))) {
+                    orphanPaths.add(object.path());
+                    orphanBytes += object.size();
+                    if (orphanSample.size() < properties.getReportSampleSize()) {
+                        orphanSample.add(object.path());
+                    }
+                }
+            }
+            orphans += orphanPaths.size();
+
+            if (!dryRun && !orphanPaths.isEmpty()) {
+                deleted += storageService.deleteAll(orphanPaths);
+            }
+        }
+
+        // Throttles between batches; returns false if the run should stop.
+        private boolean pause() {
+            try {
+                Thread.sleep(properties.getBatchPause());
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("Storage reconciliation interrupted");
+                return false;
+            }
+        }
+
+        ReconcileReport report() {
+            return new ReconcileReport(dryRun, startedAt, Duration.between(startedAt, Instant.now()), purgedFiles,
+                    scanned, orphans, orphanBytes, deleted, List.copyOf(orphanSample));
+        }
+    }
+}
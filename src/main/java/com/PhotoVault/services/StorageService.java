@@ -5,6 +5,10 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
 
 public interface StorageService {
 
@@ -15,11 +19,55 @@ public interface StorageService {
 
     Resource load(String filePath) throws IOException;
 
+    InputStream loadRange(String filePath, long start, long end) throws IOException;
+
     void delete (String filePath) throws IOException;
 
     boolean exists(String filePath) throws IOException;
 
+    Path getLocalPath(String filePath);
+
     String getPublicUrl(String filePath);
 
     String generatePresignedUrl(String filePath, long expirationMinutes);
+
+    /**
+     * Presigned GET that makes the store answer with the given Content-Type and Content-Disposition.
+     * Returns null when the backend cannot serve clients directly.
+     */
+    String generatePresignedUrl(String filePath, Duration expiration, String contentType, String contentDisposition);
+
+    /**
+     * Presigned PUT that lets a client upload {@code fileName} directly. The store only accepts a body
+     * of exactly {@code size} bytes whose SHA-256 (hex) matches {@code sha256}.
+     */
+    PresignedUpload generatePresignedUpload(String fileName, long size, String contentType, String sha256, Duration expiration);
+
+    /**
+     * Path under which {@link #store} keeps an object named {@code fileName}.
+     */
+    String resolvePath(String fileName);
+
+    /**
+     * Size of the stored object in bytes, or null if it does not exist.
+     */
+    Long getSize(String filePath) throws IOException;
+
+    /**
+     * Path the object at {@code filePath} had in an earlier layout, which rows that have not been
+     * migrated yet may still reference, or null if the backend only ever had one layout.
+     */
+    String legacyPath(String filePath);
+
+    /**
+     * Every stored object, fetched from the backend page by page as the stream is consumed.
+     * The stream must be closed.
+     */
+    Stream<StoredObject> listObjects() throws IOException;
+
+    /**
+     * Deletes the objects in as few requests as the backend allows and returns how many were
+     * deleted. Objects that could not be deleted are logged and skipped.
+     */
+    int deleteAll(List<String> filePaths) throws IOException;
 }
@@ -0,0 +1,9 @@
+package com.PhotoVault.services;
+
+import java.time.Instant;
+
+/**
+ * An object as listed by the storage backend, independent of any database row.
+ */
+public record StoredObject(String path, long size, Instant lastModified) {
+}
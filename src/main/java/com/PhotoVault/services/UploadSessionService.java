@@ -0,0 +1,310 @@
+package com.PhotoVault.services;
+
+import com.PhotoVault.config.UploadSessionProperties;
+import com.PhotoVault.dto.request.UploadSessionRequestDTO;
+import com.PhotoVault.dto.response.FileResponseDTO;
+import com.PhotoVault.dto.response.UploadSessionResponseDTO;
+import com.PhotoVault.entities.Folder;
+import com.PhotoVault.entities.Photographer;
+import com.PhotoVault.entities.UploadSession;
+import com.PhotoVault.exception.*;
+import com.PhotoVault.repository.FolderRepository;
+import com.PhotoVault.repository.PhotographerRepository;
+import com.PhotoVault.repository.UploadSessionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resumable uploads for files too large to send reliably in one request. A session is created
+ * with the file's size, chunks are appended at the offset the server reports, and an interrupted
+ * client asks for the offset and carries on from there. Completing the session records the file
+ * like any other upload. Chunk writes run outside any transaction, so a slow client never holds
+ * a database connection.
+ */
+@Service
+@Transactional(readOnly = true)
+public class UploadSessionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadSessionService.class);
+
+    private static final int CLEANUP_BATCH_SIZE = 100;
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final FolderRepository folderRepository;
+    private final PhotographerRepository photographerRepository;
+    private final FileValidationService fileValidationService;
+    private final FileService fileService;
+    private final StorageService storageService;
+    private final UploadStaging uploadStaging;
+    private final UploadSessionProperties uploadSessionProperties;
+    private final TransactionTemplate transactionTemplate;
+
+    // Sessions with a chunk, completion or cleanup in progress on this instance.
+    private final Set<String> busySessions = ConcurrentHashMap.newKeySet();
+
+    public UploadSessionService(UploadSessionRepository uploadSessionRepository,
+                                FolderRepository folderRepository,
+                                PhotographerRepository photographerRepository,
+                                FileValidationService fileValidationService,
+                                FileService fileService,
+                                StorageService storageService,
+                                UploadStaging uploadStaging,
+                                UploadSessionProperties uploadSessionProperties,
+                                PlatformTransactionManager transactionManager) {
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.folderRepository = folderRepository;
+        this.photographerRepository = photographerRepository;
+        this.fileValidationService = fileValidationService;
+        this.fileService = fileService;
+        this.storageService = storageService;
+        this.uploadStaging = uploadStaging;
+        this.uploadSessionProperties = uploadSessionProperties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    private Photographer getAuthenticatedPhotographer() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String email = authentication.getName();
+
+        return photographerRepository.findByEmail(email)
+                .orElseThrow(() -> new ResourceNotFoundException("Photographer", "email", email));
+    }
+
+    private UploadSessionResponseDTO toResponseDTO(UploadSession session) {
+        String uploadUrl = "/api/folders/" + session.getFolder().getId() + "/files/sessions/" + session.getId();
+
+        return new UploadSessionResponseDTO(
+                session.getId(),
+                session.getFileName(),
+                session.getSize(),
+                session.getUploadOffset(),
+                session.getChunkSize(),
+                uploadUrl,
+                session.getExpiresAt()
+        );
+    }
+
+    @Transactional
+    public UploadSessionResponseDTO createSession(Long folderId, UploadSessionRequestDTO request) {
+        String originalFileName = StringUtils.cleanPath(request.getFileName());
+        fileValidationService.validateFileExtension(originalFileName);
+        fileValidationService.validateStreamSize(request.getSize());
+
+        Photographer photographer = getAuthenticatedPhotographer();
+        Folder folder = folderRepository.findById(folderId)
+                .orElseThrow(() -> new ResourceNotFoundException("Folder", folderId));
+
+        if (!folder.getOwner().getId().equals(photographer.getId())) {
+            throw new ForbiddenException("You can only upload files to your own folders");
+        }
+        // Checked again with the photographer locked when the session completes.
+        fileService.validateQuota(photographer, request.getSize());
+
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setPhotographer(photographer);
+        session.setFolder(folder);
+        session.setFileName(originalFileName);
+        session.setStoredName(UUID.randomUUID() + "." + fileValidationService.getFileExtension(originalFileName));
+        session.setContentType(request.getContentType());
+        session.setSize(request.getSize());
+        session.setChunkSize(uploadStaging.getChunkSize());
+        session.setExpiresAt(LocalDateTime.now().plus(uploadSessionProperties.getTtl()));
+
+        try {
+            uploadStaging.begin(session);
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not start upload of " + originalFileName, ex);
+        }
+
+        try {
+            return toResponseDTO(uploadSessionRepository.saveAndFlush(session));
+        } catch (RuntimeException ex) {
+            uploadStaging.abort(session);
+            throw ex;
+        }
+    }
+
+    public UploadSessionResponseDTO getSession(Long folderId, String sessionId) {
+        return toResponseDTO(getOwnedSession(folderId, sessionId));
+    }
+
+    /**
+     * Appends a chunk that must start at the session's current offset. The returned offset may
+     * be short of {@code offset + length} if the chunk was cut off; the client resumes from it.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public UploadSessionResponseDTO appendChunk(Long folderId, String sessionId, long offset, InputStream inputStream, long length) {
+        lock(sessionId);
+        try {
+            UploadSession session = getActiveSession(folderId, sessionId);
+
+            if (length < 0) {
+                throw new InvalidFileException("Content-Length is required");
+            }
+            if (offset != session.getUploadOffset()) {
+                throw new ConflictException("Upload is at offset " + session.getUploadOffset() + ", chunk starts at " + offset);
+            }
+            if (offset + length > session.getSize()) {
+                throw new InvalidFileException("Chunk ends past the declared size of " + session.getSize() + " bytes");
+            }
+
+            long newOffset = appendToStaging(session, inputStream, length);
+
+            // Conditional on the old offset, so a concurrent chunk on another instance cannot be overwritten.
+            if (newOffset != offset && uploadSessionRepository.updateOffset(sessionId, offset, newOffset) == 0) {
+                throw new ConflictException("Upload was modified concurrently, query the offset and retry");
+            }
+            session.setUploadOffset(newOffset);
+            return toResponseDTO(session);
+        } finally {
+            busySessions.remove(sessionId);
+        }
+    }
+
+    /**
+     * Assembles the received bytes and records the file. The staged data is consumed by
+     * assembly, so if recording fails the session is discarded and the upload must start over.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public FileResponseDTO completeSession(Long folderId, String sessionId) {
+        lock(sessionId);
+        try {
+            UploadSession session = getActiveSession(folderId, sessionId);
+
+            if (!session.isComplete()) {
+                throw new ConflictException("Upload is incomplete: " + session.getUploadOffset() + " of " + session.getSize() + " bytes received");
+            }
+
+            UploadStaging.CompletedUpload completed = completeStaging(session);
+            try {
+                return transactionTemplate.execute(status -> {
+                    FileResponseDTO file = fileService.saveStagedFile(folderId, session.getFileName(), session.getStoredName(),
+                            session.getContentType(), completed.blob(), completed.crc32());
+                    uploadSessionRepository.deleteById(sessionId);
+                    return file;
+                });
+            } catch (RuntimeException ex) {
+                deleteQuietly(completed.blob().path());
+                uploadSessionRepository.deleteById(sessionId);
+                throw ex;
+            }
+        } finally {
+            busySessions.remove(sessionId);
+        }
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void cancelSession(Long folderId, String sessionId) {
+        lock(sessionId);
+        try {
+            UploadSession session = getOwnedSession(folderId, sessionId);
+            uploadStaging.abort(session);
+            uploadSessionRepository.deleteById(sessionId);
+        } finally {
+            busySessions.remove(sessionId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${file.upload-session.cleanup-delay:PT15M}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void cleanupExpiredSessions() {
+        List<UploadSession> expired = uploadSessionRepository.findExpired(LocalDateTime.now(), PageRequest.of(0, CLEANUP_BATCH_SIZE));
+
+        int removed = 0;
+        for (UploadSession session : expired) {
+            if (!busySessions.add(session.getId())) {
+                continue;
+            }
+            try {
+                uploadStaging.abort(session);
+                uploadSessionRepository.deleteById(session.getId());
+                removed++;
+            } catch (RuntimeException ex) {
+                logger.warn("Could not clean up upload session {}: {}", session.getId(), ex.getMessage());
+            } finally {
+                busySessions.remove(session.getId());
+            }
+        }
+        if (removed > 0) {
+            logger.info("Removed {} expired upload sessions", removed);
+        }
+    }
+
+    // Unknown ids and sessions of other photographers or folders look the same, so ids cannot be probed.
+    private UploadSession getOwnedSession(Long folderId, String sessionId) {
+        UploadSession session = uploadSessionRepository.findById(sessionId)
+                .orElseThrow(() -> new ResourceNotFoundException("Upload session", "id", sessionId));
+
+        Photographer photographer = getAuthenticatedPhotographer();
+        if (!session.getFolder().getId().equals(folderId) || !session.getPhotographer().getId().equals(photographer.getId())) {
+            throw new ResourceNotFoundException("Upload session", "id", sessionId);
+        }
+        // Sessions created before the chunk size was recorded were split at the configured size.
+        if (session.getChunkSize() == null) {
+            session.setChunkSize(uploadStaging.getChunkSize());
+        }
+        return session;
+    }
+
+    private UploadSession getActiveSession(Long folderId, String sessionId) {
+        UploadSession session = getOwnedSession(folderId, sessionId);
+        if (session.getExpiresAt().isBefore(LocalDateTime.now())) {
+            throw new ExpiredTokenException("Upload session has expired");
+        }
+        return session;
+    }
+
+    private long appendToStaging(UploadSession session, InputStream inputStream, long length) {
+        try {
+            return uploadStaging.append(session, inputStream, length);
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not store chunk of " + session.getFileName(), ex);
+        }
+    }
+
+    // Content that fails validation will not pass on a retry either, so the session is dropped.
+    private UploadStaging.CompletedUpload completeStaging(UploadSession session) {
+        try {
+            return uploadStaging.complete(session);
+        } catch (InvalidFileException ex) {
+            uploadStaging.abort(session);
+            uploadSessionRepository.deleteById(session.getId());
+            throw ex;
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not complete upload of " + session.getFileName(), ex);
+        }
+    }
+
+    private void lock(String sessionId) {
+        if (!busySessions.add(sessionId)) {
+            throw new ConflictException("Another request is already writing to this upload");
+        }
+    }
+
+    private void deleteQuietly(String path) {
+        try {
+            storageService.delete(path);
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Could not delete assembled upload '{}': {}", path, ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.PhotoVault.services;
+
+import com.PhotoVault.entities.UploadSession;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Holds the bytes of a resumable upload between chunks. The implementation follows the
+ * configured storage type: local staging appends to a file, S3 staging sends the chunks as
+ * parts of a multipart upload.
+ */
+public interface UploadStaging {
+
+    /**
+     * Chunk size for new sessions, recorded on the session so that a configuration change does
+     * not move the part boundaries of uploads already in progress.
+     */
+    long getChunkSize();
+
+    void begin(UploadSession session) throws IOException;
+
+    /**
+     * Stages up to {@code length} bytes starting at the session's offset and returns the new
+     * offset. If the stream ends or fails early, what was staged is kept and the shorter
+     * offset returned, so the client can resume from there. Staging that can only keep whole
+     * chunks rejects a chunk that is not a multiple of the session's chunk size and does not
+     * end the file with an {@link com.PhotoVault.exception.InvalidFileException}, before
+     * reading any of it.
+     */
+    long append(UploadSession session, InputStream inputStream, long length) throws IOException;
+
+    /**
+     * Moves the fully received file into storage under the session's stored name and hashes it.
+     * The staged data is consumed; the result must be registered or deleted by the caller.
+     */
+    CompletedUpload complete(UploadSession session) throws IOException;
+
+    void abort(UploadSession session);
+
+    /**
+     * Reads until {@code buffer} holds {@code length} bytes or the stream ends. A failing stream
+     * counts as ended: the client went away, and whatever arrived before that is still usable.
+     */
+    static int readChunk(InputStream inputStream, byte[] buffer, int length) {
+        int total = 0;
+        try {
+            while (total < length) {
+                int read = inputStream.read(buffer, total, length - total);
+                if (read < 0) {
+                    break;
+                }
+                total += read;
+            }
+        } catch (IOException e) {
+            // Keep the bytes read so far.
+        }
+        return total;
+    }
+
+    record CompletedUpload(BlobStoreService.StagedBlob blob, long crc32) {
+    }
+}
@@ -0,0 +1,81 @@
+package com.PhotoVault.services.archive;
+
+import com.PhotoVault.config.StorageCacheConfig;
+import com.PhotoVault.exception.FileStorageException;
+import com.PhotoVault.repository.FileRepository;
+import com.PhotoVault.services.StorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * Fills in the CRC-32 of files whose bytes never passed through the application: direct uploads,
+ * and files stored before the CRC was recorded. Until then {@link FolderArchiveService} streams
+ * them with a data descriptor, so archive downloads never wait for storage reads of their own.
+ * Reads go to the backing store, so a backfill pass does not flush the storage caches.
+ */
+@Component
+public class Crc32Backfill {
+
+    private static final Logger logger = LoggerFactory.getLogger(Crc32Backfill.class);
+
+    private final FileRepository fileRepository;
+    private final StorageService storageService;
+    private final int batchSize;
+
+    public Crc32Backfill(FileRepository fileRepository,
+                         @Qualifier(StorageCacheConfig.BACKING_STORE) StorageService storageService,
+                         @Value("${file.archive.crc32-backfill-batch-size:100}") int batchSize) {
+        this.fileRepository = fileRepository;
+        this.storageService = storageService;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(initialDelayString = "${file.archive.crc32-backfill-delay:PT10M}",
+            fixedDelayString = "${file.archive.crc32-backfill-delay:PT10M}")
+    public void backfill() {
+        int computed = 0;
+        String afterPath = "";
+
+        while (true) {
+            List<String> paths = fileRepository.findPathsWithoutCrc32(afterPath, PageRequest.of(0, batchSize));
+            for (String path : paths) {
+                if (compute(path)) {
+                    computed++;
+                }
+            }
+            if (paths.size() < batchSize) {
+                break;
+            }
+            // Paths that failed are skipped past and retried on the next run.
+            afterPath = paths.getLast();
+        }
+
+        if (computed > 0) {
+            logger.info("Computed CRC-32 for {} stored objects", computed);
+        }
+    }
+
+    private boolean compute(String path) {
+        CRC32 crc32 = new CRC32();
+        try (InputStream inputStream = new CheckedInputStream(storageService.load(path).getInputStream(), crc32)) {
+            inputStream.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException | FileStorageException e) {
+            logger.warn("Could not compute CRC-32 of '{}': {}", path, e.getMessage());
+            return false;
+        }
+        fileRepository.updateCrc32ByPath(path, crc32.getValue());
+        return true;
+    }
+}
@@ -0,0 +1,167 @@
+package com.PhotoVault.services.archive;
+
+import com.PhotoVault.entities.File;
+import com.PhotoVault.entities.Folder;
+import com.PhotoVault.repository.FileRepository;
+import com.PhotoVault.services.StorageService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Streams a whole folder as one uncompressed ZIP. Photos are already compressed, so STORE mode
+ * costs nothing in size and keeps the archive layout computable from the database alone: the
+ * response has an exact Content-Length and a strong ETag, and interrupted downloads can be
+ * resumed with a single Range request. Conditional requests are answered from the database too:
+ * storage is only read once the body is streamed.
+ */
+@Service
+public class FolderArchiveService {
+
+    private static final String BYTES_UNIT = "bytes";
+
+    private final FileRepository fileRepository;
+    private final StorageService storageService;
+    private final int prefetch;
+    private final Executor prefetchExecutor = new VirtualThreadTaskExecutor("archive-prefetch-");
+
+    public FolderArchiveService(FileRepository fileRepository,
+                                StorageService storageService,
+                                @Value("${file.archive.prefetch:2}") int prefetch) {
+        this.fileRepository = fileRepository;
+        this.storageService = storageService;
+        this.prefetch = prefetch;
+    }
+
+    public ResponseEntity<StreamingResponseBody> download(Folder folder, HttpServletRequest request) {
+        List<File> files = fileRepository.findByFolderId(folder.getId()).stream()
+                .filter(file -> !file.isDeleted())
+                .sorted(Comparator.comparing(File::getId))
+                .toList();
+
+        List<ZipArchive.Entry> entries = toEntries(files);
+        ZipArchive archive = new ZipArchive(entries);
+        String eTag = eTag(files, entries);
+        long length = archive.length();
+
+        HttpHeaders requestHeaders = new ServletServerHttpRequest(request).getHeaders();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(eTag);
+        headers.setCacheControl(CacheControl.noCache().cachePrivate());
+
+        if (requestHeaders.getIfNoneMatch().contains(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+        }
+
+        headers.set(HttpHeaders.ACCEPT_RANGES, BYTES_UNIT);
+        headers.setContentType(MediaType.parseMediaType("application/zip"));
+        headers.setContentDisposition(ContentDisposition.attachment()
+                .filename(folder.getName() + ".zip", StandardCharsets.UTF_8)
+                .build());
+
+        List<HttpRange> ranges;
+        try {
+            ranges = requestHeaders.getRange();
+        } catch (IllegalArgumentException ex) {
+            return rangeNotSatisfiable(length);
+        }
+
+        // Resuming is the use case, so only a single range against the current layout is honoured;
+        // anything else gets the whole archive.
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ranges.size() == 1 && (ifRange == null || ifRange.equals(eTag))) {
+            long start = ranges.getFirst().getRangeStart(length);
+            long end = ranges.getFirst().getRangeEnd(length);
+            if (start >= length || start > end) {
+                return rangeNotSatisfiable(length);
+            }
+
+            headers.set(HttpHeaders.CONTENT_RANGE, BYTES_UNIT + " " + start + "-" + end + "/" + length);
+            headers.setContentLength(end - start + 1);
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).headers(headers)
+                    .body(stream(archive, start, end));
+        }
+
+        headers.setContentLength(length);
+        return ResponseEntity.ok().headers(headers).body(stream(archive, 0, length - 1));
+    }
+
+    private StreamingResponseBody stream(ZipArchive archive, long start, long end) {
+        return outputStream -> archive.write(outputStream, start, end, this::open, prefetchExecutor, prefetch);
+    }
+
+    private InputStream open(ZipArchive.Entry entry, long start, long end) throws IOException {
+        if (start == 0 && end == entry.size() - 1) {
+            return storageService.load(entry.path()).getInputStream();
+        }
+        return storageService.loadRange(entry.path(), start, end);
+    }
+
+    private List<ZipArchive.Entry> toEntries(List<File> files) {
+        Set<String> usedNames = new HashSet<>();
+        List<ZipArchive.Entry> entries = new ArrayList<>(files.size());
+        for (File file : files) {
+            entries.add(new ZipArchive.Entry(uniqueName(file.getName(), usedNames), file.getPath(),
+                    file.getSize(), file.getCrc32(), file.getUploadDate()));
+        }
+        return entries;
+    }
+
+    // Flat archive: separators are replaced, and repeated names get a " (n)" suffix in id order.
+    private String uniqueName(String name, Set<String> usedNames) {
+        String flat = name.replace('/', '_').replace('\\', '_');
+        int dot = flat.lastIndexOf('.');
+        String base = dot > 0 ? flat.substring(0, dot) : flat;
+        String extension = dot > 0 ? flat.substring(dot) : "";
+
+        String candidate = flat;
+        for (int n = 1; !usedNames.add(candidate.toLowerCase()); n++) {
+            candidate = base + " (" + n + ")" + extension;
+        }
+        return candidate;
+    }
+
+    // Covers everything the byte layout depends on, so equal tags mean identical archives.
+    private String eTag(List<File> files, List<ZipArchive.Entry> entries) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (int i = 0; i < entries.size(); i++) {
+                ZipArchive.Entry entry = entries.get(i);
+                digest.update((files.get(i).getId() + "\0" + entry.name() + "\0" + entry.size() + "\0"
+                        + entry.crc32() + "\0" + entry.modified() + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            return "\"zip-" + HexFormat.of().formatHex(digest.digest()) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> rangeNotSatisfiable(long length) {
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header(HttpHeaders.CONTENT_RANGE, BYTES_UNIT + " */" + length)
+                .build();
+    }
+}
@@ -0,0 +1,403 @@
+package com.PhotoVault.services.archive;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * Uncompressed (STORE) ZIP whose byte layout is fully determined by its entries' names, sizes,
+ * CRC-32s and timestamps. The total length is known before anything is read and any byte range
+ * can be produced on its own, which is what lets a folder download be resumed with a Range request.
+ * Headers are generated on demand, so memory use does not grow with entry sizes.
+ * Zip64 records are added per field only where a value does not fit in 32 bits.
+ * <p>
+ * Entries whose CRC-32 is not known yet are followed by a data descriptor. Their CRC is computed
+ * from the data as it streams past, or by reading the entry once more when the requested range
+ * needs the CRC but skips the data. Their local header still states the sizes, which streaming
+ * readers need to find the end of STORED data.
+ */
+public final class ZipArchive {
+
+    private static final long MAX_32 = 0xFFFFFFFFL;
+    private static final int MAX_16 = 0xFFFF;
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int DESCRIPTOR_SIGNATURE = 0x08074b50;
+
+    private static final int LOCAL_HEADER_LENGTH = 30;
+    private static final int CENTRAL_HEADER_LENGTH = 46;
+    private static final int ZIP64_END_LENGTH = 56;
+    private static final int ZIP64_LOCATOR_LENGTH = 20;
+    private static final int END_LENGTH = 22;
+
+    private static final short VERSION_DEFAULT = 20;
+    private static final short VERSION_ZIP64 = 45;
+    private static final int FLAG_UTF8 = 0x0800;
+    private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+    private static final short METHOD_STORED = 0;
+    private static final short ZIP64_EXTRA_ID = 0x0001;
+
+    /**
+     * A null {@code crc32} adds a data descriptor after the entry's data.
+     */
+    public record Entry(String name, String path, long size, Long crc32, LocalDateTime modified) {
+    }
+
+    @FunctionalInterface
+    public interface EntryOpener {
+        /**
+         * Opens bytes {@code start..end} (inclusive) of the entry's stored content.
+         */
+        InputStream open(Entry entry, long start, long end) throws IOException;
+    }
+
+    private enum Kind { LOCAL_HEADER, DATA, DESCRIPTOR, CENTRAL_HEADER, END }
+
+    private record Segment(Kind kind, int index, long offset, long length) {
+        long end() {
+            return offset + length;
+        }
+    }
+
+    private final List<Entry> entries;
+    private final byte[][] names;
+    private final long[] localHeaderOffsets;
+    private final List<Segment> segments = new ArrayList<>();
+    private final long centralDirectoryOffset;
+    private final long centralDirectorySize;
+    private final long length;
+
+    public ZipArchive(List<Entry> entries) {
+        this.entries = List.copyOf(entries);
+        this.names = new byte[this.entries.size()][];
+        this.localHeaderOffsets = new long[this.entries.size()];
+
+        long offset = 0;
+        for (int i = 0; i < this.entries.size(); i++) {
+            Entry entry = this.entries.get(i);
+            names[i] = entry.name().getBytes(StandardCharsets.UTF_8);
+            if (names[i].length > MAX_16) {
+                throw new IllegalArgumentException("Entry name too long: " + entry.name());
+            }
+            localHeaderOffsets[i] = offset;
+            offset = add(Kind.LOCAL_HEADER, i, offset, localHeaderLength(i));
+            offset = add(Kind.DATA, i, offset, entry.size());
+            if (hasDescriptor(i)) {
+                offset = add(Kind.DESCRIPTOR, i, offset, descriptorLength(i));
+            }
+        }
+
+        centralDirectoryOffset = offset;
+        for (int i = 0; i < this.entries.size(); i++) {
+            offset = add(Kind.CENTRAL_HEADER, i, offset, centralHeaderLength(i));
+        }
+        centralDirectorySize = offset - centralDirectoryOffset;
+
+        offset = add(Kind.END, -1, offset, (needsZip64End() ? ZIP64_END_LENGTH + ZIP64_LOCATOR_LENGTH : 0) + END_LENGTH);
+        length = offset;
+    }
+
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Writes bytes {@code start..end} (inclusive) of the archive. Entry contents are requested from
+     * {@code opener} up to {@code prefetch} entries ahead on {@code prefetchExecutor}, so the latency of
+     * opening the next object overlaps with streaming the current one.
+     */
+    public void write(OutputStream outputStream, long start, long end, EntryOpener opener,
+                      Executor prefetchExecutor, int prefetch) throws IOException {
+        List<Segment> selected = segments.stream()
+                .filter(segment -> segment.length() > 0 && segment.end() > start && segment.offset() <= end)
+                .toList();
+        List<Segment> data = selected.stream()
+                .filter(segment -> segment.kind() == Kind.DATA)
+                .toList();
+
+        Deque<CompletableFuture<InputStream>> pending = new ArrayDeque<>();
+        int nextToOpen = 0;
+        Long[] computedCrc32s = new Long[entries.size()];
+
+        try {
+            for (Segment segment : selected) {
+                long from = Math.max(start, segment.offset()) - segment.offset();
+                long to = Math.min(end, segment.end() - 1) - segment.offset();
+
+                if (segment.kind() != Kind.DATA) {
+                    outputStream.write(headerBytes(segment, computedCrc32s, opener), (int) from, (int) (to - from + 1));
+                    continue;
+                }
+
+                while (nextToOpen < data.size() && pending.size() <= prefetch) {
+                    Segment next = data.get(nextToOpen++);
+                    long nextFrom = Math.max(start, next.offset()) - next.offset();
+                    long nextTo = Math.min(end, next.end() - 1) - next.offset();
+                    Entry entry = entries.get(next.index());
+                    pending.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return opener.open(entry, nextFrom, nextTo);
+                        } catch (IOException e) {
+                            throw new CompletionException(e);
+                        }
+                    }, prefetchExecutor));
+                }
+
+                // Whole entries without a CRC-32 are checksummed on the way through.
+                CRC32 crc32 = hasDescriptor(segment.index()) && from == 0 && to == segment.length() - 1 ? new CRC32() : null;
+                InputStream opened = await(pending.removeFirst());
+                try (InputStream inputStream = crc32 != null ? new CheckedInputStream(opened, crc32) : opened) {
+                    long copied = inputStream.transferTo(outputStream);
+                    if (copied != to - from + 1) {
+                        throw new EOFException("Stored size of '" + entries.get(segment.index()).name() + "' changed");
+                    }
+                }
+                if (crc32 != null) {
+                    computedCrc32s[segment.index()] = crc32.getValue();
+                }
+            }
+        } finally {
+            pending.forEach(ZipArchive::closeWhenOpened);
+        }
+    }
+
+    private long add(Kind kind, int index, long offset, long length) {
+        segments.add(new Segment(kind, index, offset, length));
+        return offset + length;
+    }
+
+    private boolean sizeNeedsZip64(int i) {
+        return entries.get(i).size() >= MAX_32;
+    }
+
+    private boolean offsetNeedsZip64(int i) {
+        return localHeaderOffsets[i] >= MAX_32;
+    }
+
+    private boolean hasDescriptor(int i) {
+        return entries.get(i).crc32() == null;
+    }
+
+    private boolean needsZip64End() {
+        return entries.size() >= MAX_16 || centralDirectorySize >= MAX_32 || centralDirectoryOffset >= MAX_32;
+    }
+
+    private int localHeaderLength(int i) {
+        return LOCAL_HEADER_LENGTH + names[i].length + (sizeNeedsZip64(i) ? 20 : 0);
+    }
+
+    private int descriptorLength(int i) {
+        return 8 + (sizeNeedsZip64(i) ? 16 : 8);
+    }
+
+    private int centralExtraLength(int i) {
+        int fields = (sizeNeedsZip64(i) ? 16 : 0) + (offsetNeedsZip64(i) ? 8 : 0);
+        return fields > 0 ? 4 + fields : 0;
+    }
+
+    private int centralHeaderLength(int i) {
+        return CENTRAL_HEADER_LENGTH + names[i].length + centralExtraLength(i);
+    }
+
+    private short flags(int i) {
+        return (short) (hasDescriptor(i) ? FLAG_UTF8 | FLAG_DATA_DESCRIPTOR : FLAG_UTF8);
+    }
+
+    private byte[] headerBytes(Segment segment, Long[] computedCrc32s, EntryOpener opener) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) segment.length()).order(ByteOrder.LITTLE_ENDIAN);
+        switch (segment.kind()) {
+            case LOCAL_HEADER -> writeLocalHeader(buffer, segment.index());
+            case DESCRIPTOR -> writeDescriptor(buffer, segment.index(), crc32(segment.index(), computedCrc32s, opener));
+            case CENTRAL_HEADER -> writeCentralHeader(buffer, segment.index(), crc32(segment.index(), computedCrc32s, opener));
+            case END -> writeEnd(buffer);
+            case DATA -> throw new IllegalStateException("Data segments have no header");
+        }
+        return buffer.array();
+    }
+
+    // The entry's own CRC-32, or the one computed from its data in this write. Reads the entry
+    // when the data was not part of the requested range.
+    private long crc32(int i, Long[] computedCrc32s, EntryOpener opener) throws IOException {
+        Entry entry = entries.get(i);
+        if (entry.crc32() != null) {
+            return entry.crc32();
+        }
+        if (computedCrc32s[i] == null) {
+            CRC32 crc32 = new CRC32();
+            if (entry.size() > 0) {
+                try (InputStream inputStream = new CheckedInputStream(opener.open(entry, 0, entry.size() - 1), crc32)) {
+                    if (inputStream.transferTo(OutputStream.nullOutputStream()) != entry.size()) {
+                        throw new EOFException("Stored size of '" + entry.name() + "' changed");
+                    }
+                }
+            }
+            computedCrc32s[i] = crc32.getValue();
+        }
+        return computedCrc32s[i];
+    }
+
+    private void writeLocalHeader(ByteBuffer buffer, int i) {
+        Entry entry = entries.get(i);
+        boolean zip64 = sizeNeedsZip64(i);
+        long size32 = zip64 ? MAX_32 : entry.size();
+
+        buffer.putInt(LOCAL_HEADER_SIGNATURE);
+        buffer.putShort(zip64 ? VERSION_ZIP64 : VERSION_DEFAULT);
+        buffer.putShort(flags(i));
+        buffer.putShort(METHOD_STORED);
+        buffer.putShort(dosTime(entry.modified()));
+        buffer.putShort(dosDate(entry.modified()));
+        buffer.putInt(hasDescriptor(i) ? 0 : entry.crc32().intValue());
+        buffer.putInt((int) size32);
+        buffer.putInt((int) size32);
+        buffer.putShort((short) names[i].length);
+        buffer.putShort((short) (zip64 ? 20 : 0));
+        buffer.put(names[i]);
+        if (zip64) {
+            buffer.putShort(ZIP64_EXTRA_ID);
+            buffer.putShort((short) 16);
+            buffer.putLong(entry.size());
+            buffer.putLong(entry.size());
+        }
+    }
+
+    private void writeDescriptor(ByteBuffer buffer, int i, long crc32) {
+        Entry entry = entries.get(i);
+        buffer.putInt(DESCRIPTOR_SIGNATURE);
+        buffer.putInt((int) crc32);
+        if (sizeNeedsZip64(i)) {
+            buffer.putLong(entry.size());
+            buffer.putLong(entry.size());
+        } else {
+            buffer.putInt((int) entry.size());
+            buffer.putInt((int) entry.size());
+        }
+    }
+
+    private void writeCentralHeader(ByteBuffer buffer, int i, long crc32) {
+        Entry entry = entries.get(i);
+        boolean zip64Size = sizeNeedsZip64(i);
+        boolean zip64Offset = offsetNeedsZip64(i);
+        int extraLength = centralExtraLength(i);
+        short version = extraLength > 0 ? VERSION_ZIP64 : VERSION_DEFAULT;
+
+        buffer.putInt(CENTRAL_HEADER_SIGNATURE);
+        buffer.putShort(version);
+        buffer.putShort(version);
+        buffer.putShort(flags(i));
+        buffer.putShort(METHOD_STORED);
+        buffer.putShort(dosTime(entry.modified()));
+        buffer.putShort(dosDate(entry.modified()));
+        buffer.putInt((int) crc32);
+        buffer.putInt((int) (zip64Size ? MAX_32 : entry.size()));
+        buffer.putInt((int) (zip64Size ? MAX_32 : entry.size()));
+        buffer.putShort((short) names[i].length);
+        buffer.putShort((short) extraLength);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0);
+        buffer.putInt(0);
+        buffer.putInt((int) (zip64Offset ? MAX_32 : localHeaderOffsets[i]));
+        buffer.put(names[i]);
+        if (extraLength > 0) {
+            buffer.putShort(ZIP64_EXTRA_ID);
+            buffer.putShort((short) (extraLength - 4));
+            if (zip64Size) {
+                buffer.putLong(entry.size());
+                buffer.putLong(entry.size());
+            }
+            if (zip64Offset) {
+                buffer.putLong(localHeaderOffsets[i]);
+            }
+        }
+    }
+
+    private void writeEnd(ByteBuffer buffer) {
+        boolean zip64 = needsZip64End();
+        if (zip64) {
+            long zip64EndOffset = centralDirectoryOffset + centralDirectorySize;
+            buffer.putInt(ZIP64_END_SIGNATURE);
+            buffer.putLong(ZIP64_END_LENGTH - 12);
+            buffer.putShort(VERSION_ZIP64);
+            buffer.putShort(VERSION_ZIP64);
+            buffer.putInt(0);
+            buffer.putInt(0);
+            buffer.putLong(entries.size());
+            buffer.putLong(entries.size());
+            buffer.putLong(centralDirectorySize);
+            buffer.putLong(centralDirectoryOffset);
+
+            buffer.putInt(ZIP64_LOCATOR_SIGNATURE);
+            buffer.putInt(0);
+            buffer.putLong(zip64EndOffset);
+            buffer.putInt(1);
+        }
+
+        int count = zip64 && entries.size() >= MAX_16 ? MAX_16 : entries.size();
+        buffer.putInt(END_SIGNATURE);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) count);
+        buffer.putShort((short) count);
+        buffer.putInt((int) (centralDirectorySize >= MAX_32 ? MAX_32 : centralDirectorySize));
+        buffer.putInt((int) (centralDirectoryOffset >= MAX_32 ? MAX_32 : centralDirectoryOffset));
+        buffer.putShort((short) 0);
+    }
+
+    // MS-DOS timestamps have two-second resolution and start in 1980.
+    private static short dosTime(LocalDateTime time) {
+        if (time.getYear() < 1980) {
+            return 0;
+        }
+        return (short) ((time.getHour() << 11) | (time.getMinute() << 5) | (time.getSecond() / 2));
+    }
+
+    private static short dosDate(LocalDateTime time) {
+        if (time.getYear() < 1980) {
+            return (short) ((1 << 5) | 1);
+        }
+        return (short) (((time.getYear() - 1980) << 9) | (time.getMonthValue() << 5) | time.getDayOfMonth());
+    }
+
+    private static InputStream await(CompletableFuture<InputStream> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private static void closeWhenOpened(CompletableFuture<InputStream> future) {
+        future.thenAccept(inputStream -> {
+            try {
+                inputStream.close();
+            } catch (IOException ignored) {
+                // Prefetched stream that was never read; nothing to recover.
+            }
+        });
+    }
+}
@@ -0,0 +1,66 @@
+package com.PhotoVault.services.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Publishes {@link MeteredCache#stats()} under the meter names Micrometer uses for other caches
+ * ({@code cache.gets}, {@code cache.puts}, ...), tagged with the cache name, plus the bytes in use,
+ * the configured maximum and the hit ratio since startup.
+ */
+public class CacheMetrics implements MeterBinder {
+
+    private final MeteredCache cache;
+    private final Tags tags;
+
+    public CacheMetrics(MeteredCache cache) {
+        this.cache = cache;
+        this.tags = Tags.of("cache", cache.getName());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", cache, c -> c.stats().hits())
+                .tags(tags).tag("result", "hit")
+                .description("Lookups answered from the cache")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", cache, c -> c.stats().misses())
+                .tags(tags).tag("result", "miss")
+                .description("Lookups not found in the cache")
+                .register(registry);
+        FunctionCounter.builder("cache.puts", cache, c -> c.stats().loads())
+                .tags(tags)
+                .description("Entries loaded into the cache after a miss")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", cache, c -> c.stats().evictions())
+                .tags(tags)
+                .description("Entries removed to stay within the size limit")
+                .register(registry);
+
+        Gauge.builder("cache.size", cache, c -> c.stats().entries())
+                .tags(tags)
+                .description("Number of entries in the cache")
+                .register(registry);
+        Gauge.builder("cache.used", cache, c -> c.stats().sizeBytes())
+                .tags(tags)
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+        Gauge.builder("cache.max", cache, MeteredCache::getMaxBytes)
+                .tags(tags)
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+        Gauge.builder("cache.hit.ratio", cache, CacheMetrics::hitRatio)
+                .tags(tags)
+                .register(registry);
+    }
+
+    private static double hitRatio(MeteredCache cache) {
+        CacheStats stats = cache.stats();
+        long lookups = stats.hits() + stats.misses();
+        return lookups == 0 ? Double.NaN : (double) stats.hits() / lookups;
+    }
+}
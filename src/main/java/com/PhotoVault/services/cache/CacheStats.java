@@ -0,0 +1,7 @@
+package com.PhotoVault.services.cache;
+
+/**
+ * Counters since startup plus current occupancy. {@code loads} counts entries filled after a miss.
+ */
+public record CacheStats(long hits, long misses, long loads, long evictions, long sizeBytes, int entries) {
+}
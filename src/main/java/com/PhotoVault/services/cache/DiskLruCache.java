@@ -0,0 +1,263 @@
+package com.PhotoVault.services.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.DigestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Size-bounded cache of files on local disk with least-recently-used eviction.
+ * <p>
+ * Keys are hashed to file names, so any string can serve as a key. Concurrent misses for the
+ * same key are coalesced: one caller runs the loader and the others wait for its result.
+ * The index lives in memory and is rebuilt from the directory on startup, ordered by
+ * modification time, which is refreshed on every hit.
+ */
+public class DiskLruCache implements MeteredCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiskLruCache.class);
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    @FunctionalInterface
+    public interface Loader {
+        InputStream open() throws IOException;
+    }
+
+    private final String name;
+    private final Path directory;
+    private final long maxBytes;
+
+    // Access-ordered; guarded by its own monitor.
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long currentBytes;
+
+    private final ConcurrentHashMap<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public DiskLruCache(String name, Path directory, long maxBytes) {
+        this.name = name;
+        this.directory = directory.toAbsolutePath().normalize();
+        this.maxBytes = maxBytes;
+
+        try {
+            Files.createDirectories(this.directory);
+            rebuildIndex();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not initialize cache directory " + this.directory, e);
+        }
+    }
+
+    /**
+     * Returns the cached file for the key, or null on a miss.
+     */
+    public Path get(String key) {
+        Path file = lookup(fileName(key));
+        if (file == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return file;
+    }
+
+    /**
+     * Returns the cached file for the key, running the loader on a miss. Only one loader runs
+     * per key at a time; concurrent callers share its result or its failure.
+     */
+    public Path getOrLoad(String key, Loader loader) throws IOException {
+        Path cached = get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<Path> ours = new CompletableFuture<>();
+        CompletableFuture<Path> existing = inFlight.putIfAbsent(key, ours);
+        if (existing != null) {
+            return await(existing);
+        }
+
+        try {
+            // Another caller may have finished loading between our miss and claiming the key.
+            Path loaded = lookup(fileName(key));
+            if (loaded == null) {
+                try (InputStream inputStream = loader.open()) {
+                    loaded = put(key, inputStream);
+                }
+                loads.incrementAndGet();
+            }
+            ours.complete(loaded);
+            return loaded;
+        } catch (IOException | RuntimeException e) {
+            ours.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, ours);
+        }
+    }
+
+    public Path put(String key, InputStream inputStream) throws IOException {
+        String fileName = fileName(key);
+        Path target = directory.resolve(fileName);
+        Path temp = directory.resolve(fileName + "." + UUID.randomUUID() + TEMP_SUFFIX);
+
+        try {
+            long size = Files.copy(inputStream, temp);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            synchronized (entries) {
+                Long previous = entries.put(fileName, size);
+                currentBytes += size - (previous != null ? previous : 0);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        evictIfNeeded(fileName);
+        return target;
+    }
+
+    public void invalidate(String key) {
+        String fileName = fileName(key);
+        forget(fileName);
+        try {
+            Files.deleteIfExists(directory.resolve(fileName));
+        } catch (IOException e) {
+            logger.warn("Could not delete cache entry '{}' of cache '{}': {}", fileName, name, e.getMessage());
+        }
+    }
+
+    @Override
+    public CacheStats stats() {
+        synchronized (entries) {
+            return new CacheStats(hits.get(), misses.get(), loads.get(), evictions.get(), currentBytes, entries.size());
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    private void evictIfNeeded(String justWritten) {
+        List<String> victims = new ArrayList<>();
+        synchronized (entries) {
+            Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+            while (currentBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, Long> entry = eldest.next();
+                if (entry.getKey().equals(justWritten)) {
+                    continue;
+                }
+                currentBytes -= entry.getValue();
+                victims.add(entry.getKey());
+                eldest.remove();
+            }
+        }
+
+        for (String victim : victims) {
+            try {
+                Files.deleteIfExists(directory.resolve(victim));
+                evictions.incrementAndGet();
+            } catch (IOException e) {
+                logger.warn("Could not evict '{}' from cache '{}': {}", victim, name, e.getMessage());
+            }
+        }
+    }
+
+    private Path lookup(String fileName) {
+        synchronized (entries) {
+            if (entries.get(fileName) == null) {
+                return null;
+            }
+        }
+
+        Path file = directory.resolve(fileName);
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return file;
+        } catch (IOException e) {
+            // Evicted between the index lookup and now.
+            forget(fileName);
+            return null;
+        }
+    }
+
+    private void forget(String fileName) {
+        synchronized (entries) {
+            Long size = entries.remove(fileName);
+            if (size != null) {
+                currentBytes -= size;
+            }
+        }
+    }
+
+    private void rebuildIndex() throws IOException {
+        record Entry(Path file, long size, long lastModified) {
+        }
+
+        List<Entry> found = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.getFileName().toString().endsWith(TEMP_SUFFIX)) {
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (attributes.isRegularFile()) {
+                    found.add(new Entry(file, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                }
+            }
+        }
+
+        found.sort(Comparator.comparingLong(Entry::lastModified));
+        synchronized (entries) {
+            for (Entry entry : found) {
+                entries.put(entry.file().getFileName().toString(), entry.size());
+                currentBytes += entry.size();
+            }
+        }
+        evictIfNeeded(null);
+
+        logger.info("Cache '{}' loaded {} entries ({} bytes) from {}", name, entries.size(), currentBytes, directory);
+    }
+
+    private Path await(CompletableFuture<Path> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+
+    private static String fileName(String key) {
+        return DigestUtils.md5DigestAsHex(key.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,63 @@
+package com.PhotoVault.services.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Publishes Hibernate's second-level cache statistics under the same meter names as
+ * {@link CacheMetrics}, one set per region: {@code cache.gets} by result, {@code cache.puts} and
+ * the hit ratio since startup. Needs {@code hibernate.generate_statistics}.
+ */
+public class EntityCacheMetrics implements MeterBinder {
+
+    private final Statistics statistics;
+    private final List<String> entityRegions;
+    private final String queryRegion;
+
+    public EntityCacheMetrics(Statistics statistics, List<String> entityRegions, String queryRegion) {
+        this.statistics = statistics;
+        this.entityRegions = entityRegions;
+        this.queryRegion = queryRegion;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (String region : entityRegions) {
+            bindRegion(registry, region, s -> s.getDomainDataRegionStatistics(region));
+        }
+        bindRegion(registry, queryRegion, s -> s.getQueryRegionStatistics(queryRegion));
+    }
+
+    private void bindRegion(MeterRegistry registry, String name, Function<Statistics, CacheRegionStatistics> region) {
+        Tags tags = Tags.of("cache", name);
+
+        FunctionCounter.builder("cache.gets", statistics, s -> region.apply(s).getHitCount())
+                .tags(tags).tag("result", "hit")
+                .description("Lookups answered from the second-level cache")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", statistics, s -> region.apply(s).getMissCount())
+                .tags(tags).tag("result", "miss")
+                .description("Lookups that had to go to the database")
+                .register(registry);
+        FunctionCounter.builder("cache.puts", statistics, s -> region.apply(s).getPutCount())
+                .tags(tags)
+                .description("Entries put into the second-level cache")
+                .register(registry);
+        Gauge.builder("cache.hit.ratio", statistics, s -> hitRatio(region.apply(s)))
+                .tags(tags)
+                .register(registry);
+    }
+
+    private static double hitRatio(CacheRegionStatistics region) {
+        long lookups = region.getHitCount() + region.getMissCount();
+        return lookups == 0 ? Double.NaN : (double) region.getHitCount() / lookups;
+    }
+}
@@ -0,0 +1,13 @@
+package com.PhotoVault.services.cache;
+
+/**
+ * A size-bounded cache that reports its statistics, see {@link CacheMetrics}.
+ */
+public interface MeteredCache {
+
+    String getName();
+
+    long getMaxBytes();
+
+    CacheStats stats();
+}
@@ -0,0 +1,335 @@
+package com.PhotoVault.services.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Size-bounded cache of byte arrays held outside the Java heap, with least-recently-used eviction.
+ * <p>
+ * Memory is allocated on demand as direct {@link ByteBuffer} slabs, cut into fixed-size pages that
+ * are reused for the lifetime of the process, so cached bytes are neither scanned nor copied by
+ * the garbage collector. An entry occupies whole pages, which need not be contiguous. Readers
+ * pin the entry they stream from: eviction passes over pinned entries, and an entry replaced or
+ * invalidated while pinned keeps its pages until the last reader closes its stream.
+ */
+public class OffHeapCache implements MeteredCache {
+
+    private static final int MAX_SLAB_SIZE = 64 * 1024 * 1024;
+
+    private static final class Entry {
+        final int[] pages;
+        final int length;
+        int pins;
+        boolean removed;
+
+        Entry(int[] pages, int length) {
+            this.pages = pages;
+            this.length = length;
+        }
+    }
+
+    private final String name;
+    private final int pageSize;
+    private final int pagesPerSlab;
+    private final int maxPages;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // Access-ordered; everything below is guarded by the lock.
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private int[] freePages = new int[0];
+    private int freeCount;
+    private int allocatedPages;
+    private int usedPages;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public OffHeapCache(String name, long maxBytes, int pageSize) {
+        if (pageSize <= 0 || pageSize > MAX_SLAB_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_SLAB_SIZE + " bytes");
+        }
+        this.name = name;
+        this.pageSize = pageSize;
+        this.maxPages = (int) Math.min(Integer.MAX_VALUE, maxBytes / pageSize);
+        this.pagesPerSlab = Math.min(MAX_SLAB_SIZE / pageSize, Math.max(maxPages, 1));
+    }
+
+    /**
+     * Returns a stream over the cached bytes for the key, or null on a miss. The stream must be
+     * closed to release the entry.
+     */
+    public InputStream get(String key) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            entry.pins++;
+            hits.incrementAndGet();
+            return new EntryInputStream(entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Caches a copy of the data, evicting least recently used entries to make room. Returns false
+     * when the data cannot fit, for example because the remaining entries are all being read.
+     */
+    public boolean put(String key, byte[] data) {
+        int needed = (data.length + pageSize - 1) / pageSize;
+        int[] pages = allocate(needed);
+        if (pages == null) {
+            return false;
+        }
+
+        // The pages belong to no entry yet, so they are filled without holding the lock.
+        for (int i = 0; i < pages.length; i++) {
+            int offset = i * pageSize;
+            slab(pages[i]).put(pageOffset(pages[i]), data, offset, Math.min(pageSize, data.length - offset));
+        }
+
+        lock.lock();
+        try {
+            Entry previous = entries.put(key, new Entry(pages, data.length));
+            if (previous != null) {
+                remove(previous);
+            }
+        } finally {
+            lock.unlock();
+        }
+        loads.incrementAndGet();
+        return true;
+    }
+
+    public void invalidate(String key) {
+        lock.lock();
+        try {
+            Entry entry = entries.remove(key);
+            if (entry != null) {
+                remove(entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public CacheStats stats() {
+        lock.lock();
+        try {
+            return new CacheStats(hits.get(), misses.get(), loads.get(), evictions.get(),
+                    (long) usedPages * pageSize, entries.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getMaxBytes() {
+        return (long) maxPages * pageSize;
+    }
+
+    private int[] allocate(int needed) {
+        if (needed > maxPages) {
+            return null;
+        }
+
+        lock.lock();
+        try {
+            // Evicting a pinned entry frees nothing until its readers finish, so only unpinned
+            // entries count, and nothing is evicted unless they free enough between them.
+            if (available() < needed) {
+                long reclaimable = available();
+                for (Entry entry : entries.values()) {
+                    if (entry.pins == 0) {
+                        reclaimable += entry.pages.length;
+                    }
+                }
+                if (reclaimable < needed) {
+                    return null;
+                }
+
+                Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+                while (available() < needed) {
+                    Entry victim = eldest.next().getValue();
+                    if (victim.pins == 0) {
+                        eldest.remove();
+                        remove(victim);
+                        evictions.incrementAndGet();
+                    }
+                }
+            }
+
+            int[] pages = new int[needed];
+            for (int i = 0; i < needed; i++) {
+                if (freeCount == 0) {
+                    addSlab();
+                }
+                pages[i] = freePages[--freeCount];
+            }
+            usedPages += needed;
+            return pages;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller holds the lock and has already taken the entry out of the map.
+    private void remove(Entry entry) {
+        entry.removed = true;
+        if (entry.pins == 0) {
+            release(entry);
+        }
+    }
+
+    private void unpin(Entry entry) {
+        lock.lock();
+        try {
+            entry.pins--;
+            if (entry.removed && entry.pins == 0) {
+                release(entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(Entry entry) {
+        for (int page : entry.pages) {
+            freePages[freeCount++] = page;
+        }
+        usedPages -= entry.pages.length;
+    }
+
+    private int available() {
+        return freeCount + (maxPages - allocatedPages);
+    }
+
+    private void addSlab() {
+        // Every slab but the last is full-sized, so a page's slab is its number over pagesPerSlab.
+        int pages = Math.min(pagesPerSlab, maxPages - allocatedPages);
+        int first = allocatedPages;
+        slabs.add(ByteBuffer.allocateDirect(pages * pageSize));
+        allocatedPages += pages;
+
+        if (freePages.length < first + pages) {
+            int[] grown = new int[first + pages];
+            System.arraycopy(freePages, 0, grown, 0, freeCount);
+            freePages = grown;
+        }
+        for (int page = first + pages - 1; page >= first; page--) {
+            freePages[freeCount++] = page;
+        }
+    }
+
+    private ByteBuffer slab(int page) {
+        lock.lock();
+        try {
+            return slabs.get(page / pagesPerSlab);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int pageOffset(int page) {
+        return (page % pagesPerSlab) * pageSize;
+    }
+
+    private final class EntryInputStream extends InputStream {
+
+        private final Entry entry;
+        private final ByteBuffer[] pageSlabs;
+        private int position;
+        private boolean closed;
+
+        EntryInputStream(Entry entry) {
+            this.entry = entry;
+            this.pageSlabs = new ByteBuffer[entry.pages.length];
+            for (int i = 0; i < entry.pages.length; i++) {
+                pageSlabs[i] = slabs.get(entry.pages[i] / pagesPerSlab);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            ensureOpen();
+            if (position >= entry.length) {
+                return -1;
+            }
+            int i = position / pageSize;
+            byte value = pageSlabs[i].get(pageOffset(entry.pages[i]) + position % pageSize);
+            position++;
+            return value & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            ensureOpen();
+            if (length == 0) {
+                return 0;
+            }
+            if (position >= entry.length) {
+                return -1;
+            }
+
+            int total = Math.min(length, entry.length - position);
+            int copied = 0;
+            while (copied < total) {
+                int i = position / pageSize;
+                int within = position % pageSize;
+                int count = Math.min(total - copied, pageSize - within);
+                pageSlabs[i].get(pageOffset(entry.pages[i]) + within, buffer, offset + copied, count);
+                position += count;
+                copied += count;
+            }
+            return copied;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            ensureOpen();
+            long skipped = Math.max(0, Math.min(n, entry.length - position));
+            position += (int) skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            ensureOpen();
+            return entry.length - position;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                unpin(entry);
+            }
+        }
+
+        private void ensureOpen() throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+        }
+    }
+}
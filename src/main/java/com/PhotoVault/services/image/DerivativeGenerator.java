@@ -0,0 +1,168 @@
+package com.PhotoVault.services.image;
+
+import com.PhotoVault.config.DerivativeProperties;
+import com.PhotoVault.entities.DerivativeStatus;
+import com.PhotoVault.entities.File;
+import com.PhotoVault.entities.FileDerivative;
+import com.PhotoVault.exception.InvalidFileException;
+import com.PhotoVault.repository.FileRepository;
+import com.PhotoVault.services.FileUploadedEvent;
+import com.PhotoVault.services.StorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.StringUtils;
+
+import javax.imageio.IIOException;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Produces resized derivatives of uploaded photos in the background. Uploads trigger
+ * generation after commit; a periodic backfill catches files whose task was dropped because
+ * the queue was full, that failed on a transient storage error, or that predate the pipeline.
+ */
+@Component
+@ConditionalOnProperty(name = "file.derivatives.enabled", havingValue = "true", matchIfMissing = true)
+public class DerivativeGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(DerivativeGenerator.class);
+
+    // Leaves freshly uploaded files to their after-commit task before the backfill steps in.
+    private static final long BACKFILL_MIN_AGE_MINUTES = 5;
+
+    private final FileRepository fileRepository;
+    private final DerivativeService derivativeService;
+    private final StorageService storageService;
+    private final ImageResizer imageResizer;
+    private final ThreadPoolTaskExecutor derivativeExecutor;
+    private final List<Integer> sizes;
+    private final float quality;
+    private final int backfillBatchSize;
+
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    public DerivativeGenerator(FileRepository fileRepository,
+                               DerivativeService derivativeService,
+                               StorageService storageService,
+                               ImageResizer imageResizer,
+                               @Qualifier("derivativeExecutor") ThreadPoolTaskExecutor derivativeExecutor,
+                               DerivativeProperties properties) {
+        this.fileRepository = fileRepository;
+        this.derivativeService = derivativeService;
+        this.storageService = storageService;
+        this.imageResizer = imageResizer;
+        this.derivativeExecutor = derivativeExecutor;
+        this.sizes = properties.getSizes().stream()
+                .sorted(Comparator.reverseOrder())
+                .toList();
+        this.quality = properties.getQuality();
+        this.backfillBatchSize = properties.getBackfillBatchSize();
+    }
+
+    @Async("derivativeExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onFileUploaded(FileUploadedEvent event) {
+        generate(event.fileId());
+    }
+
+    @Scheduled(initialDelayString = "${file.derivatives.backfill-delay:PT5M}",
+            fixedDelayString = "${file.derivatives.backfill-delay:PT5M}")
+    public void backfill() {
+        int capacity = derivativeExecutor.getThreadPoolExecutor().getQueue().remainingCapacity();
+        if (capacity == 0) {
+            return;
+        }
+
+        LocalDateTime uploadedBefore = LocalDateTime.now().minusMinutes(BACKFILL_MIN_AGE_MINUTES);
+        List<Long> pending = derivativeService.findPendingFileIds(uploadedBefore, Math.min(capacity, backfillBatchSize));
+
+        pending.stream()
+                .filter(fileId -> !inFlight.contains(fileId))
+                .forEach(fileId -> derivativeExecutor.execute(() -> generate(fileId)));
+
+        if (!pending.isEmpty()) {
+            logger.info("Queued {} files for derivative backfill", pending.size());
+        }
+    }
+
+    void generate(Long fileId) {
+        if (!inFlight.add(fileId)) {
+            return;
+        }
+
+        List<FileDerivative> generated = new ArrayList<>();
+        try {
+            File file = fileRepository.findById(fileId).orElse(null);
+            if (file == null || file.getDerivativeStatus() != DerivativeStatus.PENDING) {
+                return;
+            }
+
+            BufferedImage image;
+            try (InputStream inputStream = storageService.load(file.getPath()).getInputStream()) {
+                image = imageResizer.read(inputStream, sizes.getFirst(), sizes.getFirst());
+            }
+
+            String contentType = imageResizer.outputContentType(image);
+            String extension = ImageResizer.PNG.equals(contentType) ? ".png" : ".jpg";
+            String baseName = StringUtils.stripFilenameExtension(file.getStoredName());
+
+            // Largest first, each size scaled from the previous one rather than the original.
+            BufferedImage source = image;
+            for (int size : sizes) {
+                if (Math.max(image.getWidth(), image.getHeight()) <= size) {
+                    continue;
+                }
+
+                BufferedImage resized = imageResizer.fitWithin(source, size, size);
+                byte[] bytes = imageResizer.encode(resized, contentType, quality);
+                String path = storageService.store(new ByteArrayInputStream(bytes), baseName + "_" + size + extension,
+                        bytes.length, contentType);
+
+                FileDerivative derivative = new FileDerivative();
+                derivative.setSize(size);
+                derivative.setPath(path);
+                derivative.setWidth(resized.getWidth());
+                derivative.setHeight(resized.getHeight());
+                derivative.setByteSize((long) bytes.length);
+                derivative.setContentType(contentType);
+                generated.add(derivative);
+
+                source = resized;
+            }
+
+            if (!derivativeService.complete(fileId, generated)) {
+                discard(generated);
+            }
+        } catch (InvalidFileException | IIOException e) {
+            logger.warn("Cannot generate derivatives for file {}: {}", fileId, e.getMessage());
+            discard(generated);
+            derivativeService.markFailed(fileId);
+        } catch (IOException | RuntimeException e) {
+            // Storage hiccups leave the file pending so the backfill retries it.
+            logger.error("Derivative generation failed for file {}: {}", fileId, e.getMessage());
+            discard(generated);
+        } finally {
+            inFlight.remove(fileId);
+        }
+    }
+
+    private void discard(List<FileDerivative> derivatives) {
+        derivatives.forEach(derivative -> derivativeService.deleteQuietly(derivative.getPath()));
+    }
+}
@@ -0,0 +1,115 @@
+package com.PhotoVault.services.image;
+
+import com.PhotoVault.entities.DerivativeStatus;
+import com.PhotoVault.entities.File;
+import com.PhotoVault.entities.FileDerivative;
+import com.PhotoVault.exception.ResourceNotFoundException;
+import com.PhotoVault.repository.FileDerivativeRepository;
+import com.PhotoVault.repository.FileRepository;
+import com.PhotoVault.services.StorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.*;
+
+@Service
+@Transactional(readOnly = true)
+public class DerivativeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DerivativeService.class);
+
+    private final FileRepository fileRepository;
+    private final FileDerivativeRepository fileDerivativeRepository;
+    private final StorageService storageService;
+
+    public DerivativeService(FileRepository fileRepository,
+                             FileDerivativeRepository fileDerivativeRepository,
+                             StorageService storageService) {
+        this.fileRepository = fileRepository;
+        this.fileDerivativeRepository = fileDerivativeRepository;
+        this.storageService = storageService;
+    }
+
+    public FileDerivative getDerivative(Long fileId, Integer size) {
+        return fileDerivativeRepository.findByFileIdAndSize(fileId, size)
+                .orElseThrow(() -> new ResourceNotFoundException("Derivative", "size", String.valueOf(size)));
+    }
+
+    public Map<Long, List<Integer>> findSizesByFileIds(Collection<Long> fileIds) {
+        if (fileIds.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Long, List<Integer>> sizes = new HashMap<>();
+        for (FileDerivativeRepository.DerivativeSize derivative : fileDerivativeRepository.findSizesByFileIds(fileIds)) {
+            sizes.computeIfAbsent(derivative.getFileId(), id -> new ArrayList<>()).add(derivative.getSize());
+        }
+        return sizes;
+    }
+
+    public List<Long> findPendingFileIds(LocalDateTime uploadedBefore, int limit) {
+        return fileRepository.findIdsByDerivativeStatus(DerivativeStatus.PENDING, uploadedBefore, PageRequest.of(0, limit));
+    }
+
+    /**
+     * Records generated derivatives and marks the file ready. Returns false when the file is
+     * gone or another worker got there first, in which case the caller discards its output.
+     */
+    @Transactional
+    public boolean complete(Long fileId, List<FileDerivative> derivatives) {
+        Optional<File> locked = fileRepository.findByIdForUpdate(fileId);
+        if (locked.isEmpty() || locked.get().getDerivativeStatus() != DerivativeStatus.PENDING) {
+            return false;
+        }
+
+        File file = locked.get();
+        derivatives.forEach(derivative -> derivative.setFile(file));
+        fileDerivativeRepository.saveAll(derivatives);
+        file.setDerivativeStatus(DerivativeStatus.READY);
+        return true;
+    }
+
+    @Transactional
+    public void markFailed(Long fileId) {
+        fileRepository.findByIdForUpdate(fileId)
+                .filter(file -> file.getDerivativeStatus() == DerivativeStatus.PENDING)
+                .ifPresent(file -> file.setDerivativeStatus(DerivativeStatus.FAILED));
+    }
+
+    /**
+     * Deletes the derivative rows of a file. Their bytes go once the transaction commits, so a
+     * rollback leaves the rows pointing at objects that still exist.
+     */
+    @Transactional
+    public void deleteDerivatives(Long fileId) {
+        List<FileDerivative> derivatives = fileDerivativeRepository.findByFileId(fileId);
+        fileDerivativeRepository.deleteAll(derivatives);
+        derivatives.forEach(derivative -> deleteAfterCommit(derivative.getPath()));
+    }
+
+    private void deleteAfterCommit(String path) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                    deleteQuietly(path);
+                }
+            }
+        });
+    }
+
+    void deleteQuietly(String path) {
+        try {
+            storageService.delete(path);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not delete derivative '{}': {}", path, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.PhotoVault.services.image;
+
+import com.PhotoVault.exception.InvalidFileException;
+
+import java.util.Set;
+
+/**
+ * Format and dimensions of an image, read from the first bytes of the file without decoding it.
+ */
+public record ImageHeader(Format format, int width, int height) {
+
+    /**
+     * Bytes to read before giving up on finding the dimensions. JPEG files can put large EXIF
+     * blocks, with embedded thumbnails, before their frame header.
+     */
+    public static final int MAX_HEADER_BYTES = 256 * 1024;
+
+    public enum Format {
+        JPEG("image/jpeg", Set.of("jpg", "jpeg")),
+        PNG("image/png", Set.of("png")),
+        WEBP("image/webp", Set.of("webp"));
+
+        private final String contentType;
+        private final Set<String> extensions;
+
+        Format(String contentType, Set<String> extensions) {
+            this.contentType = contentType;
+            this.extensions = extensions;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public Set<String> getExtensions() {
+            return extensions;
+        }
+    }
+
+    public long pixels() {
+        return (long) width * height;
+    }
+
+    /**
+     * Parses the start of a file. Returns null if more bytes are needed, and throws if the bytes
+     * are not a supported image.
+     */
+    public static ImageHeader parse(byte[] data, int length) {
+        if (length < 12) {
+            return null;
+        }
+        if (u8(data, 0) == 0xFF && u8(data, 1) == 0xD8 && u8(data, 2) == 0xFF) {
+            return parseJpeg(data, length);
+        }
+        if (u32be(data, 0) == 0x89504E47L && u32be(data, 4) == 0x0D0A1A0AL) {
+            return parsePng(data, length);
+        }
+        if (u32be(data, 0) == 0x52494646L && u32be(data, 8) == 0x57454250L) {
+            return parseWebp(data, length);
+        }
+        throw new InvalidFileException("File content is not a supported image");
+    }
+
+    private static ImageHeader parseJpeg(byte[] data, int length) {
+        int position = 2;
+        while (position + 4 <= length) {
+            if (u8(data, position) != 0xFF) {
+                throw new InvalidFileException("Corrupt JPEG header");
+            }
+            int marker = u8(data, position + 1);
+            if (marker == 0xFF) {
+                position++;
+                continue;
+            }
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+                position += 2;
+                continue;
+            }
+            if (marker == 0xD9 || marker == 0xDA) {
+                throw new InvalidFileException("JPEG has no frame header");
+            }
+
+            int segmentLength = u16be(data, position + 2);
+            if (isStartOfFrame(marker)) {
+                if (position + 9 > length) {
+                    return null;
+                }
+                return checked(Format.JPEG, u16be(data, position + 7), u16be(data, position + 5));
+            }
+            position += 2 + segmentLength;
+        }
+        return null;
+    }
+
+    // SOF0-SOF15, except DHT (C4), JPG (C8) and DAC (CC) which share the range.
+    private static boolean isStartOfFrame(int marker) {
+        return marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+    }
+
+    private static ImageHeader parsePng(byte[] data, int length) {
+        if (length < 24) {
+            return null;
+        }
+        if (u32be(data, 12) != 0x49484452L) {
+            throw new InvalidFileException("Corrupt PNG header");
+        }
+        return checked(Format.PNG, (int) u32be(data, 16), (int) u32be(data, 20));
+    }
+
+    private static ImageHeader parseWebp(byte[] data, int length) {
+        if (length < 30) {
+            return null;
+        }
+        long chunk = u32be(data, 12);
+        if (chunk == 0x56503820L) {
+            // "VP8 ": lossy, 14-bit dimensions after the frame tag and start code.
+            return checked(Format.WEBP, u16le(data, 26) & 0x3FFF, u16le(data, 28) & 0x3FFF);
+        }
+        if (chunk == 0x5650384CL) {
+            // "VP8L": lossless, 14-bit dimensions minus one packed after the signature byte.
+            long bits = u8(data, 21) | (u8(data, 22) << 8) | (u8(data, 23) << 16) | ((long) u8(data, 24) << 24);
+            return checked(Format.WEBP, (int) (bits & 0x3FFF) + 1, (int) ((bits >> 14) & 0x3FFF) + 1);
+        }
+        if (chunk == 0x56503858L) {
+            // "VP8X": extended, 24-bit canvas dimensions minus one.
+            return checked(Format.WEBP, u24le(data, 24) + 1, u24le(data, 27) + 1);
+        }
+        throw new InvalidFileException("Unsupported WebP variant");
+    }
+
+    private static ImageHeader checked(Format format, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new InvalidFileException("Image has invalid dimensions " + width + "x" + height);
+        }
+        return new ImageHeader(format, width, height);
+    }
+
+    private static int u8(byte[] data, int offset) {
+        return data[offset] & 0xFF;
+    }
+
+    private static int u16be(byte[] data, int offset) {
+        return (u8(data, offset) << 8) | u8(data, offset + 1);
+    }
+
+    private static int u16le(byte[] data, int offset) {
+        return u8(data, offset) | (u8(data, offset + 1) << 8);
+    }
+
+    private static int u24le(byte[] data, int offset) {
+        return u8(data, offset) | (u8(data, offset + 1) << 8) | (u8(data, offset + 2) << 16);
+    }
+
+    private static long u32be(byte[] data, int offset) {
+        return ((long) u16be(data, offset) << 16) | u16be(data, offset + 2);
+    }
+}
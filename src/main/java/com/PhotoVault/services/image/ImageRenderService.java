@@ -0,0 +1,168 @@
+package com.PhotoVault.services.image;
+
+import com.PhotoVault.config.ImageRenderProperties;
+import com.PhotoVault.entities.File;
+import com.PhotoVault.entities.FileDerivative;
+import com.PhotoVault.exception.FileStorageException;
+import com.PhotoVault.exception.InvalidFileException;
+import com.PhotoVault.repository.FileDerivativeRepository;
+import com.PhotoVault.services.StorageService;
+import com.PhotoVault.services.cache.CacheStats;
+import com.PhotoVault.services.cache.DiskLruCache;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Renders arbitrary sizes of a photo on request. Results are kept in a size-bounded disk cache
+ * under a canonical key built from the stored object and the normalized parameters, so equivalent
+ * requests (e.g. {@code w=200&dpr=2} and {@code w=400}) share one entry and concurrent misses for the
+ * same rendition decode the source only once.
+ */
+@Service
+public class ImageRenderService {
+
+    private static final int MAX_DPR = 4;
+
+    public enum Fit {
+        CONTAIN,
+        COVER;
+
+        static Fit parse(String value) {
+            if (value == null || value.isBlank()) {
+                return CONTAIN;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidFileException("Unsupported fit '" + value + "', expected contain or cover");
+            }
+        }
+    }
+
+    public record Rendition(InputStream inputStream, long size, String contentType) {
+    }
+
+    private final StorageService storageService;
+    private final FileDerivativeRepository fileDerivativeRepository;
+    private final ImageResizer imageResizer;
+    private final DiskLruCache cache;
+    private final Semaphore renderPermits;
+    private final int maxDimension;
+    private final int defaultQuality;
+
+    public ImageRenderService(StorageService storageService,
+                              FileDerivativeRepository fileDerivativeRepository,
+                              ImageResizer imageResizer,
+                              ImageRenderProperties properties) {
+        this.storageService = storageService;
+        this.fileDerivativeRepository = fileDerivativeRepository;
+        this.imageResizer = imageResizer;
+        this.cache = new DiskLruCache("render", Paths.get(properties.getCacheDir()), properties.getCacheMaxBytes());
+        this.renderPermits = new Semaphore(properties.getMaxConcurrency());
+        this.maxDimension = properties.getMaxDimension();
+        this.defaultQuality = properties.getDefaultQuality();
+    }
+
+    public Rendition render(File file, Integer width, Integer height, String fit, Integer quality, Double dpr) {
+        if (width == null && height == null) {
+            throw new InvalidFileException("At least one of w or h is required");
+        }
+
+        double scale = dpr != null ? dpr : 1.0;
+        if (scale < 1 || scale > MAX_DPR) {
+            throw new InvalidFileException("dpr must be between 1 and " + MAX_DPR);
+        }
+
+        int targetWidth = dimension(width, scale);
+        int targetHeight = dimension(height, scale);
+        Fit targetFit = targetWidth > 0 && targetHeight > 0 ? Fit.parse(fit) : Fit.CONTAIN;
+        int targetQuality = quality != null ? quality : defaultQuality;
+        if (targetQuality < 1 || targetQuality > 100) {
+            throw new InvalidFileException("q must be between 1 and 100");
+        }
+
+        String contentType = ImageResizer.PNG.equals(file.getContentType()) ? ImageResizer.PNG : ImageResizer.JPEG;
+        String key = "v1:" + file.getPath() + ":" + targetWidth + "x" + targetHeight + ":" + targetFit + ":q" + targetQuality;
+
+        DiskLruCache.Loader loader = () -> new ByteArrayInputStream(
+                renderImage(file, targetWidth, targetHeight, targetFit, targetQuality, contentType));
+
+        try {
+            return open(cache.getOrLoad(key, loader), contentType);
+        } catch (NoSuchFileException e) {
+            // Evicted between lookup and open; a second attempt re-renders it.
+            try {
+                return open(cache.getOrLoad(key, loader), contentType);
+            } catch (IOException retry) {
+                throw new FileStorageException("Could not render file: " + file.getName(), retry);
+            }
+        } catch (IOException e) {
+            throw new FileStorageException("Could not render file: " + file.getName(), e);
+        }
+    }
+
+    public CacheStats cacheStats() {
+        return cache.stats();
+    }
+
+    private byte[] renderImage(File file, int width, int height, Fit fit, int quality, String contentType) throws IOException {
+        try {
+            renderPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FileStorageException("Interrupted while waiting to render " + file.getName());
+        }
+
+        try {
+            BufferedImage source;
+            try (InputStream inputStream = openSource(file, width, height)) {
+                source = imageResizer.read(inputStream, width, height);
+            }
+
+            BufferedImage rendered = fit == Fit.COVER
+                    ? imageResizer.cover(source, width, height)
+                    : imageResizer.fitWithin(source, width > 0 ? width : Integer.MAX_VALUE, height > 0 ? height : Integer.MAX_VALUE);
+
+            return imageResizer.encode(rendered, contentType, quality / 100f);
+        } finally {
+            renderPermits.release();
+        }
+    }
+
+    // Decodes from the smallest stored derivative that still covers the target, not the original.
+    private InputStream openSource(File file, int width, int height) throws IOException {
+        String path = fileDerivativeRepository.findByFileId(file.getId()).stream()
+                .filter(derivative -> derivative.getWidth() >= width && derivative.getHeight() >= height)
+                .min(Comparator.comparing(FileDerivative::getSize))
+                .map(FileDerivative::getPath)
+                .orElse(file.getPath());
+
+        return storageService.load(path).getInputStream();
+    }
+
+    private Rendition open(Path cached, String contentType) throws IOException {
+        InputStream inputStream = Files.newInputStream(cached);
+        return new Rendition(inputStream, Files.size(cached), contentType);
+    }
+
+    private int dimension(Integer requested, double scale) {
+        if (requested == null) {
+            return 0;
+        }
+        if (requested < 1) {
+            throw new InvalidFileException("w and h must be positive");
+        }
+        return (int) Math.min(Math.round(requested * scale), maxDimension);
+    }
+}
@@ -0,0 +1,181 @@
+package com.PhotoVault.services.storage;
+
+import com.PhotoVault.exception.FileStorageException;
+import com.PhotoVault.services.PresignedUpload;
+import com.PhotoVault.services.StorageService;
+import com.PhotoVault.services.StoredObject;
+import com.PhotoVault.services.cache.DiskLruCache;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Read-through cache on local disk in front of a remote {@link StorageService}. Full reads of
+ * objects up to {@code maxObjectSize} are served from the cache, filled once per object even
+ * when many requests miss at the same time; range reads use a cached copy when there is one
+ * but never fill the cache. Objects are immutable once stored, so only writes and deletes
+ * need to invalidate.
+ */
+public class CachingStorageService implements StorageService {
+
+    private final StorageService delegate;
+    private final DiskLruCache cache;
+    private final long maxObjectSize;
+
+    public CachingStorageService(StorageService delegate, DiskLruCache cache, long maxObjectSize) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.maxObjectSize = maxObjectSize;
+    }
+
+    // Thrown from the cache loader so that concurrent callers waiting on it also bypass the cache.
+    private static final class NotAdmittedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        NotAdmittedException() {
+            super(null, null, false, false);
+        }
+    }
+
+    @Override
+    public String store(MultipartFile file, String fileName) throws IOException {
+        String path = delegate.store(file, fileName);
+        cache.invalidate(path);
+        return path;
+    }
+
+    @Override
+    public String store(InputStream inputStream, String fileName, long size, String contentType) throws IOException {
+        String path = delegate.store(inputStream, fileName, size, contentType);
+        cache.invalidate(path);
+        return path;
+    }
+
+    @Override
+    public Resource load(String filePath) throws IOException {
+        try {
+            return new InputStreamResource(openCached(filePath));
+        } catch (NotAdmittedException e) {
+            return delegate.load(filePath);
+        }
+    }
+
+    @Override
+    public InputStream loadRange(String filePath, long start, long end) throws IOException {
+        Path cached = cache.get(filePath);
+        if (cached != null) {
+            try {
+                FileChannel channel = FileChannel.open(cached, StandardOpenOption.READ);
+                channel.position(start);
+                return BoundedInputStream.builder()
+                        .setInputStream(Channels.newInputStream(channel))
+                        .setMaxCount(end - start + 1)
+                        .get();
+            } catch (NoSuchFileException e) {
+                // Evicted since the lookup; fall through to the store.
+            }
+        }
+        return delegate.loadRange(filePath, start, end);
+    }
+
+    @Override
+    public void delete(String filePath) throws IOException {
+        delegate.delete(filePath);
+        cache.invalidate(filePath);
+    }
+
+    @Override
+    public int deleteAll(List<String> filePaths) throws IOException {
+        int deleted = delegate.deleteAll(filePaths);
+        filePaths.forEach(cache::invalidate);
+        return deleted;
+    }
+
+    @Override
+    public boolean exists(String filePath) throws IOException {
+        return delegate.exists(filePath);
+    }
+
+    // Cached copies can be evicted at any time, so they are never handed out as the object's path.
+    @Override
+    public Path getLocalPath(String filePath) {
+        return delegate.getLocalPath(filePath);
+    }
+
+    @Override
+    public String getPublicUrl(String filePath) {
+        return delegate.getPublicUrl(filePath);
+    }
+
+    @Override
+    public String generatePresignedUrl(String filePath, long expirationMinutes) {
+        return delegate.generatePresignedUrl(filePath, expirationMinutes);
+    }
+
+    @Override
+    public String generatePresignedUrl(String filePath, Duration expiration, String contentType, String contentDisposition) {
+        return delegate.generatePresignedUrl(filePath, expiration, contentType, contentDisposition);
+    }
+
+    @Override
+    public PresignedUpload generatePresignedUpload(String fileName, long size, String contentType, String sha256, Duration expiration) {
+        return delegate.generatePresignedUpload(fileName, size, contentType, sha256, expiration);
+    }
+
+    @Override
+    public String resolvePath(String fileName) {
+        return delegate.resolvePath(fileName);
+    }
+
+    @Override
+    public Long getSize(String filePath) throws IOException {
+        return delegate.getSize(filePath);
+    }
+
+    @Override
+    public String legacyPath(String filePath) {
+        return delegate.legacyPath(filePath);
+    }
+
+    @Override
+    public Stream<StoredObject> listObjects() throws IOException {
+        return delegate.listObjects();
+    }
+
+    // An open stream keeps reading the file even if it is evicted afterwards; eviction between the
+    // lookup and the open is retried once, which loads the object again.
+    private InputStream openCached(String filePath) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            Path cached = cache.getOrLoad(filePath, () -> fetch(filePath));
+            try {
+                return Files.newInputStream(cached);
+            } catch (NoSuchFileException e) {
+                if (attempt > 0) {
+                    throw new FileStorageException("Cached copy disappeared while opening: " + filePath, e);
+                }
+            }
+        }
+    }
+
+    // Misses pay one metadata request so oversized objects are never downloaded into the cache.
+    private InputStream fetch(String filePath) throws IOException {
+        Long size = delegate.getSize(filePath);
+        if (size != null && size > maxObjectSize) {
+            throw new NotAdmittedException();
+        }
+        return delegate.load(filePath).getInputStream();
+    }
+}
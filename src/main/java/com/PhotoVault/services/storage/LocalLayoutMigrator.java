@@ -0,0 +1,199 @@
+package com.PhotoVault.services.storage;
+
+import com.PhotoVault.repository.BlobRepository;
+import com.PhotoVault.repository.FileRepository;
+import com.PhotoVault.services.BlobStoreService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Moves files written by the old flat layout into the sharded layout of
+ * {@link LocalStorageService#shardedPath(String)} while the service keeps running.
+ * <p>
+ * Each file is hard-linked at its new path before the database is pointed at it, so the
+ * bytes are reachable under both names throughout. The old name is unlinked on a later run,
+ * once the link is older than the grace period, no download can still be resolving it and no
+ * file or blob row points at it any more. A crash between linking and pointing the database at
+ * the new name therefore leaves both names in place, and the next pass over the files finishes
+ * the move.
+ */
+@Component
+@ConditionalOnExpression("'${storage.type:local}' == 'local' and ${storage.local.migration.enabled:true}")
+public class LocalLayoutMigrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalLayoutMigrator.class);
+
+    private final LocalStorageService localStorageService;
+    private final FileRepository fileRepository;
+    private final BlobRepository blobRepository;
+    private final BlobStoreService blobStoreService;
+    private final int batchSize;
+    private final Duration unlinkGrace;
+
+    private volatile long lastMigratedId = 0;
+    private volatile boolean databaseMigrated = false;
+
+    public LocalLayoutMigrator(LocalStorageService localStorageService,
+                               FileRepository fileRepository,
+                               BlobRepository blobRepository,
+                               BlobStoreService blobStoreService,
+                               @Value("${storage.local.migration.batch-size:500}") int batchSize,
+                               @Value("${storage.local.migration.unlink-grace:PT10M}") Duration unlinkGrace) {
+        this.localStorageService = localStorageService;
+        this.fileRepository = fileRepository;
+        this.blobRepository = blobRepository;
+        this.blobStoreService = blobStoreService;
+        this.batchSize = batchSize;
+        this.unlinkGrace = unlinkGrace;
+    }
+
+    @Scheduled(initialDelayString = "${storage.local.migration.delay:PT30S}",
+            fixedDelayString = "${storage.local.migration.delay:PT30S}")
+    public void migrateBatch() {
+        unlinkMigratedFiles();
+
+        if (databaseMigrated) {
+            return;
+        }
+
+        List<FileRepository.StoredPath> batch =
+                fileRepository.findStoredPathsAfter(lastMigratedId, PageRequest.of(0, batchSize));
+
+        if (batch.isEmpty()) {
+            databaseMigrated = true;
+            logger.info("Local storage layout migration finished");
+            return;
+        }
+
+        int moved = 0;
+        for (FileRepository.StoredPath file : batch) {
+            if (migrate(file.getPath())) {
+                moved++;
+            }
+            lastMigratedId = file.getId();
+        }
+
+        if (moved > 0) {
+            logger.info("Moved {} files to the sharded layout (up to file id {})", moved, lastMigratedId);
+        }
+    }
+
+    private boolean migrate(String storedPath) {
+        Path source = Paths.get(storedPath).normalize();
+        if (!isFlat(source)) {
+            return false;
+        }
+
+        Path target = localStorageService.shardedPath(source.getFileName().toString());
+        try {
+            Files.createDirectories(target.getParent());
+            try {
+                Files.createLink(target, source);
+            } catch (FileAlreadyExistsException e) {
+                if (!Files.isSameFile(target, source)) {
+                    logger.warn("Cannot move '{}': '{}' already holds a different file", source, target);
+                    return false;
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // Linked and unlinked by an earlier run whose relocate never happened.
+            if (!Files.exists(target)) {
+                logger.warn("Skipping '{}': file is missing on disk", source);
+                return false;
+            }
+        } catch (IOException e) {
+            logger.error("Could not link '{}' to '{}': {}", source, target, e.getMessage());
+            return false;
+        }
+
+        blobStoreService.relocate(storedPath, target.toString());
+        return true;
+    }
+
+    // Removes flat names whose sharded link exists, has outlived the grace period and is the
+    // only name the database still knows.
+    private void unlinkMigratedFiles() {
+        Instant cutoff = Instant.now().minus(unlinkGrace);
+        List<Path> linked = new ArrayList<>();
+
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(localStorageService.getStorageLocation(), Files::isRegularFile)) {
+            for (Path flat : entries) {
+                if (linked.size() >= batchSize) {
+                    break;
+                }
+                Path sharded = localStorageService.shardedPath(flat.getFileName().toString());
+                if (Files.exists(sharded) && Files.isSameFile(flat, sharded) && linkedBefore(sharded, cutoff)) {
+                    linked.add(flat);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Could not clean up migrated files: {}", e.getMessage());
+            return;
+        }
+
+        if (linked.isEmpty()) {
+            return;
+        }
+
+        Set<String> paths = new HashSet<>(linked.size());
+        linked.forEach(flat -> paths.add(flat.toString()));
+        Set<String> referenced = new HashSet<>(fileRepository.findPathsIn(paths));
+        referenced.addAll(blobRepository.findPathsIn(paths));
+
+        int unlinked = 0;
+        for (Path flat : linked) {
+            if (referenced.contains(flat.toString())) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(flat);
+                unlinked++;
+            } catch (IOException e) {
+                logger.warn("Could not unlink '{}': {}", flat, e.getMessage());
+            }
+        }
+
+        if (unlinked > 0) {
+            logger.info("Unlinked {} migrated files from the flat layout", unlinked);
+        }
+        if (unlinked < linked.size() && databaseMigrated) {
+            // Rows left on a flat name, e.g. by a failed relocate: another pass points them at the link.
+            databaseMigrated = false;
+            lastMigratedId = 0;
+        }
+    }
+
+    // Creating a hard link updates the inode change time, which is the time of migration.
+    private boolean linkedBefore(Path file, Instant cutoff) throws IOException {
+        try {
+            FileTime changed = (FileTime) Files.getAttribute(file, "unix:ctime");
+            return changed.toInstant().isBefore(cutoff);
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    private boolean isFlat(Path file) {
+        return localStorageService.getStorageLocation().equals(file.getParent());
+    }
+}
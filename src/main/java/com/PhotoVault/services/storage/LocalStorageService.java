@@ -1,33 +1,64 @@
 package com.PhotoVault.services.storage;
 
+import com.PhotoVault.config.StorageCacheConfig;
 import com.PhotoVault.exception.FileStorageException;
+import com.PhotoVault.exception.InvalidFileException;
+import com.PhotoVault.services.PresignedUpload;
 import com.PhotoVault.services.StorageService;
+import com.PhotoVault.services.StoredObject;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
 
 @Service
+@Qualifier(StorageCacheConfig.BACKING_STORE)
 @ConditionalOnProperty(name = "storage.type", havingValue = "local", matchIfMissing = true)
 public class LocalStorageService implements StorageService {
 
     private static final Logger logger = LoggerFactory.getLogger(LocalStorageService.class);
 
+    public static final String UPLOAD_ENDPOINT = "/api/uploads/local/";
+
     private final Path storageLocation;
 
-    public LocalStorageService(@Value("${file.upload.dir}") String uploadDir) {
+    private final LocalUploadSigner uploadSigner;
+
+    public LocalStorageService(@Value("${file.upload.dir}") String uploadDir, LocalUploadSigner uploadSigner) {
         this.storageLocation = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.uploadSigner = uploadSigner;
 
         try {
             Files.createDirectories(this.storageLocation);
@@ -45,7 +76,8 @@ public class LocalStorageService implements StorageService {
     @Override
     public String store(InputStream inputStream, String fileName, long size, String contentType) throws IOException {
         try {
-            Path targetLocation = this.storageLocation.resolve(fileName);
+            Path targetLocation = shardedPath(fileName);
+            Files.createDirectories(targetLocation.getParent());
             Files.copy(inputStream, targetLocation, StandardCopyOption.REPLACE_EXISTING);
             logger.info("File '{}' stored locally", fileName);
             return targetLocation.toString();
@@ -55,6 +87,62 @@ public class LocalStorageService implements StorageService {
         }
     }
 
+    /**
+     * Stores a client upload under {@code fileName} only if it is exactly {@code size} bytes with the
+     * given SHA-256. The body goes to a temporary file first, so a rejected upload never replaces
+     * or leaves behind an object at the target path. At most one byte past {@code size} is read,
+     * so an oversized body is refused without being written out in full.
+     */
+    public String storeVerified(InputStream inputStream, String fileName, long size, String sha256) throws IOException {
+        Path targetLocation = shardedPath(fileName);
+        Files.createDirectories(targetLocation.getParent());
+        Path partial = Files.createTempFile(targetLocation.getParent(), fileName, ".part");
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            InputStream bounded = BoundedInputStream.builder()
+                    .setInputStream(inputStream)
+                    .setMaxCount(size + 1)
+                    .get();
+            Files.copy(new DigestInputStream(bounded, digest), partial, StandardCopyOption.REPLACE_EXISTING);
+
+            long received = Files.size(partial);
+            if (received > size) {
+                throw new InvalidFileException("Upload is larger than the expected " + size + " bytes");
+            }
+            if (received != size) {
+                throw new InvalidFileException("Upload is " + received + " bytes, expected " + size);
+            }
+            if (!HexFormat.of().formatHex(digest.digest()).equalsIgnoreCase(sha256)) {
+                throw new InvalidFileException("Upload does not match the declared SHA-256");
+            }
+
+            Files.move(partial, targetLocation, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("File '{}' uploaded directly to local storage", fileName);
+            return targetLocation.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+
+    /**
+     * Fans files out over two levels of hex directories taken from the MD5 of the name,
+     * e.g. {@code 3f/a1/<name>}, so no directory grows beyond a few thousand entries.
+     */
+    public Path shardedPath(String fileName) {
+        String hash = DigestUtils.md5DigestAsHex(fileName.getBytes(StandardCharsets.UTF_8));
+        return storageLocation
+                .resolve(hash.substring(0, 2))
+                .resolve(hash.substring(2, 4))
+                .resolve(fileName);
+    }
+
+    public Path getStorageLocation() {
+        return storageLocation;
+    }
+
     @Override
     public Resource load(String filePath) throws IOException {
         try {
@@ -71,6 +159,20 @@ public class LocalStorageService implements StorageService {
         }
     }
 
+    @Override
+    public InputStream loadRange(String filePath, long start, long end) throws IOException {
+        try {
+            FileChannel channel = FileChannel.open(Paths.get(filePath).normalize(), StandardOpenOption.READ);
+            channel.position(start);
+            return BoundedInputStream.builder()
+                    .setInputStream(Channels.newInputStream(channel))
+                    .setMaxCount(end - start + 1)
+                    .get();
+        } catch (IOException e) {
+            throw new FileStorageException("Could not load file: " + filePath, e);
+        }
+    }
+
     @Override
     public void delete(String filePath) throws IOException {
         try {
@@ -87,6 +189,12 @@ public class LocalStorageService implements StorageService {
         return Files.exists(Paths.get(filePath));
     }
 
+    @Override
+    public Path getLocalPath(String filePath) {
+        Path file = Paths.get(filePath).normalize();
+        return Files.isRegularFile(file) ? file : null;
+    }
+
     @Override
     public String getPublicUrl(String filePath) {
         // Não há URL pública em storage local
@@ -98,4 +206,89 @@ public class LocalStorageService implements StorageService {
         // Não suportado em storage local
         return null;
     }
-}
\ No newline at end of file
+
+    @Override
+    public String generatePresignedUrl(String filePath, Duration expiration, String contentType, String contentDisposition) {
+        return null;
+    }
+
+    // Relative to the API base URL, pointing at LocalUploadController.
+    @Override
+    public PresignedUpload generatePresignedUpload(String fileName, long size, String contentType, String sha256, Duration expiration) {
+        long expiresAt = Instant.now().plus(expiration).getEpochSecond();
+        String url = UriComponentsBuilder.fromPath(UPLOAD_ENDPOINT + fileName)
+                .queryParam("size", size)
+                .queryParam("contentType", contentType)
+                .queryParam("sha256", sha256)
+                .queryParam("expires", expiresAt)
+                .queryParam("signature", uploadSigner.sign(fileName, size, contentType, sha256, expiresAt))
+                .encode()
+                .toUriString();
+        return new PresignedUpload(url, Map.of("Content-Type", contentType));
+    }
+
+    @Override
+    public String resolvePath(String fileName) {
+        return shardedPath(fileName).toString();
+    }
+
+    @Override
+    public Long getSize(String filePath) throws IOException {
+        Path file = Paths.get(filePath).normalize();
+        return Files.isRegularFile(file) ? Files.size(file) : null;
+    }
+
+    // The flat name of a sharded file, kept by rows LocalLayoutMigrator has not relocated yet.
+    @Override
+    public String legacyPath(String filePath) {
+        Path file = Paths.get(filePath).normalize();
+        String fileName = file.getFileName().toString();
+        return shardedPath(fileName).equals(file) ? storageLocation.resolve(fileName).toString() : null;
+    }
+
+    // Only the sharded layout is listed; files still in the flat layout belong to LocalLayoutMigrator.
+    @Override
+    public Stream<StoredObject> listObjects() throws IOException {
+        return Files.find(storageLocation, 3, (path, attributes) ->
+                        attributes.isRegularFile() && storageLocation.relativize(path).getNameCount() == 3)
+                .map(this::toStoredObject)
+                .filter(Objects::nonNull);
+    }
+
+    @Override
+    public int deleteAll(List<String> filePaths) {
+        int deleted = 0;
+        for (String filePath : filePaths) {
+            try {
+                if (Files.deleteIfExists(Paths.get(filePath).normalize())) {
+                    deleted++;
+                }
+            } catch (IOException e) {
+                logger.warn("Could not delete file '{}': {}", filePath, e.getMessage());
+            }
+        }
+        logger.info("Deleted {} files from local storage", deleted);
+        return deleted;
+    }
+
+    // A hard link made by LocalLayoutMigrator keeps the old modification time but updates the
+    // change time, so the later of the two tells how recently the name appeared.
+    private StoredObject toStoredObject(Path file) {
+        try {
+            Instant modified = Files.getLastModifiedTime(file).toInstant();
+            try {
+                Instant changed = ((FileTime) Files.getAttribute(file, "unix:ctime")).toInstant();
+                if (changed.isAfter(modified)) {
+                    modified = changed;
+                }
+            } catch (UnsupportedOperationException | IllegalArgumentException e) {
+                // Not a POSIX file system; the modification time is all there is.
+            }
+            return new StoredObject(file.toString(), Files.size(file), modified);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
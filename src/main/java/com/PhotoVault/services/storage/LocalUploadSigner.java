@@ -0,0 +1,49 @@
+package com.PhotoVault.services.storage;
+
+import com.PhotoVault.config.DirectUploadProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.HexFormat;
+
+/**
+ * HMAC-SHA256 signatures for local PUT URLs, standing in for S3 presigning when files are kept on
+ * the local disk. The signature covers every parameter the upload endpoint trusts.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.type", havingValue = "local", matchIfMissing = true)
+public class LocalUploadSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+
+    public LocalUploadSigner(DirectUploadProperties properties) {
+        this.key = new SecretKeySpec(properties.getSecret().getBytes(StandardCharsets.UTF_8), ALGORITHM);
+    }
+
+    public String sign(String fileName, long size, String contentType, String sha256, long expiresAt) {
+        String payload = String.join("\n", fileName, Long.toString(size), contentType, sha256, Long.toString(expiresAt));
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return HexFormat.of().formatHex(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 not available", e);
+        }
+    }
+
+    public boolean verify(String fileName, long size, String contentType, String sha256, long expiresAt, String signature) {
+        if (signature == null || Instant.now().getEpochSecond() > expiresAt) {
+            return false;
+        }
+        byte[] expected = sign(fileName, size, contentType, sha256, expiresAt).getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(expected, signature.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,127 @@
+package com.PhotoVault.services.storage;
+
+import com.PhotoVault.config.UploadSessionProperties;
+import com.PhotoVault.entities.UploadSession;
+import com.PhotoVault.exception.FileStorageException;
+import com.PhotoVault.services.BlobStoreService;
+import com.PhotoVault.services.FileValidationService;
+import com.PhotoVault.services.InspectingInputStream;
+import com.PhotoVault.services.UploadStaging;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Stages resumable uploads as {@code <session id>.part} files. Each chunk is forced to disk
+ * before its offset is reported, and anything past the recorded offset (a chunk cut off by a
+ * crash) is truncated before the next one is written.
+ */
+@Service
+@ConditionalOnProperty(name = "storage.type", havingValue = "local", matchIfMissing = true)
+public class LocalUploadStaging implements UploadStaging {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalUploadStaging.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path stagingLocation;
+    private final long chunkSize;
+    private final BlobStoreService blobStoreService;
+    private final FileValidationService fileValidationService;
+
+    public LocalUploadStaging(UploadSessionProperties properties,
+                              BlobStoreService blobStoreService,
+                              FileValidationService fileValidationService) {
+        this.stagingLocation = Paths.get(properties.getStagingDir()).toAbsolutePath().normalize();
+        this.chunkSize = properties.getChunkSize();
+        this.blobStoreService = blobStoreService;
+        this.fileValidationService = fileValidationService;
+
+        try {
+            Files.createDirectories(this.stagingLocation);
+        } catch (IOException e) {
+            throw new FileStorageException("Could not create upload staging directory", e);
+        }
+    }
+
+    @Override
+    public long getChunkSize() {
+        return chunkSize;
+    }
+
+    @Override
+    public void begin(UploadSession session) throws IOException {
+        Files.createFile(partPath(session));
+    }
+
+    @Override
+    public long append(UploadSession session, InputStream inputStream, long length) throws IOException {
+        long offset = session.getUploadOffset();
+
+        try (FileChannel channel = FileChannel.open(partPath(session), StandardOpenOption.WRITE)) {
+            if (channel.size() < offset) {
+                throw new FileStorageException("Staged data for upload " + session.getId() + " is missing");
+            }
+            channel.truncate(offset);
+            channel.position(offset);
+
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long written = 0;
+            while (written < length) {
+                int wanted = (int) Math.min(buffer.length, length - written);
+                int read = UploadStaging.readChunk(inputStream, buffer, wanted);
+
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                while (byteBuffer.hasRemaining()) {
+                    channel.write(byteBuffer);
+                }
+                written += read;
+
+                if (read < wanted) {
+                    break;
+                }
+            }
+
+            channel.force(false);
+            return offset + written;
+        }
+    }
+
+    @Override
+    public CompletedUpload complete(UploadSession session) throws IOException {
+        Path part = partPath(session);
+
+        BlobStoreService.StagedBlob blob;
+        InspectingInputStream inspected;
+        try (InputStream staged = Files.newInputStream(part)) {
+            inspected = fileValidationService.inspect(staged, session.getSize());
+            blob = blobStoreService.stage(inspected, session.getStoredName(), session.getContentType());
+        }
+
+        Files.deleteIfExists(part);
+        return new CompletedUpload(blob, inspected.getCrc32());
+    }
+
+    @Override
+    public void abort(UploadSession session) {
+        try {
+            Files.deleteIfExists(partPath(session));
+        } catch (IOException e) {
+            logger.warn("Could not delete staged upload {}: {}", session.getId(), e.getMessage());
+        }
+    }
+
+    private Path partPath(UploadSession session) {
+        return stagingLocation.resolve(session.getId() + ".part");
+    }
+}
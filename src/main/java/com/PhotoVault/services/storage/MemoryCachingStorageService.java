@@ -0,0 +1,198 @@
+package com.PhotoVault.services.storage;
+
+import com.PhotoVault.services.PresignedUpload;
+import com.PhotoVault.services.StorageService;
+import com.PhotoVault.services.StoredObject;
+import com.PhotoVault.services.cache.OffHeapCache;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Keeps small objects, such as thumbnails and web-size derivatives, in an {@link OffHeapCache}
+ * so repeated reads touch neither the disk nor the remote store. Objects no larger than
+ * {@code maxObjectSize} are admitted on the first full read, while larger ones are passed
+ * through unbuffered; concurrent misses for the same object share one read. Objects are immutable once stored, so only writes and
+ * deletes need to invalidate.
+ */
+public class MemoryCachingStorageService implements StorageService {
+
+    private final StorageService delegate;
+    private final OffHeapCache cache;
+    private final int maxObjectSize;
+
+    // Completes with the object's bytes, or null if it was too large to cache.
+    private final ConcurrentHashMap<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+
+    public MemoryCachingStorageService(StorageService delegate, OffHeapCache cache, int maxObjectSize) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.maxObjectSize = maxObjectSize;
+    }
+
+    @Override
+    public String store(MultipartFile file, String fileName) throws IOException {
+        String path = delegate.store(file, fileName);
+        cache.invalidate(path);
+        return path;
+    }
+
+    @Override
+    public String store(InputStream inputStream, String fileName, long size, String contentType) throws IOException {
+        String path = delegate.store(inputStream, fileName, size, contentType);
+        cache.invalidate(path);
+        return path;
+    }
+
+    @Override
+    public Resource load(String filePath) throws IOException {
+        InputStream cached = cache.get(filePath);
+        if (cached != null) {
+            return new InputStreamResource(cached);
+        }
+
+        CompletableFuture<byte[]> ours = new CompletableFuture<>();
+        CompletableFuture<byte[]> existing = inFlight.putIfAbsent(filePath, ours);
+        if (existing != null) {
+            byte[] shared = await(existing);
+            return new InputStreamResource(shared != null ? new ByteArrayInputStream(shared) : delegate.load(filePath).getInputStream());
+        }
+
+        try {
+            // Misses pay one metadata request so large objects stream straight from the store.
+            Long size = delegate.getSize(filePath);
+            if (size != null && size > maxObjectSize) {
+                ours.complete(null);
+                return delegate.load(filePath);
+            }
+
+            InputStream inputStream = delegate.load(filePath).getInputStream();
+            // Reading one byte past the limit still guards against a size that was missing or stale.
+            byte[] head;
+            try {
+                head = inputStream.readNBytes(maxObjectSize + 1);
+            } catch (IOException | RuntimeException e) {
+                inputStream.close();
+                throw e;
+            }
+
+            if (head.length > maxObjectSize) {
+                ours.complete(null);
+                return new InputStreamResource(new SequenceInputStream(new ByteArrayInputStream(head), inputStream));
+            }
+
+            inputStream.close();
+            cache.put(filePath, head);
+            ours.complete(head);
+            return new InputStreamResource(new ByteArrayInputStream(head));
+        } catch (IOException | RuntimeException e) {
+            ours.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(filePath, ours);
+        }
+    }
+
+    @Override
+    public InputStream loadRange(String filePath, long start, long end) throws IOException {
+        InputStream cached = cache.get(filePath);
+        if (cached == null) {
+            return delegate.loadRange(filePath, start, end);
+        }
+        cached.skip(start);
+        return BoundedInputStream.builder()
+                .setInputStream(cached)
+                .setMaxCount(end - start + 1)
+                .get();
+    }
+
+    @Override
+    public void delete(String filePath) throws IOException {
+        delegate.delete(filePath);
+        cache.invalidate(filePath);
+    }
+
+    @Override
+    public int deleteAll(List<String> filePaths) throws IOException {
+        int deleted = delegate.deleteAll(filePaths);
+        filePaths.forEach(cache::invalidate);
+        return deleted;
+    }
+
+    @Override
+    public boolean exists(String filePath) throws IOException {
+        return delegate.exists(filePath);
+    }
+
+    @Override
+    public Path getLocalPath(String filePath) {
+        return delegate.getLocalPath(filePath);
+    }
+
+    @Override
+    public String getPublicUrl(String filePath) {
+        return delegate.getPublicUrl(filePath);
+    }
+
+    @Override
+    public String generatePresignedUrl(String filePath, long expirationMinutes) {
+        return delegate.generatePresignedUrl(filePath, expirationMinutes);
+    }
+
+    @Override
+    public String generatePresignedUrl(String filePath, Duration expiration, String contentType, String contentDisposition) {
+        return delegate.generatePresignedUrl(filePath, expiration, contentType, contentDisposition);
+    }
+
+    @Override
+    public PresignedUpload generatePresignedUpload(String fileName, long size, String contentType, String sha256, Duration expiration) {
+        return delegate.generatePresignedUpload(fileName, size, contentType, sha256, expiration);
+    }
+
+    @Override
+    public String resolvePath(String fileName) {
+        return delegate.resolvePath(fileName);
+    }
+
+    @Override
+    public Long getSize(String filePath) throws IOException {
+        return delegate.getSize(filePath);
+    }
+
+    @Override
+    public String legacyPath(String filePath) {
+        return delegate.legacyPath(filePath);
+    }
+
+    @Override
+    public Stream<StoredObject> listObjects() throws IOException {
+        return delegate.listObjects();
+    }
+
+    private static byte[] await(CompletableFuture<byte[]> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+}
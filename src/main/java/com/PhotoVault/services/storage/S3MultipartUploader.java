@@ -0,0 +1,218 @@
+package com.PhotoVault.services.storage;
+
+import com.PhotoVault.config.S3MultipartProperties;
+import com.PhotoVault.exception.FileStorageException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Uploads a stream to S3 as a multipart upload. Parts are read sequentially from the
+ * stream and uploaded concurrently; at most {@code maxConcurrency} parts are held in
+ * memory at any time, so the footprint is bounded by {@code partSize * maxConcurrency}.
+ */
+public class S3MultipartUploader {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3MultipartUploader.class);
+
+    private static final long RETRY_BACKOFF_MILLIS = 200;
+
+    private final S3Client s3Client;
+    private final ExecutorService executor;
+    private final int partSize;
+    private final int maxConcurrency;
+    private final int maxRetries;
+
+    public S3MultipartUploader(S3Client s3Client, ExecutorService executor, S3MultipartProperties properties) {
+        this.s3Client = s3Client;
+        this.executor = executor;
+        this.partSize = (int) Math.max(properties.getPartSize(), S3MultipartProperties.MIN_PART_SIZE);
+        this.maxConcurrency = Math.max(properties.getMaxConcurrency(), 1);
+        this.maxRetries = Math.max(properties.getMaxRetries(), 0);
+    }
+
+    public int getPartSize() {
+        return partSize;
+    }
+
+    public void upload(String bucketName, String key, InputStream inputStream, String contentType) throws IOException {
+        String uploadId = createUpload(bucketName, key, contentType);
+
+        Semaphore permits = new Semaphore(maxConcurrency);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Future<CompletedPart>> pendingParts = new ArrayList<>();
+
+        try {
+            int partNumber = 1;
+            boolean lastPart = false;
+
+            while (!lastPart && failure.get() == null) {
+                permits.acquire();
+
+                byte[] buffer = new byte[partSize];
+                int length = inputStream.readNBytes(buffer, 0, partSize);
+                lastPart = length < partSize;
+
+                if (length == 0 && partNumber > 1) {
+                    permits.release();
+                    break;
+                }
+
+                int currentPart = partNumber++;
+                pendingParts.add(executor.submit(() -> {
+                    try {
+                        return uploadPart(bucketName, key, uploadId, currentPart, buffer, length);
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                        throw e;
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+
+            List<CompletedPart> completedParts = new ArrayList<>(pendingParts.size());
+            for (Future<CompletedPart> pendingPart : pendingParts) {
+                completedParts.add(pendingPart.get());
+            }
+            completedParts.sort(Comparator.comparing(CompletedPart::partNumber));
+
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+                    .build());
+
+            logger.info("File '{}' uploaded to S3 Bucket '{}' in {} parts", key, bucketName, completedParts.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(bucketName, key, uploadId, pendingParts);
+            throw new FileStorageException("Multipart upload interrupted: " + key, e);
+        } catch (ExecutionException e) {
+            abort(bucketName, key, uploadId, pendingParts);
+            throw new FileStorageException("Could not upload part of file to S3: " + key, e.getCause());
+        } catch (IOException | RuntimeException e) {
+            abort(bucketName, key, uploadId, pendingParts);
+            throw e;
+        }
+    }
+
+    String createUpload(String bucketName, String key, String contentType) {
+        return s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType)
+                .build()).uploadId();
+    }
+
+    /**
+     * Completes an upload whose parts were sent over several requests, taking the part list
+     * from S3 itself. A part number uploaded twice keeps only its latest copy.
+     */
+    int completeUpload(String bucketName, String key, String uploadId) {
+        List<CompletedPart> completedParts = new ArrayList<>();
+        for (Part part : s3Client.listPartsPaginator(ListPartsRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .uploadId(uploadId)
+                .build()).parts()) {
+            completedParts.add(CompletedPart.builder().partNumber(part.partNumber()).eTag(part.eTag()).build());
+        }
+        completedParts.sort(Comparator.comparing(CompletedPart::partNumber));
+
+        s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+                .build());
+        return completedParts.size();
+    }
+
+    public int abortStaleUploads(String bucketName, Duration maxAge) {
+        Instant cutoff = Instant.now().minus(maxAge);
+        int aborted = 0;
+
+        for (MultipartUpload upload : s3Client.listMultipartUploadsPaginator(
+                ListMultipartUploadsRequest.builder().bucket(bucketName).build()).uploads()) {
+            if (upload.initiated() != null && upload.initiated().isBefore(cutoff)) {
+                abortQuietly(bucketName, upload.key(), upload.uploadId());
+                aborted++;
+            }
+        }
+        return aborted;
+    }
+
+    CompletedPart uploadPart(String bucketName, String key, String uploadId, int partNumber, byte[] buffer, int length) {
+        UploadPartRequest request = UploadPartRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .uploadId(uploadId)
+                .partNumber(partNumber)
+                .contentLength((long) length)
+                .build();
+
+        for (int attempt = 0; ; attempt++) {
+            try {
+                UploadPartResponse response = s3Client.uploadPart(request,
+                        RequestBody.fromContentProvider(() -> new ByteArrayInputStream(buffer, 0, length), length, "application/octet-stream"));
+
+                return CompletedPart.builder()
+                        .partNumber(partNumber)
+                        .eTag(response.eTag())
+                        .build();
+            } catch (SdkException e) {
+                if (attempt >= maxRetries) {
+                    throw e;
+                }
+                logger.warn("Retrying part {} of '{}' after failure: {}", partNumber, key, e.getMessage());
+                sleepBeforeRetry(attempt);
+            }
+        }
+    }
+
+    private void sleepBeforeRetry(int attempt) {
+        try {
+            Thread.sleep(RETRY_BACKOFF_MILLIS << attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FileStorageException("Multipart upload interrupted", e);
+        }
+    }
+
+    private void abort(String bucketName, String key, String uploadId, List<Future<CompletedPart>> pendingParts) {
+        pendingParts.forEach(part -> part.cancel(true));
+        abortQuietly(bucketName, key, uploadId);
+    }
+
+    void abortQuietly(String bucketName, String key, String uploadId) {
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build());
+            logger.warn("Multipart upload of '{}' aborted", key);
+        } catch (SdkException e) {
+            logger.error("Failed to abort multipart upload of '{}': {}", key, e.getMessage());
+        }
+    }
+}
@@ -1,10 +1,15 @@
 package com.PhotoVault.services.storage;
 
+import com.PhotoVault.config.S3MultipartProperties;
+import com.PhotoVault.config.StorageCacheConfig;
 import com.PhotoVault.exception.FileStorageException;
+import com.PhotoVault.services.PresignedUpload;
 import com.PhotoVault.services.StorageService;
+import com.PhotoVault.services.StoredObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.core.io.InputStreamResource;
@@ -17,17 +22,32 @@ import software.amazon.awssdk.services.s3.model.*;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
+@Qualifier(StorageCacheConfig.BACKING_STORE)
 @ConditionalOnProperty(name = "storage.type", havingValue = "s3")
 public class S3StorageService implements StorageService {
 
     private static final Logger logger = LoggerFactory.getLogger(S3StorageService.class);
 
+    private static final Duration STALE_MULTIPART_UPLOAD_AGE = Duration.ofHours(24);
+
+    // Limit of a single DeleteObjects request.
+    private static final int MAX_KEYS_PER_DELETE = 1000;
+
 
     private final S3Client s3Client;
 
@@ -35,11 +55,22 @@ public class S3StorageService implements StorageService {
 
     private final String bucketName;
 
-    public S3StorageService(S3Client s3Client, S3Presigner s3Presigner, @Value("${AWS_S3_BUCKET_NAME}")String bucketName) {
+    private final S3MultipartUploader multipartUploader;
+
+    private final long multipartThreshold;
+
+    public S3StorageService(S3Client s3Client,
+                            S3Presigner s3Presigner,
+                            @Value("${AWS_S3_BUCKET_NAME}")String bucketName,
+                            S3MultipartProperties multipartProperties,
+                            @Qualifier("s3TransferExecutor") ExecutorService s3TransferExecutor) {
         this.s3Client = s3Client;
         this.s3Presigner = s3Presigner;
         this.bucketName = bucketName;
+        this.multipartUploader = new S3MultipartUploader(s3Client, s3TransferExecutor, multipartProperties);
+        this.multipartThreshold = multipartProperties.getThreshold();
         ensureBucketExists();
+        abortStaleMultipartUploads();
     }
 
     private void ensureBucketExists() {
@@ -55,6 +86,17 @@ public class S3StorageService implements StorageService {
         }
     }
 
+    private void abortStaleMultipartUploads() {
+        try {
+            int aborted = multipartUploader.abortStaleUploads(bucketName, STALE_MULTIPART_UPLOAD_AGE);
+            if (aborted > 0) {
+                logger.info("Aborted {} stale multipart uploads in bucket '{}'", aborted, bucketName);
+            }
+        } catch (S3Exception e) {
+            logger.warn("Could not list multipart uploads in bucket '{}': {}", bucketName, e.getMessage());
+        }
+    }
+
     @Override
     public String store(MultipartFile file, String fileName) throws IOException {
         return store(file.getInputStream(), fileName, file.getSize(), file.getContentType());
@@ -62,6 +104,16 @@ public class S3StorageService implements StorageService {
 
     @Override
     public String store(InputStream inputStream, String fileName, long size, String contentType) throws IOException {
+        if (size >= multipartThreshold) {
+            try {
+                multipartUploader.upload(bucketName, fileName, inputStream, contentType);
+                return fileName;
+            } catch (S3Exception e) {
+                logger.error("Failed to upload file to S3: {}", e.getMessage());
+                throw new FileStorageException("Could not store file in S3: " + fileName, e);
+            }
+        }
+
         try {
             PutObjectRequest putObjectRequest = PutObjectRequest.builder()
                     .bucket(bucketName)
@@ -96,6 +148,23 @@ public class S3StorageService implements StorageService {
         }
     }
 
+    @Override
+    public InputStream loadRange(String filePath, long start, long end) throws IOException {
+        try {
+            GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(filePath)
+                    .range("bytes=" + start + "-" + end)
+                    .build();
+
+            return s3Client.getObject(getObjectRequest);
+        } catch (NoSuchKeyException e) {
+            throw new FileStorageException("File not found in S3: " + filePath, e);
+        }catch (S3Exception e ){
+            throw new FileStorageException("Could not load file range from S3: " + filePath, e);
+        }
+    }
+
     @Override
     public void delete(String filePath) throws IOException {
         try {
@@ -128,6 +197,11 @@ public class S3StorageService implements StorageService {
         }
     }
 
+    @Override
+    public Path getLocalPath(String filePath) {
+        return null;
+    }
+
     @Override
     public String getPublicUrl(String filePath) {
         return  String.format("https://%s.s3.amazonaws.com/%s", bucketName, filePath);
@@ -145,4 +219,105 @@ public class S3StorageService implements StorageService {
             throw new FileStorageException("Could not generate presigned URL: " + filePath, e);
         }
     }
+
+    @Override
+    public String generatePresignedUrl(String filePath, Duration expiration, String contentType, String contentDisposition) {
+        try {
+            return s3Presigner.presignGetObject(req -> req
+                    .signatureDuration(expiration)
+                    .getObjectRequest(go -> go
+                            .bucket(bucketName)
+                            .key(filePath)
+                            .responseContentType(contentType)
+                            .responseContentDisposition(contentDisposition))
+            ).url().toString();
+
+        } catch (S3Exception e) {
+            throw new FileStorageException("Could not generate presigned URL: " + filePath, e);
+        }
+    }
+
+    // S3 rejects the PUT unless the body matches the signed Content-Length and x-amz-checksum-sha256.
+    @Override
+    public PresignedUpload generatePresignedUpload(String fileName, long size, String contentType, String sha256, Duration expiration) {
+        String checksum = Base64.getEncoder().encodeToString(HexFormat.of().parseHex(sha256));
+        try {
+            PresignedPutObjectRequest presigned = s3Presigner.presignPutObject(req -> req
+                    .signatureDuration(expiration)
+                    .putObjectRequest(put -> put
+                            .bucket(bucketName)
+                            .key(fileName)
+                            .contentType(contentType)
+                            .contentLength(size)
+                            .checksumSHA256(checksum)));
+
+            Map<String, String> headers = presigned.signedHeaders().entrySet().stream()
+                    .filter(header -> !header.getKey().equalsIgnoreCase("host"))
+                    .collect(Collectors.toMap(Map.Entry::getKey, header -> String.join(",", header.getValue())));
+            return new PresignedUpload(presigned.url().toString(), headers);
+
+        } catch (S3Exception e) {
+            throw new FileStorageException("Could not generate presigned upload URL: " + fileName, e);
+        }
+    }
+
+    @Override
+    public String resolvePath(String fileName) {
+        return fileName;
+    }
+
+    @Override
+    public Long getSize(String filePath) throws IOException {
+        try {
+            return s3Client.headObject(HeadObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(filePath)
+                    .build()).contentLength();
+        } catch (NoSuchKeyException e) {
+            return null;
+        } catch (S3Exception e) {
+            throw new FileStorageException("Could not read object metadata from S3: " + filePath, e);
+        }
+    }
+
+    @Override
+    public String legacyPath(String filePath) {
+        return null;
+    }
+
+    @Override
+    public Stream<StoredObject> listObjects() {
+        return s3Client.listObjectsV2Paginator(ListObjectsV2Request.builder().bucket(bucketName).build())
+                .contents()
+                .stream()
+                .map(object -> new StoredObject(object.key(), object.size(), object.lastModified()));
+    }
+
+    @Override
+    public int deleteAll(List<String> filePaths) throws IOException {
+        int deleted = 0;
+        for (int from = 0; from < filePaths.size(); from += MAX_KEYS_PER_DELETE) {
+            List<ObjectIdentifier> objects = filePaths.subList(from, Math.min(from + MAX_KEYS_PER_DELETE, filePaths.size()))
+                    .stream()
+                    .map(key -> ObjectIdentifier.builder().key(key).build())
+                    .toList();
+
+            try {
+                DeleteObjectsResponse response = s3Client.deleteObjects(DeleteObjectsRequest.builder()
+                        .bucket(bucketName)
+                        .delete(Delete.builder().objects(objects).quiet(true).build())
+                        .build());
+
+                // Quiet mode only reports the keys that failed.
+                for (S3Error error : response.errors()) {
+                    logger.warn("Could not delete '{}' from S3: {} {}", error.key(), error.code(), error.message());
+                }
+                deleted += objects.size() - response.errors().size();
+            } catch (S3Exception e) {
+                throw new FileStorageException("Could not delete " + objects.size() + " objects from S3", e);
+            }
+        }
+        logger.info("Deleted {} objects from S3 bucket '{}'", deleted, bucketName);
+        return deleted;
+    }
 }
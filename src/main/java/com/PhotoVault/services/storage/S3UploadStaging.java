@@ -0,0 +1,127 @@
+package com.PhotoVault.services.storage;
+
+import com.PhotoVault.config.S3MultipartProperties;
+import com.PhotoVault.entities.UploadSession;
+import com.PhotoVault.exception.FileStorageException;
+import com.PhotoVault.exception.InvalidFileException;
+import com.PhotoVault.services.BlobStoreService;
+import com.PhotoVault.services.FileValidationService;
+import com.PhotoVault.services.InspectingInputStream;
+import com.PhotoVault.services.StorageService;
+import com.PhotoVault.services.UploadStaging;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Stages resumable uploads as S3 multipart uploads, one part per chunk-size bytes of the session,
+ * so nothing is buffered between requests. Chunks must therefore hold whole parts, except the one
+ * that ends the file, and offsets only advance by whole parts; S3 keeps the parts and assembles
+ * them on completion.
+ */
+@Service
+@ConditionalOnProperty(name = "storage.type", havingValue = "s3")
+public class S3UploadStaging implements UploadStaging {
+
+    private final StorageService storageService;
+    private final String bucketName;
+    private final S3MultipartUploader multipartUploader;
+    private final FileValidationService fileValidationService;
+
+    public S3UploadStaging(S3Client s3Client,
+                           StorageService storageService,
+                           FileValidationService fileValidationService,
+                           @Value("${AWS_S3_BUCKET_NAME}") String bucketName,
+                           S3MultipartProperties multipartProperties,
+                           @Qualifier("s3TransferExecutor") ExecutorService s3TransferExecutor) {
+        this.storageService = storageService;
+        this.fileValidationService = fileValidationService;
+        this.bucketName = bucketName;
+        this.multipartUploader = new S3MultipartUploader(s3Client, s3TransferExecutor, multipartProperties);
+    }
+
+    @Override
+    public long getChunkSize() {
+        return multipartUploader.getPartSize();
+    }
+
+    @Override
+    public void begin(UploadSession session) {
+        try {
+            session.setMultipartUploadId(
+                    multipartUploader.createUpload(bucketName, session.getStoredName(), session.getContentType()));
+        } catch (SdkException e) {
+            throw new FileStorageException("Could not start upload in S3: " + session.getStoredName(), e);
+        }
+    }
+
+    @Override
+    public long append(UploadSession session, InputStream inputStream, long length) {
+        int partSize = session.getChunkSize().intValue();
+        long offset = session.getUploadOffset();
+        long end = offset + length;
+        if (length % partSize != 0 && end != session.getSize()) {
+            throw new InvalidFileException("Chunks must be a multiple of " + partSize
+                    + " bytes, except the one that ends the file");
+        }
+        byte[] buffer = new byte[partSize];
+
+        while (offset < end) {
+            int wanted = (int) Math.min(partSize, end - offset);
+            int read = UploadStaging.readChunk(inputStream, buffer, wanted);
+            if (read < wanted) {
+                break;
+            }
+
+            try {
+                multipartUploader.uploadPart(bucketName, session.getStoredName(), session.getMultipartUploadId(),
+                        (int) (offset / partSize) + 1, buffer, read);
+            } catch (SdkException e) {
+                throw new FileStorageException("Could not upload part of file to S3: " + session.getStoredName(), e);
+            }
+            offset += read;
+        }
+        return offset;
+    }
+
+    // Hashing needs the whole file in order, which chunks sent over many requests cannot give
+    // without persisting digest state, so the assembled object is read back once instead.
+    @Override
+    public CompletedUpload complete(UploadSession session) throws IOException {
+        try {
+            multipartUploader.completeUpload(bucketName, session.getStoredName(), session.getMultipartUploadId());
+        } catch (SdkException e) {
+            throw new FileStorageException("Could not assemble upload in S3: " + session.getStoredName(), e);
+        }
+
+        InspectingInputStream inspected = null;
+        try (InputStream stored = storageService.load(session.getStoredName()).getInputStream()) {
+            inspected = fileValidationService.inspect(stored, session.getSize());
+            inspected.finish();
+        } catch (IOException e) {
+            if (inspected != null && inspected.getFailure() != null) {
+                storageService.delete(session.getStoredName());
+                throw inspected.getFailure();
+            }
+            throw e;
+        }
+
+        BlobStoreService.StagedBlob blob = new BlobStoreService.StagedBlob(
+                inspected.getSha256(), session.getStoredName(), inspected.getCount());
+        return new CompletedUpload(blob, inspected.getCrc32());
+    }
+
+    @Override
+    public void abort(UploadSession session) {
+        if (session.getMultipartUploadId() != null) {
+            multipartUploader.abortQuietly(bucketName, session.getStoredName(), session.getMultipartUploadId());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+-- V10__create_upload_sessions.sql
+-- Resumable uploads: large files are sent in chunks against a session and recorded once complete.
+
+-- =============================================
+-- TABLE: tb_upload_sessions (Upload Sessions Table)
+-- =============================================
+CREATE TABLE IF NOT EXISTS tb_upload_sessions (
+    id VARCHAR(36) PRIMARY KEY,
+    photographer_id BIGINT NOT NULL,
+    folder_id BIGINT NOT NULL,
+    file_name VARCHAR(500) NOT NULL,
+    stored_name VARCHAR(255) NOT NULL,
+    content_type VARCHAR(100) NOT NULL,
+    size BIGINT NOT NULL,
+    upload_offset BIGINT NOT NULL DEFAULT 0,
+    multipart_upload_id TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL,
+
+    CONSTRAINT fk_upload_session_photographer
+        FOREIGN KEY (photographer_id)
+        REFERENCES tb_photographers(id)
+        ON DELETE CASCADE,
+
+    CONSTRAINT fk_upload_session_folder
+        FOREIGN KEY (folder_id)
+        REFERENCES tb_folders(id)
+        ON DELETE CASCADE,
+
+    CONSTRAINT uk_upload_session_stored_name
+        UNIQUE (stored_name),
+
+    CONSTRAINT chk_upload_session_offset
+        CHECK (upload_offset >= 0 AND upload_offset <= size)
+);
+
+-- Expired sessions are picked up by the cleanup job
+CREATE INDEX IF NOT EXISTS idx_upload_sessions_expires_at ON tb_upload_sessions(expires_at);
+
+COMMENT ON TABLE tb_upload_sessions IS 'In-progress resumable uploads; rows are removed when the upload completes, is cancelled or expires.';
+COMMENT ON COLUMN tb_upload_sessions.upload_offset IS 'Bytes durably staged so far; the next chunk must start here.';
+COMMENT ON COLUMN tb_upload_sessions.multipart_upload_id IS 'S3 multipart upload holding the staged parts (NULL for local storage).';
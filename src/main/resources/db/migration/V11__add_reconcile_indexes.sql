@@ -0,0 +1,12 @@
+-- V11__add_reconcile_indexes.sql
+-- Lookups used by the storage reconciler to tell referenced objects from orphans.
+
+CREATE INDEX IF NOT EXISTS idx_file_derivatives_path ON tb_file_derivatives(path);
+
+-- Soft-deleted files past their retention are purged in id order
+CREATE INDEX IF NOT EXISTS idx_files_deleted_at_purge
+    ON tb_files(deleted_at)
+    WHERE deleted_at IS NOT NULL;
+
+COMMENT ON INDEX idx_file_derivatives_path IS 'Index to check whether a stored object is a known derivative.';
+COMMENT ON INDEX idx_files_deleted_at_purge IS 'Index to find soft-deleted files whose bytes can be released.';
@@ -0,0 +1,10 @@
+-- V12__add_file_listing_keyset_index.sql
+-- Folder listings page by seeking past the last (upload_date, id) seen instead of using OFFSET.
+-- Adding id to the index keeps files uploaded in the same instant in a stable order, so the
+-- seek predicate and the ORDER BY are both answered from the index.
+
+DROP INDEX IF EXISTS idx_files_folder_upload;
+
+CREATE INDEX IF NOT EXISTS idx_files_folder_upload ON tb_files(folder_id, upload_date DESC, id DESC);
+
+COMMENT ON INDEX idx_files_folder_upload IS 'Index to optimize keyset pagination of files within a folder, newest first.';
@@ -0,0 +1,25 @@
+-- V13__pooled_id_sequences.sql
+-- Hibernate now takes ids for these tables from their sequences in blocks of 50 (pooled optimizer)
+-- instead of reading them back from IDENTITY inserts, which lets it batch the INSERTs.
+-- The sequence increment must match allocationSize in the entity mappings.
+-- Column defaults still call nextval, so rows inserted directly in SQL take a whole block.
+
+ALTER SEQUENCE tb_files_id_seq INCREMENT BY 50;
+ALTER SEQUENCE tb_folders_id_seq INCREMENT BY 50;
+ALTER SEQUENCE tb_share_links_id_seq INCREMENT BY 50;
+ALTER SEQUENCE tb_blobs_id_seq INCREMENT BY 50;
+ALTER SEQUENCE tb_file_derivatives_id_seq INCREMENT BY 50;
+
+-- The next value now ends a block of 50, so each sequence must sit at least one block above the
+-- highest id already used; the extra block also keeps setval above its minimum of 1 on empty tables.
+SELECT setval('tb_files_id_seq', COALESCE((SELECT MAX(id) FROM tb_files), 0) + 50);
+SELECT setval('tb_folders_id_seq', COALESCE((SELECT MAX(id) FROM tb_folders), 0) + 50);
+SELECT setval('tb_share_links_id_seq', COALESCE((SELECT MAX(id) FROM tb_share_links), 0) + 50);
+SELECT setval('tb_blobs_id_seq', COALESCE((SELECT MAX(id) FROM tb_blobs), 0) + 50);
+SELECT setval('tb_file_derivatives_id_seq', COALESCE((SELECT MAX(id) FROM tb_file_derivatives), 0) + 50);
+
+COMMENT ON SEQUENCE tb_files_id_seq IS 'File ids, handed to Hibernate in blocks of 50 for batched inserts.';
+COMMENT ON SEQUENCE tb_folders_id_seq IS 'Folder ids, handed to Hibernate in blocks of 50 for batched inserts.';
+COMMENT ON SEQUENCE tb_share_links_id_seq IS 'Share link ids, handed to Hibernate in blocks of 50 for batched inserts.';
+COMMENT ON SEQUENCE tb_blobs_id_seq IS 'Blob ids, handed to Hibernate in blocks of 50 for batched inserts.';
+COMMENT ON SEQUENCE tb_file_derivatives_id_seq IS 'Derivative ids, handed to Hibernate in blocks of 50 for batched inserts.';
@@ -0,0 +1,133 @@
+-- V14__add_folder_stats.sql
+-- Keeps each folder's live file count, total size and latest upload on tb_folders, so folder
+-- overviews read three columns instead of aggregating tb_files on every request.
+
+ALTER TABLE tb_folders
+    ADD COLUMN IF NOT EXISTS file_count BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS total_bytes BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS last_upload_at TIMESTAMP NULL;
+
+COMMENT ON COLUMN tb_folders.file_count IS 'Number of files in the folder that are not soft deleted. Maintained by triggers on tb_files.';
+COMMENT ON COLUMN tb_folders.total_bytes IS 'Sum of the sizes of the files counted in file_count. Maintained by triggers on tb_files.';
+COMMENT ON COLUMN tb_folders.last_upload_at IS 'Latest upload_date among the files counted in file_count; NULL when the folder is empty.';
+
+-- =============================================
+-- BACKFILL
+-- =============================================
+UPDATE tb_folders f
+SET file_count = s.file_count,
+    total_bytes = s.total_bytes,
+    last_upload_at = s.last_upload_at
+FROM (
+    SELECT folder_id, COUNT(*) AS file_count, SUM(size) AS total_bytes, MAX(upload_date) AS last_upload_at
+    FROM tb_files
+    WHERE deleted_at IS NULL
+    GROUP BY folder_id
+) s
+WHERE f.id = s.folder_id;
+
+-- =============================================
+-- FUNCTIONS: Apply file changes to folder stats
+-- =============================================
+-- Statement-level, so a batch upload updates its folder once per INSERT statement rather than
+-- once per row. Changes commit or roll back together with the file rows that caused them.
+
+CREATE OR REPLACE FUNCTION folder_stats_after_insert()
+RETURNS TRIGGER AS $$
+BEGIN
+    UPDATE tb_folders f
+    SET file_count = f.file_count + d.file_count,
+        total_bytes = f.total_bytes + d.total_bytes,
+        last_upload_at = GREATEST(f.last_upload_at, d.last_upload_at)
+    FROM (
+        SELECT folder_id, COUNT(*) AS file_count, SUM(size) AS total_bytes, MAX(upload_date) AS last_upload_at
+        FROM new_files
+        WHERE deleted_at IS NULL
+        GROUP BY folder_id
+    ) d
+    WHERE f.id = d.folder_id;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION folder_stats_after_delete()
+RETURNS TRIGGER AS $$
+BEGIN
+    UPDATE tb_folders f
+    SET file_count = f.file_count - d.file_count,
+        total_bytes = f.total_bytes - d.total_bytes,
+        -- Only a removed latest file moves last_upload_at; idx_files_folder_upload finds the next one.
+        last_upload_at = CASE
+            WHEN d.last_upload_at < f.last_upload_at THEN f.last_upload_at
+            ELSE (SELECT MAX(upload_date) FROM tb_files WHERE folder_id = f.id AND deleted_at IS NULL)
+        END
+    FROM (
+        SELECT folder_id, COUNT(*) AS file_count, SUM(size) AS total_bytes, MAX(upload_date) AS last_upload_at
+        FROM old_files
+        WHERE deleted_at IS NULL
+        GROUP BY folder_id
+    ) d
+    WHERE f.id = d.folder_id;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Covers soft delete, restore, moves between folders and size changes. Updates that touch none
+-- of those columns, such as path or derivative status changes, leave the folders alone.
+CREATE OR REPLACE FUNCTION folder_stats_after_update()
+RETURNS TRIGGER AS $$
+BEGIN
+    WITH changed AS (
+        SELECT o.folder_id AS old_folder_id, o.size AS old_size, o.deleted_at IS NULL AS was_live,
+               n.folder_id AS new_folder_id, n.size AS new_size, n.deleted_at IS NULL AS is_live
+        FROM old_files o
+        JOIN new_files n ON n.id = o.id
+        WHERE (o.folder_id, o.size, o.upload_date, o.deleted_at IS NULL)
+              IS DISTINCT FROM (n.folder_id, n.size, n.upload_date, n.deleted_at IS NULL)
+    ),
+    delta AS (
+        SELECT folder_id, SUM(file_count) AS file_count, SUM(total_bytes) AS total_bytes
+        FROM (
+            SELECT new_folder_id AS folder_id, 1 AS file_count, new_size AS total_bytes FROM changed WHERE is_live
+            UNION ALL
+            SELECT old_folder_id, -1, -old_size FROM changed WHERE was_live
+        ) c
+        GROUP BY folder_id
+    )
+    UPDATE tb_folders f
+    SET file_count = f.file_count + d.file_count,
+        total_bytes = f.total_bytes + d.total_bytes,
+        last_upload_at = (SELECT MAX(upload_date) FROM tb_files WHERE folder_id = f.id AND deleted_at IS NULL)
+    FROM delta d
+    WHERE f.id = d.folder_id;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- =============================================
+-- TRIGGERS: Folder stats
+-- =============================================
+CREATE TRIGGER trigger_files_folder_stats_insert
+    AFTER INSERT ON tb_files
+    REFERENCING NEW TABLE AS new_files
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION folder_stats_after_insert();
+
+CREATE TRIGGER trigger_files_folder_stats_delete
+    AFTER DELETE ON tb_files
+    REFERENCING OLD TABLE AS old_files
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION folder_stats_after_delete();
+
+CREATE TRIGGER trigger_files_folder_stats_update
+    AFTER UPDATE ON tb_files
+    REFERENCING OLD TABLE AS old_files NEW TABLE AS new_files
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION folder_stats_after_update();
+
+COMMENT ON TRIGGER trigger_files_folder_stats_insert ON tb_files IS 'Adds new live files to their folder''s file_count, total_bytes and last_upload_at.';
+COMMENT ON TRIGGER trigger_files_folder_stats_delete ON tb_files IS 'Removes deleted live files from their folder''s stats.';
+COMMENT ON TRIGGER trigger_files_folder_stats_update ON tb_files IS 'Moves files between folder stats on soft delete, restore, folder change and size change.';
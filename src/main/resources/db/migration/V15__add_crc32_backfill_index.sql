@@ -0,0 +1,9 @@
+-- V15__add_crc32_backfill_index.sql
+-- Archive downloads no longer compute missing CRC-32s themselves; a background job fills them in.
+
+CREATE INDEX IF NOT EXISTS idx_files_path_missing_crc32
+    ON tb_files(path)
+    WHERE crc32 IS NULL AND deleted_at IS NULL;
+
+COMMENT ON INDEX idx_files_path_missing_crc32 IS 'Index to walk the stored objects whose CRC-32 still has to be computed.';
+COMMENT ON COLUMN tb_files.crc32 IS 'Unsigned CRC-32 of the file content, as used in ZIP headers. NULL until computed: direct uploads and older files are filled in by a background job and archived with a data descriptor until then.';
@@ -0,0 +1,8 @@
+-- V16__add_upload_session_chunk_size.sql
+-- Records the chunk size each resumable upload was started with, so changing the configured
+-- S3 part size does not move the part boundaries of sessions already in progress.
+
+ALTER TABLE tb_upload_sessions
+    ADD COLUMN IF NOT EXISTS chunk_size BIGINT NULL;
+
+COMMENT ON COLUMN tb_upload_sessions.chunk_size IS 'Chunk size given to the client; with S3 staging, the multipart part size. NULL for sessions started before it was recorded, which use the configured size.';
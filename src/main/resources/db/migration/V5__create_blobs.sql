@@ -0,0 +1,76 @@
+-- V5__create_blobs.sql
+-- Content-addressed blob store: identical uploads share one stored object.
+
+-- =============================================
+-- TABLE: tb_blobs (Stored objects keyed by content hash)
+-- =============================================
+CREATE TABLE IF NOT EXISTS tb_blobs (
+    id BIGSERIAL PRIMARY KEY,
+    sha256 CHAR(64) NOT NULL UNIQUE,
+    path TEXT NOT NULL,
+    size BIGINT NOT NULL,
+    ref_count INTEGER NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    CONSTRAINT chk_blob_ref_count_non_negative
+        CHECK (ref_count >= 0)
+);
+
+COMMENT ON TABLE tb_blobs IS 'Stored objects shared by every file with the same content.';
+COMMENT ON COLUMN tb_blobs.sha256 IS 'Hex SHA-256 of the content, computed while the upload streams.';
+COMMENT ON COLUMN tb_blobs.path IS 'Storage path (local path or S3 key) of the single stored copy.';
+COMMENT ON COLUMN tb_blobs.ref_count IS 'Number of tb_files rows referencing the blob, maintained by trigger.';
+
+-- Unreferenced blobs are picked up by the sweeper
+CREATE INDEX IF NOT EXISTS idx_blobs_unreferenced ON tb_blobs(id) WHERE ref_count = 0;
+
+-- =============================================
+-- ALTER: tb_files references its blob
+-- =============================================
+ALTER TABLE tb_files
+    ADD COLUMN IF NOT EXISTS blob_id BIGINT NULL;
+
+ALTER TABLE tb_files
+    ADD CONSTRAINT fk_file_blob
+        FOREIGN KEY (blob_id)
+        REFERENCES tb_blobs(id);
+
+CREATE INDEX IF NOT EXISTS idx_files_blob_id ON tb_files(blob_id);
+
+COMMENT ON COLUMN tb_files.blob_id IS 'Shared blob holding the bytes. NULL for files uploaded before deduplication.';
+
+-- =============================================
+-- FUNCTION: Maintain tb_blobs.ref_count
+-- =============================================
+-- Counting in a trigger keeps the count right for every delete path,
+-- including folder and photographer cascades that never reach FileService.
+CREATE OR REPLACE FUNCTION update_blob_ref_count()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') AND OLD.blob_id IS NOT NULL THEN
+        UPDATE tb_blobs SET ref_count = ref_count - 1 WHERE id = OLD.blob_id;
+    END IF;
+
+    IF TG_OP IN ('INSERT', 'UPDATE') AND NEW.blob_id IS NOT NULL THEN
+        UPDATE tb_blobs SET ref_count = ref_count + 1 WHERE id = NEW.blob_id;
+    END IF;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- =============================================
+-- TRIGGER: Blob reference counting
+-- =============================================
+CREATE TRIGGER trigger_files_blob_insert_delete
+    AFTER INSERT OR DELETE ON tb_files
+    FOR EACH ROW
+    EXECUTE FUNCTION update_blob_ref_count();
+
+CREATE TRIGGER trigger_files_blob_update
+    AFTER UPDATE OF blob_id ON tb_files
+    FOR EACH ROW
+    WHEN (OLD.blob_id IS DISTINCT FROM NEW.blob_id)
+    EXECUTE FUNCTION update_blob_ref_count();
+
+COMMENT ON TRIGGER trigger_files_blob_insert_delete ON tb_files IS 'Keeps tb_blobs.ref_count in step with the files that reference each blob.';
@@ -0,0 +1,8 @@
+-- V6__add_path_indexes.sql
+-- Lookups by storage path, used when files are moved to a new storage layout.
+
+CREATE INDEX IF NOT EXISTS idx_files_path ON tb_files(path);
+
+CREATE INDEX IF NOT EXISTS idx_blobs_path ON tb_blobs(path);
+
+COMMENT ON INDEX idx_files_path IS 'Index to rewrite file paths in place when stored objects are relocated.';
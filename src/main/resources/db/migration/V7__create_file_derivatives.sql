@@ -0,0 +1,42 @@
+-- V7__create_file_derivatives.sql
+-- Resized renditions (thumbnails, previews) generated in the background after upload.
+
+-- =============================================
+-- TABLE: tb_file_derivatives (Derivatives Table)
+-- =============================================
+CREATE TABLE IF NOT EXISTS tb_file_derivatives (
+    id BIGSERIAL PRIMARY KEY,
+    file_id BIGINT NOT NULL,
+    size INTEGER NOT NULL,
+    path TEXT NOT NULL,
+    width INTEGER NOT NULL,
+    height INTEGER NOT NULL,
+    byte_size BIGINT NOT NULL,
+    content_type VARCHAR(100) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    CONSTRAINT fk_derivative_file
+        FOREIGN KEY (file_id)
+        REFERENCES tb_files(id)
+        ON DELETE CASCADE,
+
+    CONSTRAINT uk_derivative_file_size
+        UNIQUE (file_id, size)
+);
+
+COMMENT ON TABLE tb_file_derivatives IS 'Resized copies of uploaded photos, used for gallery grids and previews.';
+COMMENT ON COLUMN tb_file_derivatives.size IS 'Requested bounding box in pixels (longest edge).';
+COMMENT ON COLUMN tb_file_derivatives.path IS 'Storage path (local path or S3 key) of the derivative.';
+
+-- =============================================
+-- ALTER: tb_files derivative generation state
+-- =============================================
+ALTER TABLE tb_files
+    ADD COLUMN IF NOT EXISTS derivative_status VARCHAR(20) NOT NULL DEFAULT 'PENDING';
+
+-- Pending files are picked up by the backfill job
+CREATE INDEX IF NOT EXISTS idx_files_derivative_pending
+    ON tb_files(id)
+    WHERE derivative_status = 'PENDING';
+
+COMMENT ON COLUMN tb_files.derivative_status IS 'PENDING, READY, or FAILED (original could not be decoded).';
@@ -0,0 +1,13 @@
+-- V8__add_file_content_hash.sql
+-- Content hash on the file row, served as a strong ETag without joining tb_blobs.
+
+ALTER TABLE tb_files
+    ADD COLUMN IF NOT EXISTS content_hash CHAR(64) NULL;
+
+UPDATE tb_files f
+SET content_hash = b.sha256
+FROM tb_blobs b
+WHERE f.blob_id = b.id
+AND f.content_hash IS NULL;
+
+COMMENT ON COLUMN tb_files.content_hash IS 'Hex SHA-256 of the file content, recorded at upload. NULL for files uploaded before hashing.';
@@ -0,0 +1,7 @@
+-- V9__add_file_crc32.sql
+-- CRC-32 of the file content, needed up front to stream folder ZIP archives.
+
+ALTER TABLE tb_files
+    ADD COLUMN IF NOT EXISTS crc32 BIGINT NULL;
+
+COMMENT ON COLUMN tb_files.crc32 IS 'Unsigned CRC-32 of the file content, as used in ZIP headers. NULL until computed, filled in on first archive download for older files.';
@@ -0,0 +1,108 @@
+package com.PhotoVault.controller;
+
+import com.PhotoVault.config.DirectUploadProperties;
+import com.PhotoVault.config.FileStorageProperties;
+import com.PhotoVault.exception.handler.GlobalExceptionHandler;
+import com.PhotoVault.services.BlobStoreService;
+import com.PhotoVault.services.DirectUploadTokenService;
+import com.PhotoVault.services.FileService;
+import com.PhotoVault.services.FileValidationService;
+import com.PhotoVault.services.storage.LocalStorageService;
+import com.PhotoVault.services.storage.LocalUploadSigner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Requests to the streaming upload endpoint that must be refused from their headers alone,
+ * before the caller is looked up or a byte is written. Accepted uploads are covered against
+ * Postgres in FileServiceUploadTest.
+ */
+public class FileControllerStreamUploadTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        DirectUploadProperties directUploadProperties = new DirectUploadProperties();
+        directUploadProperties.setSecret("test-secret-that-is-long-enough-for-hmac-sha256");
+
+        FileStorageProperties fileStorageProperties = new FileStorageProperties();
+        fileStorageProperties.setDir(uploadDir.toString());
+        fileStorageProperties.setMaxSize(1024L);
+        fileStorageProperties.setStreamMaxSize(1024L);
+        fileStorageProperties.setAllowedExtensions("jpg,jpeg,png,webp");
+
+        LocalStorageService storageService = new LocalStorageService(uploadDir.toString(), new LocalUploadSigner(directUploadProperties));
+        // Nothing here reaches the database, so the repositories and transactions are left out.
+        FileService fileService = new FileService(null, null, null, fileStorageProperties, storageService,
+                new FileValidationService(fileStorageProperties), new BlobStoreService(null, null, storageService),
+                null, event -> {
+                }, new DirectUploadTokenService(directUploadProperties), directUploadProperties, null, null);
+
+        mockMvc = MockMvcBuilders.standaloneSetup(new FileController(fileService, null, null, null, null, null))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    private long storedFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(uploadDir)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject a streaming upload without a Content-Length")
+    void shouldRequireContentLength() throws Exception {
+        mockMvc.perform(post("/api/folders/1/files/stream")
+                        .param("fileName", "photo.jpg")
+                        .contentType(MediaType.IMAGE_JPEG))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Content-Length header is required for streaming uploads"));
+
+        assertThat(storedFiles()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should reject a streaming upload whose Content-Length is over the limit")
+    void shouldRejectOversizedContentLength() throws Exception {
+        mockMvc.perform(post("/api/folders/1/files/stream")
+                        .param("fileName", "photo.jpg")
+                        .contentType(MediaType.IMAGE_JPEG)
+                        .content(new byte[1025]))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(startsWith("File size exceeds maximum")));
+
+        assertThat(storedFiles()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should reject a streaming upload with a file type that is not allowed")
+    void shouldRejectDisallowedExtension() throws Exception {
+        mockMvc.perform(post("/api/folders/1/files/stream")
+                        .param("fileName", "notes.txt")
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .content(new byte[16]))
+                .andExpect(status().isBadRequest());
+
+        assertThat(storedFiles()).isZero();
+    }
+}
@@ -0,0 +1,167 @@
+package com.PhotoVault.controller;
+
+import com.PhotoVault.config.DirectUploadProperties;
+import com.PhotoVault.exception.handler.GlobalExceptionHandler;
+import com.PhotoVault.services.PresignedUpload;
+import com.PhotoVault.services.storage.LocalStorageService;
+import com.PhotoVault.services.storage.LocalUploadSigner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Sends bodies to presigned local upload URLs. The route is open to anonymous callers, so the
+ * signature and the size and hash checks are all that stand between it and the disk.
+ */
+public class LocalUploadControllerTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private LocalStorageService storageService;
+    private MockMvc mockMvc;
+    private byte[] data;
+
+    @BeforeEach
+    void setUp() {
+        DirectUploadProperties properties = new DirectUploadProperties();
+        properties.setSecret("test-secret-that-is-long-enough-for-hmac-sha256");
+        LocalUploadSigner signer = new LocalUploadSigner(properties);
+        storageService = new LocalStorageService(uploadDir.toString(), signer);
+
+        mockMvc = MockMvcBuilders.standaloneSetup(new LocalUploadController(storageService, signer))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+
+        data = new byte[4096];
+        new Random(42).nextBytes(data);
+    }
+
+    private static String sha256(byte[] bytes) throws NoSuchAlgorithmException {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+
+    private String presign(String fileName, long size, String sha256, Duration expiration) {
+        PresignedUpload upload = storageService.generatePresignedUpload(fileName, size, "image/jpeg", sha256, expiration);
+        return upload.url();
+    }
+
+    private ResultActions send(String url, byte[] body) throws Exception {
+        return mockMvc.perform(put(UriComponentsBuilder.fromUriString(url).build(true).toUri()).content(body));
+    }
+
+    private long storedFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(uploadDir)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    @Test
+    @DisplayName("Should store a body that matches the signed size and SHA-256")
+    void shouldStoreMatchingBody() throws Exception {
+        send(presign("photo.jpg", data.length, sha256(data), Duration.ofMinutes(5)), data)
+                .andExpect(status().isOk());
+
+        assertThat(Files.readAllBytes(storageService.shardedPath("photo.jpg"))).isEqualTo(data);
+        assertThat(storedFiles()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should refuse a URL whose signed parameters were edited")
+    void shouldRejectTamperedUrl() throws Exception {
+        String url = presign("photo.jpg", data.length, sha256(data), Duration.ofMinutes(5));
+
+        send(url.replace("size=" + data.length, "size=" + (data.length * 2)), data)
+                .andExpect(status().isForbidden());
+        send(url.replace("/photo.jpg?", "/other.jpg?"), data)
+                .andExpect(status().isForbidden());
+
+        assertThat(storedFiles()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should refuse a URL past its expiry")
+    void shouldRejectExpiredUrl() throws Exception {
+        send(presign("photo.jpg", data.length, sha256(data), Duration.ofMinutes(-1)), data)
+                .andExpect(status().isForbidden());
+
+        assertThat(storedFiles()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should reject a body of another size or hash and leave nothing behind")
+    void shouldRejectMismatchedBody() throws Exception {
+        String url = presign("photo.jpg", data.length, sha256(data), Duration.ofMinutes(5));
+        byte[] altered = data.clone();
+        altered[100] ^= 1;
+
+        send(url, Arrays.copyOf(data, data.length - 1)).andExpect(status().isBadRequest());
+        send(url, Arrays.copyOf(data, data.length + 1)).andExpect(status().isBadRequest());
+        send(url, altered).andExpect(status().isBadRequest());
+
+        assertThat(storedFiles()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should stop reading an oversized body one byte past the signed size")
+    void shouldStopReadingOversizedBody() throws Exception {
+        CountingStream body = new CountingStream(data.length * 100L);
+
+        assertThatThrownBy(() -> storageService.storeVerified(body, "photo.jpg", data.length, sha256(data)))
+                .hasMessageContaining("larger");
+
+        assertThat(body.read).isEqualTo(data.length + 1);
+        assertThat(storedFiles()).isZero();
+    }
+
+    // An endless-looking client that records how much of its body was consumed.
+    private static final class CountingStream extends InputStream {
+
+        private final InputStream source;
+        private long read;
+
+        CountingStream(long size) {
+            this.source = new ByteArrayInputStream(new byte[(int) size]);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = source.read();
+            if (b >= 0) {
+                read++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = source.read(buffer, offset, length);
+            if (n > 0) {
+                read += n;
+            }
+            return n;
+        }
+    }
+}
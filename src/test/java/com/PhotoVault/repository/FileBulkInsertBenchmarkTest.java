@@ -0,0 +1,151 @@
+package com.PhotoVault.repository;
+
+import com.PhotoVault.entities.File;
+import com.PhotoVault.entities.Folder;
+import com.PhotoVault.entities.Photographer;
+import com.PhotoVault.entities.UserRole;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Inserts the metadata of a 500-photo shoot against Postgres, once with JDBC batching turned off
+ * for the session, which costs one round trip per row as IDENTITY ids did, and once through
+ * {@link FileBulkInsert} with batches rewritten into multi-row INSERTs.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.show-sql=false",
+        "spring.flyway.enabled=true",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.order_inserts=true",
+        "spring.datasource.hikari.data-source-properties.reWriteBatchedInserts=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class FileBulkInsertBenchmarkTest {
+
+    private static final int FILES = 500;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 10;
+
+    @Container
+    @ServiceConnection
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    @Autowired
+    private PhotographerRepository photographerRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private TransactionTemplate transactionTemplate;
+    private Folder folder;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        Photographer photographer = new Photographer();
+        photographer.setName("benchmark");
+        photographer.setEmail(UUID.randomUUID() + "@test.com");
+        photographer.setPassword("123456");
+        photographer.setRole(UserRole.PHOTOGRAPHER);
+
+        folder = new Folder();
+        folder.setName("shoot");
+        folder.setOwner(photographerRepository.save(photographer));
+        folder.setCreatedAt(LocalDateTime.now());
+        folder = folderRepository.save(folder);
+    }
+
+    private List<File> shoot() {
+        LocalDateTime now = LocalDateTime.now();
+        List<File> files = new ArrayList<>(FILES);
+        for (int i = 0; i < FILES; i++) {
+            String storedName = UUID.randomUUID() + ".jpg";
+            File file = new File();
+            file.setName("IMG_" + i + ".jpg");
+            file.setStoredName(storedName);
+            file.setPath("/uploads/" + storedName);
+            file.setSize(3_000_000L + i);
+            file.setContentType("image/jpeg");
+            file.setUploadDate(now);
+            file.setFolder(folder);
+            files.add(file);
+        }
+        return files;
+    }
+
+    private double rowsPerSecond(int jdbcBatchSize) {
+        Runnable insert = () -> transactionTemplate.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+            fileRepository.insertAll(shoot());
+        });
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            insert.run();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            insert.run();
+        }
+        long nanos = System.nanoTime() - start;
+
+        return FILES * MEASURED_ROUNDS / (nanos / 1e9);
+    }
+
+    @Test
+    @DisplayName("Should compare row-by-row and batched inserts of file metadata")
+    void compareRowByRowAndBatchedInserts(TestReporter reporter) {
+        long before = fileRepository.count();
+
+        double rowByRow = rowsPerSecond(1);
+        double batched = rowsPerSecond(50);
+
+        reporter.publishEntry("row by row", String.format("%.0f rows/s", rowByRow));
+        reporter.publishEntry("batched", String.format("%.0f rows/s (%.1fx)", batched, batched / rowByRow));
+
+        assertThat(fileRepository.count() - before).isEqualTo(2L * FILES * (WARMUP_ROUNDS + MEASURED_ROUNDS));
+        assertThat(batched).isPositive();
+    }
+}
@@ -0,0 +1,143 @@
+package com.PhotoVault.repository;
+
+import com.PhotoVault.entities.File;
+import com.PhotoVault.entities.Folder;
+import com.PhotoVault.entities.Photographer;
+import com.PhotoVault.entities.UserRole;
+import com.PhotoVault.repository.projection.FileListItem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Compares listing a large folder through managed entities, which also loads each file's folder
+ * and the folder's owner, with the constructor projection the listing endpoints now use.
+ * Reports wall time and heap allocated per full walk of the folder.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@ActiveProfiles("test")
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+public class FileListingBenchmarkTest {
+
+    private static final int FILES = 5000;
+    private static final int PAGE_SIZE = 50;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 10;
+
+    @Autowired
+    private PhotographerRepository photographerRepository;
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Long folderId;
+
+    private record Result(double millisPerWalk, double kilobytesPerWalk) {
+    }
+
+    @BeforeEach
+    void setUp() {
+        Photographer photographer = new Photographer();
+        photographer.setName("benchmark");
+        photographer.setEmail("benchmark@test.com");
+        photographer.setPassword("$2a$10$abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ012");
+        photographer.setRole(UserRole.PHOTOGRAPHER);
+
+        Folder folder = new Folder();
+        folder.setName("benchmark");
+        folder.setOwner(photographerRepository.save(photographer));
+        folder.setCreatedAt(LocalDateTime.now());
+        folderId = folderRepository.save(folder).getId();
+
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<File> files = new ArrayList<>(FILES);
+        for (int i = 0; i < FILES; i++) {
+            File file = new File();
+            file.setName("IMG_" + i + ".jpg");
+            file.setStoredName("stored-" + i + ".jpg");
+            file.setPath("/uploads/ab/cd/stored-" + i + ".jpg");
+            file.setSize(3_000_000L + i);
+            file.setContentType("image/jpeg");
+            file.setUploadDate(base.plusSeconds(i));
+            file.setFolder(folder);
+            files.add(file);
+        }
+        fileRepository.saveAll(files);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    // Walks every page, as a client scrolling the whole folder would.
+    private <T> long walk(Function<Pageable, Page<T>> listing) {
+        long rows = 0;
+        Page<T> page = listing.apply(PageRequest.of(0, PAGE_SIZE, Sort.by("uploadDate")));
+        while (true) {
+            rows += page.getNumberOfElements();
+            entityManager.clear();
+            if (!page.hasNext()) {
+                return rows;
+            }
+            page = listing.apply(page.nextPageable());
+        }
+    }
+
+    private <T> Result measure(Function<Pageable, Page<T>> listing) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            walk(listing);
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedStart = threads.getCurrentThreadAllocatedBytes();
+        long wallStart = System.nanoTime();
+
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            assertThat(walk(listing)).isEqualTo(FILES);
+        }
+
+        long wallNanos = System.nanoTime() - wallStart;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedStart;
+        return new Result(wallNanos / 1e6 / MEASURED_ROUNDS, allocated / 1024.0 / MEASURED_ROUNDS);
+    }
+
+    @Test
+    @DisplayName("Should compare time and allocation of entity and projection folder listings")
+    void compareEntityAndProjectionListing(TestReporter reporter) {
+        Result entities = measure(pageable -> fileRepository.findByFolderId(folderId, pageable)
+                .map(file -> new FileListItem(file.getId(), file.getName(), file.getSize(), file.getContentType(),
+                        file.getUploadDate(), file.getFolder().getId(), file.getFolder().getName())));
+        Result projection = measure(pageable -> fileRepository.findListItemsByFolderId(folderId, pageable));
+
+        reporter.publishEntry("entity listing", String.format("%.1f ms/walk, %.1f KB allocated/walk",
+                entities.millisPerWalk(), entities.kilobytesPerWalk()));
+        reporter.publishEntry("projection listing", String.format("%.1f ms/walk, %.1f KB allocated/walk",
+                projection.millisPerWalk(), projection.kilobytesPerWalk()));
+
+        assertThat(entities.millisPerWalk()).isPositive();
+        assertThat(projection.millisPerWalk()).isPositive();
+    }
+}
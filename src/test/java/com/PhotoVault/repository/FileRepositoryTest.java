@@ -0,0 +1,93 @@
+package com.PhotoVault.repository;
+
+import com.PhotoVault.entities.File;
+import com.PhotoVault.entities.Folder;
+import com.PhotoVault.entities.Photographer;
+import com.PhotoVault.entities.UserRole;
+import com.PhotoVault.exception.InvalidTokenException;
+import com.PhotoVault.repository.projection.FileListItem;
+import com.PhotoVault.services.FileCursor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@ActiveProfiles("test")
+@DataJpaTest
+public class FileRepositoryTest {
+
+    @Autowired
+    private PhotographerRepository photographerRepository;
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    private Folder createFolder(){
+        Photographer photographer = new Photographer();
+        photographer.setName("vinicius");
+        photographer.setEmail("vinicius@test.com");
+        photographer.setPassword("123456");
+        photographer.setRole(UserRole.PHOTOGRAPHER);
+
+        Folder folder = new Folder();
+        folder.setName("wedding");
+        folder.setOwner(photographerRepository.save(photographer));
+        folder.setCreatedAt(LocalDateTime.now());
+        return folderRepository.save(folder);
+    }
+
+    private File createFile(Folder folder, String name, LocalDateTime uploadDate){
+        File file = new File();
+        file.setName(name);
+        file.setStoredName(name + "-stored");
+        file.setPath("/uploads/" + name);
+        file.setSize(100L);
+        file.setContentType("image/jpeg");
+        file.setUploadDate(uploadDate);
+        file.setFolder(folder);
+        return fileRepository.save(file);
+    }
+
+    @Test
+    @DisplayName("Should page through a folder by cursor, newest first, without skipping files uploaded together")
+    void shouldSeekPastCursor(){
+        Folder folder = createFolder();
+        LocalDateTime base = LocalDateTime.of(2024, 5, 1, 12, 0);
+        // Five files share an upload date, so pages must break ties by id.
+        for (int i = 0; i < 12; i++) {
+            createFile(folder, "photo" + i + ".jpg", base.plusMinutes(i < 5 ? 0 : i));
+        }
+
+        List<FileListItem> seen = new ArrayList<>();
+        List<FileListItem> page = fileRepository.findFirstByFolderId(folder.getId(), PageRequest.ofSize(5));
+        while (!page.isEmpty()) {
+            seen.addAll(page);
+            FileCursor cursor = FileCursor.decode(FileCursor.after(page.getLast()).encode());
+            page = fileRepository.findByFolderIdAfter(folder.getId(), cursor.uploadDate(), cursor.id(), PageRequest.ofSize(5));
+        }
+
+        assertThat(seen).hasSize(12).doesNotHaveDuplicates();
+        assertThat(seen).isSortedAccordingTo((a, b) -> b.uploadDate().equals(a.uploadDate())
+                ? b.id().compareTo(a.id())
+                : b.uploadDate().compareTo(a.uploadDate()));
+        assertThat(seen.getFirst().folderName()).isEqualTo("wedding");
+    }
+
+    @Test
+    @DisplayName("Should reject a cursor that was not issued by the listing")
+    void shouldRejectTamperedCursor(){
+        assertThatThrownBy(() -> FileCursor.decode("not-a-cursor"))
+                .isInstanceOf(InvalidTokenException.class);
+    }
+}
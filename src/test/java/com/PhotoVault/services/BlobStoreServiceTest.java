@@ -0,0 +1,257 @@
+package com.PhotoVault.services;
+
+import com.PhotoVault.config.DirectUploadProperties;
+import com.PhotoVault.entities.Blob;
+import com.PhotoVault.entities.File;
+import com.PhotoVault.entities.Folder;
+import com.PhotoVault.entities.Photographer;
+import com.PhotoVault.entities.UserRole;
+import com.PhotoVault.repository.BlobRepository;
+import com.PhotoVault.repository.FileRepository;
+import com.PhotoVault.repository.FolderRepository;
+import com.PhotoVault.repository.PhotographerRepository;
+import com.PhotoVault.services.storage.LocalStorageService;
+import com.PhotoVault.services.storage.LocalUploadSigner;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Reference counts come from the triggers on tb_files, so this runs against Postgres. Each step
+ * commits on its own, as uploads and deletes do, so the after-commit and after-rollback
+ * deletes of stored objects actually fire.
+ */
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.flyway.enabled=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class BlobStoreServiceTest {
+
+    @Container
+    @ServiceConnection
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @TestConfiguration
+    @Import(BlobStoreService.class)
+    static class Services {
+
+        @Bean
+        LocalStorageService storageService() throws IOException {
+            DirectUploadProperties directUploadProperties = new DirectUploadProperties();
+            directUploadProperties.setSecret("test-secret-that-is-long-enough-for-hmac-sha256");
+            return new LocalStorageService(Files.createTempDirectory("blobs").toString(),
+                    new LocalUploadSigner(directUploadProperties));
+        }
+    }
+
+    @Autowired
+    private BlobStoreService blobStoreService;
+
+    @Autowired
+    private LocalStorageService storageService;
+
+    @Autowired
+    private BlobRepository blobRepository;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    @Autowired
+    private PhotographerRepository photographerRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private Folder folder;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        Photographer photographer = new Photographer();
+        photographer.setName("vinicius");
+        photographer.setEmail("blobs@test.com");
+        photographer.setPassword("123456");
+        photographer.setRole(UserRole.PHOTOGRAPHER);
+
+        folder = new Folder();
+        folder.setName("wedding");
+        folder.setOwner(photographerRepository.save(photographer));
+        folder.setCreatedAt(LocalDateTime.now());
+        folder = folderRepository.save(folder);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        fileRepository.deleteAll();
+        blobRepository.deleteAll();
+        folderRepository.deleteAll();
+        photographerRepository.deleteAll();
+        try (Stream<StoredObject> objects = storageService.listObjects()) {
+            storageService.deleteAll(objects.map(StoredObject::path).toList());
+        }
+    }
+
+    private BlobStoreService.StagedBlob stage(String storedName, byte[] data) throws IOException {
+        return blobStoreService.stage(new InspectingInputStream(new ByteArrayInputStream(data), data.length, header -> {
+        }), storedName, "image/jpeg");
+    }
+
+    // Registers the staged upload and inserts the file referencing it in one transaction, as FileService does.
+    private File upload(String storedName, byte[] data) throws IOException {
+        BlobStoreService.StagedBlob staged = stage(storedName, data);
+        return transactionTemplate.execute(status -> {
+            Blob blob = blobStoreService.register(staged.sha256(), staged.path(), staged.size());
+            File file = new File();
+            file.setName(storedName);
+            file.setStoredName(storedName);
+            file.setPath(blob.getPath());
+            file.setBlob(blob);
+            file.setContentHash(blob.getSha256());
+            file.setSize(staged.size());
+            file.setContentType("image/jpeg");
+            file.setFolder(folder);
+            return fileRepository.save(file);
+        });
+    }
+
+    // Deletes the file row and releases its blob, as FileService.deleteFile does.
+    private void delete(File file) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Blob blob = fileRepository.findById(file.getId()).orElseThrow().getBlob();
+            fileRepository.deleteById(file.getId());
+            fileRepository.flush();
+            blobStoreService.release(blob);
+        });
+    }
+
+    private Blob reload(Long blobId) {
+        return blobRepository.findById(blobId).orElseThrow();
+    }
+
+    private static boolean exists(String path) {
+        return Files.exists(Paths.get(path));
+    }
+
+    private long storedObjects() throws IOException {
+        try (Stream<StoredObject> objects = storageService.listObjects()) {
+            return objects.count();
+        }
+    }
+
+    @Test
+    @DisplayName("Should point identical uploads at one blob with a reference count of two and drop the second copy")
+    void shouldShareBlobForIdenticalBytes() throws IOException {
+        byte[] data = "same bytes".getBytes();
+
+        File first = upload("first.jpg", data);
+        File second = upload("second.jpg", data);
+
+        Long blobId = fileRepository.findById(first.getId()).orElseThrow().getBlob().getId();
+        assertThat(fileRepository.findById(second.getId()).orElseThrow().getBlob().getId()).isEqualTo(blobId);
+        assertThat(reload(blobId).getRefCount()).isEqualTo(2);
+        assertThat(blobRepository.count()).isEqualTo(1);
+
+        assertThat(second.getPath()).isEqualTo(first.getPath());
+        assertThat(exists(first.getPath())).isTrue();
+        assertThat(exists(storageService.resolvePath("second.jpg"))).isFalse();
+        assertThat(storedObjects()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should keep distinct content in separate blobs")
+    void shouldKeepDistinctContentApart() throws IOException {
+        File first = upload("first.jpg", "first".getBytes());
+        File second = upload("second.jpg", "second".getBytes());
+
+        assertThat(first.getBlob().getId()).isNotEqualTo(second.getBlob().getId());
+        assertThat(reload(first.getBlob().getId()).getRefCount()).isEqualTo(1);
+        assertThat(storedObjects()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should delete the staged object when registration rolls back")
+    void shouldDeleteStagedCopyOnRollback() throws IOException {
+        BlobStoreService.StagedBlob staged = stage("rolled-back.jpg", "rolled back".getBytes());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            blobStoreService.register(staged.sha256(), staged.path(), staged.size());
+            status.setRollbackOnly();
+        });
+
+        assertThat(blobRepository.count()).isZero();
+        assertThat(exists(staged.path())).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should free the blob and its bytes only when the last referencing file is deleted")
+    void shouldReleaseBlobOnLastDelete() throws IOException {
+        byte[] data = "shared".getBytes();
+        File first = upload("first.jpg", data);
+        File second = upload("second.jpg", data);
+        Long blobId = first.getBlob().getId();
+
+        delete(first);
+
+        assertThat(reload(blobId).getRefCount()).isEqualTo(1);
+        assertThat(exists(second.getPath())).isTrue();
+
+        delete(second);
+
+        assertThat(blobRepository.findById(blobId)).isEmpty();
+        assertThat(exists(second.getPath())).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should sweep blobs whose files were deleted without releasing them, and keep referenced ones")
+    void shouldSweepUnreferencedBlobs() throws IOException {
+        File orphaned = upload("orphaned.jpg", "orphaned".getBytes());
+        File kept = upload("kept.jpg", "kept".getBytes());
+        // A folder or photographer cascade removes rows without going through FileService.
+        fileRepository.deleteById(orphaned.getId());
+
+        assertThat(reload(orphaned.getBlob().getId()).getRefCount()).isZero();
+        assertThat(exists(orphaned.getPath())).isTrue();
+
+        blobStoreService.sweepUnreferencedBlobs();
+
+        assertThat(blobRepository.findById(orphaned.getBlob().getId())).isEmpty();
+        assertThat(exists(orphaned.getPath())).isFalse();
+        assertThat(reload(kept.getBlob().getId()).getRefCount()).isEqualTo(1);
+        assertThat(exists(kept.getPath())).isTrue();
+    }
+}
@@ -0,0 +1,237 @@
+package com.PhotoVault.services;
+
+import com.PhotoVault.config.DirectUploadProperties;
+import com.PhotoVault.config.FileStorageProperties;
+import com.PhotoVault.dto.response.FolderAccessDTO;
+import com.PhotoVault.entities.File;
+import com.PhotoVault.entities.Folder;
+import com.PhotoVault.entities.Photographer;
+import com.PhotoVault.entities.ShareLink;
+import com.PhotoVault.entities.UserRole;
+import com.PhotoVault.repository.BlobRepository;
+import com.PhotoVault.repository.FileDerivativeRepository;
+import com.PhotoVault.repository.FileRepository;
+import com.PhotoVault.repository.FolderRepository;
+import com.PhotoVault.repository.PhotographerRepository;
+import com.PhotoVault.repository.ShareLinkRepository;
+import com.PhotoVault.services.image.DerivativeService;
+import com.PhotoVault.services.storage.LocalStorageService;
+import com.PhotoVault.services.storage.LocalUploadSigner;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Pins the number of SQL statements each read path issues, so a new association access that
+ * falls back to lazy loading, or an EAGER mapping creeping back, shows up as a failure. The
+ * services are Spring beans called without a surrounding transaction, as controllers call them
+ * with open-in-view off, so each call runs in its own transaction behind the proxy and returns
+ * detached entities.
+ */
+@ActiveProfiles("test")
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class FetchPlanTest {
+
+    @TestConfiguration
+    @Import({FolderService.class, ShareLinkService.class})
+    static class Services {
+
+        @Bean(destroyMethod = "shutdown")
+        ThreadPoolTaskExecutor uploadExecutor() {
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.initialize();
+            return executor;
+        }
+
+        @Bean
+        FileService fileService(FileRepository fileRepository, FolderRepository folderRepository,
+                                PhotographerRepository photographerRepository, BlobRepository blobRepository,
+                                FileDerivativeRepository fileDerivativeRepository,
+                                ThreadPoolTaskExecutor uploadExecutor,
+                                PlatformTransactionManager transactionManager) throws IOException {
+            DirectUploadProperties directUploadProperties = new DirectUploadProperties();
+            directUploadProperties.setSecret("test-secret-that-is-long-enough-for-hmac-sha256");
+
+            Path uploadDir = Files.createTempDirectory("fetch-plan");
+            FileStorageProperties fileStorageProperties = new FileStorageProperties();
+            fileStorageProperties.setDir(uploadDir.toString());
+            fileStorageProperties.setMaxSize(10L * 1024 * 1024);
+            fileStorageProperties.setStreamMaxSize(10L * 1024 * 1024);
+            fileStorageProperties.setAllowedExtensions("jpg,jpeg,png,webp");
+
+            LocalStorageService storageService = new LocalStorageService(uploadDir.toString(), new LocalUploadSigner(directUploadProperties));
+            return new FileService(fileRepository, folderRepository, photographerRepository, fileStorageProperties,
+                    storageService, new FileValidationService(fileStorageProperties),
+                    new BlobStoreService(blobRepository, fileRepository, storageService),
+                    new DerivativeService(fileRepository, fileDerivativeRepository, storageService),
+                    event -> {
+                    }, new DirectUploadTokenService(directUploadProperties), directUploadProperties,
+                    uploadExecutor, transactionManager);
+        }
+    }
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    @Autowired
+    private PhotographerRepository photographerRepository;
+
+    @Autowired
+    private ShareLinkRepository shareLinkRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private FolderService folderService;
+
+    @Autowired
+    private ShareLinkService shareLinkService;
+
+    private Statistics statistics;
+
+    private Long photographerId;
+    private Long folderId;
+    private Long fileId;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        assertThat(AopUtils.isAopProxy(fileService)).isTrue();
+
+        String email = UUID.randomUUID() + "@test.com";
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> createData(email));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(email, null, List.of()));
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private void createData(String email) {
+        Photographer photographer = new Photographer();
+        photographer.setName("owner");
+        photographer.setEmail(email);
+        photographer.setPassword("123456");
+        photographer.setRole(UserRole.PHOTOGRAPHER);
+        photographerId = photographerRepository.save(photographer).getId();
+
+        Folder folder = new Folder();
+        folder.setName("wedding");
+        folder.setOwner(photographer);
+        folder.setCreatedAt(LocalDateTime.now());
+        folderId = folderRepository.save(folder).getId();
+
+        for (int i = 0; i < 2; i++) {
+            String storedName = UUID.randomUUID() + ".jpg";
+            File file = new File();
+            file.setName("photo" + i + ".jpg");
+            file.setStoredName(storedName);
+            file.setPath("/uploads/" + storedName);
+            file.setSize(100L);
+            file.setContentType("image/jpeg");
+            file.setUploadDate(LocalDateTime.now());
+            file.setFolder(folder);
+            fileId = fileRepository.save(file).getId();
+        }
+
+        ShareLink shareLink = new ShareLink();
+        shareLink.setToken(UUID.randomUUID().toString());
+        shareLink.setFolder(folder);
+        token = shareLinkRepository.save(shareLink).getToken();
+    }
+
+    // Makes the call through the service proxy and returns the statements it prepared.
+    private <T> long statementsFor(Supplier<T> call) {
+        statistics.clear();
+        call.get();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private long statementsFor(Runnable call) {
+        return statementsFor(() -> {
+            call.run();
+            return null;
+        });
+    }
+
+    @Test
+    @DisplayName("Should load a folder with its owner in one statement")
+    void folderFindById() {
+        assertThat(statementsFor(() -> folderService.findById(folderId))).isEqualTo(1);
+        assertThat(statementsFor(() -> folderService.findAllByPhotographerId(photographerId, PageRequest.of(0, 20)))).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should check file access without loading the folder or its owner")
+    void fileAccessChecks() {
+        File[] file = new File[1];
+        assertThat(statementsFor(() -> file[0] = fileService.getFileEntity(fileId))).isEqualTo(1);
+        assertThat(Hibernate.isInitialized(file[0].getFolder())).isFalse();
+        // Owner id of the file, then the authenticated photographer.
+        assertThat(statementsFor(() -> fileService.validateAccessForFile(fileId))).isEqualTo(2);
+        // Share link, then the file; both folder ids come from foreign keys.
+        assertThat(statementsFor(() -> shareLinkService.validateTokenForFile(token, fileId))).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should fetch exactly what each share link use case needs")
+    void shareLinkFetchPlans() {
+        Folder[] shared = new Folder[1];
+        assertThat(statementsFor(() -> shared[0] = shareLinkService.getSharedFolder(token))).isEqualTo(1);
+        assertThat(Hibernate.isInitialized(shared[0])).isTrue();
+        assertThat(shared[0].getName()).isEqualTo("wedding");
+
+        // Link with folder and owner, the file page, derivative sizes, and the access count update.
+        FolderAccessDTO[] access = new FolderAccessDTO[1];
+        assertThat(statementsFor(() -> access[0] = shareLinkService.accessFolderByToken(token, PageRequest.of(0, 20)))).isEqualTo(4);
+        assertThat(access[0].getOwner().getName()).isEqualTo("owner");
+        assertThat(access[0].getFiles().getContent()).hasSize(2);
+
+        assertThat(statementsFor(() -> shareLinkService.getShareLinksByFolder(folderId))).isEqualTo(2);
+    }
+}
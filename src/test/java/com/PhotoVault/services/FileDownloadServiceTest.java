@@ -0,0 +1,317 @@
+package com.PhotoVault.services;
+
+import com.PhotoVault.config.DirectUploadProperties;
+import com.PhotoVault.entities.File;
+import com.PhotoVault.services.storage.LocalStorageService;
+import com.PhotoVault.services.storage.LocalUploadSigner;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Serves a stored file through Spring MVC, as FileController does, so the streamed bodies and
+ * headers are checked as a client would receive them.
+ */
+public class FileDownloadServiceTest {
+
+    private static final String CONTENT_HASH = "3a".repeat(32);
+    private static final String ETAG = "\"" + CONTENT_HASH + "\"";
+    private static final LocalDateTime UPLOAD_DATE = LocalDateTime.of(2024, 5, 1, 12, 0, 0);
+
+    @RestController
+    static class DownloadController {
+
+        private final FileDownloadService downloadService;
+        private final File file;
+
+        DownloadController(FileDownloadService downloadService, File file) {
+            this.downloadService = downloadService;
+            this.file = file;
+        }
+
+        @GetMapping("/download")
+        ResponseEntity<StreamingResponseBody> download(HttpServletRequest request) {
+            return downloadService.download(file, request);
+        }
+    }
+
+    @TempDir
+    Path uploadDir;
+
+    private LocalStorageService storageService;
+    private byte[] content;
+    private File file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        DirectUploadProperties directUploadProperties = new DirectUploadProperties();
+        directUploadProperties.setSecret("test-secret-that-is-long-enough-for-hmac-sha256");
+        storageService = new LocalStorageService(uploadDir.toString(), new LocalUploadSigner(directUploadProperties));
+
+        // Printable, so multipart bodies can be checked as text.
+        content = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ".repeat(2).substring(0, 100)
+                .getBytes(StandardCharsets.US_ASCII);
+        file = new File();
+        file.setName("photo.jpg");
+        file.setStoredName("stored-photo.jpg");
+        file.setPath(storageService.store(new ByteArrayInputStream(content), "stored-photo.jpg", content.length, "image/jpeg"));
+        file.setSize((long) content.length);
+        file.setContentType("image/jpeg");
+        file.setContentHash(CONTENT_HASH);
+        file.setUploadDate(UPLOAD_DATE);
+    }
+
+    private MockMvc mockMvc(FileDownloadService downloadService) {
+        return MockMvcBuilders.standaloneSetup(new DownloadController(downloadService, file)).build();
+    }
+
+    private MockMvc mockMvc() {
+        return mockMvc(new FileDownloadService(storageService, true, "stream", Duration.ofMinutes(5)));
+    }
+
+    // Streamed bodies are written on an async dispatch after the handler returns.
+    private static MvcResult perform(MockMvc mockMvc, MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request).andReturn();
+        return result.getRequest().isAsyncStarted() ? mockMvc.perform(asyncDispatch(result)).andReturn() : result;
+    }
+
+    private MvcResult perform(MockHttpServletRequestBuilder request) throws Exception {
+        return perform(mockMvc(), request);
+    }
+
+    // Formatted as the server sends it, for clients that echo it back.
+    private static String lastModifiedHeader() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setLastModified(UPLOAD_DATE.atZone(ZoneId.systemDefault()).toInstant());
+        return headers.getFirst(HttpHeaders.LAST_MODIFIED);
+    }
+
+    @Test
+    @DisplayName("Should return a single byte range as 206 with its Content-Range")
+    void shouldServeSingleRange() throws Exception {
+        MvcResult result = perform(get("/download").header(HttpHeaders.RANGE, "bytes=10-19"));
+
+        assertThat(result.getResponse().getStatus()).isEqualTo(206);
+        assertThat(result.getResponse().getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 10-19/100");
+        assertThat(result.getResponse().getHeader(HttpHeaders.CONTENT_LENGTH)).isEqualTo("10");
+        assertThat(result.getResponse().getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(result.getResponse().getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(content, 10, 20));
+    }
+
+    @Test
+    @DisplayName("Should read a single range from storage when zero-copy is off")
+    void shouldServeRangeFromStorageStream() throws Exception {
+        MockMvc mockMvc = mockMvc(new FileDownloadService(storageService, false, "stream", Duration.ofMinutes(5)));
+
+        MvcResult result = perform(mockMvc, get("/download").header(HttpHeaders.RANGE, "bytes=90-"));
+
+        assertThat(result.getResponse().getStatus()).isEqualTo(206);
+        assertThat(result.getResponse().getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 90-99/100");
+        assertThat(result.getResponse().getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(content, 90, 100));
+    }
+
+    @Test
+    @DisplayName("Should return the last bytes of the file for a suffix range")
+    void shouldServeSuffixRange() throws Exception {
+        MvcResult result = perform(get("/download").header(HttpHeaders.RANGE, "bytes=-15"));
+
+        assertThat(result.getResponse().getStatus()).isEqualTo(206);
+        assertThat(result.getResponse().getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 85-99/100");
+        assertThat(result.getResponse().getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(content, 85, 100));
+    }
+
+    @Test
+    @DisplayName("Should return several ranges as multipart/byteranges with a matching Content-Length")
+    void shouldServeMultipleRanges() throws Exception {
+        MvcResult result = perform(get("/download").header(HttpHeaders.RANGE, "bytes=0-4,50-54"));
+
+        assertThat(result.getResponse().getStatus()).isEqualTo(206);
+        MediaType contentType = MediaType.parseMediaType(result.getResponse().getContentType());
+        assertThat(contentType.isCompatibleWith(MediaType.parseMediaType("multipart/byteranges"))).isTrue();
+        String boundary = contentType.getParameter("boundary");
+
+        byte[] body = result.getResponse().getContentAsByteArray();
+        assertThat(result.getResponse().getHeader(HttpHeaders.CONTENT_LENGTH)).isEqualTo(String.valueOf(body.length));
+        assertThat(new String(body, StandardCharsets.US_ASCII)).isEqualTo(
+                "\r\n--" + boundary + "\r\n"
+                        + "Content-Type: image/jpeg\r\n"
+                        + "Content-Range: bytes 0-4/100\r\n\r\n"
+                        + "01234"
+                        + "\r\n--" + boundary + "\r\n"
+                        + "Content-Type: image/jpeg\r\n"
+                        + "Content-Range: bytes 50-54/100\r\n\r\n"
+                        + new String(content, 50, 5, StandardCharsets.US_ASCII)
+                        + "\r\n--" + boundary + "--\r\n");
+    }
+
+    @Test
+    @DisplayName("Should answer 416 with the file length when no range can be satisfied")
+    void shouldRejectUnsatisfiableRange() throws Exception {
+        MvcResult result = perform(get("/download").header(HttpHeaders.RANGE, "bytes=100-200"));
+
+        assertThat(result.getResponse().getStatus()).isEqualTo(416);
+        assertThat(result.getResponse().getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */100");
+        assertThat(result.getResponse().getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should honour the range when If-Range matches the ETag or Last-Modified date")
+    void shouldServeRangeWhenIfRangeMatches() throws Exception {
+        MvcResult byTag = perform(get("/download")
+                .header(HttpHeaders.RANGE, "bytes=0-9")
+                .header(HttpHeaders.IF_RANGE, ETAG));
+        MvcResult byDate = perform(get("/download")
+                .header(HttpHeaders.RANGE, "bytes=0-9")
+                .header(HttpHeaders.IF_RANGE, lastModifiedHeader()));
+
+        assertThat(byTag.getResponse().getStatus()).isEqualTo(206);
+        assertThat(byTag.getResponse().getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(content, 0, 10));
+        assertThat(byDate.getResponse().getStatus()).isEqualTo(206);
+    }
+
+    @Test
+    @DisplayName("Should send the whole file when If-Range does not match")
+    void shouldServeFullContentWhenIfRangeMismatches() throws Exception {
+        for (String ifRange : new String[]{"\"stale\"", "W/" + ETAG, "Wed, 01 May 2019 12:00:00 GMT"}) {
+            MvcResult result = perform(get("/download")
+                    .header(HttpHeaders.RANGE, "bytes=0-9")
+                    .header(HttpHeaders.IF_RANGE, ifRange));
+
+            assertThat(result.getResponse().getStatus()).as(ifRange).isEqualTo(200);
+            assertThat(result.getResponse().getHeader(HttpHeaders.CONTENT_RANGE)).as(ifRange).isNull();
+            assertThat(result.getResponse().getContentAsByteArray()).as(ifRange).isEqualTo(content);
+        }
+    }
+
+    @Test
+    @DisplayName("Should send the whole file with a strong ETag and immutable private caching")
+    void shouldServeFullContentWithValidators() throws Exception {
+        MvcResult result = perform(get("/download"));
+
+        assertThat(result.getResponse().getStatus()).isEqualTo(200);
+        assertThat(result.getResponse().getHeader(HttpHeaders.ETAG)).isEqualTo(ETAG);
+        assertThat(result.getResponse().getHeader(HttpHeaders.LAST_MODIFIED)).isEqualTo(lastModifiedHeader());
+        assertThat(result.getResponse().getHeader(HttpHeaders.CACHE_CONTROL))
+                .contains("private", "immutable", "max-age=31536000");
+        assertThat(result.getResponse().getHeader(HttpHeaders.CONTENT_DISPOSITION))
+                .startsWith("attachment").contains("photo.jpg");
+        assertThat(result.getResponse().getContentAsByteArray()).isEqualTo(content);
+    }
+
+    @Test
+    @DisplayName("Should answer 304 without a body when If-None-Match lists the ETag")
+    void shouldAnswerNotModifiedForMatchingETag() throws Exception {
+        for (String ifNoneMatch : new String[]{ETAG, "W/" + ETAG, "\"other\", " + ETAG, "*"}) {
+            MvcResult result = perform(get("/download").header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch));
+
+            assertThat(result.getResponse().getStatus()).as(ifNoneMatch).isEqualTo(304);
+            assertThat(result.getResponse().getHeader(HttpHeaders.ETAG)).as(ifNoneMatch).isEqualTo(ETAG);
+            assertThat(result.getResponse().getContentAsByteArray()).as(ifNoneMatch).isEmpty();
+        }
+    }
+
+    @Test
+    @DisplayName("Should answer 304 for If-Modified-Since at or after the upload date")
+    void shouldAnswerNotModifiedSinceUpload() throws Exception {
+        MvcResult current = perform(get("/download").header(HttpHeaders.IF_MODIFIED_SINCE, lastModifiedHeader()));
+        MvcResult stale = perform(get("/download").header(HttpHeaders.IF_MODIFIED_SINCE, "Wed, 01 May 2019 12:00:00 GMT"));
+
+        assertThat(current.getResponse().getStatus()).isEqualTo(304);
+        assertThat(stale.getResponse().getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("Should ignore If-Modified-Since when If-None-Match is present")
+    void shouldPreferIfNoneMatchOverIfModifiedSince() throws Exception {
+        MvcResult result = perform(get("/download")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"stale\"")
+                .header(HttpHeaders.IF_MODIFIED_SINCE, lastModifiedHeader()));
+
+        assertThat(result.getResponse().getStatus()).isEqualTo(200);
+        assertThat(result.getResponse().getContentAsByteArray()).isEqualTo(content);
+    }
+
+    @Test
+    @DisplayName("Should redirect to a presigned URL carrying the file's content type and attachment disposition")
+    void shouldRedirectToPresignedUrl() throws Exception {
+        List<String> presigned = new ArrayList<>();
+        LocalStorageService presigningStorage = presigningStorage(presigned);
+        MockMvc mockMvc = mockMvc(new FileDownloadService(presigningStorage, true, "redirect", Duration.ofMinutes(10)));
+
+        MvcResult result = perform(mockMvc, get("/download").header(HttpHeaders.RANGE, "bytes=0-9"));
+
+        assertThat(result.getResponse().getStatus()).isEqualTo(302);
+        assertThat(result.getResponse().getHeader(HttpHeaders.LOCATION)).isEqualTo("https://storage.test/signed");
+        assertThat(result.getResponse().getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("max-age=300, private");
+        assertThat(result.getResponse().getContentAsByteArray()).isEmpty();
+        assertThat(presigned).hasSize(1);
+        assertThat(presigned.getFirst()).startsWith(file.getPath() + "|PT10M|image/jpeg|attachment;")
+                .endsWith("filename*=UTF-8''photo.jpg");
+    }
+
+    @Test
+    @DisplayName("Should answer revalidations and multi-range requests itself in redirect mode")
+    void shouldNotRedirectRevalidationsOrMultipleRanges() throws Exception {
+        List<String> presigned = new ArrayList<>();
+        MockMvc mockMvc = mockMvc(new FileDownloadService(presigningStorage(presigned), true, "redirect", Duration.ofMinutes(10)));
+
+        MvcResult revalidation = perform(mockMvc, get("/download").header(HttpHeaders.IF_NONE_MATCH, ETAG));
+        MvcResult multiRange = perform(mockMvc, get("/download").header(HttpHeaders.RANGE, "bytes=0-4,10-14"));
+
+        assertThat(revalidation.getResponse().getStatus()).isEqualTo(304);
+        assertThat(multiRange.getResponse().getStatus()).isEqualTo(206);
+        assertThat(multiRange.getResponse().getContentType()).startsWith("multipart/byteranges");
+        assertThat(presigned).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should stream the file when redirect mode is on but the storage cannot presign")
+    void shouldStreamWhenStorageCannotPresign() throws Exception {
+        MockMvc mockMvc = mockMvc(new FileDownloadService(storageService, true, "redirect", Duration.ofMinutes(10)));
+
+        MvcResult result = perform(mockMvc, get("/download"));
+
+        assertThat(result.getResponse().getStatus()).isEqualTo(200);
+        assertThat(result.getResponse().getContentAsByteArray()).isEqualTo(content);
+    }
+
+    // Local storage that presigns like S3, recording what each URL was signed for.
+    private LocalStorageService presigningStorage(List<String> presigned) {
+        DirectUploadProperties directUploadProperties = new DirectUploadProperties();
+        directUploadProperties.setSecret("test-secret-that-is-long-enough-for-hmac-sha256");
+        return new LocalStorageService(uploadDir.toString(), new LocalUploadSigner(directUploadProperties)) {
+            @Override
+            public String generatePresignedUrl(String filePath, Duration expiration, String contentType, String contentDisposition) {
+                presigned.add(String.join("|", filePath, expiration.toString(), contentType, contentDisposition));
+                return "https://storage.test/signed";
+            }
+        };
+    }
+}
@@ -0,0 +1,541 @@
+package com.PhotoVault.services;
+
+import com.PhotoVault.config.DirectUploadProperties;
+import com.PhotoVault.controller.FileController;
+import com.PhotoVault.config.FileStorageProperties;
+import com.PhotoVault.dto.request.DirectUploadRequestDTO;
+import com.PhotoVault.dto.response.BatchUploadItemDTO;
+import com.PhotoVault.dto.response.BatchUploadResponseDTO;
+import com.PhotoVault.dto.response.DirectUploadResponseDTO;
+import com.PhotoVault.dto.response.FileResponseDTO;
+import com.PhotoVault.entities.Folder;
+import com.PhotoVault.entities.Photographer;
+import com.PhotoVault.entities.UserRole;
+import com.PhotoVault.exception.FileStorageException;
+import com.PhotoVault.exception.InvalidFileException;
+import com.PhotoVault.exception.handler.GlobalExceptionHandler;
+import com.PhotoVault.repository.BlobRepository;
+import com.PhotoVault.repository.FileDerivativeRepository;
+import com.PhotoVault.repository.FileRepository;
+import com.PhotoVault.repository.FolderRepository;
+import com.PhotoVault.repository.PhotographerRepository;
+import com.PhotoVault.services.image.DerivativeService;
+import com.PhotoVault.services.storage.LocalStorageService;
+import com.PhotoVault.services.storage.LocalUploadSigner;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.imageio.ImageIO;
+import javax.sql.DataSource;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.flyway.enabled=true",
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "spring.datasource.hikari.connection-timeout=2000"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class FileServiceUploadTest {
+
+    private static final String EMAIL = "uploader@test.com";
+
+    @Container
+    @ServiceConnection
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @TempDir
+    Path uploadDir;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    @Autowired
+    private PhotographerRepository photographerRepository;
+
+    @Autowired
+    private BlobRepository blobRepository;
+
+    @Autowired
+    private FileDerivativeRepository fileDerivativeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private LocalStorageService storageService;
+    private FileService fileService;
+    private ThreadPoolTaskExecutor uploadExecutor;
+    private ExecutorService clients;
+    private Long folderId;
+
+    @BeforeEach
+    void setUp() {
+        DirectUploadProperties directUploadProperties = new DirectUploadProperties();
+        directUploadProperties.setSecret("test-secret-that-is-long-enough-for-hmac-sha256");
+
+        FileStorageProperties fileStorageProperties = new FileStorageProperties();
+        fileStorageProperties.setDir(uploadDir.toString());
+        fileStorageProperties.setMaxSize(10L * 1024 * 1024);
+        fileStorageProperties.setStreamMaxSize(10L * 1024 * 1024);
+        fileStorageProperties.setAllowedExtensions("jpg,jpeg,png,webp");
+
+        storageService = new LocalStorageService(uploadDir.toString(), new LocalUploadSigner(directUploadProperties));
+        uploadExecutor = new ThreadPoolTaskExecutor();
+        uploadExecutor.initialize();
+
+        fileService = new FileService(fileRepository, folderRepository, photographerRepository, fileStorageProperties,
+                storageService, new FileValidationService(fileStorageProperties),
+                new BlobStoreService(blobRepository, fileRepository, storageService),
+                new DerivativeService(fileRepository, fileDerivativeRepository, storageService),
+                event -> {
+                }, new DirectUploadTokenService(directUploadProperties), directUploadProperties,
+                uploadExecutor, transactionManager);
+
+        clients = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        clients.shutdownNow();
+        uploadExecutor.shutdown();
+        fileRepository.deleteAll();
+        blobRepository.deleteAll();
+        folderRepository.deleteAll();
+        photographerRepository.deleteAll();
+    }
+
+    private void createFolder(Long storageQuotaBytes) {
+        Photographer photographer = new Photographer();
+        photographer.setName("uploader");
+        photographer.setEmail(EMAIL);
+        photographer.setPassword("123456");
+        photographer.setRole(UserRole.PHOTOGRAPHER);
+        photographer = photographerRepository.save(photographer);
+        if (storageQuotaBytes != null) {
+            // The quota column is read-only in the mapping.
+            new JdbcTemplate(dataSource).update("UPDATE tb_photographers SET storage_quota_bytes = ? WHERE id = ?",
+                    storageQuotaBytes, photographer.getId());
+        }
+
+        Folder folder = new Folder();
+        folder.setName("uploads");
+        folder.setOwner(photographer);
+        folder.setCreatedAt(java.time.LocalDateTime.now());
+        folderId = folderRepository.save(folder).getId();
+    }
+
+    private static byte[] png(Color color) throws IOException {
+        BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, 64, 64);
+        graphics.dispose();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+
+    private Future<FileResponseDTO> upload(String name, InputStream body, long size) {
+        return clients.submit(() -> {
+            SecurityContextHolder.getContext().setAuthentication(
+                    new UsernamePasswordAuthenticationToken(EMAIL, null, List.of()));
+            try {
+                return fileService.uploadFileStream(folderId, name, body, size, "image/png");
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        });
+    }
+
+    private Future<BatchUploadResponseDTO> uploadBatch(MultipartFile... parts) {
+        return clients.submit(() -> {
+            SecurityContextHolder.getContext().setAuthentication(
+                    new UsernamePasswordAuthenticationToken(EMAIL, null, List.of()));
+            try {
+                return fileService.uploadFiles(folderId, List.of(parts));
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        });
+    }
+
+    private <T> Future<T> asUploader(Callable<T> action) {
+        return clients.submit(() -> {
+            SecurityContextHolder.getContext().setAuthentication(
+                    new UsernamePasswordAuthenticationToken(EMAIL, null, List.of()));
+            try {
+                return action.call();
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        });
+    }
+
+    private DirectUploadResponseDTO initiateDirectUpload(String name, byte[] data) throws Exception {
+        DirectUploadRequestDTO request = new DirectUploadRequestDTO();
+        request.setFileName(name);
+        request.setSize((long) data.length);
+        request.setContentType("image/png");
+        request.setSha256(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data)));
+        return asUploader(() -> fileService.initiateDirectUpload(folderId, request)).get(10, TimeUnit.SECONDS);
+    }
+
+    // The stored name is the last segment of the presigned URL, as LocalUploadController receives it.
+    private static String storedName(DirectUploadResponseDTO upload) {
+        return UriComponentsBuilder.fromUriString(upload.getUploadUrl()).build().getPathSegments().getLast();
+    }
+
+    private static MultipartFile part(String name, byte[] data) {
+        return new MockMultipartFile("files", name, "image/png", data);
+    }
+
+    private static MultipartFile slowPart(String name, byte[] data, CountDownLatch streaming, CountDownLatch resume) {
+        return new MockMultipartFile("files", name, "image/png", data) {
+            @Override
+            public InputStream getInputStream() {
+                return new SlowClient(data, streaming, resume);
+            }
+        };
+    }
+
+    private long storedObjects() throws IOException {
+        try (Stream<StoredObject> objects = storageService.listObjects()) {
+            return objects.count();
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep the connection pool free while uploads are streaming")
+    void shouldNotHoldConnectionsWhileStreaming() throws Exception {
+        createFolder(null);
+        int uploads = 4;
+        CountDownLatch streaming = new CountDownLatch(uploads);
+        CountDownLatch resume = new CountDownLatch(1);
+
+        List<Future<FileResponseDTO>> pending = new ArrayList<>();
+        for (int i = 0; i < uploads; i++) {
+            byte[] data = png(new Color(i * 40, 0, 0));
+            pending.add(upload("photo" + i + ".png", new SlowClient(data, streaming, resume), data.length));
+        }
+        assertThat(streaming.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // Twice as many uploads as connections are mid-stream; reads must still get a connection.
+        assertThat(dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean().getActiveConnections()).isZero();
+        for (int i = 0; i < 10; i++) {
+            assertThat(folderRepository.findById(folderId)).isPresent();
+        }
+
+        resume.countDown();
+        for (Future<FileResponseDTO> upload : pending) {
+            assertThat(upload.get(10, TimeUnit.SECONDS).getId()).isNotNull();
+        }
+        assertThat(fileRepository.count()).isEqualTo(uploads);
+        assertThat(storedObjects()).isEqualTo(uploads);
+    }
+
+    @Test
+    @DisplayName("Should delete the stored bytes when the quota is exceeded at commit")
+    void shouldCompensateWhenCommitFails() throws Exception {
+        byte[] first = png(Color.RED);
+        byte[] second = png(Color.BLUE);
+        // Each upload fits on its own and passes the check made before streaming.
+        createFolder((long) first.length + second.length - 1);
+        CountDownLatch streaming = new CountDownLatch(2);
+        CountDownLatch resume = new CountDownLatch(1);
+
+        List<Future<FileResponseDTO>> pending = List.of(
+                upload("first.png", new SlowClient(first, streaming, resume), first.length),
+                upload("second.png", new SlowClient(second, streaming, resume), second.length));
+        assertThat(streaming.await(10, TimeUnit.SECONDS)).isTrue();
+        resume.countDown();
+
+        int failed = 0;
+        for (Future<FileResponseDTO> upload : pending) {
+            try {
+                upload.get(10, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(InvalidFileException.class)
+                        .hasMessageContaining("quota");
+                failed++;
+            }
+        }
+
+        assertThat(failed).isEqualTo(1);
+        assertThat(fileRepository.count()).isEqualTo(1);
+        assertThat(storedObjects()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should report each part of a batch on its own and keep the parts that succeeded")
+    void shouldReportEachPartOfBatch() throws Exception {
+        createFolder(null);
+
+        BatchUploadResponseDTO response = uploadBatch(
+                part("red.png", png(Color.RED)),
+                part("empty.png", new byte[0]),
+                part("notes.txt", "not an image".getBytes()),
+                part("blue.png", png(Color.BLUE))).get(10, TimeUnit.SECONDS);
+
+        assertThat(response.getUploaded()).isEqualTo(2);
+        assertThat(response.getFailed()).isEqualTo(2);
+        assertThat(response.getItems()).extracting(BatchUploadItemDTO::getIndex, BatchUploadItemDTO::getFileName,
+                        BatchUploadItemDTO::getUploaded)
+                .containsExactly(
+                        tuple(0, "red.png", true),
+                        tuple(1, "empty.png", false),
+                        tuple(2, "notes.txt", false),
+                        tuple(3, "blue.png", true));
+        assertThat(response.getItems().get(0).getFile().getName()).isEqualTo("red.png");
+        assertThat(response.getItems().get(1).getError()).isEqualTo("File cannot be empty");
+        assertThat(response.getItems().get(2).getError()).contains("File type not allowed");
+        assertThat(response.getItems().get(3).getFile().getName()).isEqualTo("blue.png");
+
+        assertThat(fileRepository.count()).isEqualTo(2);
+        assertThat(storedObjects()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should reserve quota for the whole batch at commit and delete its parts when it no longer fits")
+    void shouldReserveQuotaForBatch() throws Exception {
+        byte[] red = png(Color.RED);
+        byte[] blue = png(Color.BLUE);
+        byte[] green = png(Color.GREEN);
+        // The batch fits when it starts, but not once the single upload has taken its share.
+        createFolder((long) red.length + blue.length + green.length - 1);
+        CountDownLatch streaming = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+
+        Future<BatchUploadResponseDTO> batch = uploadBatch(
+                slowPart("red.png", red, streaming, resume), part("blue.png", blue));
+        assertThat(streaming.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(upload("green.png", new ByteArrayInputStream(green), green.length)
+                .get(10, TimeUnit.SECONDS).getId()).isNotNull();
+        resume.countDown();
+
+        assertThatThrownBy(() -> batch.get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .cause().isInstanceOf(InvalidFileException.class)
+                .hasMessageContaining("quota");
+        assertThat(fileRepository.count()).isEqualTo(1);
+        assertThat(storedObjects()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should wait for parts still being written when interrupted and delete everything staged")
+    void shouldCleanUpInterruptedBatch() throws Exception {
+        createFolder(null);
+        CountDownLatch streaming = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        List<MultipartFile> parts = List.of(
+                slowPart("red.png", png(Color.RED), streaming, resume), part("blue.png", png(Color.BLUE)));
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread client = new Thread(() -> {
+            SecurityContextHolder.getContext().setAuthentication(
+                    new UsernamePasswordAuthenticationToken(EMAIL, null, List.of()));
+            try {
+                fileService.uploadFiles(folderId, parts);
+            } catch (Throwable e) {
+                failure.set(e);
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        });
+        client.start();
+        assertThat(streaming.await(10, TimeUnit.SECONDS)).isTrue();
+
+        client.interrupt();
+        resume.countDown();
+        client.join(10_000);
+
+        assertThat(client.isAlive()).isFalse();
+        assertThat(failure.get()).isInstanceOf(FileStorageException.class);
+        assertThat(fileRepository.count()).isZero();
+        assertThat(storedObjects()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should store the raw body posted to the streaming endpoint and answer 201 with the file")
+    void shouldAcceptStreamingUploadRequest() throws Exception {
+        createFolder(null);
+        byte[] data = png(Color.RED);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new FileController(fileService, null, null, null, null, null))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(EMAIL, null, List.of()));
+        try {
+            mockMvc.perform(post("/api/folders/{folderId}/files/stream", folderId)
+                            .param("fileName", "red.png")
+                            .contentType(MediaType.IMAGE_PNG)
+                            .content(data))
+                    .andExpect(status().isCreated())
+                    .andExpect(jsonPath("$.name").value("red.png"))
+                    .andExpect(jsonPath("$.size").value(data.length))
+                    .andExpect(jsonPath("$.contentType").value("image/png"));
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+
+        assertThat(fileRepository.count()).isEqualTo(1);
+        assertThat(storedObjects()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should create the file once a direct upload has arrived and return it again on a repeated complete")
+    void shouldCompleteDirectUpload() throws Exception {
+        createFolder(null);
+        byte[] data = png(Color.RED);
+        DirectUploadResponseDTO upload = initiateDirectUpload("red.png", data);
+        String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+
+        storageService.storeVerified(new ByteArrayInputStream(data), storedName(upload), data.length, sha256);
+        FileResponseDTO created = asUploader(() -> fileService.completeDirectUpload(folderId, upload.getUploadToken()))
+                .get(10, TimeUnit.SECONDS);
+        FileResponseDTO repeated = asUploader(() -> fileService.completeDirectUpload(folderId, upload.getUploadToken()))
+                .get(10, TimeUnit.SECONDS);
+
+        assertThat(created.getName()).isEqualTo("red.png");
+        assertThat(created.getSize()).isEqualTo((long) data.length);
+        assertThat(repeated.getId()).isEqualTo(created.getId());
+        assertThat(fileRepository.count()).isEqualTo(1);
+        assertThat(fileRepository.findById(created.getId()).orElseThrow().getContentHash()).isEqualTo(sha256);
+        assertThat(storedObjects()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should refuse to complete a direct upload that is missing or of the wrong size, and drop the wrong object")
+    void shouldRejectIncompleteDirectUpload() throws Exception {
+        createFolder(null);
+        byte[] data = png(Color.RED);
+        DirectUploadResponseDTO upload = initiateDirectUpload("red.png", data);
+
+        assertThatThrownBy(() -> asUploader(() -> fileService.completeDirectUpload(folderId, upload.getUploadToken()))
+                .get(10, TimeUnit.SECONDS))
+                .cause().isInstanceOf(InvalidFileException.class)
+                .hasMessageContaining("Upload not found");
+
+        // Bypasses the verified PUT, as a storage backend that does not check the size would.
+        byte[] truncated = Arrays.copyOf(data, data.length - 1);
+        storageService.store(new ByteArrayInputStream(truncated), storedName(upload), truncated.length, "image/png");
+        assertThatThrownBy(() -> asUploader(() -> fileService.completeDirectUpload(folderId, upload.getUploadToken()))
+                .get(10, TimeUnit.SECONDS))
+                .cause().isInstanceOf(InvalidFileException.class)
+                .hasMessageContaining("expected " + data.length);
+
+        assertThat(fileRepository.count()).isZero();
+        assertThat(storedObjects()).isZero();
+    }
+
+    /**
+     * A client that sends the first half of the body, then stalls until released.
+     */
+    private static final class SlowClient extends InputStream {
+
+        private final byte[] data;
+        private final CountDownLatch streaming;
+        private final CountDownLatch resume;
+        private int position;
+        private boolean stalled;
+
+        SlowClient(byte[] data, CountDownLatch streaming, CountDownLatch resume) {
+            this.data = data;
+            this.streaming = streaming;
+            this.resume = resume;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int half = data.length / 2;
+            if (position == half && !stalled) {
+                stalled = true;
+                streaming.countDown();
+                try {
+                    if (!resume.await(30, TimeUnit.SECONDS)) {
+                        throw new IOException("Client was never released");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted", e);
+                }
+            }
+            if (position == data.length) {
+                return -1;
+            }
+            int limit = position < half ? half : data.length;
+            int read = Math.min(length, limit - position);
+            System.arraycopy(data, position, buffer, offset, read);
+            position += read;
+            return read;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.PhotoVault.services;
+
+import com.PhotoVault.config.FolderStatsCheckProperties;
+import com.PhotoVault.entities.File;
+import com.PhotoVault.entities.Folder;
+import com.PhotoVault.entities.Photographer;
+import com.PhotoVault.entities.UserRole;
+import com.PhotoVault.repository.FileRepository;
+import com.PhotoVault.repository.FolderRepository;
+import com.PhotoVault.repository.PhotographerRepository;
+import com.PhotoVault.repository.projection.FolderListItem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * The stats are maintained by triggers, so this runs against Postgres with the real schema.
+ */
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.flyway.enabled=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class FolderStatsTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    @Container
+    @ServiceConnection
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    @Autowired
+    private PhotographerRepository photographerRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private TransactionTemplate transactionTemplate;
+    private Folder folder;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        Photographer photographer = new Photographer();
+        photographer.setName("stats");
+        photographer.setEmail(UUID.randomUUID() + "@test.com");
+        photographer.setPassword("123456");
+        photographer.setRole(UserRole.PHOTOGRAPHER);
+
+        folder = new Folder();
+        folder.setName("shoot");
+        folder.setOwner(photographerRepository.save(photographer));
+        folder.setCreatedAt(LocalDateTime.now());
+        folder = folderRepository.save(folder);
+    }
+
+    private List<File> upload(long... sizes) {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < sizes.length; i++) {
+            String storedName = UUID.randomUUID() + ".jpg";
+            File file = new File();
+            file.setName("IMG_" + i + ".jpg");
+            file.setStoredName(storedName);
+            file.setPath("/uploads/" + storedName);
+            file.setSize(sizes[i]);
+            file.setContentType("image/jpeg");
+            file.setUploadDate(BASE.plusMinutes(i));
+            file.setFolder(folder);
+            files.add(file);
+        }
+        return transactionTemplate.execute(status -> fileRepository.insertAll(files));
+    }
+
+    private void setDeletedAt(Long fileId, LocalDateTime deletedAt) {
+        transactionTemplate.executeWithoutResult(status ->
+                fileRepository.findById(fileId).orElseThrow().setDeletedAt(deletedAt));
+    }
+
+    private FolderListItem stats() {
+        return folderRepository.findListItemById(folder.getId()).orElseThrow();
+    }
+
+    @Test
+    @DisplayName("Should keep folder stats in step with uploads, deletes, soft deletes and restores")
+    void shouldMaintainStats() {
+        assertThat(stats().fileCount()).isZero();
+        assertThat(stats().lastUploadAt()).isNull();
+
+        List<File> files = upload(100, 200, 300);
+        assertThat(stats()).extracting(FolderListItem::fileCount, FolderListItem::totalBytes, FolderListItem::lastUploadAt)
+                .containsExactly(3L, 600L, BASE.plusMinutes(2));
+
+        fileRepository.deleteById(files.get(2).getId());
+        assertThat(stats()).extracting(FolderListItem::fileCount, FolderListItem::totalBytes, FolderListItem::lastUploadAt)
+                .containsExactly(2L, 300L, BASE.plusMinutes(1));
+
+        setDeletedAt(files.get(1).getId(), LocalDateTime.now());
+        assertThat(stats()).extracting(FolderListItem::fileCount, FolderListItem::totalBytes, FolderListItem::lastUploadAt)
+                .containsExactly(1L, 100L, BASE);
+
+        setDeletedAt(files.get(1).getId(), null);
+        assertThat(stats()).extracting(FolderListItem::fileCount, FolderListItem::totalBytes, FolderListItem::lastUploadAt)
+                .containsExactly(2L, 300L, BASE.plusMinutes(1));
+    }
+
+    @Test
+    @DisplayName("Should count every row of an upload batch that spans several JDBC batches")
+    void shouldMaintainStatsAcrossInsertBatches() {
+        // More than the 50-row batch, so the upload runs as several INSERT statements, each firing the trigger.
+        long[] sizes = new long[120];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = i + 1;
+        }
+
+        List<File> files = upload(sizes);
+
+        assertThat(files).allSatisfy(file -> assertThat(file.getId()).isNotNull());
+        assertThat(fileRepository.countByFolderId(folder.getId())).isEqualTo(120);
+        assertThat(stats()).extracting(FolderListItem::fileCount, FolderListItem::totalBytes, FolderListItem::lastUploadAt)
+                .containsExactly(120L, 7260L, BASE.plusMinutes(119));
+    }
+
+    @Test
+    @DisplayName("Should empty the stats of a folder whose soft delete cascades to its files")
+    void shouldMaintainStatsOnFolderSoftDelete() {
+        // Already out of the stats, so the cascade must not subtract it a second time.
+        List<File> files = upload(100, 200, 300);
+        setDeletedAt(files.get(0).getId(), BASE);
+
+        // The statement Folder's @SQLDelete issues; the V3 trigger soft deletes the files in turn.
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("UPDATE tb_folders SET deleted_at = CURRENT_TIMESTAMP WHERE id = ?", folder.getId());
+
+        // The deleted folder is filtered from entity queries, so its columns are read directly.
+        assertThat(jdbcTemplate.queryForMap(
+                "SELECT file_count, total_bytes, last_upload_at FROM tb_folders WHERE id = ?", folder.getId()))
+                .containsEntry("file_count", 0L)
+                .containsEntry("total_bytes", 0L)
+                .containsEntry("last_upload_at", null);
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT deleted_at FROM tb_files WHERE folder_id = ?", LocalDateTime.class, folder.getId()))
+                .hasSize(3)
+                .doesNotContainNull();
+        assertThat(folderRepository.findIdsWithStatsDrift(List.of(folder.getId()))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should repair folders whose stats drifted from their files")
+    void shouldRepairDrift() {
+        upload(100, 200);
+        new JdbcTemplate(dataSource).update(
+                "UPDATE tb_folders SET file_count = 99, total_bytes = 0, last_upload_at = NULL WHERE id = ?",
+                folder.getId());
+
+        FolderStatsCheckProperties properties = new FolderStatsCheckProperties();
+        properties.setBatchSize(2);
+        properties.setBatchPause(Duration.ZERO);
+        FolderStatsChecker checker = new FolderStatsChecker(folderRepository, properties, transactionManager);
+
+        assertThat(checker.checkAll()).isEqualTo(1);
+        assertThat(stats()).extracting(FolderListItem::fileCount, FolderListItem::totalBytes, FolderListItem::lastUploadAt)
+                .containsExactly(2L, 300L, BASE.plusMinutes(1));
+        assertThat(checker.checkAll()).isZero();
+    }
+}
@@ -0,0 +1,86 @@
+package com.PhotoVault.services;
+
+import com.PhotoVault.exception.InvalidFileException;
+import com.PhotoVault.services.image.ImageHeader;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class InspectingInputStreamTest {
+
+    private static byte[] image(String format, int width, int height) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), format, output);
+        return output.toByteArray();
+    }
+
+    private static InspectingInputStream inspect(byte[] data, long declaredSize) {
+        return new InspectingInputStream(new ByteArrayInputStream(data), declaredSize, header -> {
+        });
+    }
+
+    @Test
+    @DisplayName("Should hash, checksum and read image dimensions in a single copy")
+    void shouldInspectWhileCopying() throws Exception {
+        byte[] jpeg = image("jpg", 320, 200);
+        InspectingInputStream inspected = inspect(jpeg, jpeg.length);
+
+        inspected.transferTo(OutputStream.nullOutputStream());
+        inspected.finish();
+
+        CRC32 crc32 = new CRC32();
+        crc32.update(jpeg);
+        assertThat(inspected.getHeader()).isEqualTo(new ImageHeader(ImageHeader.Format.JPEG, 320, 200));
+        assertThat(inspected.getSha256()).isEqualTo(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(jpeg)));
+        assertThat(inspected.getCrc32()).isEqualTo(crc32.getValue());
+        assertThat(inspected.getCount()).isEqualTo(jpeg.length);
+    }
+
+    @Test
+    @DisplayName("Should read PNG dimensions from the header")
+    void shouldReadPngHeader() throws IOException {
+        byte[] png = image("png", 17, 9);
+        InspectingInputStream inspected = inspect(png, png.length);
+
+        inspected.finish();
+
+        assertThat(inspected.getHeader()).isEqualTo(new ImageHeader(ImageHeader.Format.PNG, 17, 9));
+    }
+
+    @Test
+    @DisplayName("Should stop at the first bytes when the content is not an image")
+    void shouldRejectNonImageContent() {
+        byte[] script = "#!/bin/sh\necho renamed to .jpg\n".getBytes(StandardCharsets.UTF_8);
+        InspectingInputStream inspected = inspect(script, script.length);
+
+        assertThatThrownBy(inspected::finish).isInstanceOf(IOException.class);
+        assertThat(inspected.getFailure()).isInstanceOf(InvalidFileException.class)
+                .hasMessageContaining("not a supported image");
+    }
+
+    @Test
+    @DisplayName("Should reject a body that does not match the declared size")
+    void shouldEnforceDeclaredSize() throws IOException {
+        byte[] png = image("png", 4, 4);
+
+        InspectingInputStream longer = inspect(png, png.length - 1);
+        assertThatThrownBy(longer::finish).isInstanceOf(IOException.class);
+        assertThat(longer.getFailure()).hasMessageContaining("larger than the declared");
+
+        InspectingInputStream shorter = inspect(png, png.length + 1);
+        assertThatThrownBy(shorter::finish).isInstanceOf(IOException.class);
+        assertThat(shorter.getFailure()).hasMessageContaining("ended after");
+    }
+}
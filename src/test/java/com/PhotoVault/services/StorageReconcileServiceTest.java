@@ -0,0 +1,202 @@
+package com.PhotoVault.services;
+
+import com.PhotoVault.config.DirectUploadProperties;
+import com.PhotoVault.config.StorageReconcileProperties;
+import com.PhotoVault.entities.File;
+import com.PhotoVault.entities.Folder;
+import com.PhotoVault.entities.Photographer;
+import com.PhotoVault.entities.UserRole;
+import com.PhotoVault.repository.BlobRepository;
+import com.PhotoVault.repository.FileDerivativeRepository;
+import com.PhotoVault.repository.FileRepository;
+import com.PhotoVault.repository.FolderRepository;
+import com.PhotoVault.repository.PhotographerRepository;
+import com.PhotoVault.services.storage.LocalStorageService;
+import com.PhotoVault.services.storage.LocalUploadSigner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Runs reconciliation over a local store against the H2 slice. Objects are written just before
+ * each run, so a zero grace period makes all of them old enough to be considered.
+ */
+@ActiveProfiles("test")
+@DataJpaTest
+public class StorageReconcileServiceTest {
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    @Autowired
+    private PhotographerRepository photographerRepository;
+
+    @Autowired
+    private BlobRepository blobRepository;
+
+    @Autowired
+    private FileDerivativeRepository fileDerivativeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path uploadDir;
+
+    private LocalStorageService storageService;
+    private StorageReconcileProperties properties;
+    private StorageReconcileService reconcileService;
+    private Folder folder;
+
+    @BeforeEach
+    void setUp() {
+        DirectUploadProperties directUploadProperties = new DirectUploadProperties();
+        directUploadProperties.setSecret("test-secret-that-is-long-enough-for-hmac-sha256");
+        storageService = new LocalStorageService(uploadDir.toString(), new LocalUploadSigner(directUploadProperties));
+
+        properties = new StorageReconcileProperties();
+        properties.setGrace(Duration.ZERO);
+        properties.setBatchPause(Duration.ZERO);
+        properties.setBatchSize(2);
+        reconcileService = new StorageReconcileService(storageService, fileRepository, blobRepository,
+                fileDerivativeRepository, properties, transactionManager);
+
+        Photographer photographer = new Photographer();
+        photographer.setName("vinicius");
+        photographer.setEmail("vinicius@test.com");
+        photographer.setPassword("123456");
+        photographer.setRole(UserRole.PHOTOGRAPHER);
+
+        folder = new Folder();
+        folder.setName("wedding");
+        folder.setOwner(photographerRepository.save(photographer));
+        folder.setCreatedAt(LocalDateTime.now());
+        folder = folderRepository.save(folder);
+    }
+
+    private String store(String fileName) throws IOException {
+        byte[] bytes = fileName.getBytes();
+        return storageService.store(new ByteArrayInputStream(bytes), fileName, bytes.length, "image/jpeg");
+    }
+
+    private File createFile(String name, String path) {
+        File file = new File();
+        file.setName(name);
+        file.setStoredName(name);
+        file.setPath(path);
+        file.setSize(100L);
+        file.setContentType("image/jpeg");
+        file.setFolder(folder);
+        return fileRepository.saveAndFlush(file);
+    }
+
+    // ref_count is maintained by a Postgres trigger, so the row is written with it set.
+    private void createBlob(String path) {
+        jdbcTemplate.update("INSERT INTO tb_blobs (id, sha256, path, size, ref_count, created_at) VALUES (?, ?, ?, ?, ?, ?)",
+                1L, "a".repeat(64), path, 100L, 1, LocalDateTime.now());
+    }
+
+    private static boolean exists(String path) {
+        return Files.exists(Paths.get(path));
+    }
+
+    @Test
+    @DisplayName("Should delete only objects no blob, file or legacy path references")
+    void shouldDeleteUnreferencedObjects() throws IOException {
+        String blobPath = store("blob.jpg");
+        createBlob(blobPath);
+        String filePath = store("file.jpg");
+        createFile("file.jpg", filePath);
+        String migratingPath = store("legacy.jpg");
+        createFile("legacy.jpg", storageService.legacyPath(migratingPath));
+        String orphanPath = store("orphan.jpg");
+
+        StorageReconcileService.ReconcileReport report = reconcileService.reconcile(false);
+
+        assertThat(report.scanned()).isEqualTo(4);
+        assertThat(report.orphans()).isEqualTo(1);
+        assertThat(report.orphanBytes()).isEqualTo("orphan.jpg".length());
+        assertThat(report.deleted()).isEqualTo(1);
+        assertThat(report.orphanSample()).containsExactly(orphanPath);
+        assertThat(exists(orphanPath)).isFalse();
+        assertThat(exists(blobPath)).isTrue();
+        assertThat(exists(filePath)).isTrue();
+        assertThat(exists(migratingPath)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should report orphans without deleting anything on a dry run")
+    void shouldOnlyReportOnDryRun() throws IOException {
+        String orphanPath = store("orphan.jpg");
+        String deletedPath = store("deleted.jpg");
+        File deleted = createFile("deleted.jpg", deletedPath);
+        deleted.setDeletedAt(LocalDateTime.now().minusDays(60));
+        fileRepository.saveAndFlush(deleted);
+
+        StorageReconcileService.ReconcileReport report = reconcileService.reconcile(true);
+
+        assertThat(report.dryRun()).isTrue();
+        assertThat(report.purgedFiles()).isEqualTo(1);
+        assertThat(report.orphans()).isEqualTo(1);
+        assertThat(report.deleted()).isZero();
+        assertThat(exists(orphanPath)).isTrue();
+        assertThat(fileRepository.findPathsIn(List.of(deletedPath))).containsExactly(deletedPath);
+        assertThat(reconcileService.getLastReport()).isEqualTo(report);
+    }
+
+    @Test
+    @DisplayName("Should purge files past their retention and then delete their bytes")
+    void shouldPurgeDeletedFilesBeforeScanning() throws IOException {
+        String expiredPath = store("expired.jpg");
+        File expired = createFile("expired.jpg", expiredPath);
+        expired.setDeletedAt(LocalDateTime.now().minusDays(60));
+        fileRepository.saveAndFlush(expired);
+        String recentPath = store("recent.jpg");
+        File recent = createFile("recent.jpg", recentPath);
+        recent.setDeletedAt(LocalDateTime.now().minusDays(1));
+        fileRepository.saveAndFlush(recent);
+
+        StorageReconcileService.ReconcileReport report = reconcileService.reconcile(false);
+
+        assertThat(report.purgedFiles()).isEqualTo(1);
+        assertThat(report.deleted()).isEqualTo(1);
+        assertThat(exists(expiredPath)).isFalse();
+        assertThat(exists(recentPath)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should leave objects younger than the grace period alone")
+    void shouldSkipObjectsWithinGracePeriod() throws IOException {
+        properties.setGrace(Duration.ofHours(1));
+        String orphanPath = store("orphan.jpg");
+
+        StorageReconcileService.ReconcileReport report = reconcileService.reconcile(false);
+
+        assertThat(report.scanned()).isEqualTo(1);
+        assertThat(report.orphans()).isZero();
+        assertThat(exists(orphanPath)).isTrue();
+    }
+}
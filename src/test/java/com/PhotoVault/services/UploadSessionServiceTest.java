@@ -0,0 +1,313 @@
+package com.PhotoVault.services;
+
+import com.PhotoVault.config.DirectUploadProperties;
+import com.PhotoVault.config.FileStorageProperties;
+import com.PhotoVault.config.UploadSessionProperties;
+import com.PhotoVault.dto.request.UploadSessionRequestDTO;
+import com.PhotoVault.dto.response.FileResponseDTO;
+import com.PhotoVault.dto.response.UploadSessionResponseDTO;
+import com.PhotoVault.entities.File;
+import com.PhotoVault.entities.Folder;
+import com.PhotoVault.entities.Photographer;
+import com.PhotoVault.entities.UserRole;
+import com.PhotoVault.exception.ConflictException;
+import com.PhotoVault.exception.ExpiredTokenException;
+import com.PhotoVault.exception.InvalidFileException;
+import com.PhotoVault.repository.BlobRepository;
+import com.PhotoVault.repository.FileDerivativeRepository;
+import com.PhotoVault.repository.FileRepository;
+import com.PhotoVault.repository.FolderRepository;
+import com.PhotoVault.repository.PhotographerRepository;
+import com.PhotoVault.repository.UploadSessionRepository;
+import com.PhotoVault.services.image.DerivativeService;
+import com.PhotoVault.services.storage.LocalStorageService;
+import com.PhotoVault.services.storage.LocalUploadSigner;
+import com.PhotoVault.services.storage.LocalUploadStaging;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.imageio.ImageIO;
+import javax.sql.DataSource;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.flyway.enabled=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class UploadSessionServiceTest {
+
+    private static final String EMAIL = "sessions@test.com";
+    private static final long CHUNK_SIZE = 1024;
+
+    @Container
+    @ServiceConnection
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @TempDir
+    Path uploadDir;
+
+    @TempDir
+    Path stagingDir;
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    @Autowired
+    private PhotographerRepository photographerRepository;
+
+    @Autowired
+    private BlobRepository blobRepository;
+
+    @Autowired
+    private FileDerivativeRepository fileDerivativeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private ThreadPoolTaskExecutor uploadExecutor;
+    private LocalStorageService storageService;
+    private UploadSessionService uploadSessionService;
+    private Long photographerId;
+    private Long folderId;
+
+    @BeforeEach
+    void setUp() {
+        DirectUploadProperties directUploadProperties = new DirectUploadProperties();
+        directUploadProperties.setSecret("test-secret-that-is-long-enough-for-hmac-sha256");
+
+        FileStorageProperties fileStorageProperties = new FileStorageProperties();
+        fileStorageProperties.setDir(uploadDir.toString());
+        fileStorageProperties.setMaxSize(10L * 1024 * 1024);
+        fileStorageProperties.setStreamMaxSize(10L * 1024 * 1024);
+        fileStorageProperties.setAllowedExtensions("jpg,jpeg,png,webp");
+
+        UploadSessionProperties uploadSessionProperties = new UploadSessionProperties();
+        uploadSessionProperties.setStagingDir(stagingDir.toString());
+        uploadSessionProperties.setChunkSize(CHUNK_SIZE);
+
+        storageService = new LocalStorageService(uploadDir.toString(), new LocalUploadSigner(directUploadProperties));
+        FileValidationService fileValidationService = new FileValidationService(fileStorageProperties);
+        BlobStoreService blobStoreService = new BlobStoreService(blobRepository, fileRepository, storageService);
+        uploadExecutor = new ThreadPoolTaskExecutor();
+        uploadExecutor.initialize();
+
+        FileService fileService = new FileService(fileRepository, folderRepository, photographerRepository, fileStorageProperties,
+                storageService, fileValidationService, blobStoreService,
+                new DerivativeService(fileRepository, fileDerivativeRepository, storageService),
+                event -> {
+                }, new DirectUploadTokenService(directUploadProperties), directUploadProperties,
+                uploadExecutor, transactionManager);
+
+        uploadSessionService = new UploadSessionService(uploadSessionRepository, folderRepository, photographerRepository,
+                fileValidationService, fileService, storageService,
+                new LocalUploadStaging(uploadSessionProperties, blobStoreService, fileValidationService),
+                uploadSessionProperties, transactionManager);
+
+        Photographer photographer = new Photographer();
+        photographer.setName("sessions");
+        photographer.setEmail(EMAIL);
+        photographer.setPassword("123456");
+        photographer.setRole(UserRole.PHOTOGRAPHER);
+
+        photographer = photographerRepository.save(photographer);
+        photographerId = photographer.getId();
+
+        Folder folder = new Folder();
+        folder.setName("uploads");
+        folder.setOwner(photographer);
+        folder.setCreatedAt(LocalDateTime.now());
+        folderId = folderRepository.save(folder).getId();
+
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(EMAIL, null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        uploadExecutor.shutdown();
+        uploadSessionRepository.deleteAll();
+        fileRepository.deleteAll();
+        blobRepository.deleteAll();
+        folderRepository.deleteAll();
+        photographerRepository.deleteAll();
+    }
+
+    private static byte[] jpeg(int size) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(32, 32, BufferedImage.TYPE_INT_RGB), "jpg", output);
+        byte[] data = new byte[size];
+        System.arraycopy(output.toByteArray(), 0, data, 0, output.size());
+        return data;
+    }
+
+    // The quota column is read-only in the mapping.
+    private void setQuota(long storageQuotaBytes) {
+        new JdbcTemplate(dataSource).update("UPDATE tb_photographers SET storage_quota_bytes = ? WHERE id = ?",
+                storageQuotaBytes, photographerId);
+    }
+
+    private long storedObjects() throws IOException {
+        try (Stream<StoredObject> objects = storageService.listObjects()) {
+            return objects.count();
+        }
+    }
+
+    private UploadSessionResponseDTO create(long size) {
+        UploadSessionRequestDTO request = new UploadSessionRequestDTO();
+        request.setFileName("IMG_0001.jpg");
+        request.setSize(size);
+        request.setContentType("image/jpeg");
+        return uploadSessionService.createSession(folderId, request);
+    }
+
+    private UploadSessionResponseDTO append(UploadSessionResponseDTO session, byte[] data, int from, int to) {
+        return uploadSessionService.appendChunk(folderId, session.getId(), from,
+                new ByteArrayInputStream(data, from, to - from), to - from);
+    }
+
+    @Test
+    @DisplayName("Should record the chunk size on the session and record the file on completion")
+    void shouldCompleteSession() throws IOException {
+        byte[] data = jpeg(3000);
+        UploadSessionResponseDTO session = create(data.length);
+        assertThat(session.getChunkSize()).isEqualTo(CHUNK_SIZE);
+        assertThat(uploadSessionRepository.findById(session.getId()).orElseThrow().getChunkSize()).isEqualTo(CHUNK_SIZE);
+
+        assertThat(append(session, data, 0, 2048).getOffset()).isEqualTo(2048);
+        assertThat(uploadSessionService.getSession(folderId, session.getId()).getOffset()).isEqualTo(2048);
+        assertThat(append(session, data, 2048, data.length).getOffset()).isEqualTo(data.length);
+
+        FileResponseDTO file = uploadSessionService.completeSession(folderId, session.getId());
+
+        assertThat(file.getSize()).isEqualTo((long) data.length);
+        assertThat(fileRepository.findById(file.getId()).orElseThrow().getCrc32()).isNotNull();
+        assertThat(uploadSessionRepository.findById(session.getId())).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should reject chunks that do not start at the current offset or run past the declared size")
+    void shouldRejectMisplacedChunks() throws IOException {
+        byte[] data = jpeg(3000);
+        UploadSessionResponseDTO session = create(data.length);
+        append(session, data, 0, 1024);
+
+        assertThatThrownBy(() -> append(session, data, 0, 1024))
+                .isInstanceOf(ConflictException.class)
+                .hasMessageContaining("offset 1024");
+        assertThatThrownBy(() -> uploadSessionService.appendChunk(folderId, session.getId(), 1024,
+                new ByteArrayInputStream(new byte[4000]), 4000))
+                .isInstanceOf(InvalidFileException.class);
+        assertThat(uploadSessionService.getSession(folderId, session.getId()).getOffset()).isEqualTo(1024);
+    }
+
+    @Test
+    @DisplayName("Should refuse to complete an upload that is missing bytes")
+    void shouldRejectIncompleteCompletion() throws IOException {
+        byte[] data = jpeg(3000);
+        UploadSessionResponseDTO session = create(data.length);
+        append(session, data, 0, 1024);
+
+        assertThatThrownBy(() -> uploadSessionService.completeSession(folderId, session.getId()))
+                .isInstanceOf(ConflictException.class)
+                .hasMessageContaining("1024 of 3000");
+        assertThat(uploadSessionRepository.findById(session.getId())).isPresent();
+    }
+
+    @Test
+    @DisplayName("Should refuse chunks and completion once the session has expired, and clean it up")
+    void shouldExpireSession() throws IOException {
+        byte[] data = jpeg(1024);
+        UploadSessionResponseDTO session = create(data.length);
+        new JdbcTemplate(dataSource).update("UPDATE tb_upload_sessions SET expires_at = ? WHERE id = ?",
+                LocalDateTime.now().minusMinutes(1), session.getId());
+
+        assertThatThrownBy(() -> append(session, data, 0, data.length)).isInstanceOf(ExpiredTokenException.class);
+        assertThatThrownBy(() -> uploadSessionService.completeSession(folderId, session.getId()))
+                .isInstanceOf(ExpiredTokenException.class);
+
+        uploadSessionService.cleanupExpiredSessions();
+
+        assertThat(uploadSessionRepository.findById(session.getId())).isEmpty();
+        assertThat(stagingDir.resolve(session.getId() + ".part")).doesNotExist();
+    }
+
+    @Test
+    @DisplayName("Should refuse a session larger than the remaining quota")
+    void shouldRejectSessionOverQuota() {
+        setQuota(2048);
+
+        assertThatThrownBy(() -> create(3000))
+                .isInstanceOf(InvalidFileException.class)
+                .hasMessageContaining("quota");
+        assertThat(uploadSessionRepository.count()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should reserve quota on completion and discard the upload when it no longer fits")
+    void shouldReserveQuotaOnCompletion() throws IOException {
+        byte[] data = jpeg(3000);
+        setQuota(4000);
+        UploadSessionResponseDTO session = create(data.length);
+        append(session, data, 0, data.length);
+
+        // Another upload took most of the quota while this one was in progress.
+        File other = new File();
+        other.setName("other.jpg");
+        other.setStoredName("other.jpg");
+        other.setPath("/uploads/other.jpg");
+        other.setSize(2000L);
+        other.setContentType("image/jpeg");
+        other.setUploadDate(LocalDateTime.now());
+        other.setFolder(folderRepository.findById(folderId).orElseThrow());
+        fileRepository.save(other);
+
+        assertThatThrownBy(() -> uploadSessionService.completeSession(folderId, session.getId()))
+                .isInstanceOf(InvalidFileException.class)
+                .hasMessageContaining("quota");
+        assertThat(fileRepository.count()).isEqualTo(1);
+        assertThat(uploadSessionRepository.findById(session.getId())).isEmpty();
+        assertThat(storedObjects()).isZero();
+    }
+}
@@ -0,0 +1,237 @@
+package com.PhotoVault.services.archive;
+
+import com.PhotoVault.config.DirectUploadProperties;
+import com.PhotoVault.entities.File;
+import com.PhotoVault.entities.Folder;
+import com.PhotoVault.entities.Photographer;
+import com.PhotoVault.entities.UserRole;
+import com.PhotoVault.repository.FileRepository;
+import com.PhotoVault.repository.FolderRepository;
+import com.PhotoVault.repository.PhotographerRepository;
+import com.PhotoVault.services.storage.LocalStorageService;
+import com.PhotoVault.services.storage.LocalUploadSigner;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Serves a folder archive through Spring MVC, as PublicShareController does, so resumed and
+ * conditional downloads are checked as a client would receive them.
+ */
+@ActiveProfiles("test")
+@DataJpaTest
+public class FolderArchiveServiceTest {
+
+    @RestController
+    static class ArchiveController {
+
+        private final FolderArchiveService archiveService;
+        private final Folder folder;
+
+        ArchiveController(FolderArchiveService archiveService, Folder folder) {
+            this.archiveService = archiveService;
+            this.folder = folder;
+        }
+
+        @GetMapping("/archive")
+        ResponseEntity<StreamingResponseBody> download(HttpServletRequest request) {
+            return archiveService.download(folder, request);
+        }
+    }
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    @Autowired
+    private PhotographerRepository photographerRepository;
+
+    @TempDir
+    Path uploadDir;
+
+    @TempDir
+    Path tempDir;
+
+    private LocalStorageService storageService;
+    private Folder folder;
+    private MockMvc mockMvc;
+    private final Map<String, byte[]> contents = new HashMap<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        DirectUploadProperties directUploadProperties = new DirectUploadProperties();
+        directUploadProperties.setSecret("test-secret-that-is-long-enough-for-hmac-sha256");
+        storageService = new LocalStorageService(uploadDir.toString(), new LocalUploadSigner(directUploadProperties));
+
+        Photographer photographer = new Photographer();
+        photographer.setName("vinicius");
+        photographer.setEmail("vinicius@test.com");
+        photographer.setPassword("123456");
+        photographer.setRole(UserRole.PHOTOGRAPHER);
+
+        folder = new Folder();
+        folder.setName("wedding");
+        folder.setOwner(photographerRepository.save(photographer));
+        folder.setCreatedAt(LocalDateTime.now());
+        folder = folderRepository.save(folder);
+
+        createFile("first.jpg", 3000, true);
+        createFile("second.jpg", 5000, false);
+
+        FolderArchiveService archiveService = new FolderArchiveService(fileRepository, storageService, 2);
+        mockMvc = MockMvcBuilders.standaloneSetup(new ArchiveController(archiveService, folder)).build();
+    }
+
+    // Files without a CRC-32 are streamed with a data descriptor, so both layouts are covered.
+    private void createFile(String name, int size, boolean withCrc32) throws IOException {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) (i * 31 + name.length());
+        }
+        contents.put(name, bytes);
+
+        File file = new File();
+        file.setName(name);
+        file.setStoredName(name);
+        file.setPath(storageService.store(new ByteArrayInputStream(bytes), name, size, "image/jpeg"));
+        file.setSize((long) size);
+        file.setContentType("image/jpeg");
+        file.setUploadDate(LocalDateTime.of(2024, 5, 1, 12, 0, 0));
+        if (withCrc32) {
+            CRC32 crc32 = new CRC32();
+            crc32.update(bytes);
+            file.setCrc32(crc32.getValue());
+        }
+        file.setFolder(folder);
+        fileRepository.saveAndFlush(file);
+    }
+
+    // Streamed bodies are written on an async dispatch after the handler returns.
+    private MvcResult perform(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request).andReturn();
+        return result.getRequest().isAsyncStarted() ? mockMvc.perform(asyncDispatch(result)).andReturn() : result;
+    }
+
+    private MvcResult fullArchive() throws Exception {
+        MvcResult result = perform(get("/archive"));
+        assertThat(result.getResponse().getStatus()).isEqualTo(200);
+        return result;
+    }
+
+    @Test
+    @DisplayName("Should stream the whole folder as a readable ZIP of the declared length")
+    void shouldServeWholeArchive() throws Exception {
+        MvcResult result = fullArchive();
+        byte[] body = result.getResponse().getContentAsByteArray();
+
+        assertThat(result.getResponse().getHeader(HttpHeaders.CONTENT_LENGTH)).isEqualTo(String.valueOf(body.length));
+        assertThat(result.getResponse().getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(result.getResponse().getHeader(HttpHeaders.ETAG)).startsWith("\"zip-");
+        assertThat(result.getResponse().getHeader(HttpHeaders.CONTENT_DISPOSITION)).contains("wedding.zip");
+
+        // ZipInputStream rejects STORED entries with a data descriptor, so read it as ZipFile does.
+        Path archive = Files.write(tempDir.resolve("wedding.zip"), body);
+        Map<String, byte[]> extracted = new HashMap<>();
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                extracted.put(entry.getName(), zip.getInputStream(entry).readAllBytes());
+            }
+        }
+        assertThat(extracted).containsOnlyKeys(contents.keySet());
+        contents.forEach((name, bytes) -> assertThat(extracted.get(name)).isEqualTo(bytes));
+    }
+
+    @Test
+    @DisplayName("Should resume an interrupted download with 206 and the remaining bytes")
+    void shouldResumeWithPartialContent() throws Exception {
+        byte[] full = fullArchive().getResponse().getContentAsByteArray();
+        int offset = 4000;
+
+        MvcResult result = perform(get("/archive").header(HttpHeaders.RANGE, "bytes=" + offset + "-"));
+
+        assertThat(result.getResponse().getStatus()).isEqualTo(206);
+        assertThat(result.getResponse().getHeader(HttpHeaders.CONTENT_RANGE))
+                .isEqualTo("bytes " + offset + "-" + (full.length - 1) + "/" + full.length);
+        assertThat(result.getResponse().getHeader(HttpHeaders.CONTENT_LENGTH)).isEqualTo(String.valueOf(full.length - offset));
+        assertThat(result.getResponse().getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(full, offset, full.length));
+    }
+
+    @Test
+    @DisplayName("Should honour If-Range only while the ETag still matches the folder")
+    void shouldHonourIfRange() throws Exception {
+        MvcResult full = fullArchive();
+        byte[] body = full.getResponse().getContentAsByteArray();
+        String eTag = full.getResponse().getHeader(HttpHeaders.ETAG);
+
+        MvcResult matching = perform(get("/archive")
+                .header(HttpHeaders.RANGE, "bytes=100-199")
+                .header(HttpHeaders.IF_RANGE, eTag));
+
+        assertThat(matching.getResponse().getStatus()).isEqualTo(206);
+        assertThat(matching.getResponse().getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(body, 100, 200));
+
+        MvcResult stale = perform(get("/archive")
+                .header(HttpHeaders.RANGE, "bytes=100-199")
+                .header(HttpHeaders.IF_RANGE, "\"zip-stale\""));
+
+        assertThat(stale.getResponse().getStatus()).isEqualTo(200);
+        assertThat(stale.getResponse().getHeader(HttpHeaders.CONTENT_RANGE)).isNull();
+        assertThat(stale.getResponse().getContentAsByteArray()).isEqualTo(body);
+    }
+
+    @Test
+    @DisplayName("Should answer a range past the end with 416 and the archive length")
+    void shouldRejectUnsatisfiableRange() throws Exception {
+        int length = fullArchive().getResponse().getContentAsByteArray().length;
+
+        MvcResult result = perform(get("/archive").header(HttpHeaders.RANGE, "bytes=" + length + "-"));
+
+        assertThat(result.getResponse().getStatus()).isEqualTo(416);
+        assertThat(result.getResponse().getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */" + length);
+        assertThat(result.getResponse().getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should answer a matching If-None-Match with 304 without streaming")
+    void shouldAnswerNotModified() throws Exception {
+        String eTag = fullArchive().getResponse().getHeader(HttpHeaders.ETAG);
+
+        MvcResult result = perform(get("/archive").header(HttpHeaders.IF_NONE_MATCH, eTag));
+
+        assertThat(result.getResponse().getStatus()).isEqualTo(304);
+        assertThat(result.getResponse().getContentAsByteArray()).isEmpty();
+    }
+}
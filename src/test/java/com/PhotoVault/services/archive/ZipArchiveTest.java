@@ -0,0 +1,122 @@
+package com.PhotoVault.services.archive;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class ZipArchiveTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final Map<String, byte[]> contents = new HashMap<>();
+
+    private final ZipArchive.EntryOpener opener = (entry, start, end) ->
+            new ByteArrayInputStream(Arrays.copyOfRange(contents.get(entry.path()), (int) start, (int) end + 1));
+
+    private List<ZipArchive.Entry> entries(int count) {
+        return entries(count, true);
+    }
+
+    private List<ZipArchive.Entry> entries(int count, boolean withCrc32) {
+        Random random = new Random(42);
+        List<ZipArchive.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[1000 + i * 517];
+            random.nextBytes(bytes);
+            contents.put("path-" + i, bytes);
+
+            CRC32 crc32 = new CRC32();
+            crc32.update(bytes);
+            entries.add(new ZipArchive.Entry("photo-" + i + ".jpg", "path-" + i, bytes.length,
+                    withCrc32 ? crc32.getValue() : null,
+                    LocalDateTime.of(2024, 5, 6, 7, 8, 10)));
+        }
+        return entries;
+    }
+
+    private byte[] write(ZipArchive archive, long start, long end) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        archive.write(outputStream, start, end, opener, Runnable::run, 2);
+        return outputStream.toByteArray();
+    }
+
+    @Test
+    @DisplayName("Should produce an archive of the declared length readable by standard tools")
+    void shouldProduceReadableArchive() throws Exception {
+        ZipArchive archive = new ZipArchive(entries(4));
+
+        byte[] bytes = write(archive, 0, archive.length() - 1);
+        assertThat(bytes).hasSize((int) archive.length());
+
+        Path zip = tempDir.resolve("folder.zip");
+        Files.write(zip, bytes);
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            assertThat(zipFile.size()).isEqualTo(4);
+            for (int i = 0; i < 4; i++) {
+                byte[] entry = zipFile.getInputStream(zipFile.getEntry("photo-" + i + ".jpg")).readAllBytes();
+                assertThat(entry).isEqualTo(contents.get("path-" + i));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should produce the same bytes when resumed at any offset")
+    void shouldResumeAtAnyOffset() throws Exception {
+        ZipArchive archive = new ZipArchive(entries(3));
+        byte[] full = write(archive, 0, archive.length() - 1);
+
+        for (long split : new long[]{1, 30, 1500, archive.length() - 22, archive.length() - 1}) {
+            ByteArrayOutputStream resumed = new ByteArrayOutputStream();
+            resumed.write(write(archive, 0, split - 1));
+            resumed.write(write(archive, split, archive.length() - 1));
+
+            assertThat(resumed.toByteArray()).as("split at %d", split).isEqualTo(full);
+        }
+    }
+
+    @Test
+    @DisplayName("Should stream entries without a known CRC-32 with data descriptors, resumable at any offset")
+    void shouldWriteDataDescriptors() throws Exception {
+        ZipArchive archive = new ZipArchive(entries(3, false));
+        byte[] full = write(archive, 0, archive.length() - 1);
+        assertThat(full).hasSize((int) archive.length());
+
+        Path zip = tempDir.resolve("descriptors.zip");
+        Files.write(zip, full);
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            for (int i = 0; i < 3; i++) {
+                ZipEntry entry = zipFile.getEntry("photo-" + i + ".jpg");
+                CRC32 crc32 = new CRC32();
+                crc32.update(contents.get("path-" + i));
+                assertThat(entry.getCrc()).isEqualTo(crc32.getValue());
+                assertThat(zipFile.getInputStream(entry).readAllBytes()).isEqualTo(contents.get("path-" + i));
+            }
+        }
+
+        for (long split : new long[]{30, 500, 1040, archive.length() - 60}) {
+            ByteArrayOutputStream resumed = new ByteArrayOutputStream();
+            resumed.write(write(archive, 0, split - 1));
+            resumed.write(write(archive, split, archive.length() - 1));
+
+            assertThat(resumed.toByteArray()).as("split at %d", split).isEqualTo(full);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.PhotoVault.services.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class DiskLruCacheTest {
+
+    @TempDir
+    Path cacheDir;
+
+    private static ByteArrayInputStream bytes(int size) {
+        return new ByteArrayInputStream(new byte[size]);
+    }
+
+    @Test
+    @DisplayName("Should evict least recently used entries when over the size limit")
+    void shouldEvictLeastRecentlyUsed() throws Exception {
+        DiskLruCache cache = new DiskLruCache("test", cacheDir, 300);
+
+        cache.put("a", bytes(100));
+        cache.put("b", bytes(100));
+        cache.put("c", bytes(100));
+        assertThat(cache.get("a")).isNotNull();
+
+        cache.put("d", bytes(100));
+
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("a")).isNotNull();
+        assertThat(cache.get("c")).isNotNull();
+        assertThat(cache.get("d")).isNotNull();
+        assertThat(cache.stats().sizeBytes()).isEqualTo(300);
+        assertThat(cache.stats().evictions()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should run the loader once for concurrent misses on the same key")
+    void shouldCoalesceConcurrentLoads() throws Exception {
+        DiskLruCache cache = new DiskLruCache("test", cacheDir, 1024 * 1024);
+        AtomicInteger loaderCalls = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Path>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return cache.getOrLoad("render", () -> {
+                        loaderCalls.incrementAndGet();
+                        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(200));
+                        return bytes(1000);
+                    });
+                }));
+            }
+            start.countDown();
+
+            for (Future<Path> result : results) {
+                assertThat(Files.size(result.get(5, TimeUnit.SECONDS))).isEqualTo(1000);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(loaderCalls).hasValue(1);
+        assertThat(cache.stats().loads()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should rebuild the index from disk on startup")
+    void shouldRebuildIndexFromDisk() throws Exception {
+        new DiskLruCache("test", cacheDir, 1024).put("a", bytes(200));
+
+        DiskLruCache reopened = new DiskLruCache("test", cacheDir, 1024);
+
+        assertThat(reopened.get("a")).isNotNull();
+        assertThat(reopened.stats().sizeBytes()).isEqualTo(200);
+    }
+}
@@ -0,0 +1,187 @@
+package com.PhotoVault.services.cache;
+
+import com.PhotoVault.config.EntityCacheConfig;
+import com.PhotoVault.config.EntityCacheProperties;
+import com.PhotoVault.entities.Folder;
+import com.PhotoVault.entities.Photographer;
+import com.PhotoVault.entities.ShareLink;
+import com.PhotoVault.entities.UserRole;
+import com.PhotoVault.repository.FolderRepository;
+import com.PhotoVault.repository.PhotographerRepository;
+import com.PhotoVault.repository.ShareLinkRepository;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Runs against Postgres with the real schema, so a folder soft delete goes through the same
+ * statements and triggers as in production.
+ */
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.flyway.enabled=true",
+        "entity-cache.enabled=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class EntityCacheTest {
+
+    @Container
+    @ServiceConnection
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @TestConfiguration
+    @EnableConfigurationProperties(EntityCacheProperties.class)
+    @Import(EntityCacheConfig.class)
+    static class CacheConfig {
+    }
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    @Autowired
+    private PhotographerRepository photographerRepository;
+
+    @Autowired
+    private ShareLinkRepository shareLinkRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterBinder entityCacheMetrics;
+
+    private TransactionTemplate transactionTemplate;
+    private Statistics statistics;
+
+    private String email;
+    private Long folderId;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        email = UUID.randomUUID() + "@test.com";
+        token = UUID.randomUUID().toString();
+        transactionTemplate.executeWithoutResult(status -> {
+            Photographer photographer = new Photographer();
+            photographer.setName("owner");
+            photographer.setEmail(email);
+            photographer.setPassword("123456");
+            photographer.setRole(UserRole.PHOTOGRAPHER);
+
+            Folder folder = new Folder();
+            folder.setName("wedding");
+            folder.setOwner(photographerRepository.save(photographer));
+            folder.setCreatedAt(LocalDateTime.now());
+            folderId = folderRepository.save(folder).getId();
+
+            ShareLink shareLink = new ShareLink();
+            shareLink.setToken(token);
+            shareLink.setFolder(folder);
+            shareLinkRepository.save(shareLink);
+        });
+    }
+
+    // Runs the call in its own transaction and returns the statements it prepared.
+    private <T> long statementsFor(Supplier<T> call) {
+        statistics.clear();
+        transactionTemplate.execute(status -> call.get());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private <T> T inTransaction(Supplier<T> call) {
+        return transactionTemplate.execute(status -> call.get());
+    }
+
+    @Test
+    @DisplayName("Should answer repeated folder, photographer and share link lookups from the cache")
+    void shouldServeRepeatedLookupsFromCache() {
+        statementsFor(() -> folderRepository.findById(folderId));
+        statementsFor(() -> photographerRepository.findByEmail(email));
+        statementsFor(() -> shareLinkRepository.findByToken(token));
+
+        assertThat(statementsFor(() -> folderRepository.findById(folderId).orElseThrow().getOwner().getName())).isZero();
+        assertThat(statementsFor(() -> photographerRepository.findByEmail(email).orElseThrow())).isZero();
+        assertThat(statementsFor(() -> shareLinkRepository.findByToken(token).orElseThrow())).isZero();
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        entityCacheMetrics.bindTo(registry);
+        // Statistics were last cleared before the share link lookup, which was all hits.
+        assertThat(registry.get("cache.gets").tag("cache", "share-link").tag("result", "hit")
+                .functionCounter().count()).isPositive();
+        assertThat(registry.get("cache.hit.ratio").tag("cache", "share-link").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should see updates and revocations made after the entry was cached")
+    void shouldInvalidateOnUpdate() {
+        String newEmail = UUID.randomUUID() + "@test.com";
+        inTransaction(() -> shareLinkRepository.findByToken(token));
+        inTransaction(() -> photographerRepository.findByEmail(email));
+
+        inTransaction(() -> {
+            shareLinkRepository.findByToken(token).orElseThrow().setActive(false);
+            photographerRepository.findByEmail(email).orElseThrow().setEmail(newEmail);
+            return folderRepository.findById(folderId).orElseThrow().getName();
+        });
+        inTransaction(() -> {
+            folderRepository.findById(folderId).orElseThrow().setName("renamed");
+            return null;
+        });
+
+        assertThat(inTransaction(() -> shareLinkRepository.findByToken(token)).orElseThrow().isValid()).isFalse();
+        assertThat(inTransaction(() -> photographerRepository.findByEmail(email))).isEmpty();
+        assertThat(inTransaction(() -> photographerRepository.findByEmail(newEmail))).isPresent();
+        assertThat(inTransaction(() -> folderRepository.findById(folderId)).orElseThrow().getName()).isEqualTo("renamed");
+    }
+
+    @Test
+    @DisplayName("Should not serve a soft-deleted folder or its share links from the cache")
+    void shouldInvalidateOnSoftDelete() {
+        inTransaction(() -> folderRepository.findById(folderId));
+        inTransaction(() -> shareLinkRepository.findByToken(token));
+
+        inTransaction(() -> {
+            folderRepository.deleteById(folderId);
+            return null;
+        });
+
+        assertThat(inTransaction(() -> folderRepository.findById(folderId))).isEmpty();
+        assertThat(inTransaction(() -> shareLinkRepository.findByToken(token))).isEmpty();
+    }
+}
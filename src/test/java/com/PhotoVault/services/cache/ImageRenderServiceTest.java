@@ -0,0 +1,157 @@
+package com.PhotoVault.services.cache;
+
+import com.PhotoVault.config.DirectUploadProperties;
+import com.PhotoVault.config.ImageRenderProperties;
+import com.PhotoVault.entities.File;
+import com.PhotoVault.exception.InvalidFileException;
+import com.PhotoVault.repository.FileDerivativeRepository;
+import com.PhotoVault.services.image.ImageRenderService;
+import com.PhotoVault.services.image.ImageResizer;
+import com.PhotoVault.services.storage.LocalStorageService;
+import com.PhotoVault.services.storage.LocalUploadSigner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Renders through the on-disk cache. The file is not persisted, so it has no derivatives and
+ * every render decodes the original.
+ */
+@ActiveProfiles("test")
+@DataJpaTest
+public class ImageRenderServiceTest {
+
+    @Autowired
+    private FileDerivativeRepository fileDerivativeRepository;
+
+    @TempDir
+    Path uploadDir;
+
+    @TempDir
+    Path cacheDir;
+
+    private ImageRenderService renderService;
+    private File file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        DirectUploadProperties directUploadProperties = new DirectUploadProperties();
+        directUploadProperties.setSecret("test-secret-that-is-long-enough-for-hmac-sha256");
+        LocalStorageService storageService = new LocalStorageService(uploadDir.toString(), new LocalUploadSigner(directUploadProperties));
+
+        ImageRenderProperties properties = new ImageRenderProperties();
+        properties.setCacheDir(cacheDir.toString());
+        properties.setMaxDimension(500);
+        renderService = new ImageRenderService(storageService, fileDerivativeRepository, new ImageResizer(), properties);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB), "png", output);
+        byte[] png = output.toByteArray();
+
+        file = new File();
+        file.setName("photo.png");
+        file.setContentType("image/png");
+        file.setPath(storageService.store(new ByteArrayInputStream(png), "photo.png", png.length, "image/png"));
+    }
+
+    private BufferedImage render(Integer width, Integer height, String fit, Integer quality, Double dpr) throws IOException {
+        ImageRenderService.Rendition rendition = renderService.render(file, width, height, fit, quality, dpr);
+        try (InputStream inputStream = rendition.inputStream()) {
+            assertThat(rendition.contentType()).isEqualTo(ImageResizer.PNG);
+            return ImageIO.read(inputStream);
+        }
+    }
+
+    @Test
+    @DisplayName("Should render on the first request and serve the same rendition from the cache after that")
+    void shouldServeRepeatedRequestsFromCache() throws IOException {
+        BufferedImage first = render(200, null, null, null, null);
+
+        assertThat(renderService.cacheStats().misses()).isEqualTo(1);
+        assertThat(renderService.cacheStats().loads()).isEqualTo(1);
+        assertThat(first.getWidth()).isEqualTo(200);
+        assertThat(first.getHeight()).isEqualTo(150);
+
+        BufferedImage second = render(200, null, null, null, null);
+
+        assertThat(renderService.cacheStats().hits()).isEqualTo(1);
+        assertThat(renderService.cacheStats().loads()).isEqualTo(1);
+        assertThat(renderService.cacheStats().entries()).isEqualTo(1);
+        assertThat(second.getWidth()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("Should share one cache entry between requests that resolve to the same pixels")
+    void shouldShareEntryForEquivalentParameters() throws IOException {
+        render(100, null, null, null, 2.0);
+        render(200, null, null, null, null);
+        // fit only matters when both edges are given.
+        render(200, null, "cover", null, 1.0);
+
+        assertThat(renderService.cacheStats().loads()).isEqualTo(1);
+        assertThat(renderService.cacheStats().hits()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should cache each fit, size and quality separately")
+    void shouldMissForDifferentParameters() throws IOException {
+        BufferedImage contain = render(100, 100, "contain", null, null);
+        BufferedImage cover = render(100, 100, "cover", null, null);
+        render(100, 100, "contain", 50, null);
+        render(120, 100, "contain", null, null);
+
+        assertThat(contain.getWidth()).isEqualTo(100);
+        assertThat(contain.getHeight()).isEqualTo(75);
+        assertThat(cover.getWidth()).isEqualTo(100);
+        assertThat(cover.getHeight()).isEqualTo(100);
+        assertThat(renderService.cacheStats().loads()).isEqualTo(4);
+        assertThat(renderService.cacheStats().hits()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should clamp the scaled size to the configured maximum dimension")
+    void shouldClampToMaxDimension() throws IOException {
+        BufferedImage rendered = render(400, null, null, null, 4.0);
+
+        assertThat(rendered.getWidth()).isEqualTo(500);
+        assertThat(rendered.getHeight()).isEqualTo(375);
+    }
+
+    @Test
+    @DisplayName("Should reject out-of-range parameters before touching storage or the cache")
+    void shouldValidateParameters() {
+        assertThatThrownBy(() -> renderService.render(file, null, null, null, null, null))
+                .isInstanceOf(InvalidFileException.class).hasMessageContaining("w or h");
+        assertThatThrownBy(() -> renderService.render(file, 0, null, null, null, null))
+                .isInstanceOf(InvalidFileException.class).hasMessageContaining("positive");
+        assertThatThrownBy(() -> renderService.render(file, null, -5, null, null, null))
+                .isInstanceOf(InvalidFileException.class).hasMessageContaining("positive");
+        assertThatThrownBy(() -> renderService.render(file, 100, null, null, null, 0.5))
+                .isInstanceOf(InvalidFileException.class).hasMessageContaining("dpr");
+        assertThatThrownBy(() -> renderService.render(file, 100, null, null, null, 4.5))
+                .isInstanceOf(InvalidFileException.class).hasMessageContaining("dpr");
+        assertThatThrownBy(() -> renderService.render(file, 100, null, null, 0, null))
+                .isInstanceOf(InvalidFileException.class).hasMessageContaining("q must be");
+        assertThatThrownBy(() -> renderService.render(file, 100, null, null, 101, null))
+                .isInstanceOf(InvalidFileException.class).hasMessageContaining("q must be");
+        assertThatThrownBy(() -> renderService.render(file, 100, 100, "stretch", null, null))
+                .isInstanceOf(InvalidFileException.class).hasMessageContaining("Unsupported fit");
+
+        assertThat(renderService.cacheStats().misses()).isZero();
+        assertThat(renderService.cacheStats().entries()).isZero();
+    }
+}
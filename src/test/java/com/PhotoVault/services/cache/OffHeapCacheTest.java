@@ -0,0 +1,119 @@
+package com.PhotoVault.services.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class OffHeapCacheTest {
+
+    private static byte[] bytes(int size, int value) {
+        byte[] data = new byte[size];
+        Arrays.fill(data, (byte) value);
+        return data;
+    }
+
+    private static byte[] read(InputStream inputStream) throws IOException {
+        try (inputStream) {
+            return inputStream.readAllBytes();
+        }
+    }
+
+    @Test
+    @DisplayName("Should return the cached bytes across page boundaries")
+    void shouldRoundTripAcrossPages() throws IOException {
+        OffHeapCache cache = new OffHeapCache("test", 1024, 16);
+        byte[] data = new byte[100];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        assertThat(cache.put("a", data)).isTrue();
+
+        assertThat(read(cache.get("a"))).isEqualTo(data);
+        assertThat(cache.get("missing")).isNull();
+        assertThat(cache.stats().sizeBytes()).isEqualTo(112);
+        assertThat(cache.stats().hits()).isEqualTo(1);
+        assertThat(cache.stats().misses()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should evict least recently used entries when out of pages")
+    void shouldEvictLeastRecentlyUsed() throws IOException {
+        OffHeapCache cache = new OffHeapCache("test", 48, 16);
+        cache.put("a", bytes(16, 1));
+        cache.put("b", bytes(16, 2));
+        cache.put("c", bytes(16, 3));
+        read(cache.get("a"));
+
+        cache.put("d", bytes(16, 4));
+
+        assertThat(cache.get("b")).isNull();
+        assertThat(read(cache.get("a"))).containsOnly(1);
+        assertThat(read(cache.get("d"))).containsOnly(4);
+        assertThat(cache.stats().evictions()).isEqualTo(1);
+        assertThat(cache.stats().entries()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should keep an evicted entry readable until its stream is closed")
+    void shouldKeepPinnedEntryUntilClosed() throws IOException {
+        OffHeapCache cache = new OffHeapCache("test", 32, 16);
+        cache.put("a", bytes(32, 1));
+        InputStream reader = cache.get("a");
+
+        cache.invalidate("a");
+        assertThat(cache.put("b", bytes(16, 2))).isFalse();
+        assertThat(read(reader)).containsOnly(1).hasSize(32);
+
+        assertThat(cache.put("b", bytes(32, 2))).isTrue();
+        assertThat(read(cache.get("b"))).containsOnly(2);
+    }
+
+    @Test
+    @DisplayName("Should pass over entries being read when evicting")
+    void shouldSkipPinnedEntriesWhenEvicting() throws IOException {
+        OffHeapCache cache = new OffHeapCache("test", 48, 16);
+        cache.put("a", bytes(16, 1));
+        cache.put("b", bytes(16, 2));
+        cache.put("c", bytes(16, 3));
+        InputStream reader = cache.get("a");
+        read(cache.get("b"));
+        read(cache.get("c"));
+
+        assertThat(cache.put("d", bytes(16, 4))).isTrue();
+
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.stats().evictions()).isEqualTo(1);
+        assertThat(read(reader)).containsOnly(1);
+        assertThat(read(cache.get("a"))).containsOnly(1);
+    }
+
+    @Test
+    @DisplayName("Should evict nothing when the unpinned entries cannot make enough room")
+    void shouldNotEvictWhenRoomCannotBeMade() throws IOException {
+        OffHeapCache cache = new OffHeapCache("test", 32, 16);
+        cache.put("a", bytes(16, 1));
+        cache.put("b", bytes(16, 2));
+        InputStream reader = cache.get("a");
+
+        assertThat(cache.put("c", bytes(32, 3))).isFalse();
+
+        assertThat(cache.stats().evictions()).isZero();
+        assertThat(read(cache.get("b"))).containsOnly(2);
+        reader.close();
+    }
+
+    @Test
+    @DisplayName("Should refuse entries larger than the whole cache")
+    void shouldRejectOversizedEntries() {
+        OffHeapCache cache = new OffHeapCache("test", 64, 16);
+
+        assertThat(cache.put("a", new byte[65])).isFalse();
+        assertThat(cache.stats().sizeBytes()).isZero();
+    }
+}
@@ -0,0 +1,256 @@
+package com.PhotoVault.services.image;
+
+import com.PhotoVault.config.DerivativeProperties;
+import com.PhotoVault.config.DirectUploadProperties;
+import com.PhotoVault.entities.DerivativeStatus;
+import com.PhotoVault.entities.File;
+import com.PhotoVault.entities.FileDerivative;
+import com.PhotoVault.entities.Folder;
+import com.PhotoVault.entities.Photographer;
+import com.PhotoVault.entities.UserRole;
+import com.PhotoVault.repository.FileDerivativeRepository;
+import com.PhotoVault.repository.FileRepository;
+import com.PhotoVault.repository.FolderRepository;
+import com.PhotoVault.repository.PhotographerRepository;
+import com.PhotoVault.services.StorageService;
+import com.PhotoVault.services.storage.LocalStorageService;
+import com.PhotoVault.services.storage.LocalUploadSigner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.transaction.TestTransaction;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Generates derivatives through {@link DerivativeGenerator#generate} and checks the status each
+ * outcome leaves the file in. Everything runs in the test transaction except where a test ends
+ * it to observe what happens to stored bytes on commit or rollback.
+ */
+@ActiveProfiles("test")
+@DataJpaTest
+public class DerivativeServiceTest {
+
+    @TestConfiguration
+    @Import({DerivativeService.class, ImageResizer.class})
+    static class Services {
+
+        @Bean
+        StorageService storageService() throws IOException {
+            DirectUploadProperties directUploadProperties = new DirectUploadProperties();
+            directUploadProperties.setSecret("test-secret-that-is-long-enough-for-hmac-sha256");
+            return new LocalStorageService(Files.createTempDirectory("derivatives").toString(),
+                    new LocalUploadSigner(directUploadProperties));
+        }
+    }
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    @Autowired
+    private PhotographerRepository photographerRepository;
+
+    @Autowired
+    private FileDerivativeRepository fileDerivativeRepository;
+
+    @Autowired
+    private DerivativeService derivativeService;
+
+    @Autowired
+    private ImageResizer imageResizer;
+
+    @Autowired
+    private StorageService storageService;
+
+    private DerivativeGenerator generator;
+    private Folder folder;
+
+    @BeforeEach
+    void setUp() {
+        DerivativeProperties properties = new DerivativeProperties();
+        properties.setSizes(List.of(64, 128));
+        // generate() is called directly, so the executor is never used.
+        generator = new DerivativeGenerator(fileRepository, derivativeService, storageService, imageResizer,
+                new ThreadPoolTaskExecutor(), properties);
+
+        Photographer photographer = new Photographer();
+        photographer.setName("vinicius");
+        // Unique, since the deletion tests commit their data.
+        photographer.setEmail(UUID.randomUUID() + "@test.com");
+        photographer.setPassword("123456");
+        photographer.setRole(UserRole.PHOTOGRAPHER);
+
+        folder = new Folder();
+        folder.setName("wedding");
+        folder.setOwner(photographerRepository.save(photographer));
+        folder.setCreatedAt(LocalDateTime.now());
+        folder = folderRepository.save(folder);
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", output);
+        return output.toByteArray();
+    }
+
+    private String store(String fileName, byte[] bytes) throws IOException {
+        return storageService.store(new ByteArrayInputStream(bytes), fileName, bytes.length, "image/png");
+    }
+
+    private File createFile(String storedName, String path) {
+        File file = new File();
+        file.setName(storedName);
+        file.setStoredName(storedName);
+        file.setPath(path);
+        file.setSize(100L);
+        file.setContentType("image/png");
+        file.setFolder(folder);
+        return fileRepository.saveAndFlush(file);
+    }
+
+    private File generatedFile() throws IOException {
+        String storedName = UUID.randomUUID() + ".png";
+        File file = createFile(storedName, store(storedName, png(400, 300)));
+        generator.generate(file.getId());
+        return file;
+    }
+
+    private static boolean exists(String path) {
+        return Files.exists(Paths.get(path));
+    }
+
+    @Test
+    @DisplayName("Should store a derivative for every configured size smaller than the original and mark the file ready")
+    void shouldGenerateDerivatives() throws IOException {
+        File file = generatedFile();
+
+        assertThat(fileRepository.findById(file.getId()).orElseThrow().getDerivativeStatus())
+                .isEqualTo(DerivativeStatus.READY);
+        List<FileDerivative> derivatives = fileDerivativeRepository.findByFileId(file.getId());
+        assertThat(derivatives).extracting(FileDerivative::getSize).containsExactlyInAnyOrder(64, 128);
+        assertThat(derivatives).allSatisfy(derivative -> {
+            assertThat(exists(derivative.getPath())).isTrue();
+            // The original has no alpha channel, so it is re-encoded as JPEG.
+            assertThat(derivative.getContentType()).isEqualTo(ImageResizer.JPEG);
+            assertThat(Math.max(derivative.getWidth(), derivative.getHeight())).isEqualTo(derivative.getSize());
+        });
+        assertThat(derivativeService.findSizesByFileIds(List.of(file.getId())).get(file.getId()))
+                .containsExactlyInAnyOrder(64, 128);
+    }
+
+    @Test
+    @DisplayName("Should skip sizes the original is already smaller than")
+    void shouldSkipSizesAboveOriginal() throws IOException {
+        File file = createFile("small.png", store("small.png", png(100, 80)));
+
+        generator.generate(file.getId());
+
+        assertThat(fileDerivativeRepository.findByFileId(file.getId()))
+                .extracting(FileDerivative::getSize).containsExactly(64);
+    }
+
+    @Test
+    @DisplayName("Should mark a file that is not a readable image as failed")
+    void shouldMarkUnreadableImageFailed() throws IOException {
+        File file = createFile("broken.png", store("broken.png", "not an image".getBytes()));
+
+        generator.generate(file.getId());
+
+        assertThat(fileRepository.findById(file.getId()).orElseThrow().getDerivativeStatus())
+                .isEqualTo(DerivativeStatus.FAILED);
+        assertThat(fileDerivativeRepository.findByFileId(file.getId())).isEmpty();
+        assertThat(derivativeService.findPendingFileIds(LocalDateTime.now().plusMinutes(1), 10))
+                .doesNotContain(file.getId());
+    }
+
+    @Test
+    @DisplayName("Should leave a file pending after a storage error so the backfill retries it")
+    void shouldRetryAfterStorageError() throws IOException {
+        String storedName = "late.png";
+        LocalStorageService localStorage = (LocalStorageService) storageService;
+        String path = localStorage.shardedPath(storedName).toString();
+        File file = createFile(storedName, path);
+
+        generator.generate(file.getId());
+
+        assertThat(fileRepository.findById(file.getId()).orElseThrow().getDerivativeStatus())
+                .isEqualTo(DerivativeStatus.PENDING);
+        assertThat(derivativeService.findPendingFileIds(LocalDateTime.now().plusMinutes(1), 10))
+                .contains(file.getId());
+
+        store(storedName, png(400, 300));
+        generator.generate(file.getId());
+
+        assertThat(fileRepository.findById(file.getId()).orElseThrow().getDerivativeStatus())
+                .isEqualTo(DerivativeStatus.READY);
+        assertThat(fileDerivativeRepository.findByFileId(file.getId())).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Should only move a pending file to ready or failed")
+    void shouldOnlyTransitionFromPending() throws IOException {
+        File file = generatedFile();
+
+        assertThat(derivativeService.complete(file.getId(), List.of())).isFalse();
+        derivativeService.markFailed(file.getId());
+        assertThat(fileRepository.findById(file.getId()).orElseThrow().getDerivativeStatus())
+                .isEqualTo(DerivativeStatus.READY);
+
+        assertThat(derivativeService.complete(-1L, List.of())).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should delete derivative bytes only once the row delete commits")
+    void shouldDeleteBytesAfterCommit() throws IOException {
+        File file = generatedFile();
+        List<String> paths = fileDerivativeRepository.findByFileId(file.getId()).stream()
+                .map(FileDerivative::getPath)
+                .toList();
+
+        derivativeService.deleteDerivatives(file.getId());
+
+        assertThat(paths).hasSize(2).allMatch(DerivativeServiceTest::exists);
+
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+
+        assertThat(paths).noneMatch(DerivativeServiceTest::exists);
+        assertThat(fileDerivativeRepository.findByFileId(file.getId())).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should keep derivative bytes when the row delete rolls back")
+    void shouldKeepBytesOnRollback() throws IOException {
+        File file = generatedFile();
+        List<String> paths = fileDerivativeRepository.findByFileId(file.getId()).stream()
+                .map(FileDerivative::getPath)
+                .toList();
+
+        derivativeService.deleteDerivatives(file.getId());
+        TestTransaction.end();
+
+        assertThat(paths).hasSize(2).allMatch(DerivativeServiceTest::exists);
+    }
+}
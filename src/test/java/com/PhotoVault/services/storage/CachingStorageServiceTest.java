@@ -0,0 +1,181 @@
+package com.PhotoVault.services.storage;
+
+import com.PhotoVault.services.PresignedUpload;
+import com.PhotoVault.services.StorageService;
+import com.PhotoVault.services.StoredObject;
+import com.PhotoVault.services.cache.DiskLruCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class CachingStorageServiceTest {
+
+    @TempDir
+    Path cacheDir;
+
+    private final InMemoryStorage remote = new InMemoryStorage();
+
+    private CachingStorageService createService(long maxObjectSize) {
+        return new CachingStorageService(remote, new DiskLruCache("test", cacheDir, 1024 * 1024), maxObjectSize);
+    }
+
+    private static byte[] read(Resource resource) throws IOException {
+        try (InputStream inputStream = resource.getInputStream()) {
+            return inputStream.readAllBytes();
+        }
+    }
+
+    @Test
+    @DisplayName("Should fetch an object from the store once and serve repeated reads from disk")
+    void shouldServeRepeatedReadsFromCache() throws IOException {
+        CachingStorageService service = createService(1024);
+        remote.objects.put("a.jpg", new byte[]{1, 2, 3, 4, 5});
+
+        assertThat(read(service.load("a.jpg"))).containsExactly(1, 2, 3, 4, 5);
+        assertThat(read(service.load("a.jpg"))).containsExactly(1, 2, 3, 4, 5);
+        try (InputStream range = service.loadRange("a.jpg", 1, 3)) {
+            assertThat(range.readAllBytes()).containsExactly(2, 3, 4);
+        }
+
+        assertThat(remote.loads).hasValue(1);
+        assertThat(remote.rangeLoads).hasValue(0);
+    }
+
+    @Test
+    @DisplayName("Should stream objects over the size limit without caching them")
+    void shouldBypassCacheForLargeObjects() throws IOException {
+        CachingStorageService service = createService(4);
+        remote.objects.put("large.jpg", new byte[]{1, 2, 3, 4, 5});
+
+        assertThat(read(service.load("large.jpg"))).hasSize(5);
+        assertThat(read(service.load("large.jpg"))).hasSize(5);
+
+        assertThat(remote.loads).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Should drop the cached copy when the object is deleted")
+    void shouldInvalidateOnDelete() throws IOException {
+        CachingStorageService service = createService(1024);
+        remote.objects.put("a.jpg", new byte[]{1, 2, 3});
+        read(service.load("a.jpg"));
+
+        service.delete("a.jpg");
+
+        assertThatThrownBy(() -> service.load("a.jpg")).isInstanceOf(IOException.class);
+    }
+
+    private static class InMemoryStorage implements StorageService {
+
+        final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+        final AtomicInteger loads = new AtomicInteger();
+        final AtomicInteger rangeLoads = new AtomicInteger();
+
+        @Override
+        public String store(MultipartFile file, String fileName) throws IOException {
+            return store(file.getInputStream(), fileName, file.getSize(), file.getContentType());
+        }
+
+        @Override
+        public String store(InputStream inputStream, String fileName, long size, String contentType) throws IOException {
+            objects.put(fileName, inputStream.readAllBytes());
+            return fileName;
+        }
+
+        @Override
+        public Resource load(String filePath) throws IOException {
+            byte[] bytes = objects.get(filePath);
+            if (bytes == null) {
+                throw new IOException("Not found: " + filePath);
+            }
+            loads.incrementAndGet();
+            return new InputStreamResource(new ByteArrayInputStream(bytes));
+        }
+
+        @Override
+        public InputStream loadRange(String filePath, long start, long end) {
+            rangeLoads.incrementAndGet();
+            return new ByteArrayInputStream(Arrays.copyOfRange(objects.get(filePath), (int) start, (int) end + 1));
+        }
+
+        @Override
+        public void delete(String filePath) {
+            objects.remove(filePath);
+        }
+
+        @Override
+        public boolean exists(String filePath) {
+            return objects.containsKey(filePath);
+        }
+
+        @Override
+        public Path getLocalPath(String filePath) {
+            return null;
+        }
+
+        @Override
+        public String getPublicUrl(String filePath) {
+            return null;
+        }
+
+        @Override
+        public String generatePresignedUrl(String filePath, long expirationMinutes) {
+            return null;
+        }
+
+        @Override
+        public String generatePresignedUrl(String filePath, Duration expiration, String contentType, String contentDisposition) {
+            return null;
+        }
+
+        @Override
+        public PresignedUpload generatePresignedUpload(String fileName, long size, String contentType, String sha256, Duration expiration) {
+            return null;
+        }
+
+        @Override
+        public String resolvePath(String fileName) {
+            return fileName;
+        }
+
+        @Override
+        public Long getSize(String filePath) {
+            byte[] bytes = objects.get(filePath);
+            return bytes != null ? (long) bytes.length : null;
+        }
+
+        @Override
+        public String legacyPath(String filePath) {
+            return null;
+        }
+
+        @Override
+        public Stream<StoredObject> listObjects() {
+            return objects.entrySet().stream()
+                    .map(entry -> new StoredObject(entry.getKey(), entry.getValue().length, Instant.EPOCH));
+        }
+
+        @Override
+        public int deleteAll(List<String> filePaths) {
+            return (int) filePaths.stream().filter(path -> objects.remove(path) != null).count();
+        }
+    }
+}
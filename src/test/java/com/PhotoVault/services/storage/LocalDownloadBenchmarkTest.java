@@ -0,0 +1,159 @@
+package com.PhotoVault.services.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.UrlResource;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Compares the old download path (UrlResource stream copied through an 8KB heap buffer,
+ * as ResourceHttpMessageConverter does) with FileChannel.transferTo into a socket, which
+ * is what Tomcat's sendfile support ends up calling. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class LocalDownloadBenchmarkTest {
+
+    private static final long FILE_SIZE = 256L * 1024 * 1024;
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int MEASURED_ROUNDS = 5;
+    private static final double GIGABYTE = 1024.0 * 1024 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private Path file;
+    private ServerSocketChannel server;
+    private ExecutorService drainExecutor;
+
+    private interface Sender {
+        void send(Path file, SocketChannel socket) throws IOException;
+    }
+
+    private record Result(double megabytesPerSecond, double cpuMillisPerGigabyte) {
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = tempDir.resolve("original.jpg");
+        byte[] chunk = new byte[1024 * 1024];
+        new Random(7).nextBytes(chunk);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (long written = 0; written < FILE_SIZE; written += chunk.length) {
+                out.write(chunk);
+            }
+        }
+
+        server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        drainExecutor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        drainExecutor.shutdownNow();
+        server.close();
+    }
+
+    private long sendOnce(Sender sender) throws Exception {
+        Future<Long> received = drainExecutor.submit(() -> {
+            try (SocketChannel client = server.accept()) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(256 * 1024);
+                long total = 0;
+                int read;
+                while ((read = client.read(buffer)) != -1) {
+                    total += read;
+                    buffer.clear();
+                }
+                return total;
+            }
+        });
+
+        try (SocketChannel socket = SocketChannel.open(server.getLocalAddress())) {
+            sender.send(file, socket);
+        }
+        return received.get();
+    }
+
+    private Result measure(Sender sender) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sendOnce(sender);
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long cpuStart = threads.getCurrentThreadCpuTime();
+        long wallStart = System.nanoTime();
+        long bytes = 0;
+
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            bytes += sendOnce(sender);
+        }
+
+        long wallNanos = System.nanoTime() - wallStart;
+        long cpuNanos = threads.getCurrentThreadCpuTime() - cpuStart;
+
+        assertThat(bytes).isEqualTo(FILE_SIZE * MEASURED_ROUNDS);
+
+        double gigabytes = bytes / GIGABYTE;
+        return new Result(
+                (bytes / (1024.0 * 1024)) / (wallNanos / 1e9),
+                (cpuNanos / 1e6) / gigabytes
+        );
+    }
+
+    private static void copyThroughHeap(Path file, SocketChannel socket) throws IOException {
+        try (InputStream in = new UrlResource(file.toUri()).getInputStream()) {
+            StreamUtils.copy(in, Channels.newOutputStream(socket));
+        }
+    }
+
+    private static void transferTo(Path file, SocketChannel socket) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long position = 0;
+            long size = channel.size();
+            while (position < size) {
+                position += channel.transferTo(position, size - position, socket);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should compare throughput and CPU per GB of heap copy and transferTo downloads")
+    void compareCopyAndZeroCopy(TestReporter reporter) throws Exception {
+        Result copy = measure(LocalDownloadBenchmarkTest::copyThroughHeap);
+        Result zeroCopy = measure(LocalDownloadBenchmarkTest::transferTo);
+
+        reporter.publishEntry("copy path", String.format("%.1f MB/s, %.1f ms CPU/GB",
+                copy.megabytesPerSecond(), copy.cpuMillisPerGigabyte()));
+        reporter.publishEntry("transferTo path", String.format("%.1f MB/s, %.1f ms CPU/GB",
+                zeroCopy.megabytesPerSecond(), zeroCopy.cpuMillisPerGigabyte()));
+
+        assertThat(zeroCopy.megabytesPerSecond()).isPositive();
+        assertThat(copy.megabytesPerSecond()).isPositive();
+    }
+}
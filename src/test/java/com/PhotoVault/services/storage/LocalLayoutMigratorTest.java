@@ -0,0 +1,171 @@
+package com.PhotoVault.services.storage;
+
+import com.PhotoVault.config.DirectUploadProperties;
+import com.PhotoVault.entities.File;
+import com.PhotoVault.entities.Folder;
+import com.PhotoVault.entities.Photographer;
+import com.PhotoVault.entities.UserRole;
+import com.PhotoVault.repository.BlobRepository;
+import com.PhotoVault.repository.FileRepository;
+import com.PhotoVault.repository.FolderRepository;
+import com.PhotoVault.repository.PhotographerRepository;
+import com.PhotoVault.services.BlobStoreService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.flyway.enabled=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class LocalLayoutMigratorTest {
+
+    @Container
+    @ServiceConnection
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @TempDir
+    Path uploadDir;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    @Autowired
+    private PhotographerRepository photographerRepository;
+
+    @Autowired
+    private BlobRepository blobRepository;
+
+    private LocalStorageService storageService;
+    private LocalLayoutMigrator migrator;
+    private Folder folder;
+
+    @BeforeEach
+    void setUp() {
+        DirectUploadProperties directUploadProperties = new DirectUploadProperties();
+        directUploadProperties.setSecret("test-secret-that-is-long-enough-for-hmac-sha256");
+        storageService = new LocalStorageService(uploadDir.toString(), new LocalUploadSigner(directUploadProperties));
+
+        // No grace period, so a link counts as old enough as soon as it exists.
+        migrator = new LocalLayoutMigrator(storageService, fileRepository, blobRepository,
+                new BlobStoreService(blobRepository, fileRepository, storageService), 100, Duration.ZERO);
+
+        Photographer photographer = new Photographer();
+        photographer.setName("migrator");
+        photographer.setEmail(UUID.randomUUID() + "@test.com");
+        photographer.setPassword("123456");
+        photographer.setRole(UserRole.PHOTOGRAPHER);
+
+        folder = new Folder();
+        folder.setName("legacy");
+        folder.setOwner(photographerRepository.save(photographer));
+        folder.setCreatedAt(LocalDateTime.now());
+        folder = folderRepository.save(folder);
+    }
+
+    // A file stored by the old flat layout, with its row pointing at the flat name.
+    private File legacyFile() throws IOException {
+        String storedName = UUID.randomUUID() + ".jpg";
+        Path flat = storageService.getStorageLocation().resolve(storedName);
+        Files.write(flat, new byte[]{1, 2, 3});
+
+        File file = new File();
+        file.setName("IMG_0001.jpg");
+        file.setStoredName(storedName);
+        file.setPath(flat.toString());
+        file.setSize(3L);
+        file.setContentType("image/jpeg");
+        file.setUploadDate(LocalDateTime.now());
+        file.setFolder(folder);
+        return fileRepository.save(file);
+    }
+
+    private String pathOf(File file) {
+        return fileRepository.findById(file.getId()).orElseThrow().getPath();
+    }
+
+    @Test
+    @DisplayName("Should move flat files to the sharded layout and unlink the flat name on the next run")
+    void shouldMigrateFlatFiles() throws IOException {
+        File file = legacyFile();
+        Path flat = Path.of(file.getPath());
+        Path sharded = storageService.shardedPath(file.getStoredName());
+
+        migrator.migrateBatch();
+
+        assertThat(pathOf(file)).isEqualTo(sharded.toString());
+        assertThat(Files.isSameFile(flat, sharded)).isTrue();
+
+        migrator.migrateBatch();
+
+        assertThat(flat).doesNotExist();
+        assertThat(sharded).hasBinaryContent(new byte[]{1, 2, 3});
+    }
+
+    @Test
+    @DisplayName("Should keep the flat name of a file linked before a crash and relocate it on the next pass")
+    void shouldKeepFlatNameUntilRelocated() throws IOException {
+        File file = legacyFile();
+        Path flat = Path.of(file.getPath());
+        Path sharded = storageService.shardedPath(file.getStoredName());
+
+        // What a crash between linking and relocating leaves behind.
+        Files.createDirectories(sharded.getParent());
+        Files.createLink(sharded, flat);
+
+        migrator.migrateBatch();
+
+        assertThat(pathOf(file)).isEqualTo(sharded.toString());
+        assertThat(flat).exists();
+
+        migrator.migrateBatch();
+
+        assertThat(flat).doesNotExist();
+        assertThat(storageService.exists(pathOf(file))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should relocate a file whose flat name is gone but whose sharded link exists")
+    void shouldRelocateWhenFlatNameIsGone() throws IOException {
+        File file = legacyFile();
+        Path flat = Path.of(file.getPath());
+        Path sharded = storageService.shardedPath(file.getStoredName());
+
+        Files.createDirectories(sharded.getParent());
+        Files.createLink(sharded, flat);
+        Files.delete(flat);
+
+        migrator.migrateBatch();
+
+        assertThat(pathOf(file)).isEqualTo(sharded.toString());
+        assertThat(storageService.exists(pathOf(file))).isTrue();
+    }
+}
@@ -0,0 +1,71 @@
+package com.PhotoVault.services.storage;
+
+import com.PhotoVault.config.DirectUploadProperties;
+import com.PhotoVault.services.StoredObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class LocalStorageServiceTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private LocalStorageService createService() {
+        DirectUploadProperties properties = new DirectUploadProperties();
+        properties.setSecret("test-secret");
+        return new LocalStorageService(uploadDir.toString(), new LocalUploadSigner(properties));
+    }
+
+    private static String store(LocalStorageService service, String name, int size) throws IOException {
+        return service.store(new ByteArrayInputStream(new byte[size]), name, size, "image/jpeg");
+    }
+
+    @Test
+    @DisplayName("Should list sharded objects and leave files in the flat layout to the migrator")
+    void shouldListShardedObjectsOnly() throws IOException {
+        LocalStorageService service = createService();
+        String first = store(service, "a.jpg", 3);
+        String second = store(service, "b.jpg", 5);
+        Files.write(service.getStorageLocation().resolve("legacy.jpg"), new byte[7]);
+
+        try (Stream<StoredObject> objects = service.listObjects()) {
+            assertThat(objects.toList())
+                    .extracting(StoredObject::path, StoredObject::size)
+                    .containsExactlyInAnyOrder(tuple(first, 3L), tuple(second, 5L));
+        }
+    }
+
+    @Test
+    @DisplayName("Should map sharded objects to the flat name they had before the layout migration")
+    void shouldResolveLegacyPath() throws IOException {
+        LocalStorageService service = createService();
+        String sharded = store(service, "a.jpg", 3);
+
+        assertThat(service.legacyPath(sharded)).isEqualTo(service.getStorageLocation().resolve("a.jpg").toString());
+        assertThat(service.legacyPath(service.getStorageLocation().resolve("a.jpg").toString())).isNull();
+    }
+
+    @Test
+    @DisplayName("Should delete a batch of objects and count only those that existed")
+    void shouldDeleteAll() throws IOException {
+        LocalStorageService service = createService();
+        String first = store(service, "a.jpg", 3);
+        String second = store(service, "b.jpg", 5);
+
+        int deleted = service.deleteAll(List.of(first, second, service.resolvePath("missing.jpg")));
+
+        assertThat(deleted).isEqualTo(2);
+        assertThat(service.exists(first)).isFalse();
+        assertThat(service.exists(second)).isFalse();
+    }
+}
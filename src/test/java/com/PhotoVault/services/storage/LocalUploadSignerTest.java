@@ -0,0 +1,65 @@
+package com.PhotoVault.services.storage;
+
+import com.PhotoVault.config.DirectUploadProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class LocalUploadSignerTest {
+
+    private static final String SHA256 = "ab".repeat(32);
+
+    private LocalUploadSigner signer;
+    private long expiresAt;
+    private String signature;
+
+    @BeforeEach
+    void setUp() {
+        DirectUploadProperties properties = new DirectUploadProperties();
+        properties.setSecret("test-secret-that-is-long-enough-for-hmac-sha256");
+        signer = new LocalUploadSigner(properties);
+
+        expiresAt = Instant.now().plusSeconds(300).getEpochSecond();
+        signature = signer.sign("photo.jpg", 1024, "image/jpeg", SHA256, expiresAt);
+    }
+
+    @Test
+    @DisplayName("Should accept the parameters it signed")
+    void shouldVerifyOwnSignature() {
+        assertThat(signer.verify("photo.jpg", 1024, "image/jpeg", SHA256, expiresAt, signature)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should reject a signature when any signed parameter was changed")
+    void shouldRejectTamperedParameters() {
+        assertThat(signer.verify("other.jpg", 1024, "image/jpeg", SHA256, expiresAt, signature)).isFalse();
+        assertThat(signer.verify("photo.jpg", 1025, "image/jpeg", SHA256, expiresAt, signature)).isFalse();
+        assertThat(signer.verify("photo.jpg", 1024, "image/png", SHA256, expiresAt, signature)).isFalse();
+        assertThat(signer.verify("photo.jpg", 1024, "image/jpeg", "cd".repeat(32), expiresAt, signature)).isFalse();
+        assertThat(signer.verify("photo.jpg", 1024, "image/jpeg", SHA256, expiresAt + 3600, signature)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should reject a missing signature or one made with another secret")
+    void shouldRejectForeignSignature() {
+        DirectUploadProperties properties = new DirectUploadProperties();
+        properties.setSecret("another-secret-that-is-long-enough-for-hmac");
+        String foreign = new LocalUploadSigner(properties).sign("photo.jpg", 1024, "image/jpeg", SHA256, expiresAt);
+
+        assertThat(signer.verify("photo.jpg", 1024, "image/jpeg", SHA256, expiresAt, foreign)).isFalse();
+        assertThat(signer.verify("photo.jpg", 1024, "image/jpeg", SHA256, expiresAt, null)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should reject a correctly signed URL once it has expired")
+    void shouldRejectExpiredSignature() {
+        long expired = Instant.now().minusSeconds(1).getEpochSecond();
+        String expiredSignature = signer.sign("photo.jpg", 1024, "image/jpeg", SHA256, expired);
+
+        assertThat(signer.verify("photo.jpg", 1024, "image/jpeg", SHA256, expired, expiredSignature)).isFalse();
+    }
+}
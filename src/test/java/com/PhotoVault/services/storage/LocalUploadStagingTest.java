@@ -0,0 +1,141 @@
+package com.PhotoVault.services.storage;
+
+import com.PhotoVault.config.DirectUploadProperties;
+import com.PhotoVault.config.FileStorageProperties;
+import com.PhotoVault.config.UploadSessionProperties;
+import com.PhotoVault.entities.UploadSession;
+import com.PhotoVault.services.BlobStoreService;
+import com.PhotoVault.services.FileValidationService;
+import com.PhotoVault.services.UploadStaging;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class LocalUploadStagingTest {
+
+    @TempDir
+    Path uploadDir;
+
+    @TempDir
+    Path stagingDir;
+
+    private LocalStorageService storageService;
+    private LocalUploadStaging staging;
+
+    @BeforeEach
+    void setUp() {
+        DirectUploadProperties directUploadProperties = new DirectUploadProperties();
+        directUploadProperties.setSecret("test-secret-that-is-long-enough-for-hmac-sha256");
+        storageService = new LocalStorageService(uploadDir.toString(), new LocalUploadSigner(directUploadProperties));
+
+        FileStorageProperties fileStorageProperties = new FileStorageProperties();
+        fileStorageProperties.setAllowedExtensions("jpg,jpeg,png,webp");
+
+        UploadSessionProperties properties = new UploadSessionProperties();
+        properties.setStagingDir(stagingDir.toString());
+        properties.setChunkSize(1024L);
+
+        // Staging only writes to storage; registering the blob is left to the caller.
+        staging = new LocalUploadStaging(properties, new BlobStoreService(null, null, storageService),
+                new FileValidationService(fileStorageProperties));
+    }
+
+    // A real JPEG header followed by padding, so the content passes validation at any size.
+    private static byte[] jpeg(int size) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(32, 32, BufferedImage.TYPE_INT_RGB), "jpg", output);
+        byte[] data = Arrays.copyOf(output.toByteArray(), size);
+        byte[] padding = new byte[size - output.size()];
+        new Random(42).nextBytes(padding);
+        System.arraycopy(padding, 0, data, output.size(), padding.length);
+        return data;
+    }
+
+    private UploadSession begin(long size) throws IOException {
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setStoredName(UUID.randomUUID() + ".jpg");
+        session.setContentType("image/jpeg");
+        session.setSize(size);
+        session.setChunkSize(staging.getChunkSize());
+        staging.begin(session);
+        return session;
+    }
+
+    private long append(UploadSession session, byte[] data, int from, int to) throws IOException {
+        long offset = staging.append(session, new ByteArrayInputStream(data, from, to - from), to - from);
+        session.setUploadOffset(offset);
+        return offset;
+    }
+
+    @Test
+    @DisplayName("Should accept chunks of any length and report a short offset for a cut-off chunk")
+    void shouldAppendChunks() throws IOException {
+        byte[] data = jpeg(3000);
+        UploadSession session = begin(data.length);
+
+        assertThat(append(session, data, 0, 700)).isEqualTo(700);
+
+        // The client announced the rest but went away after 500 bytes.
+        InputStream cutOff = new ByteArrayInputStream(data, 700, 500);
+        session.setUploadOffset(staging.append(session, cutOff, data.length - 700));
+        assertThat(session.getUploadOffset()).isEqualTo(1200);
+
+        assertThat(append(session, data, 1200, data.length)).isEqualTo(data.length);
+    }
+
+    @Test
+    @DisplayName("Should drop bytes past the recorded offset before writing the next chunk")
+    void shouldTruncateUnrecordedBytes() throws IOException {
+        byte[] data = jpeg(2048);
+        UploadSession session = begin(data.length);
+        append(session, data, 0, 1024);
+
+        // A chunk that was written but whose offset never reached the database.
+        Files.write(stagingDir.resolve(session.getId() + ".part"), new byte[300], StandardOpenOption.APPEND);
+
+        append(session, data, 1024, data.length);
+        UploadStaging.CompletedUpload completed = staging.complete(session);
+
+        assertThat(storageService.load(completed.blob().path()).getInputStream().readAllBytes()).isEqualTo(data);
+    }
+
+    @Test
+    @DisplayName("Should move the completed file into storage with its hash and CRC-32")
+    void shouldCompleteUpload() throws Exception {
+        byte[] data = jpeg(5000);
+        UploadSession session = begin(data.length);
+        append(session, data, 0, 2048);
+        append(session, data, 2048, data.length);
+
+        UploadStaging.CompletedUpload completed = staging.complete(session);
+
+        CRC32 crc32 = new CRC32();
+        crc32.update(data);
+        assertThat(completed.crc32()).isEqualTo(crc32.getValue());
+        assertThat(completed.blob().sha256())
+                .isEqualTo(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data)));
+        assertThat(completed.blob().size()).isEqualTo(data.length);
+        assertThat(storageService.load(completed.blob().path()).getInputStream().readAllBytes()).isEqualTo(data);
+        assertThat(stagingDir.resolve(session.getId() + ".part")).doesNotExist();
+    }
+}
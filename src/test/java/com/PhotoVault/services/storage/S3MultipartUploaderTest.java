@@ -0,0 +1,136 @@
+package com.PhotoVault.services.storage;
+
+import com.PhotoVault.config.S3MultipartProperties;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.localstack.LocalStackContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ListMultipartUploadsRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.*;
+
+@Testcontainers(disabledWithoutDocker = true)
+public class S3MultipartUploaderTest {
+
+    private static final String BUCKET = "photovault-test";
+    private static final int PART_SIZE = 5 * 1024 * 1024;
+
+    @Container
+    private static final LocalStackContainer localstack =
+            new LocalStackContainer(DockerImageName.parse("localstack/localstack:3.8"))
+                    .withServices(LocalStackContainer.Service.S3);
+
+    private static S3Client s3Client;
+    private static ExecutorService executor;
+
+    @BeforeAll
+    static void setUp() {
+        s3Client = S3Client.builder()
+                .endpointOverride(localstack.getEndpoint())
+                .region(Region.of(localstack.getRegion()))
+                .credentialsProvider(StaticCredentialsProvider.create(
+                        AwsBasicCredentials.create(localstack.getAccessKey(), localstack.getSecretKey())))
+                .forcePathStyle(true)
+                .build();
+        s3Client.createBucket(request -> request.bucket(BUCKET));
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        executor.shutdown();
+        s3Client.close();
+    }
+
+    private S3MultipartUploader createUploader() {
+        S3MultipartProperties properties = new S3MultipartProperties();
+        properties.setPartSize((long) PART_SIZE);
+        properties.setMaxConcurrency(3);
+        properties.setMaxRetries(2);
+        return new S3MultipartUploader(s3Client, executor, properties);
+    }
+
+    private byte[] randomBytes(int size) {
+        byte[] data = new byte[size];
+        new Random(42).nextBytes(data);
+        return data;
+    }
+
+    @Test
+    @DisplayName("Should upload a stream in several parts and reassemble it in order")
+    void shouldUploadInParts() throws IOException {
+        byte[] data = randomBytes(PART_SIZE * 3 + 1234);
+
+        createUploader().upload(BUCKET, "large.jpg", new ByteArrayInputStream(data), "image/jpeg");
+
+        byte[] stored = s3Client.getObjectAsBytes(request -> request.bucket(BUCKET).key("large.jpg")).asByteArray();
+        assertThat(stored).isEqualTo(data);
+    }
+
+    @Test
+    @DisplayName("Should upload a stream whose size is an exact multiple of the part size")
+    void shouldUploadExactMultipleOfPartSize() throws IOException {
+        byte[] data = randomBytes(PART_SIZE * 2);
+
+        createUploader().upload(BUCKET, "exact.jpg", new ByteArrayInputStream(data), "image/jpeg");
+
+        byte[] stored = s3Client.getObjectAsBytes(request -> request.bucket(BUCKET).key("exact.jpg")).asByteArray();
+        assertThat(stored).isEqualTo(data);
+    }
+
+    @Test
+    @DisplayName("Should abort the multipart upload when the source stream fails")
+    void shouldAbortWhenStreamFails() {
+        InputStream failingStream = new InputStream() {
+            private long remaining = PART_SIZE * 2L;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining-- <= 0) {
+                    throw new IOException("connection reset by client");
+                }
+                return 1;
+            }
+        };
+
+        assertThatThrownBy(() -> createUploader().upload(BUCKET, "broken.jpg", failingStream, "image/jpeg"))
+                .isInstanceOf(IOException.class);
+
+        assertThat(s3Client.listMultipartUploads(ListMultipartUploadsRequest.builder().bucket(BUCKET).build()).uploads())
+                .noneMatch(upload -> upload.key().equals("broken.jpg"));
+    }
+
+    @Test
+    @DisplayName("Should complete an upload from parts sent separately, keeping the latest copy of a resent part")
+    void shouldCompleteFromSeparatelySentParts() {
+        S3MultipartUploader uploader = createUploader();
+        byte[] data = randomBytes(PART_SIZE + 1000);
+        byte[] firstAttempt = new byte[PART_SIZE];
+
+        String uploadId = uploader.createUpload(BUCKET, "resumed.jpg", "image/jpeg");
+        uploader.uploadPart(BUCKET, "resumed.jpg", uploadId, 1, firstAttempt, PART_SIZE);
+        uploader.uploadPart(BUCKET, "resumed.jpg", uploadId, 1, data, PART_SIZE);
+        uploader.uploadPart(BUCKET, "resumed.jpg", uploadId, 2, Arrays.copyOfRange(data, PART_SIZE, data.length), 1000);
+
+        assertThat(uploader.completeUpload(BUCKET, "resumed.jpg", uploadId)).isEqualTo(2);
+
+        byte[] stored = s3Client.getObjectAsBytes(request -> request.bucket(BUCKET).key("resumed.jpg")).asByteArray();
+        assertThat(stored).isEqualTo(data);
+    }
+}
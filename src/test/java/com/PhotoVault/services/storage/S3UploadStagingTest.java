@@ -0,0 +1,164 @@
+package com.PhotoVault.services.storage;
+
+import com.PhotoVault.config.FileStorageProperties;
+import com.PhotoVault.config.S3MultipartProperties;
+import com.PhotoVault.entities.UploadSession;
+import com.PhotoVault.exception.InvalidFileException;
+import com.PhotoVault.services.FileValidationService;
+import com.PhotoVault.services.UploadStaging;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.localstack.LocalStackContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.*;
+
+@Testcontainers(disabledWithoutDocker = true)
+public class S3UploadStagingTest {
+
+    private static final String BUCKET = "photovault-staging-test";
+    private static final int PART_SIZE = 5 * 1024 * 1024;
+
+    @Container
+    private static final LocalStackContainer localstack =
+            new LocalStackContainer(DockerImageName.parse("localstack/localstack:3.8"))
+                    .withServices(LocalStackContainer.Service.S3);
+
+    private static S3Client s3Client;
+    private static S3Presigner s3Presigner;
+    private static ExecutorService executor;
+    private static S3StorageService storageService;
+    private static S3UploadStaging staging;
+
+    @BeforeAll
+    static void setUp() {
+        StaticCredentialsProvider credentials = StaticCredentialsProvider.create(
+                AwsBasicCredentials.create(localstack.getAccessKey(), localstack.getSecretKey()));
+        s3Client = S3Client.builder()
+                .endpointOverride(localstack.getEndpoint())
+                .region(Region.of(localstack.getRegion()))
+                .credentialsProvider(credentials)
+                .forcePathStyle(true)
+                .build();
+        s3Presigner = S3Presigner.builder()
+                .endpointOverride(localstack.getEndpoint())
+                .region(Region.of(localstack.getRegion()))
+                .credentialsProvider(credentials)
+                .build();
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+
+        // Configured larger than the sessions' recorded part size, which must win.
+        S3MultipartProperties multipartProperties = new S3MultipartProperties();
+        multipartProperties.setPartSize(2L * PART_SIZE);
+
+        FileStorageProperties fileStorageProperties = new FileStorageProperties();
+        fileStorageProperties.setAllowedExtensions("jpg,jpeg,png,webp");
+
+        storageService = new S3StorageService(s3Client, s3Presigner, BUCKET, multipartProperties, executor);
+        staging = new S3UploadStaging(s3Client, storageService, new FileValidationService(fileStorageProperties),
+                BUCKET, multipartProperties, executor);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        executor.shutdown();
+        s3Presigner.close();
+        s3Client.close();
+    }
+
+    // A real JPEG header followed by random padding, so the content passes validation at any size.
+    private static byte[] jpeg(int size) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(32, 32, BufferedImage.TYPE_INT_RGB), "jpg", output);
+        byte[] header = output.toByteArray();
+
+        byte[] data = new byte[size];
+        new Random(42).nextBytes(data);
+        System.arraycopy(header, 0, data, 0, header.length);
+        return data;
+    }
+
+    private UploadSession begin(long size) {
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setStoredName(UUID.randomUUID() + ".jpg");
+        session.setContentType("image/jpeg");
+        session.setSize(size);
+        session.setChunkSize((long) PART_SIZE);
+        staging.begin(session);
+        return session;
+    }
+
+    private long append(UploadSession session, byte[] data, int from, int to) {
+        long offset = staging.append(session, new ByteArrayInputStream(data, from, to - from), to - from);
+        session.setUploadOffset(offset);
+        return offset;
+    }
+
+    @Test
+    @DisplayName("Should reject a chunk that ends mid-part before the end of the file, naming the part size")
+    void shouldRejectShortChunk() throws IOException {
+        byte[] data = jpeg(PART_SIZE * 2 + 100);
+        UploadSession session = begin(data.length);
+
+        ByteArrayInputStream chunk = new ByteArrayInputStream(data, 0, PART_SIZE + 10);
+        assertThatThrownBy(() -> staging.append(session, chunk, PART_SIZE + 10))
+                .isInstanceOf(InvalidFileException.class)
+                .hasMessageContaining(String.valueOf(PART_SIZE));
+        assertThat(chunk.available()).isEqualTo(PART_SIZE + 10);
+        assertThat(session.getUploadOffset()).isZero();
+
+        staging.abort(session);
+    }
+
+    @Test
+    @DisplayName("Should keep only whole parts of a cut-off chunk")
+    void shouldKeepWholePartsOfCutOffChunk() throws IOException {
+        byte[] data = jpeg(PART_SIZE * 2 + 100);
+        UploadSession session = begin(data.length);
+
+        // Two parts announced, one and a half arrived.
+        long offset = staging.append(session, new ByteArrayInputStream(data, 0, PART_SIZE + PART_SIZE / 2), 2L * PART_SIZE);
+        assertThat(offset).isEqualTo(PART_SIZE);
+
+        staging.abort(session);
+    }
+
+    @Test
+    @DisplayName("Should split uploads at the session's part size and assemble them on completion")
+    void shouldCompleteUpload() throws IOException {
+        byte[] data = jpeg(PART_SIZE * 2 + 100);
+        UploadSession session = begin(data.length);
+
+        assertThat(append(session, data, 0, PART_SIZE)).isEqualTo(PART_SIZE);
+        assertThat(append(session, data, PART_SIZE, data.length)).isEqualTo(data.length);
+
+        UploadStaging.CompletedUpload completed = staging.complete(session);
+
+        CRC32 crc32 = new CRC32();
+        crc32.update(data);
+        assertThat(completed.crc32()).isEqualTo(crc32.getValue());
+        assertThat(completed.blob().size()).isEqualTo(data.length);
+        assertThat(storageService.load(completed.blob().path()).getInputStream().readAllBytes()).isEqualTo(data);
+    }
+}